@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.common.adhoc;
+
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
+import com.baifendian.swordfish.dao.utils.json.JsonUtil;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 即席查询结果分片的读取器, 与 {@link AdHocResultWriter} 对应 <p>
+ */
+public class AdHocResultReader {
+
+  /**
+   * 分片文件存放的目录
+   */
+  private final String resultDir;
+
+  /**
+   * 每个分片的行数
+   */
+  private final int segmentRows;
+
+  /**
+   * 分片数
+   */
+  private final int segmentCount;
+
+  public AdHocResultReader(String resultDir, int segmentRows, int segmentCount) {
+    this.resultDir = resultDir;
+    this.segmentRows = segmentRows;
+    this.segmentCount = segmentCount;
+  }
+
+  /**
+   * 读取一页数据, 只会打开包含这页数据的分片
+   *
+   * @param from 起始行, 从 0 开始
+   * @param size 行数
+   */
+  public List<List<String>> read(long from, int size) throws IOException {
+    List<List<String>> rows = new ArrayList<>();
+
+    int segment = (int) (from / segmentRows);
+    long skip = from % segmentRows;
+
+    for (; segment < segmentCount && rows.size() < size; ++segment) {
+      try (BufferedReader reader = openSegment(segment)) {
+        String line;
+
+        while (rows.size() < size && (line = reader.readLine()) != null) {
+          if (skip > 0) {
+            --skip;
+            continue;
+          }
+
+          rows.add(JsonUtil.parseObjectList(line, String.class));
+        }
+      }
+    }
+
+    return rows;
+  }
+
+  /**
+   * 以 csv 的格式输出所有的结果, 每次只保留一行在内存中
+   */
+  public void transferTo(List<String> titles, OutputStream out) throws IOException {
+    BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+    if (titles != null) {
+      writeCsvRow(writer, titles);
+    }
+
+    for (int segment = 0; segment < segmentCount; ++segment) {
+      try (BufferedReader reader = openSegment(segment)) {
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+          writeCsvRow(writer, JsonUtil.parseObjectList(line, String.class));
+        }
+      }
+    }
+
+    writer.flush();
+  }
+
+  /**
+   * 以 csv 的格式输出内存中的结果, 用于没有分片的情况
+   */
+  public static void transferTo(List<String> titles, List<List<String>> rows, OutputStream out)
+      throws IOException {
+    BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+    if (titles != null) {
+      writeCsvRow(writer, titles);
+    }
+
+    if (rows != null) {
+      for (List<String> row : rows) {
+        writeCsvRow(writer, row);
+      }
+    }
+
+    writer.flush();
+  }
+
+  private BufferedReader openSegment(int segment) throws IOException {
+    return new BufferedReader(new InputStreamReader(
+        new GZIPInputStream(open(AdHocResultWriter.getSegmentFile(resultDir, segment))),
+        StandardCharsets.UTF_8));
+  }
+
+  /**
+   * 打开分片文件
+   */
+  InputStream open(String file) throws IOException {
+    return HdfsClient.getInstance().open(file);
+  }
+
+  /**
+   * 写一行 csv, 包含分隔符, 引号或换行的字段需要加引号
+   */
+  static void writeCsvRow(BufferedWriter writer, List<String> row) throws IOException {
+    for (int i = 0; i < row.size(); ++i) {
+      if (i > 0) {
+        writer.write(',');
+      }
+
+      String value = row.get(i);
+
+      if (value == null) {
+        continue;
+      }
+
+      if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+          || value.indexOf('\r') >= 0) {
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+      } else {
+        writer.write(value);
+      }
+    }
+
+    writer.newLine();
+  }
+}
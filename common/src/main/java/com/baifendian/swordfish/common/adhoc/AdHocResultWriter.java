@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.common.adhoc;
+
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
+import com.baifendian.swordfish.dao.utils.json.JsonUtil;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 即席查询结果的写入器 <p>
+ *
+ * 第一页结果保存在内存中(最终写入数据库), 超过第一页后, 所有的结果按行写入压缩的分片文件, 每行为一个 json 数组. <p>
+ * 结果不超过第一页时, 不会产生任何文件.
+ */
+public class AdHocResultWriter implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AdHocResultWriter.class);
+
+  /**
+   * 分片文件存放的目录
+   */
+  private final String resultDir;
+
+  /**
+   * 第一页的行数
+   */
+  private final int firstPageRows;
+
+  /**
+   * 每个分片的行数
+   */
+  private final int segmentRows;
+
+  /**
+   * 第一页数据
+   */
+  private final List<List<String>> firstPage = new ArrayList<>();
+
+  /**
+   * 总的行数
+   */
+  private long rowCount = 0;
+
+  /**
+   * 已经创建的分片数
+   */
+  private int segmentCount = 0;
+
+  /**
+   * 当前分片已写入的行数
+   */
+  private int segmentRowCount = 0;
+
+  /**
+   * 当前分片的输出
+   */
+  private BufferedWriter segmentWriter;
+
+  public AdHocResultWriter(String resultDir, int firstPageRows, int segmentRows) {
+    this.resultDir = resultDir;
+    this.firstPageRows = firstPageRows;
+    this.segmentRows = segmentRows;
+  }
+
+  /**
+   * 写入一行数据
+   */
+  public void write(List<String> row) throws IOException {
+    ++rowCount;
+
+    if (rowCount <= firstPageRows) {
+      firstPage.add(row);
+      return;
+    }
+
+    // 第一次超过第一页, 需要把第一页也写到分片中, 保证分片中是完整的结果
+    if (segmentCount == 0) {
+      for (List<String> pageRow : firstPage) {
+        writeSegmentRow(pageRow);
+      }
+    }
+
+    writeSegmentRow(row);
+  }
+
+  /**
+   * 写入一行到分片中, 满了就切换下一个分片
+   */
+  private void writeSegmentRow(List<String> row) throws IOException {
+    if (segmentWriter == null || segmentRowCount >= segmentRows) {
+      nextSegment();
+    }
+
+    segmentWriter.write(JsonUtil.toJsonString(row));
+    segmentWriter.newLine();
+
+    ++segmentRowCount;
+  }
+
+  /**
+   * 关闭当前分片, 创建下一个分片
+   */
+  private void nextSegment() throws IOException {
+    closeSegment();
+
+    String segmentFile = getSegmentFile(resultDir, segmentCount);
+
+    LOGGER.debug("Create ad hoc result segment: {}", segmentFile);
+
+    segmentWriter = new BufferedWriter(new OutputStreamWriter(
+        new GZIPOutputStream(HdfsClient.getInstance().create(segmentFile, true)),
+        StandardCharsets.UTF_8));
+
+    segmentRowCount = 0;
+    ++segmentCount;
+  }
+
+  private void closeSegment() throws IOException {
+    if (segmentWriter != null) {
+      segmentWriter.close();
+      segmentWriter = null;
+    }
+  }
+
+  /**
+   * 得到第一页数据
+   */
+  public List<List<String>> getFirstPage() {
+    return firstPage;
+  }
+
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  public int getSegmentCount() {
+    return segmentCount;
+  }
+
+  public int getSegmentRows() {
+    return segmentRows;
+  }
+
+  /**
+   * 得到结果目录, 没有写分片时返回 null
+   */
+  public String getResultDir() {
+    return (segmentCount > 0) ? resultDir : null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    closeSegment();
+  }
+
+  /**
+   * 分片文件的名称
+   */
+  static String getSegmentFile(String resultDir, int segment) {
+    return String.format("%s/part-%05d.gz", resultDir, segment);
+  }
+}
@@ -15,7 +15,6 @@
  */
 package com.baifendian.swordfish.common.config;
 
-import com.baifendian.swordfish.common.enums.ExternalJobType;
 import com.baifendian.swordfish.common.utils.http.HttpUtil;
 import java.io.File;
 import java.io.FileInputStream;
@@ -54,6 +53,9 @@ public class BaseConfig {
   // hdfs 导入导出的临时目录
   private static String hdfsImpexpBasePath;
 
+  // hdfs 即席查询结果分片目录
+  private static String hdfsAdHocResultBasePath;
+
   // 禁用用户列表
   private static Set<String> prohibitUserSet;
 
@@ -82,6 +84,7 @@ public class BaseConfig {
       hdfsDataBasePath = properties.getProperty("hdfs.data.basepath");
       hdfsUdfJarBasePath = properties.getProperty("hdfs.udfjar.basepath");
       hdfsImpexpBasePath = properties.getProperty("hdfs.impexp.basepath");
+      hdfsAdHocResultBasePath = properties.getProperty("hdfs.adhoc.result.basepath");
 
       systemEnvPath = properties.getProperty("sf.env.file");
 
@@ -213,6 +216,13 @@ public class BaseConfig {
             Long.toString(execId));
   }
 
+  /**
+   * 资源文件下载的暂存目录
+   */
+  public static String getExecStagingDir() {
+    return MessageFormat.format("{0}/staging", localExecBasePath);
+  }
+
   /**
    * 获取 ImpExp 执行的项目根目录
    */
@@ -240,25 +250,26 @@ public class BaseConfig {
   }
 
   /**
-   * 返回 hive 的 udf jar 路径, 注意, 这里没有 project 的信息(其实应该用 project id)
+   * 即席查询结果分片的根目录
    */
-  public static String getJobHiveUdfJarPath(long execId, ExternalJobType externalJobType) {
+  public static String getHdfsAdHocResultDir(long execId) {
     return MessageFormat
-        .format("{0}/{1}/{2}", hdfsUdfJarBasePath, externalJobType.name(), Long.toString(execId));
+        .format("{0}/{1}", hdfsAdHocResultBasePath, Long.toString(execId));
   }
 
   /**
-   * 得到路径
+   * 即席查询某条语句的结果分片目录
    */
-  public static String getJobHiveUdfJarPath(long execId, ExternalJobType externalJobType,
-      String nodeName) {
-    if (StringUtils.isEmpty(nodeName)) {
-      return getJobHiveUdfJarPath(execId, externalJobType);
-    }
-
+  public static String getHdfsAdHocResultDir(long execId, int index) {
     return MessageFormat
-        .format("{0}/{1}", getJobHiveUdfJarPath(execId, externalJobType),
-            HttpUtil.getMd5(nodeName).substring(0, 8));
+        .format("{0}/{1}", getHdfsAdHocResultDir(execId), Integer.toString(index));
+  }
+
+  /**
+   * hdfs 上 udf jar 的共享存储目录, jar 按内容的哈希存放, 各个执行共用
+   */
+  public static String getHdfsUdfJarStoreDir() {
+    return MessageFormat.format("{0}/store", hdfsUdfJarBasePath);
   }
 
   /**
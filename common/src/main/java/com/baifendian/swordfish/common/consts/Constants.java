@@ -82,4 +82,19 @@ public class Constants {
    * 超时的上限设置
    */
   public static final int TASK_MAX_TIMEOUT = 86400;
+
+  /**
+   * 即席查询结果的上限(超过第一页的部分会写入结果分片文件)
+   */
+  public static final int ADHOC_MAX_LIMIT = 1000000;
+
+  /**
+   * 即席查询结果保存在数据库中的第一页的行数
+   */
+  public static final int ADHOC_RESULT_FIRST_PAGE_ROWS = 1000;
+
+  /**
+   * 即席查询结果每个分片文件的行数
+   */
+  public static final int ADHOC_RESULT_SEGMENT_ROWS = 50000;
 }
@@ -30,6 +30,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.ContentSummary;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileChecksum;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FileUtil;
@@ -432,6 +433,39 @@ public class HdfsClient implements Closeable {
     return true;
   }
 
+  /**
+   * 创建 hdfs 文件, 返回输出流, 由调用者负责关闭
+   *
+   * @param filePath  hdfs 文件路径
+   * @param overwrite 是否覆盖已存在的文件
+   * @return {@link FSDataOutputStream}
+   * @throws HdfsException
+   */
+  public FSDataOutputStream create(String filePath, boolean overwrite) throws HdfsException {
+    try {
+      return fileSystem.create(new Path(filePath), overwrite);
+    } catch (IOException e) {
+      LOGGER.error("Create file exception", e);
+      throw new HdfsException("Create file exception", e);
+    }
+  }
+
+  /**
+   * 打开 hdfs 文件, 返回输入流, 由调用者负责关闭
+   *
+   * @param filePath hdfs 文件路径
+   * @return {@link FSDataInputStream}
+   * @throws HdfsException
+   */
+  public FSDataInputStream open(String filePath) throws HdfsException {
+    try {
+      return fileSystem.open(new Path(filePath));
+    } catch (IOException e) {
+      LOGGER.error("Open file exception", e);
+      throw new HdfsException("Open file exception", e);
+    }
+  }
+
   /**
    * 获取文件或目录的逻辑空间大小（单位为 Byte)
    *
@@ -469,6 +503,21 @@ public class HdfsClient implements Closeable {
     }
   }
 
+  /**
+   * 获取文件的校验和, 内容相同的文件校验和相同, 文件系统不支持时返回 null
+   *
+   * @param filePath
+   * @return {@link FileChecksum}
+   */
+  public FileChecksum getFileChecksum(String filePath) {
+    try {
+      return fileSystem.getFileChecksum(new Path(filePath));
+    } catch (IOException e) {
+      LOGGER.error("Get file checksum exception", e);
+      throw new HdfsException("Get file checksum exception", e);
+    }
+  }
+
   /**
    * 获取目录下的文件列表
    *
@@ -501,6 +550,15 @@ public class HdfsClient implements Closeable {
     }
   }
 
+  /**
+   * 获取底层的文件系统, 用于需要直接操作 {@link FileSystem} 的场景, 如写 orc 文件
+   *
+   * @return {@link FileSystem}
+   */
+  public FileSystem getFileSystem() {
+    return fileSystem;
+  }
+
   /**
    * 获取 hdfs url地址
    *
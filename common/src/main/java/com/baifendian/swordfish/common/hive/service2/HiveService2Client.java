@@ -32,9 +32,19 @@ public class HiveService2Client {
   private int maxActive = 512;
 
   /**
-   * 链接池中最大空闲的连接数
+   * 每个 key 最大空闲的连接数
    */
-  private int maxIdle = 128;
+  private int maxIdle = 8;
+
+  /**
+   * 所有 key 的连接总数, 达到后会清理最老的空闲连接
+   */
+  private int maxTotal = 512;
+
+  /**
+   * 空闲超过该时间的连接会被回收, 避免服务端会话超时, 单位毫秒
+   */
+  private int minEvictableIdleTimeMillis = 30 * 60 * 1000;
 
   /**
    * 连接池中最少空闲的连接数
@@ -96,12 +106,15 @@ public class HiveService2Client {
 
     poolConfig.maxActive = maxActive;
     poolConfig.maxIdle = maxIdle;
+    poolConfig.maxTotal = maxTotal;
+    poolConfig.minEvictableIdleTimeMillis = minEvictableIdleTimeMillis;
     poolConfig.minIdle = minIdle;
     poolConfig.maxWait = maxWait;
     poolConfig.timeBetweenEvictionRunsMillis = timeBetweenEvictionRunsMillis;
     poolConfig.testWhileIdle = testWhileIdle;
     poolConfig.testOnBorrow = true;
-    poolConfig.testOnReturn = true;
+    // 归还时由使用方决定是否作废, 不需要再校验
+    poolConfig.testOnReturn = false;
 
     HiveService2PoolFactory clientFactory = new HiveService2PoolFactory();
 
@@ -16,9 +16,13 @@
 package com.baifendian.swordfish.common.hive.service2;
 
 import com.google.common.base.Objects;
+import java.util.List;
 
 /**
- * Hive 连接参数信息
+ * Hive 连接参数信息 <p>
+ *
+ * 同时也是连接池的 key, 按 (用户, 队列, udf 集合) 区分, 同一个 key 的连接在创建时执行相同的初始化语句,
+ * 所以复用的连接已经设置好了队列和函数.
  */
 public class HiveService2ConnectionInfo {
 
@@ -28,6 +32,21 @@ public class HiveService2ConnectionInfo {
 
   private String uri;
 
+  /**
+   * 队列
+   */
+  private String queue;
+
+  /**
+   * udf 集合的哈希值, 包括 jar 的内容和函数的定义
+   */
+  private String udfsHash;
+
+  /**
+   * 创建连接后执行的初始化语句, 由 queue 和 udfsHash 决定, 不参与比较
+   */
+  private List<String> setupSqls;
+
   @Override
   public boolean equals(Object other) {
     if (this == other) {
@@ -36,7 +55,9 @@ public class HiveService2ConnectionInfo {
 
     if (other instanceof HiveService2ConnectionInfo) {
       HiveService2ConnectionInfo that = (HiveService2ConnectionInfo) other;
-      return Objects.equal(this.user, that.user) && this.password == that.password && Objects.equal(this.uri, that.uri);
+      return Objects.equal(this.user, that.user) && Objects.equal(this.password, that.password)
+          && Objects.equal(this.uri, that.uri) && Objects.equal(this.queue, that.queue)
+          && Objects.equal(this.udfsHash, that.udfsHash);
     }
 
     return false;
@@ -44,7 +65,7 @@ public class HiveService2ConnectionInfo {
 
   @Override
   public int hashCode() {
-    return Objects.hashCode(user, password, uri);
+    return Objects.hashCode(user, password, uri, queue, udfsHash);
   }
 
   public String getUser() {
@@ -71,12 +92,38 @@ public class HiveService2ConnectionInfo {
     this.uri = uri;
   }
 
+  public String getQueue() {
+    return queue;
+  }
+
+  public void setQueue(String queue) {
+    this.queue = queue;
+  }
+
+  public String getUdfsHash() {
+    return udfsHash;
+  }
+
+  public void setUdfsHash(String udfsHash) {
+    this.udfsHash = udfsHash;
+  }
+
+  public List<String> getSetupSqls() {
+    return setupSqls;
+  }
+
+  public void setSetupSqls(List<String> setupSqls) {
+    this.setupSqls = setupSqls;
+  }
+
   @Override
   public String toString() {
     return "HiveService2ConnectionInfo{" +
         "user='" + user + '\'' +
         ", password='" + password + '\'' +
         ", uri='" + uri + '\'' +
+        ", queue='" + queue + '\'' +
+        ", udfsHash='" + udfsHash + '\'' +
         '}';
   }
 }
@@ -16,6 +16,7 @@
 package com.baifendian.swordfish.common.hive.service2;
 
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Properties;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.pool.BaseKeyedPoolableObjectFactory;
@@ -49,12 +50,29 @@ public class HiveService2PoolFactory extends BaseKeyedPoolableObjectFactory {
         info.put("password", hiveService2ConnectionInfo.getPassword());
       }
 
+      HiveConnection connection;
+
       try {
-        HiveConnection connection = new HiveConnection(hiveService2ConnectionInfo.getUri(), info);
-        return connection;
+        connection = new HiveConnection(hiveService2ConnectionInfo.getUri(), info);
       } catch (SQLException e) {
         logger.error("Connection hive exception", e);
+        return null;
+      }
+
+      // 执行初始化语句, 如设置队列, 添加 jar 和创建临时函数, 失败则关闭连接
+      if (hiveService2ConnectionInfo.getSetupSqls() != null) {
+        try (Statement statement = connection.createStatement()) {
+          for (String sql : hiveService2ConnectionInfo.getSetupSqls()) {
+            logger.info("hive session setup sql: {}", sql);
+            statement.execute(sql);
+          }
+        } catch (SQLException e) {
+          connection.close();
+          throw e;
+        }
       }
+
+      return connection;
     }
 
     return null;
@@ -85,10 +103,16 @@ public class HiveService2PoolFactory extends BaseKeyedPoolableObjectFactory {
     HiveConnection hiveConnection = (HiveConnection) obj;
 
     try {
-      boolean isClosed = hiveConnection.isClosed();
-      return !isClosed;
-    } catch (SQLException e) {
-      logger.error("hive close exception", e);
+      if (hiveConnection.isClosed()) {
+        return false;
+      }
+
+      // 会话可能已经在服务端超时, 发送一个轻量的请求校验 (HiveConnection 不支持 isValid)
+      hiveConnection.getMetaData().getDatabaseProductVersion();
+
+      return true;
+    } catch (Exception e) {
+      logger.warn("hive session is invalid", e);
     }
 
     return false;
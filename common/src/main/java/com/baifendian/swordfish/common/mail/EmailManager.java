@@ -50,6 +50,18 @@ public class EmailManager {
       "Final status：{8}<br/>" +
       "Send from host: " + HttpUtil.getHostAddress() + "<br/>";
 
+  /**
+   * 完成期限告警的内容
+   */
+  private static final String SLA_CONTENT_FORMAT = "<b>{0}</b>" +
+      "<hr/>Project name：{1}<br/>" +
+      "Job name：{2}<br/>" +
+      "Schedule time: {3}<br/>" +
+      "Start execution time：{4}<br/>" +
+      "Deadline：{5}<br/>" +
+      "Predicted finish time：{6}<br/>" +
+      "Send from host: " + HttpUtil.getHostAddress() + "<br/>";
+
   /**
    * 发送 EMAIL(调度)
    */
@@ -203,4 +215,32 @@ public class EmailManager {
           streamingResult.getNotifyMailList());
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * 发送工作流完成期限的告警, 不受报警策略的限制, 有报警邮箱即发送
+   *
+   * @param predictFinish 预计的完成时间
+   * @param missed 是否已经超过期限, 否则是有超过期限的风险
+   */
+  public static void sendSlaMessageOfExecutionFlow(ExecutionFlow executionFlow,
+      Date predictFinish, boolean missed) {
+    List<String> receivers = executionFlow.getNotifyMailList();
+
+    if (receivers == null || receivers.isEmpty()) {
+      return;
+    }
+
+    String type = missed ? "deadline missed" : "deadline at risk";
+
+    String title = MessageFormat.format(TITLE_FORMAT, "Warning", type);
+
+    String content = MessageFormat.format(SLA_CONTENT_FORMAT, type,
+        executionFlow.getProjectName(), executionFlow.getWorkflowName(),
+        DateUtils.defaultFormat(executionFlow.getScheduleTime()),
+        DateUtils.defaultFormat(executionFlow.getStartTime()),
+        DateUtils.defaultFormat(executionFlow.getDeadline()),
+        DateUtils.defaultFormat(predictFinish));
+
+    MailSendUtil.sendMails(receivers, title, content);
+  }
+}
@@ -1,19 +1,3 @@
-/*
- * Copyright (C) 2017 Baifendian Corporation
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *          http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
 /*
  * Copyright (C) 2017 Baifendian Corporation
  *
@@ -31,11 +15,22 @@
  */
 package com.baifendian.swordfish.common.utils;
 
+import com.baifendian.swordfish.rpc.config.RpcConfig;
+import com.baifendian.swordfish.rpc.config.RpcConfig.Protocol;
+import com.baifendian.swordfish.rpc.config.RpcConfig.ServerMode;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.thrift.TProcessor;
 import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.server.THsHaServer;
 import org.apache.thrift.server.TServer;
 import org.apache.thrift.server.TThreadPoolServer;
+import org.apache.thrift.server.TThreadedSelectorServer;
+import org.apache.thrift.transport.TNonblockingServerSocket;
 import org.apache.thrift.transport.TServerSocket;
 import org.apache.thrift.transport.TServerTransport;
 import org.apache.thrift.transport.TTransportException;
@@ -54,4 +49,69 @@ public class ThriftUtil {
     serverArgs.protocolFactory(protocolFactory);
     return new TThreadPoolServer(serverArgs);
   }
+
+  /**
+   * 按照 rpc 的配置创建 thrift server
+   */
+  public static TServer getTServer(TProcessor processor, InetSocketAddress inetSocketAddress,
+      int minWorkerThreads, int maxWorkerThreads) throws TTransportException {
+    return getTServer(RpcConfig.getServerMode(), RpcConfig.getProtocol(), processor,
+        inetSocketAddress, minWorkerThreads, maxWorkerThreads);
+  }
+
+  /**
+   * 创建 thrift server, 非阻塞的模式下连接不占用线程, 工作线程只在处理请求时使用
+   */
+  public static TServer getTServer(ServerMode serverMode, Protocol protocol, TProcessor processor,
+      InetSocketAddress inetSocketAddress, int minWorkerThreads, int maxWorkerThreads)
+      throws TTransportException {
+    TProtocolFactory protocolFactory = RpcConfig.getProtocolFactory(protocol);
+    TTransportFactory transportFactory = RpcConfig.getTransportFactory(serverMode);
+
+    switch (serverMode) {
+      case HSHA: {
+        THsHaServer.Args serverArgs = new THsHaServer.Args(
+            new TNonblockingServerSocket(inetSocketAddress));
+        serverArgs.executorService(getWorkerExecutor(maxWorkerThreads));
+        serverArgs.maxReadBufferBytes = RpcConfig.getMaxFrameSize();
+        serverArgs.processor(processor);
+        serverArgs.transportFactory(transportFactory);
+        serverArgs.protocolFactory(protocolFactory);
+        return new THsHaServer(serverArgs);
+      }
+      case THREADED_SELECTOR: {
+        TThreadedSelectorServer.Args serverArgs = new TThreadedSelectorServer.Args(
+            new TNonblockingServerSocket(inetSocketAddress));
+        serverArgs.selectorThreads(RpcConfig.getSelectorThreads());
+        serverArgs.executorService(getWorkerExecutor(maxWorkerThreads));
+        serverArgs.maxReadBufferBytes = RpcConfig.getMaxFrameSize();
+        serverArgs.processor(processor);
+        serverArgs.transportFactory(transportFactory);
+        serverArgs.protocolFactory(protocolFactory);
+        return new TThreadedSelectorServer(serverArgs);
+      }
+      case THREAD_POOL:
+      default:
+        return getTThreadPoolServer(protocolFactory, processor, transportFactory, inetSocketAddress,
+            minWorkerThreads, maxWorkerThreads);
+    }
+  }
+
+  /**
+   * 非阻塞 server 的工作线程池, 最多 maxWorkerThreads 个线程, 多余的请求排队, 空闲的线程会被回收
+   */
+  private static ExecutorService getWorkerExecutor(int maxWorkerThreads) {
+    AtomicInteger count = new AtomicInteger();
+
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(maxWorkerThreads, maxWorkerThreads,
+        60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "Thrift-Worker-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    executor.allowCoreThreadTimeOut(true);
+
+    return executor;
+  }
 }
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.common.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮 <p>
+ *
+ * 最底层每格一个 tick, 共 wheelSize 格; 超出本层范围的放到上一层 (每格为下一层的一圈), 按需创建. 下层转完一圈时,
+ * 上层前进一格, 把该格中的元素重新放入下层. 加入和到期都是 O(1) 的, 只在推进的线程中访问, 不是线程安全的. <p>
+ *
+ * 时间按绝对的毫秒对齐, 比如 tick 为 1 秒, wheelSize 为 60 时, 第二层正好按分钟对齐.
+ *
+ * @param <T> 元素类型
+ */
+public class TimingWheel<T> {
+
+  /**
+   * 每格的时长, 单位毫秒
+   */
+  private final long tickMillis;
+
+  /**
+   * 格数
+   */
+  private final int wheelSize;
+
+  /**
+   * 一圈的时长
+   */
+  private final long interval;
+
+  /**
+   * 各格中的元素
+   */
+  private final List<Entry<T>>[] buckets;
+
+  /**
+   * 已经推进到的时间, 按 tick 对齐, 该格已经处理过
+   */
+  private long currentTime;
+
+  /**
+   * 上一层, 按需创建
+   */
+  private TimingWheel<T> overflowWheel;
+
+  /**
+   * @param tickMillis 每格的时长, 单位毫秒
+   * @param wheelSize 格数
+   * @param startMillis 开始时间
+   */
+  @SuppressWarnings("unchecked")
+  public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+    this.tickMillis = tickMillis;
+    this.wheelSize = wheelSize;
+    this.interval = tickMillis * wheelSize;
+    this.buckets = new List[wheelSize];
+    this.currentTime = startMillis - (startMillis % tickMillis);
+
+    for (int i = 0; i < wheelSize; ++i) {
+      buckets[i] = new ArrayList<>();
+    }
+  }
+
+  /**
+   * 加入一个元素, 已经到期的在下一格到期
+   *
+   * @param value 元素
+   * @param expireMillis 到期时间
+   * @return 加入的条目, 可以用来取消
+   */
+  public Entry<T> add(T value, long expireMillis) {
+    Entry<T> entry = new Entry<>(value, expireMillis);
+
+    if (!add(entry)) {
+      buckets[(int) ((currentTime / tickMillis + 1) % wheelSize)].add(entry);
+    }
+
+    return entry;
+  }
+
+  /**
+   * 推进到指定的时间, 到期的元素交给 expired, 已经取消的忽略
+   *
+   * @param nowMillis 当前时间
+   * @param expired 到期的处理, 其中可以再加入元素
+   */
+  public void advance(long nowMillis, Consumer<Entry<T>> expired) {
+    while (currentTime + tickMillis <= nowMillis) {
+      tick(entry -> {
+        if (!entry.cancelled) {
+          expired.accept(entry);
+        }
+      });
+    }
+  }
+
+  /**
+   * 已经推进到的时间
+   */
+  public long getCurrentTime() {
+    return currentTime;
+  }
+
+  /**
+   * 放入本层, 超出范围的放入上一层
+   *
+   * @return 是否放入, 在本层当前格内到期的返回 false
+   */
+  private boolean add(Entry<T> entry) {
+    if (entry.cancelled) {
+      return true;
+    }
+
+    if (entry.expire < currentTime + tickMillis) {
+      return false;
+    }
+
+    if (entry.expire < currentTime + interval) {
+      buckets[(int) ((entry.expire / tickMillis) % wheelSize)].add(entry);
+    } else {
+      getOverflowWheel().add(entry);
+    }
+
+    return true;
+  }
+
+  /**
+   * 前进一格, 转完一圈时先让上一层前进一格, 把其中的元素放入本层
+   */
+  private void tick(Consumer<Entry<T>> expired) {
+    currentTime += tickMillis;
+
+    if (overflowWheel != null && currentTime % interval == 0) {
+      overflowWheel.tick(entry -> {
+        if (!add(entry)) {
+          expired.accept(entry);
+        }
+      });
+    }
+
+    int index = (int) ((currentTime / tickMillis) % wheelSize);
+    List<Entry<T>> bucket = buckets[index];
+
+    if (!bucket.isEmpty()) {
+      buckets[index] = new ArrayList<>();
+      bucket.forEach(expired);
+    }
+  }
+
+  private TimingWheel<T> getOverflowWheel() {
+    if (overflowWheel == null) {
+      overflowWheel = new TimingWheel<>(interval, wheelSize, currentTime);
+    }
+
+    return overflowWheel;
+  }
+
+  /**
+   * 时间轮中的条目
+   */
+  public static class Entry<T> {
+
+    private final T value;
+
+    private final long expire;
+
+    private volatile boolean cancelled;
+
+    Entry(T value, long expire) {
+      this.value = value;
+      this.expire = expire;
+    }
+
+    public T getValue() {
+      return value;
+    }
+
+    /**
+     * 到期时间, 单位毫秒
+     */
+    public long getExpire() {
+      return expire;
+    }
+
+    /**
+     * 取消, 到期时不再处理
+     */
+    public void cancel() {
+      cancelled = true;
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.common.utils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 流式解压 zip <p>
+ *
+ * 边读边解压, 不需要先落地 zip 文件, 输入可以直接是 hdfs 的输入流. 条目不能解压到目标目录之外 (zip slip), 解压的总字节数和条目数有上限,
+ * 按实际写出的字节计算, 不信任条目头中的大小. 流式读取拿不到中央目录中的权限, 解压出的文件统一设置为所有人可读可执行.
+ */
+public class ZipExtractor {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * 解压的总字节数上限, 0 表示不限制
+   */
+  private final long maxBytes;
+
+  /**
+   * 条目数上限, 0 表示不限制
+   */
+  private final int maxEntries;
+
+  /**
+   * @param maxBytes 解压的总字节数上限, 0 表示不限制
+   * @param maxEntries 条目数上限, 0 表示不限制
+   */
+  public ZipExtractor(long maxBytes, int maxEntries) {
+    this.maxBytes = maxBytes;
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * 解压到指定的目录, 超过限制时抛出异常, 已经解压出的文件由调用方清理
+   *
+   * @param in zip 输入流, 解压完成后关闭
+   * @param destDir 目标目录
+   * @param filter 需要解压的条目, 参数为条目的名称
+   * @return 解压出的字节数
+   * @throws IOException
+   */
+  public long extract(InputStream in, File destDir, Predicate<String> filter) throws IOException {
+    String destPath = destDir.getCanonicalPath();
+    byte[] buffer = new byte[BUFFER_SIZE];
+
+    long bytes = 0;
+    int entries = 0;
+
+    try (ZipInputStream zin = new ZipInputStream(new BufferedInputStream(in, BUFFER_SIZE))) {
+      ZipEntry entry;
+
+      while ((entry = zin.getNextEntry()) != null) {
+        if (maxEntries > 0 && ++entries > maxEntries) {
+          throw new IOException("too many zip entries, max: " + maxEntries);
+        }
+
+        String name = entry.getName();
+        File file = new File(destDir, name);
+        String path = file.getCanonicalPath();
+
+        if (!path.equals(destPath) && !path.startsWith(destPath + File.separator)) {
+          throw new IOException("zip entry is outside of the target dir: " + name);
+        }
+
+        if (!filter.test(name)) {
+          continue;
+        }
+
+        if (entry.isDirectory()) {
+          mkdirs(file);
+          continue;
+        }
+
+        mkdirs(file.getParentFile());
+
+        try (OutputStream out = new FileOutputStream(file)) {
+          int n;
+
+          while ((n = zin.read(buffer)) > 0) {
+            bytes += n;
+
+            if (maxBytes > 0 && bytes > maxBytes) {
+              throw new IOException("zip extracted size exceeds the limit: " + maxBytes);
+            }
+
+            out.write(buffer, 0, n);
+          }
+        }
+
+        file.setReadable(true, false);
+        file.setExecutable(true, false);
+      }
+    }
+
+    return bytes;
+  }
+
+  private static void mkdirs(File dir) throws IOException {
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("create dir failed: " + dir);
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.common.adhoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.baifendian.swordfish.dao.utils.json.JsonUtil;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class AdHocResultReaderTest {
+
+  @Test
+  public void testTransferToCsv() throws Exception {
+    List<String> titles = Arrays.asList("id", "name");
+    List<List<String>> rows = Arrays.asList(
+        Arrays.asList("1", "a,b"),
+        Arrays.asList("2", "say \"hi\""),
+        Arrays.asList("3", null));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    AdHocResultReader.transferTo(titles, rows, out);
+
+    String newLine = System.lineSeparator();
+
+    assertEquals("id,name" + newLine
+            + "1,\"a,b\"" + newLine
+            + "2,\"say \"\"hi\"\"\"" + newLine
+            + "3," + newLine,
+        new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testWriterKeepFirstPageInMemory() throws Exception {
+    AdHocResultWriter writer = new AdHocResultWriter("/not/used", 10, 100);
+
+    for (int i = 0; i < 10; ++i) {
+      writer.write(Arrays.asList(Integer.toString(i)));
+    }
+
+    writer.close();
+
+    assertEquals(10, writer.getRowCount());
+    assertEquals(10, writer.getFirstPage().size());
+    assertEquals(0, writer.getSegmentCount());
+    assertNull(writer.getResultDir());
+  }
+
+  @Test
+  public void testReadAcrossSegments() throws Exception {
+    File dir = Files.createTempDirectory("adhoc-result").toFile();
+
+    try {
+      // 3 个分片, 每个 10 行, 最后一个只有 5 行
+      for (int segment = 0; segment < 3; ++segment) {
+        File file = new File(AdHocResultWriter.getSegmentFile(dir.getPath(), segment));
+
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+            new GZIPOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8))) {
+          for (int i = segment * 10; i < Math.min(segment * 10 + 10, 25); ++i) {
+            writer.write(JsonUtil.toJsonString(Arrays.asList(Integer.toString(i))));
+            writer.newLine();
+          }
+        }
+      }
+
+      AdHocResultReader reader = new AdHocResultReader(dir.getPath(), 10, 3) {
+        @Override
+        InputStream open(String file) throws IOException {
+          return new FileInputStream(file);
+        }
+      };
+
+      // 跨越第一和第二个分片
+      List<List<String>> rows = reader.read(7, 6);
+
+      assertEquals(6, rows.size());
+
+      for (int i = 0; i < rows.size(); ++i) {
+        assertEquals(Arrays.asList(Integer.toString(7 + i)), rows.get(i));
+      }
+
+      // 超过末尾时只返回剩余的行
+      rows = reader.read(18, 100);
+
+      assertEquals(7, rows.size());
+      assertEquals(Arrays.asList("18"), rows.get(0));
+      assertEquals(Arrays.asList("24"), rows.get(6));
+
+      assertEquals(0, reader.read(25, 10).size());
+    } finally {
+      FileUtils.deleteDirectory(dir);
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.common.utils;
+
+import com.baifendian.swordfish.rpc.HeartBeatData;
+import com.baifendian.swordfish.rpc.MasterService;
+import com.baifendian.swordfish.rpc.RetInfo;
+import com.baifendian.swordfish.rpc.WorkerService;
+import com.baifendian.swordfish.rpc.config.RpcConfig;
+import com.baifendian.swordfish.rpc.config.RpcConfig.Protocol;
+import com.baifendian.swordfish.rpc.config.RpcConfig.ServerMode;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.apache.thrift.TProcessor;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.transport.TTransport;
+
+/**
+ * thrift 各个服务端模式和协议的压测 <p>
+ *
+ * 分别压测心跳 (MasterService.executorReport) 和提交 flow (WorkerService.execFlow), 每个客户端线程持有一个长连接,
+ * 输出吞吐, 延迟的 p50/p99/p999 以及服务端的线程数. 参数: [客户端数] [每个模式的压测秒数] [服务端处理耗时毫秒]
+ */
+public class ThriftServerBenchmark {
+
+  private static final String HOST = "127.0.0.1";
+
+  public static void main(String[] args) throws Exception {
+    int clients = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+    int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+    int serviceMillis = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+
+    System.out.println(String.format("%-18s %-8s %-10s %10s %8s %8s %8s %8s", "mode", "protocol",
+        "rpc", "qps", "p50(ms)", "p99(ms)", "p999(ms)", "threads"));
+
+    for (ServerMode serverMode : ServerMode.values()) {
+      for (Protocol protocol : Protocol.values()) {
+        run(serverMode, protocol, "heartbeat", clients, seconds, serviceMillis);
+        run(serverMode, protocol, "execFlow", clients, seconds, serviceMillis);
+      }
+    }
+  }
+
+  private static void run(ServerMode serverMode, Protocol protocol, String rpc, int clients,
+      int seconds, int serviceMillis) throws Exception {
+    int port;
+
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+
+    TProcessor processor = rpc.equals("heartbeat")
+        ? new MasterService.Processor<>(stub(MasterService.Iface.class, serviceMillis))
+        : new WorkerService.Processor<>(stub(WorkerService.Iface.class, serviceMillis));
+
+    int threadsBefore = Thread.activeCount();
+
+    TServer server = ThriftUtil.getTServer(serverMode, protocol, processor,
+        new InetSocketAddress(HOST, port), 10, 50);
+
+    Thread serverThread = new Thread(server::serve);
+    serverThread.setDaemon(true);
+    serverThread.start();
+
+    while (!server.isServing()) {
+      Thread.sleep(10);
+    }
+
+    long deadline = System.currentTimeMillis() + seconds * 1000L;
+    List<long[]> latencies = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch connected = new CountDownLatch(clients);
+    CountDownLatch done = new CountDownLatch(clients);
+
+    for (int i = 0; i < clients; ++i) {
+      Thread client = new Thread(() -> {
+        long[] samples = new long[1024];
+        int count = 0;
+
+        TTransport transport = RpcConfig.getClientTransport(HOST, port, 30000, serverMode);
+
+        try {
+          transport.open();
+          connected.countDown();
+          connected.await();
+
+          MasterService.Client masterClient = new MasterService.Client(
+              RpcConfig.getClientProtocol(transport, protocol));
+          WorkerService.Client workerClient = new WorkerService.Client(
+              RpcConfig.getClientProtocol(transport, protocol));
+
+          HeartBeatData heartBeatData = new HeartBeatData().setCpuUsed(0.5).setMemUsed(0.5)
+              .setExecIds(Arrays.asList(1, 2, 3));
+
+          while (System.currentTimeMillis() < deadline) {
+            long start = System.nanoTime();
+
+            if (rpc.equals("heartbeat")) {
+              masterClient.executorReport(HOST, 10000, heartBeatData);
+            } else {
+              workerClient.execFlow(count);
+            }
+
+            if (count == samples.length) {
+              samples = Arrays.copyOf(samples, count * 2);
+            }
+
+            samples[count++] = System.nanoTime() - start;
+          }
+        } catch (Exception e) {
+          System.err.println("client error: " + e);
+          connected.countDown();
+        } finally {
+          transport.close();
+          latencies.add(Arrays.copyOf(samples, count));
+          done.countDown();
+        }
+      });
+
+      client.setDaemon(true);
+      client.start();
+    }
+
+    connected.await();
+
+    // 连接都建立之后服务端的线程数, 扣除客户端线程
+    int serverThreads = Thread.activeCount() - threadsBefore - clients;
+
+    done.await();
+
+    server.stop();
+    serverThread.join(5000);
+
+    long total = 0;
+    for (long[] samples : latencies) {
+      total += samples.length;
+    }
+
+    long[] all = new long[(int) total];
+    int pos = 0;
+
+    for (long[] samples : latencies) {
+      System.arraycopy(samples, 0, all, pos, samples.length);
+      pos += samples.length;
+    }
+
+    Arrays.sort(all);
+
+    System.out.println(String.format("%-18s %-8s %-10s %10.0f %8.2f %8.2f %8.2f %8d", serverMode,
+        protocol, rpc, total / (double) seconds, percentile(all, 0.5), percentile(all, 0.99),
+        percentile(all, 0.999), serverThreads));
+  }
+
+  private static double percentile(long[] sorted, double p) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+
+    return sorted[Math.min((int) (sorted.length * p), sorted.length - 1)] / 1000000.0;
+  }
+
+  /**
+   * 所有方法都等待 serviceMillis 后返回成功
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T stub(Class<T> iface, int serviceMillis) {
+    return (T) Proxy.newProxyInstance(iface.getClassLoader(), new Class[]{iface},
+        (proxy, method, args) -> {
+          if (serviceMillis > 0) {
+            Thread.sleep(serviceMillis);
+          }
+
+          return new RetInfo(0, "success");
+        });
+  }
+}
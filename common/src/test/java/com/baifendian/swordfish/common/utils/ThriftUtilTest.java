@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.common.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import com.baifendian.swordfish.rpc.HeartBeatData;
+import com.baifendian.swordfish.rpc.MasterService;
+import com.baifendian.swordfish.rpc.RetInfo;
+import com.baifendian.swordfish.rpc.config.RpcConfig;
+import com.baifendian.swordfish.rpc.config.RpcConfig.Protocol;
+import com.baifendian.swordfish.rpc.config.RpcConfig.ServerMode;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.transport.TTransport;
+import org.junit.Test;
+
+public class ThriftUtilTest {
+
+  /**
+   * 各个服务端模式和协议下, 客户端都能正常调用
+   */
+  @Test
+  public void testServerModes() throws Exception {
+    MasterService.Iface iface = (MasterService.Iface) Proxy.newProxyInstance(
+        MasterService.Iface.class.getClassLoader(), new Class[]{MasterService.Iface.class},
+        (proxy, method, args) -> new RetInfo(0, String.valueOf(
+            ((HeartBeatData) args[2]).getExecIds())));
+
+    for (ServerMode serverMode : ServerMode.values()) {
+      for (Protocol protocol : Protocol.values()) {
+        int port;
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+          port = socket.getLocalPort();
+        }
+
+        TServer server = ThriftUtil.getTServer(serverMode, protocol,
+            new MasterService.Processor<>(iface), new InetSocketAddress("127.0.0.1", port), 1, 2);
+
+        Thread serverThread = new Thread(server::serve);
+        serverThread.start();
+
+        while (!server.isServing()) {
+          Thread.sleep(10);
+        }
+
+        TTransport transport = RpcConfig.getClientTransport("127.0.0.1", port, 3000, serverMode);
+
+        try {
+          transport.open();
+
+          MasterService.Client client = new MasterService.Client(
+              RpcConfig.getClientProtocol(transport, protocol));
+
+          // 同一个连接上多次调用
+          for (int i = 0; i < 3; ++i) {
+            RetInfo retInfo = client.executorReport("127.0.0.1", 10000,
+                new HeartBeatData().setExecIds(Arrays.asList(i, i + 1)));
+
+            assertEquals(serverMode + " " + protocol, Arrays.asList(i, i + 1).toString(),
+                retInfo.getMsg());
+          }
+        } finally {
+          transport.close();
+          server.stop();
+          serverThread.join(5000);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+  private static final long START = 1500000000000L;
+
+  @Test
+  public void testCascade() {
+    TimingWheel<Long> wheel = new TimingWheel<>(1000, 60, START);
+    Random random = new Random(0);
+
+    // 跨越多层, 最长 2 天
+    List<Long> expires = new ArrayList<>();
+
+    for (int i = 0; i < 1000; ++i) {
+      long expire = START + 1000 + random.nextInt(2 * 24 * 3600) * 1000L;
+
+      expires.add(expire);
+      wheel.add(expire, expire);
+    }
+
+    List<Long> fired = new ArrayList<>();
+
+    for (long now = START; now <= START + 2 * 24 * 3600 * 1000L + 1000; now += 700) {
+      long time = now;
+
+      wheel.advance(now, entry -> {
+        // 在到期的那一格内触发
+        assertTrue(entry.getExpire() <= time);
+        assertTrue(entry.getExpire() > time - 1000 - 700);
+
+        fired.add(entry.getValue());
+      });
+    }
+
+    assertEquals(expires.size(), fired.size());
+  }
+
+  @Test
+  public void testCancelAndReAdd() {
+    TimingWheel<String> wheel = new TimingWheel<>(1000, 60, START);
+
+    wheel.add("cancelled", START + 120 * 1000).cancel();
+    wheel.add("due", START - 5000);
+
+    List<String> fired = new ArrayList<>();
+
+    // 已经到期的在下一格触发, 到期时再加入下一次
+    wheel.advance(START + 1000, entry -> {
+      fired.add(entry.getValue());
+      wheel.add("next", START + 3600 * 1000);
+    });
+
+    assertEquals(1, fired.size());
+    assertEquals("due", fired.get(0));
+
+    wheel.advance(START + 3600 * 1000, entry -> fired.add(entry.getValue()));
+
+    assertEquals(2, fired.size());
+    assertEquals("next", fired.get(1));
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.common.utils;
+
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * 工作流 zip 准备的压测 <p>
+ *
+ * 在本地 file:// 的 hadoop 文件系统上生成一个工作流 zip, 分别用原来的方式 (拷贝到本地, 再调用 unzip 进程) 和流式解压准备执行目录,
+ * 输出每次准备的耗时 p50/max 以及写入本地磁盘的字节数. 参数: [文件数] [每个文件的 KB] [次数]
+ */
+public class ZipExtractorBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int files = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+    int fileKb = (args.length > 1) ? Integer.parseInt(args[1]) : 64;
+    int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 20;
+
+    Configuration conf = new Configuration();
+    conf.set("fs.defaultFS", "file:///");
+    HdfsClient.init(conf);
+
+    File root = Files.createTempDirectory("zip-benchmark").toFile();
+
+    try {
+      File zip = new File(root, "workflow.zip");
+      long extracted = createZip(zip, files, fileKb);
+
+      System.out.println(String.format("zip: %d files, %d KB, extracted %d KB", files,
+          zip.length() / 1024, extracted / 1024));
+      System.out.println(String.format("%-10s %10s %10s %14s", "mode", "p50(ms)", "max(ms)",
+          "written(KB)"));
+
+      run("unzip", root, zip, iterations, zip.length() + extracted);
+      run("stream", root, zip, iterations, extracted);
+    } finally {
+      FileUtils.deleteDirectory(root);
+    }
+  }
+
+  private static void run(String mode, File root, File zip, int iterations, long written)
+      throws Exception {
+    HdfsClient hdfsClient = HdfsClient.getInstance();
+    ZipExtractor zipExtractor = new ZipExtractor(0, 0);
+
+    long[] costs = new long[iterations];
+
+    for (int i = 0; i < iterations; ++i) {
+      File execDir = new File(root, mode + "-" + i);
+      execDir.mkdirs();
+
+      long start = System.nanoTime();
+
+      if (mode.equals("unzip")) {
+        String destPath = execDir.getPath() + File.separator + "workflow.zip";
+        hdfsClient.copyHdfsToLocal(zip.getPath(), destPath, false, true);
+
+        Process process = Runtime.getRuntime()
+            .exec(new String[]{"unzip", "-q", "-o", destPath, "-d", execDir.getPath()});
+
+        if (process.waitFor() != 0) {
+          throw new IOException("unzip failed");
+        }
+      } else {
+        zipExtractor.extract(hdfsClient.open(zip.getPath()), execDir, name -> true);
+      }
+
+      costs[i] = System.nanoTime() - start;
+
+      FileUtils.deleteDirectory(execDir);
+    }
+
+    Arrays.sort(costs);
+
+    System.out.println(String.format("%-10s %10.2f %10.2f %14d", mode,
+        costs[iterations / 2] / 1000000.0, costs[iterations - 1] / 1000000.0, written / 1024));
+  }
+
+  /**
+   * 生成随机内容的 zip, 一半的文件是文本以便压缩
+   *
+   * @return 解压后的字节数
+   */
+  private static long createZip(File zip, int files, int fileKb) throws IOException {
+    Random random = new Random(0);
+    byte[] content = new byte[fileKb * 1024];
+    long total = 0;
+
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+      for (int i = 0; i < files; ++i) {
+        if (i % 2 == 0) {
+          random.nextBytes(content);
+        } else {
+          Arrays.fill(content, (byte) ('a' + i % 26));
+        }
+
+        out.putNextEntry(new ZipEntry("dir" + (i % 10) + "/file" + i + ".dat"));
+        out.write(content);
+        out.closeEntry();
+
+        total += content.length;
+      }
+    }
+
+    return total;
+  }
+}
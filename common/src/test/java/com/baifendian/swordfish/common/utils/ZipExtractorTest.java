@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZipExtractorTest {
+
+  private File dir;
+
+  @Before
+  public void before() throws IOException {
+    dir = Files.createTempDirectory("zip-extractor").toFile();
+  }
+
+  @After
+  public void after() throws IOException {
+    FileUtils.deleteDirectory(dir);
+  }
+
+  @Test
+  public void testExtract() throws IOException {
+    byte[] zip = zip("workflow.json", "{}", "bin/", null, "bin/run.sh", "echo hello");
+
+    long bytes = new ZipExtractor(0, 0)
+        .extract(new ByteArrayInputStream(zip), dir, name -> !name.equals("workflow.json"));
+
+    assertEquals(10, bytes);
+    assertFalse(new File(dir, "workflow.json").exists());
+
+    File script = new File(dir, "bin/run.sh");
+    assertEquals("echo hello", FileUtils.readFileToString(script, StandardCharsets.UTF_8));
+    assertTrue(script.canExecute());
+  }
+
+  @Test
+  public void testZipSlip() throws IOException {
+    byte[] zip = zip("a.txt", "a", "../evil.sh", "rm -rf /");
+
+    try {
+      new ZipExtractor(0, 0).extract(new ByteArrayInputStream(zip), dir, name -> true);
+      fail();
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("outside"));
+    }
+
+    assertFalse(new File(dir.getParentFile(), "evil.sh").exists());
+  }
+
+  @Test
+  public void testLimits() throws IOException {
+    byte[] zip = zip("a.txt", "0123456789", "b.txt", "0123456789");
+
+    // 按实际写出的字节计算
+    try {
+      new ZipExtractor(15, 0).extract(new ByteArrayInputStream(zip), dir, name -> true);
+      fail();
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("size"));
+    }
+
+    try {
+      new ZipExtractor(0, 1).extract(new ByteArrayInputStream(zip), dir, name -> true);
+      fail();
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("entries"));
+    }
+
+    assertEquals(20, new ZipExtractor(20, 2).extract(new ByteArrayInputStream(zip), dir,
+        name -> true));
+  }
+
+  /**
+   * 按名称, 内容依次生成 zip, 内容为 null 的是目录
+   */
+  private static byte[] zip(String... entries) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+      for (int i = 0; i < entries.length; i += 2) {
+        out.putNextEntry(new ZipEntry(entries[i]));
+
+        if (entries[i + 1] != null) {
+          out.write(entries[i + 1].getBytes(StandardCharsets.UTF_8));
+        }
+
+        out.closeEntry();
+      }
+    }
+
+    return bytes.toByteArray();
+  }
+}
@@ -80,6 +80,53 @@ public class AdHocDao extends BaseDao {
     return adHocResultMapper.update(adHocResult) > 0;
   }
 
+  /**
+   * 查询可以作为缓存使用的即席查询, 即指纹相同且在 endTime 之后成功结束的最近一次执行
+   *
+   * @param fingerprint
+   * @param endTime
+   * @return
+   */
+  public AdHoc queryCachedAdHoc(String fingerprint, Date endTime) {
+    return adHocMapper.selectLatestSuccessByFingerprint(fingerprint, endTime);
+  }
+
+  /**
+   * 查询某次执行的所有结果
+   *
+   * @param execId
+   * @return
+   */
+  public List<AdHocResult> queryAdHocResults(int execId) {
+    return adHocMapper.selectResultById(execId);
+  }
+
+  /**
+   * 拷贝结果, 用于缓存命中的情况, 结果分片是共享的
+   *
+   * @param results
+   * @param execId
+   */
+  @Transactional(value = "TransactionManager")
+  public void copyAdHocResults(List<AdHocResult> results, int execId) {
+    for (AdHocResult result : results) {
+      AdHocResult adHocResult = new AdHocResult();
+
+      adHocResult.setExecId(execId);
+      adHocResult.setIndex(result.getIndex());
+      adHocResult.setStatus(result.getStatus());
+      adHocResult.setResult(result.getResult());
+      adHocResult.setRowCount(result.getRowCount());
+      adHocResult.setResultPath(result.getResultPath());
+      adHocResult.setSegmentCount(result.getSegmentCount());
+      adHocResult.setSegmentRows(result.getSegmentRows());
+      adHocResult.setStartTime(result.getStartTime());
+      adHocResult.setEndTime(result.getEndTime());
+
+      adHocResultMapper.update(adHocResult);
+    }
+  }
+
   /**
    * 初始化结果
    *
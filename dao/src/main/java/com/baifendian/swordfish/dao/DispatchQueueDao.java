@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.dao;
+
+import com.baifendian.swordfish.dao.datasource.ConnectionFactory;
+import com.baifendian.swordfish.dao.mapper.DispatchQueueMapper;
+import com.baifendian.swordfish.dao.model.DispatchQueueItem;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * 持久化的分发队列 <p>
+ *
+ * 领取分两步: 先不加锁地查询每个项目排在前面的候选记录, 由调用方按公平策略挑选, 再用条件更新写入令牌和过期时间,
+ * 并发的领取者互不阻塞, 没有抢到的记录直接跳过; 分发完成后凭令牌删除, 领取者挂掉时记录在过期后可以被重新领取.
+ */
+public class DispatchQueueDao extends BaseDao {
+
+  @Autowired
+  private DispatchQueueMapper dispatchQueueMapper;
+
+  @Override
+  protected void init() {
+    dispatchQueueMapper = ConnectionFactory.getSqlSession().getMapper(DispatchQueueMapper.class);
+  }
+
+  /**
+   * 加入队列
+   *
+   * @param execId exec id
+   * @param projectName 项目名称
+   * @param host 建议的 executor host, 可以为空
+   * @param port 建议的 executor port
+   * @param label 标签, 拉取模式下只有带有该标签的 executor 才能领取, 可以为空
+   * @param priority 优先级, 越大越先分发
+   * @param deadline 完成期限, 同一个优先级内期限早的先分发, 可以为空
+   * @param notBefore 在这个时间之前不分发
+   */
+  public boolean enqueue(int execId, String projectName, String host, Integer port, String label,
+      int priority, Date deadline, Date notBefore) {
+    DispatchQueueItem item = new DispatchQueueItem();
+
+    item.setExecId(execId);
+    item.setProjectName(projectName);
+    item.setHost(host);
+    item.setPort(port);
+    item.setLabel(label);
+    item.setPriority(priority);
+    item.setDeadline(deadline);
+    item.setNotBefore(notBefore);
+    item.setCreateTime(new Date());
+
+    return dispatchQueueMapper.upsert(item) > 0;
+  }
+
+  /**
+   * 查询可以领取的候选记录, 不加锁
+   *
+   * @param perProject 每个项目最多的条数
+   * @param labels 领取者的标签, 为 null 时不按标签过滤
+   * @return 每个项目内按优先级, 期限, 分发时间排在前面的记录
+   */
+  public List<DispatchQueueItem> candidates(int perProject, List<String> labels) {
+    Date now = new Date();
+
+    // 先查项目, 再分别取每个项目排在前面的, 每个项目读取的记录数有上限
+    List<String> projects = dispatchQueueMapper.selectDueProjects(now, labels);
+
+    if (projects.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    return dispatchQueueMapper.selectCandidates(now, projects, perProject, labels);
+  }
+
+  /**
+   * 领取一批记录, 已经被其它领取者领取的会被跳过
+   *
+   * @param execIds 要领取的 exec id
+   * @param claimMillis 领取的时长, 单位毫秒, 超过后其它领取者可以重新领取
+   * @return 领取到的记录, 带有令牌
+   */
+  public List<DispatchQueueItem> claim(List<Integer> execIds, long claimMillis) {
+    if (execIds.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    Date now = new Date();
+    String claimToken = UUID.randomUUID().toString();
+
+    // 条件更新是原子的, 并发的领取者只有一个能更新成功, 再按令牌查询实际领取到的
+    if (dispatchQueueMapper.claim(execIds, claimToken, new Date(now.getTime() + claimMillis), now)
+        == 0) {
+      return Collections.emptyList();
+    }
+
+    return dispatchQueueMapper.selectByClaimToken(claimToken);
+  }
+
+  /**
+   * 分发完成, 删除记录
+   *
+   * @return 是否成功, 失败说明领取已经过期并被其它领取者领取
+   */
+  public boolean ack(int execId, String claimToken) {
+    return dispatchQueueMapper.ack(execId, claimToken) > 0;
+  }
+
+  /**
+   * 放弃领取, 推迟到 notBefore 之后再分发
+   */
+  public boolean release(int execId, String claimToken, Date notBefore) {
+    return dispatchQueueMapper.release(execId, claimToken, notBefore) > 0;
+  }
+
+  /**
+   * 队列中的记录数
+   */
+  public int count() {
+    return dispatchQueueMapper.count();
+  }
+}
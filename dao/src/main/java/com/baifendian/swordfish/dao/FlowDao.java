@@ -18,6 +18,7 @@ package com.baifendian.swordfish.dao;
 import com.baifendian.swordfish.dao.datasource.ConnectionFactory;
 import com.baifendian.swordfish.dao.enums.ExecType;
 import com.baifendian.swordfish.dao.enums.FailurePolicyType;
+import com.baifendian.swordfish.dao.enums.FlowPriority;
 import com.baifendian.swordfish.dao.enums.FlowStatus;
 import com.baifendian.swordfish.dao.enums.NodeDepType;
 import com.baifendian.swordfish.dao.enums.NotifyType;
@@ -28,6 +29,8 @@ import com.baifendian.swordfish.dao.mapper.ProjectFlowMapper;
 import com.baifendian.swordfish.dao.mapper.ScheduleMapper;
 import com.baifendian.swordfish.dao.model.ExecutionFlow;
 import com.baifendian.swordfish.dao.model.ExecutionNode;
+import com.baifendian.swordfish.dao.model.ExecutionNodeDuration;
+import com.baifendian.swordfish.dao.model.ExecutionNodeResource;
 import com.baifendian.swordfish.dao.model.FlowNode;
 import com.baifendian.swordfish.dao.model.FlowNodeRelation;
 import com.baifendian.swordfish.dao.model.ProjectFlow;
@@ -91,12 +94,21 @@ public class FlowDao extends BaseDao {
   }
 
   /**
-   * 获取所有未完成的 flow 列表 <p>
+   * 按 id 分页获取未完成的 flow 列表, 不包含工作流数据 <p>
    *
+   * @param afterId 上一页最大的 exec id, 第一页为 0
+   * @param limit 每页的条数
    * @see ExecutionFlow
    */
-  public List<ExecutionFlow> queryAllNoFinishFlow() {
-    return executionFlowMapper.selectAllNoFinishFlow();
+  public List<ExecutionFlow> queryNoFinishFlowPage(int afterId, int limit) {
+    return executionFlowMapper.selectNoFinishFlowPage(afterId, limit);
+  }
+
+  /**
+   * 未完成的 flow 数
+   */
+  public int countNoFinishFlow() {
+    return executionFlowMapper.countNoFinishFlow();
   }
 
   /**
@@ -135,6 +147,16 @@ public class FlowDao extends BaseDao {
     return executionFlowMapper.update(executionFlow) > 0;
   }
 
+  /**
+   * 更新执行的 worker, master 的 epoch 已经失效时不会更新 <p>
+   *
+   * @param masterEpoch master 获得租约时得到的 epoch
+   * @return 是否成功, 失败说明租约已经被其它 master 抢占
+   */
+  public boolean updateExecutionFlowWorker(int execId, String worker, long masterEpoch) {
+    return executionFlowMapper.updateWorkerFenced(execId, worker, masterEpoch) > 0;
+  }
+
   /**
    * 更新执行工作流的状态
    */
@@ -175,6 +197,8 @@ public class FlowDao extends BaseDao {
    * 调度 workflow 时，插入执行信息（调度或者补数据） <p>
    *
    * @param scheduleTime : 这个时间在不同的场景, 有不同的解释, 直接运行指接受到的时间, 调度和补数据 则是 fire time(定时器给的时间)
+   * @param flowPriority : 优先级, 决定同一个项目内的分发顺序
+   * @param deadline : 完成期限, 可以为空
    */
   public ExecutionFlow scheduleFlowToExecution(Integer projectId,
       Integer workflowId,
@@ -187,7 +211,9 @@ public class FlowDao extends BaseDao {
       NodeDepType nodeDep,
       NotifyType notifyType,
       List<String> mails,
-      int timeout) throws Exception {
+      int timeout,
+      FlowPriority flowPriority,
+      Date deadline) throws Exception {
     logger.info("project id:{}, workflow id:{}, schedule time:{}", projectId, workflowId,
         scheduleTime);
 
@@ -222,6 +248,8 @@ public class FlowDao extends BaseDao {
     Date now = new Date();
 
     executionFlow.setFlowId(workflowId);
+    executionFlow.setProjectId(projectFlow.getProjectId());
+    executionFlow.setProjectName(projectFlow.getProjectName());
     executionFlow.setSubmitUserId(submitUser);
     executionFlow.setSubmitTime(now); // 即插入任务的时间
     executionFlow.setQueue(projectFlow.getQueue());
@@ -258,6 +286,8 @@ public class FlowDao extends BaseDao {
     executionFlow.setNotifyType(notifyType);
     executionFlow.setNotifyMailList(mails);
     executionFlow.setTimeout(timeout);
+    executionFlow.setFlowPriority(flowPriority);
+    executionFlow.setDeadline(deadline);
     executionFlow.setStatus(FlowStatus.INIT);
     executionFlow.setExtras(projectFlow.getExtras());
 
@@ -297,6 +327,27 @@ public class FlowDao extends BaseDao {
     return executionNodeMapper.selectExecNode(execId, nodeName);
   }
 
+  /**
+   * 查询一次执行的所有节点信息
+   */
+  public List<ExecutionNode> queryExecutionNodes(int execId) {
+    return executionNodeMapper.selectExecNodeById(execId);
+  }
+
+  /**
+   * 统计某个时间之后各个工作流节点成功运行的平均时长
+   */
+  public List<ExecutionNodeDuration> queryExecutionNodeDurations(Date since) {
+    return executionNodeMapper.selectDurations(since);
+  }
+
+  /**
+   * 统计某个时间之后一个工作流各个节点成功运行时的资源使用峰值
+   */
+  public List<ExecutionNodeResource> queryExecutionNodeResources(int flowId, Date since) {
+    return executionNodeMapper.selectResources(flowId, since);
+  }
+
   /**
    * 查询 Schedule <p>
    *
@@ -306,6 +357,13 @@ public class FlowDao extends BaseDao {
     return scheduleMapper.selectByFlowId(flowId);
   }
 
+  /**
+   * 查询所有上线的调度, 只包含触发需要的字段 <p>
+   */
+  public List<Schedule> queryOnlineSchedules() {
+    return scheduleMapper.selectOnline();
+  }
+
   /**
    * 根据 name 获取一个工作流的信息
    *
@@ -19,6 +19,7 @@ import com.baifendian.swordfish.dao.datasource.ConnectionFactory;
 import com.baifendian.swordfish.dao.mapper.MasterServerMapper;
 import com.baifendian.swordfish.dao.model.MasterServer;
 import java.util.Date;
+import org.springframework.dao.DataAccessException;
 import org.springframework.beans.factory.annotation.Autowired;
 
 public class MasterDao extends BaseDao {
@@ -41,52 +42,62 @@ public class MasterDao extends BaseDao {
   }
 
   /**
-   * 注册 master
+   * 尝试获得 master 的租约, 租约过期或者本来就是自己持有时可以获得
    *
-   * @param host
-   * @param port
-   * @return
+   * @param host master 的 host
+   * @param port master 的 port
+   * @param leaseMillis 租约的时长, 单位毫秒
+   * @return 获得的 epoch(fencing token), 没有获得返回 -1
    */
-  public int registerMasterServer(String host, int port) {
+  public long acquireLease(String host, int port, long leaseMillis) {
     Date now = new Date();
 
-    MasterServer masterServer = new MasterServer();
+    if (masterServerMapper.acquireLease(host, port, leaseMillis, now) == 0) {
+      // 还没有租约记录时, 插入一条, 主键冲突说明其它 master 先插入了
+      if (masterServerMapper.query() != null) {
+        return -1;
+      }
 
-    masterServer.setHost(host);
-    masterServer.setPort(port);
-    masterServer.setCreateTime(now);
-    masterServer.setModifyTime(now);
+      MasterServer masterServer = new MasterServer();
 
-    return masterServerMapper.insert(masterServer);
-  }
+      masterServer.setHost(host);
+      masterServer.setPort(port);
+      masterServer.setEpoch(1);
+      masterServer.setCreateTime(now);
+      masterServer.setModifyTime(now);
 
-  /**
-   * 更新 master
-   *
-   * @param host
-   * @param port
-   * @return
-   */
-  public int updateMasterServer(String host, int port) {
-    Date now = new Date();
+      try {
+        masterServerMapper.insert(masterServer, leaseMillis);
+      } catch (DataAccessException e) {
+        return -1;
+      }
+    }
 
-    MasterServer masterServer = new MasterServer();
+    MasterServer masterServer = masterServerMapper.query();
 
-    masterServer.setHost(host);
-    masterServer.setPort(port);
-    masterServer.setModifyTime(now);
+    if (masterServer == null || !masterServer.getHost().equals(host)
+        || masterServer.getPort() != port) {
+      return -1;
+    }
 
-    return masterServerMapper.update(masterServer);
+    return masterServer.getEpoch();
   }
 
   /**
-   * 删除 master server
+   * 续约
    *
-   * @param host
-   * @param port
-   * @return
+   * @param epoch 获得租约时得到的 epoch
+   * @param leaseMillis 租约的时长, 单位毫秒
+   * @return 是否成功, 失败说明租约已经被其它 master 抢占
+   */
+  public boolean renewLease(String host, int port, long epoch, long leaseMillis) {
+    return masterServerMapper.renewLease(host, port, epoch, leaseMillis, new Date()) > 0;
+  }
+
+  /**
+   * 释放租约, 让 standby 的 master 可以立即接管
    */
-  public int deleteMasterServer(String host, int port) {
-    return masterServerMapper.deleteByHostPort(host, port);
+  public boolean releaseLease(String host, int port, long epoch) {
+    return masterServerMapper.renewLease(host, port, epoch, 0, new Date()) > 0;
   }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.dao;
+
+import com.baifendian.swordfish.dao.datasource.ConnectionFactory;
+import com.baifendian.swordfish.dao.mapper.ScheduleFireMapper;
+import com.baifendian.swordfish.dao.model.ScheduleFire;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * 调度触发的预写日志 <p>
+ *
+ * 触发之前先批量记录, 创建了执行记录之后再批量标记; 重启时重放没有标记的, 并从每个工作流最近的触发时间开始补上错过的触发.
+ */
+public class ScheduleFireDao extends BaseDao {
+
+  /**
+   * 一条语句中最多的记录数
+   */
+  private static final int BATCH_SIZE = 1000;
+
+  @Autowired
+  private ScheduleFireMapper scheduleFireMapper;
+
+  @Override
+  protected void init() {
+    scheduleFireMapper = ConnectionFactory.getSqlSession().getMapper(ScheduleFireMapper.class);
+  }
+
+  /**
+   * 记录将要触发的调度
+   */
+  public void log(List<ScheduleFire> fires) {
+    for (int i = 0; i < fires.size(); i += BATCH_SIZE) {
+      scheduleFireMapper.insertBatch(fires.subList(i, Math.min(i + BATCH_SIZE, fires.size())));
+    }
+  }
+
+  /**
+   * 标记已经创建了执行记录
+   */
+  public void fired(List<ScheduleFire> fires) {
+    for (int i = 0; i < fires.size(); i += BATCH_SIZE) {
+      scheduleFireMapper.updateFired(fires.subList(i, Math.min(i + BATCH_SIZE, fires.size())));
+    }
+  }
+
+  /**
+   * 查询还没有创建执行记录的触发
+   */
+  public List<ScheduleFire> queryPending() {
+    return scheduleFireMapper.selectPending();
+  }
+
+  /**
+   * 查询各个工作流最近的触发时间, key 为 flow id
+   */
+  public Map<Integer, Date> queryLastFireTimes() {
+    Map<Integer, Date> lastFireTimes = new HashMap<>();
+
+    for (ScheduleFire fire : scheduleFireMapper.selectLast()) {
+      lastFireTimes.put(fire.getFlowId(), fire.getFireTime());
+    }
+
+    return lastFireTimes;
+  }
+
+  /**
+   * 清理已经创建了执行记录的触发, 每个工作流只保留最近的一条
+   */
+  public int prune() {
+    return scheduleFireMapper.prune();
+  }
+}
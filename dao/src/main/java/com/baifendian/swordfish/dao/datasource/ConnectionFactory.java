@@ -103,6 +103,30 @@ public class ConnectionFactory {
     return sqlSessionFactory;
   }
 
+  /**
+   * 连接池的使用率, 即 (正在使用的连接数 + 等待连接的线程数) / 最大连接数, 超过 1 说明已经有请求在排队, 还没有初始化时为 0
+   */
+  public static double getPoolUsage() {
+    if (sqlSessionFactory == null) {
+      return 0;
+    }
+
+    DataSource dataSource = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource();
+
+    if (!(dataSource instanceof DruidDataSource)) {
+      return 0;
+    }
+
+    DruidDataSource druidDataSource = (DruidDataSource) dataSource;
+
+    if (druidDataSource.getMaxActive() <= 0) {
+      return 0;
+    }
+
+    return (double) (druidDataSource.getActiveCount() + druidDataSource.getWaitThreadCount())
+        / druidDataSource.getMaxActive();
+  }
+
   /**
    * 获取 sql session
    */
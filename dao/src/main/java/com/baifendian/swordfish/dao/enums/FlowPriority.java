@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.dao.enums;
+
+/**
+ * workflow 的优先级, 分发时同一个项目内优先级高的先分发
+ */
+public enum FlowPriority {
+  /**
+   * 0-LOWEST 1-LOW 2-MEDIUM 3-HIGH 4-HIGHEST
+   */
+  LOWEST, LOW, MEDIUM, HIGH, HIGHEST;
+
+  /**
+   * 通过 type 获取枚举对象 <p>
+   *
+   * @param type
+   * @return {@link FlowPriority}
+   */
+  public static FlowPriority valueOfType(Integer type) throws IllegalArgumentException {
+    if (type == null) {
+      return null;
+    }
+
+    try {
+      return FlowPriority.values()[type];
+    } catch (Exception ex) {
+      throw new IllegalArgumentException("Cannot convert " + type + " to " + FlowPriority.class.getSimpleName() + " .", ex);
+    }
+  }
+}
@@ -95,7 +95,9 @@ public interface AdHocMapper {
           @Result(property = "createTime", column = "create_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
           @Result(property = "startTime", column = "start_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
           @Result(property = "endTime", column = "end_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
-          @Result(property = "jobId", column = "job_id", javaType = String.class, jdbcType = JdbcType.VARCHAR)
+          @Result(property = "jobId", column = "job_id", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "fingerprint", column = "fingerprint", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "cacheSource", column = "cache_source", javaType = Integer.class, jdbcType = JdbcType.INTEGER)
   })
   @SelectProvider(type = AdHocMapperProvider.class, method = "selectById")
   AdHoc selectById(@Param("id") int id);
@@ -111,6 +113,10 @@ public interface AdHocMapper {
           @Result(property = "index", column = "index", id = true, javaType = int.class, jdbcType = JdbcType.INTEGER),
           @Result(property = "stm", column = "stm", javaType = String.class, jdbcType = JdbcType.VARCHAR),
           @Result(property = "result", column = "result", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "rowCount", column = "row_count", javaType = long.class, jdbcType = JdbcType.BIGINT),
+          @Result(property = "resultPath", column = "result_path", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "segmentCount", column = "segment_count", javaType = int.class, jdbcType = JdbcType.INTEGER),
+          @Result(property = "segmentRows", column = "segment_rows", javaType = int.class, jdbcType = JdbcType.INTEGER),
           @Result(property = "status", column = "status", typeHandler = EnumOrdinalTypeHandler.class, jdbcType = JdbcType.TINYINT),
           @Result(property = "createTime", column = "create_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
           @Result(property = "startTime", column = "start_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
@@ -130,8 +136,13 @@ public interface AdHocMapper {
           @Result(property = "execId", column = "exec_id", id = true, javaType = int.class, jdbcType = JdbcType.INTEGER),
           @Result(property = "index", column = "index", id = true, javaType = int.class, jdbcType = JdbcType.INTEGER),
           @Result(property = "name", column = "name", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "cacheSource", column = "cache_source", javaType = Integer.class, jdbcType = JdbcType.INTEGER),
           @Result(property = "stm", column = "stm", javaType = String.class, jdbcType = JdbcType.VARCHAR),
           @Result(property = "result", column = "result", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "rowCount", column = "row_count", javaType = long.class, jdbcType = JdbcType.BIGINT),
+          @Result(property = "resultPath", column = "result_path", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "segmentCount", column = "segment_count", javaType = int.class, jdbcType = JdbcType.INTEGER),
+          @Result(property = "segmentRows", column = "segment_rows", javaType = int.class, jdbcType = JdbcType.INTEGER),
           @Result(property = "status", column = "status", typeHandler = EnumOrdinalTypeHandler.class, jdbcType = JdbcType.TINYINT),
           @Result(property = "createTime", column = "create_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
           @Result(property = "startTime", column = "start_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
@@ -159,11 +170,45 @@ public interface AdHocMapper {
           @Result(property = "createTime", column = "create_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
           @Result(property = "startTime", column = "start_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
           @Result(property = "endTime", column = "end_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
-          @Result(property = "jobId", column = "job_id", javaType = String.class, jdbcType = JdbcType.VARCHAR)
+          @Result(property = "jobId", column = "job_id", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "fingerprint", column = "fingerprint", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "cacheSource", column = "cache_source", javaType = Integer.class, jdbcType = JdbcType.INTEGER)
   })
   @SelectProvider(type = AdHocMapperProvider.class, method = "selectAdhocByName")
   List<AdHoc> selectAdhocByName(@Param("projectId") int projectId, @Param("name") String name);
 
+  /**
+   * 查询指纹相同, 且在某个时间之后成功结束的最近一次即席查询
+   *
+   * @param fingerprint
+   * @param endTime
+   * @return
+   */
+  @Results(value = {
+          @Result(property = "id", column = "id", id = true, javaType = int.class, jdbcType = JdbcType.INTEGER),
+          @Result(property = "projectId", column = "project_id", javaType = int.class, jdbcType = JdbcType.INTEGER),
+          @Result(property = "name", column = "name", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "proxyUser", column = "proxy_user", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "queue", column = "queue", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "status", column = "status", typeHandler = EnumOrdinalTypeHandler.class, jdbcType = JdbcType.TINYINT),
+          @Result(property = "type", column = "type", typeHandler = EnumOrdinalTypeHandler.class, jdbcType = JdbcType.TINYINT),
+          @Result(property = "createTime", column = "create_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
+          @Result(property = "startTime", column = "start_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
+          @Result(property = "endTime", column = "end_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
+          @Result(property = "fingerprint", column = "fingerprint", javaType = String.class, jdbcType = JdbcType.VARCHAR)
+  })
+  @SelectProvider(type = AdHocMapperProvider.class, method = "selectLatestSuccessByFingerprint")
+  AdHoc selectLatestSuccessByFingerprint(@Param("fingerprint") String fingerprint, @Param("endTime") Date endTime);
+
+  /**
+   * 查询结果来自某个执行的即席查询数目
+   *
+   * @param cacheSource
+   * @return
+   */
+  @SelectProvider(type = AdHocMapperProvider.class, method = "countByCacheSource")
+  int countByCacheSource(@Param("cacheSource") int cacheSource);
+
   /**
    * 根据name删除一个即席查询的记录
    * @param projectId
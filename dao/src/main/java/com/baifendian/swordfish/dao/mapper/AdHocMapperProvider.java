@@ -92,6 +92,8 @@ public class AdHocMapperProvider {
         SET("`start_time` = #{adHoc.startTime}");
         SET("`end_time` = #{adHoc.endTime}");
         SET("`job_id` = #{adHoc.jobId}");
+        SET("`fingerprint` = #{adHoc.fingerprint}");
+        SET("`cache_source` = #{adHoc.cacheSource}");
         SET("`status` = " + EnumFieldUtil.genFieldStr("adHoc.status", FlowStatus.class));
 
         WHERE("`id` = #{adHoc.id}");
@@ -162,6 +164,7 @@ public class AdHocMapperProvider {
       {
         SELECT("ahr.*");
         SELECT("ah.name as name");
+        SELECT("ah.cache_source as cache_source");
 
         FROM(RESULT_TABLE_NAME + " as ahr");
         JOIN(TABLE_NAME + " as ah on ahr.exec_id = ah.id");
@@ -172,6 +175,47 @@ public class AdHocMapperProvider {
     }.toString();
   }
 
+  /**
+   * 查询指纹相同, 且在某个时间之后成功结束的最近一次即席查询
+   *
+   * @param parameter
+   * @return
+   */
+  public String selectLatestSuccessByFingerprint(Map<String, Object> parameter) {
+    return new SQL() {
+      {
+        SELECT("*");
+
+        FROM(TABLE_NAME);
+
+        WHERE("`fingerprint` = #{fingerprint}");
+        WHERE("`status` = " + FlowStatus.SUCCESS.ordinal());
+        WHERE("`cache_source` is null");
+        WHERE("`end_time` >= #{endTime}");
+
+        ORDER_BY("`end_time` desc limit 1");
+      }
+    }.toString();
+  }
+
+  /**
+   * 查询结果来自某个执行的即席查询数目
+   *
+   * @param parameter
+   * @return
+   */
+  public String countByCacheSource(Map<String, Object> parameter) {
+    return new SQL() {
+      {
+        SELECT("count(0)");
+
+        FROM(TABLE_NAME);
+
+        WHERE("`cache_source` = #{cacheSource}");
+      }
+    }.toString();
+  }
+
   /**
    * 查询adhoc, 根据 name 查询
    *
@@ -58,6 +58,10 @@ public class AdHocResultMapperProvider {
       {
         UPDATE(TABLE_NAME);
         SET("result = #{adHocResult.result}");
+        SET("row_count = #{adHocResult.rowCount}");
+        SET("result_path = #{adHocResult.resultPath}");
+        SET("segment_count = #{adHocResult.segmentCount}");
+        SET("segment_rows = #{adHocResult.segmentRows}");
         SET("start_time = #{adHocResult.startTime}");
         SET("end_time = #{adHocResult.endTime}");
         SET("status = " + EnumFieldUtil.genFieldStr("adHocResult.status", FlowStatus.class));
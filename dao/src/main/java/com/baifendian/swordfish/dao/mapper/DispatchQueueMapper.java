@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.dao.mapper;
+
+import com.baifendian.swordfish.dao.model.DispatchQueueItem;
+import java.util.Date;
+import java.util.List;
+import org.apache.ibatis.annotations.DeleteProvider;
+import org.apache.ibatis.annotations.InsertProvider;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.SelectProvider;
+import org.apache.ibatis.annotations.UpdateProvider;
+import org.apache.ibatis.type.JdbcType;
+
+public interface DispatchQueueMapper {
+
+  /**
+   * 加入队列, 已经存在时更新建议的 executor, 优先级和分发时间, 并作废正在进行的领取,
+   * 这样旧的领取者 ack 时不会删掉重新加入的记录
+   */
+  @InsertProvider(type = DispatchQueueMapperProvider.class, method = "upsert")
+  int upsert(@Param("item") DispatchQueueItem item);
+
+  /**
+   * 查询有可以领取的记录的项目
+   *
+   * @param now 当前时间
+   * @param labels 领取者的标签, 为 null 时不按标签过滤, 否则只查询没有标签或者标签在其中的记录
+   */
+  @SelectProvider(type = DispatchQueueMapperProvider.class, method = "selectDueProjects")
+  List<String> selectDueProjects(@Param("now") Date now, @Param("labels") List<String> labels);
+
+  /**
+   * 查询可以领取的候选记录, 每个项目最多取 perProject 条, 项目内按优先级, 分发时间排序, 不加锁
+   *
+   * @param now 当前时间
+   * @param projects 要查询的项目
+   * @param perProject 每个项目最多的条数
+   * @param labels 领取者的标签, 为 null 时不按标签过滤, 否则只查询没有标签或者标签在其中的记录
+   */
+  @Results(value = {
+      @Result(property = "execId", column = "exec_id", id = true, javaType = int.class, jdbcType = JdbcType.INTEGER),
+      @Result(property = "projectName", column = "project_name", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+      @Result(property = "host", column = "host", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+      @Result(property = "port", column = "port", javaType = Integer.class, jdbcType = JdbcType.INTEGER),
+      @Result(property = "label", column = "label", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+      @Result(property = "priority", column = "priority", javaType = int.class, jdbcType = JdbcType.INTEGER),
+      @Result(property = "deadline", column = "deadline", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
+      @Result(property = "notBefore", column = "not_before", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
+      @Result(property = "claimToken", column = "claim_token", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+      @Result(property = "claimExpire", column = "claim_expire", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
+      @Result(property = "createTime", column = "create_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP)
+  })
+  @SelectProvider(type = DispatchQueueMapperProvider.class, method = "selectCandidates")
+  List<DispatchQueueItem> selectCandidates(@Param("now") Date now,
+      @Param("projects") List<String> projects, @Param("perProject") int perProject,
+      @Param("labels") List<String> labels);
+
+  /**
+   * 领取记录, 只会领取到没有被领取或者领取已经过期的记录
+   *
+   * @param execIds 要领取的 exec id
+   * @param now 当前时间
+   */
+  @UpdateProvider(type = DispatchQueueMapperProvider.class, method = "claim")
+  int claim(@Param("execIds") List<Integer> execIds, @Param("claimToken") String claimToken,
+      @Param("claimExpire") Date claimExpire, @Param("now") Date now);
+
+  /**
+   * 查询持有令牌的记录
+   */
+  @Results(value = {
+      @Result(property = "execId", column = "exec_id", id = true, javaType = int.class, jdbcType = JdbcType.INTEGER),
+      @Result(property = "projectName", column = "project_name", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+      @Result(property = "host", column = "host", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+      @Result(property = "port", column = "port", javaType = Integer.class, jdbcType = JdbcType.INTEGER),
+      @Result(property = "label", column = "label", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+      @Result(property = "priority", column = "priority", javaType = int.class, jdbcType = JdbcType.INTEGER),
+      @Result(property = "deadline", column = "deadline", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
+      @Result(property = "notBefore", column = "not_before", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
+      @Result(property = "claimToken", column = "claim_token", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+      @Result(property = "claimExpire", column = "claim_expire", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
+      @Result(property = "createTime", column = "create_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP)
+  })
+  @SelectProvider(type = DispatchQueueMapperProvider.class, method = "selectByClaimToken")
+  List<DispatchQueueItem> selectByClaimToken(@Param("claimToken") String claimToken);
+
+  /**
+   * 分发完成, 删除持有令牌的记录
+   */
+  @DeleteProvider(type = DispatchQueueMapperProvider.class, method = "ack")
+  int ack(@Param("execId") int execId, @Param("claimToken") String claimToken);
+
+  /**
+   * 放弃领取, 并推迟到 notBefore 之后再分发
+   */
+  @UpdateProvider(type = DispatchQueueMapperProvider.class, method = "release")
+  int release(@Param("execId") int execId, @Param("claimToken") String claimToken,
+      @Param("notBefore") Date notBefore);
+
+  /**
+   * 队列中的记录数
+   */
+  @SelectProvider(type = DispatchQueueMapperProvider.class, method = "count")
+  int count();
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.dao.mapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.ibatis.jdbc.SQL;
+
+public class DispatchQueueMapperProvider {
+
+  public static final String TABLE_NAME = "dispatch_queue";
+
+  /**
+   * 插入或者更新
+   *
+   * @param parameter
+   * @return
+   */
+  public String upsert(Map<String, Object> parameter) {
+    return new SQL() {{
+      INSERT_INTO(TABLE_NAME);
+
+      VALUES("exec_id", "#{item.execId}");
+      VALUES("project_name", "#{item.projectName}");
+      VALUES("host", "#{item.host}");
+      VALUES("port", "#{item.port}");
+      VALUES("label", "#{item.label}");
+      VALUES("priority", "#{item.priority}");
+      VALUES("deadline", "#{item.deadline}");
+      VALUES("not_before", "#{item.notBefore}");
+      VALUES("create_time", "#{item.createTime}");
+    }}.toString() + " on duplicate key update project_name = values(project_name),"
+        + " host = values(host), port = values(port), label = values(label),"
+        + " priority = values(priority), deadline = values(deadline),"
+        + " not_before = values(not_before), claim_token = null, claim_expire = null";
+  }
+
+  /**
+   * 查询有可以领取的记录的项目
+   *
+   * @param parameter
+   * @return
+   */
+  public String selectDueProjects(Map<String, Object> parameter) {
+    List<String> labels = (List<String>) parameter.get("labels");
+
+    return new SQL() {{
+      SELECT("distinct project_name");
+
+      FROM(TABLE_NAME);
+
+      for (String condition : dueConditions(labels)) {
+        WHERE(condition);
+      }
+    }}.toString();
+  }
+
+  /**
+   * 查询可以领取的候选记录, 每个项目单独取排在前面的 perProject 条, 再 union all <p>
+   *
+   * 每个项目的查询按 idx_project_priority 的顺序取, 积压再多的项目也只会读 perProject 条, 不会挤掉其它项目,
+   * 项目内优先级高和期限早的记录也不会被挤掉.
+   *
+   * @param parameter
+   * @return
+   */
+  public String selectCandidates(Map<String, Object> parameter) {
+    List<String> projects = (List<String>) parameter.get("projects");
+    List<String> labels = (List<String>) parameter.get("labels");
+
+    return IntStream.range(0, projects.size()).mapToObj(i -> "(" + new SQL() {{
+      SELECT("*");
+
+      FROM(TABLE_NAME);
+
+      WHERE("project_name <=> #{projects[" + i + "]}");
+
+      for (String condition : dueConditions(labels)) {
+        WHERE(condition);
+      }
+
+      ORDER_BY("priority desc, deadline is null, deadline, not_before, exec_id"
+          + " limit #{perProject}");
+    }}.toString() + ")").collect(Collectors.joining(" union all "));
+  }
+
+  /**
+   * 可以领取的条件: 到了分发时间, 没有被领取或者领取已经过期, 标签匹配
+   */
+  private static List<String> dueConditions(List<String> labels) {
+    List<String> conditions = new ArrayList<>();
+
+    conditions.add("not_before <= #{now}");
+    conditions.add("(claim_expire is null or claim_expire < #{now})");
+
+    if (labels != null) {
+      if (labels.isEmpty()) {
+        conditions.add("label is null");
+      } else {
+        conditions.add("(label is null or label in (" + IntStream.range(0, labels.size())
+            .mapToObj(i -> "#{labels[" + i + "]}").collect(Collectors.joining(",")) + "))");
+      }
+    }
+
+    return conditions;
+  }
+
+  /**
+   * 领取记录, 已经被其它领取者领取且没有过期的不更新
+   *
+   * @param parameter
+   * @return
+   */
+  public String claim(Map<String, Object> parameter) {
+    List<Integer> execIds = (List<Integer>) parameter.get("execIds");
+
+    return new SQL() {{
+      UPDATE(TABLE_NAME);
+
+      SET("claim_token = #{claimToken}");
+      SET("claim_expire = #{claimExpire}");
+
+      WHERE("exec_id in (" + execIds.stream().map(String::valueOf)
+          .collect(Collectors.joining(",")) + ")");
+      WHERE("(claim_expire is null or claim_expire < #{now})");
+    }}.toString();
+  }
+
+  /**
+   * 查询持有令牌的记录
+   *
+   * @param parameter
+   * @return
+   */
+  public String selectByClaimToken(Map<String, Object> parameter) {
+    return new SQL() {{
+      SELECT("*");
+
+      FROM(TABLE_NAME);
+
+      WHERE("claim_token = #{claimToken}");
+    }}.toString();
+  }
+
+  /**
+   * 删除持有令牌的记录
+   *
+   * @param parameter
+   * @return
+   */
+  public String ack(Map<String, Object> parameter) {
+    return new SQL() {{
+      DELETE_FROM(TABLE_NAME);
+
+      WHERE("exec_id = #{execId}");
+      WHERE("claim_token = #{claimToken}");
+    }}.toString();
+  }
+
+  /**
+   * 放弃领取
+   *
+   * @param parameter
+   * @return
+   */
+  public String release(Map<String, Object> parameter) {
+    return new SQL() {{
+      UPDATE(TABLE_NAME);
+
+      SET("claim_token = null");
+      SET("claim_expire = null");
+      SET("not_before = #{notBefore}");
+
+      WHERE("exec_id = #{execId}");
+      WHERE("claim_token = #{claimToken}");
+    }}.toString();
+  }
+
+  /**
+   * 查询记录数
+   *
+   * @return
+   */
+  public String count() {
+    return new SQL() {{
+      SELECT("count(0)");
+
+      FROM(TABLE_NAME);
+    }}.toString();
+  }
+}
@@ -17,6 +17,7 @@ package com.baifendian.swordfish.dao.mapper;
 
 import com.baifendian.swordfish.dao.enums.ExecType;
 import com.baifendian.swordfish.dao.enums.FailurePolicyType;
+import com.baifendian.swordfish.dao.enums.FlowPriority;
 import com.baifendian.swordfish.dao.enums.FlowStatus;
 import com.baifendian.swordfish.dao.enums.NotifyType;
 import com.baifendian.swordfish.dao.model.ExecutionFlow;
@@ -53,6 +54,15 @@ public interface ExecutionFlowMapper {
   @UpdateProvider(type = ExecutionFlowMapperProvider.class, method = "update")
   int update(@Param("executionFlow") ExecutionFlow executionFlow);
 
+  /**
+   * 更新执行的 worker, 只有 master 的 epoch 仍然有效时才会更新 <p>
+   *
+   * @return 更新记录数
+   */
+  @UpdateProvider(type = ExecutionFlowMapperProvider.class, method = "updateWorkerFenced")
+  int updateWorkerFenced(@Param("execId") int execId, @Param("worker") String worker,
+      @Param("epoch") long epoch);
+
   /**
    * 更新数据
    */
@@ -88,22 +98,34 @@ public interface ExecutionFlowMapper {
       @Result(property = "maxTryTimes", column = "max_try_times", javaType = int.class, jdbcType = JdbcType.INTEGER),
       @Result(property = "timeout", column = "timeout", javaType = int.class, jdbcType = JdbcType.INTEGER),
       @Result(property = "notifyType", column = "notify_type", typeHandler = EnumOrdinalTypeHandler.class, javaType = NotifyType.class, jdbcType = JdbcType.TINYINT),
-      @Result(property = "notifyMails", column = "notify_mails", javaType = String.class, jdbcType = JdbcType.VARCHAR)
+      @Result(property = "notifyMails", column = "notify_mails", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+      @Result(property = "flowPriority", column = "flow_priority", typeHandler = EnumOrdinalTypeHandler.class, javaType = FlowPriority.class, jdbcType = JdbcType.TINYINT),
+      @Result(property = "deadline", column = "deadline", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP)
   })
   @SelectProvider(type = ExecutionFlowMapperProvider.class, method = "selectByExecId")
   ExecutionFlow selectByExecId(@Param("execId") Integer execId);
 
   /**
-   * 获取所有未完成的工作流
+   * 按 id 分页获取未完成的工作流, 只包含分发需要的字段, 不包含工作流数据
    */
   @Results(value = {
       @Result(property = "id", column = "id", id = true, javaType = int.class, jdbcType = JdbcType.INTEGER),
       @Result(property = "flowId", column = "flow_id", javaType = int.class, jdbcType = JdbcType.INTEGER),
       @Result(property = "worker", column = "worker", javaType = String.class, jdbcType = JdbcType.VARCHAR),
-      @Result(property = "status", column = "status", typeHandler = EnumOrdinalTypeHandler.class, javaType = FlowStatus.class, jdbcType = JdbcType.TINYINT)
+      @Result(property = "status", column = "status", typeHandler = EnumOrdinalTypeHandler.class, javaType = FlowStatus.class, jdbcType = JdbcType.TINYINT),
+      @Result(property = "projectName", column = "project_name", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+      @Result(property = "flowPriority", column = "flow_priority", typeHandler = EnumOrdinalTypeHandler.class, javaType = FlowPriority.class, jdbcType = JdbcType.TINYINT),
+      @Result(property = "deadline", column = "deadline", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP)
   })
-  @SelectProvider(type = ExecutionFlowMapperProvider.class, method = "selectAllNoFinishFlow")
-  List<ExecutionFlow> selectAllNoFinishFlow();
+  @SelectProvider(type = ExecutionFlowMapperProvider.class, method = "selectNoFinishFlowPage")
+  List<ExecutionFlow> selectNoFinishFlowPage(@Param("afterId") int afterId,
+      @Param("limit") int limit);
+
+  /**
+   * 未完成的工作流数
+   */
+  @SelectProvider(type = ExecutionFlowMapperProvider.class, method = "countNoFinishFlow")
+  int countNoFinishFlow();
 
   /**
    * 获取指定worker未完成的工作流列表
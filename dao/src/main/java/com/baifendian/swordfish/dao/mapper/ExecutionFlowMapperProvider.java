@@ -17,6 +17,7 @@ package com.baifendian.swordfish.dao.mapper;
 
 import com.baifendian.swordfish.dao.enums.ExecType;
 import com.baifendian.swordfish.dao.enums.FailurePolicyType;
+import com.baifendian.swordfish.dao.enums.FlowPriority;
 import com.baifendian.swordfish.dao.enums.FlowStatus;
 import com.baifendian.swordfish.dao.enums.NotifyType;
 import com.baifendian.swordfish.dao.mapper.utils.EnumFieldUtil;
@@ -67,6 +68,9 @@ public class ExecutionFlowMapperProvider {
             EnumFieldUtil.genFieldStr("executionFlow.notifyType", NotifyType.class));
         VALUES("notify_mails", "#{executionFlow.notifyMails}");
         VALUES("timeout", "#{executionFlow.timeout}");
+        VALUES("flow_priority",
+            EnumFieldUtil.genFieldStr("executionFlow.flowPriority", FlowPriority.class));
+        VALUES("deadline", "#{executionFlow.deadline}");
         VALUES("queue", "#{executionFlow.queue}");
         VALUES("extras", "#{executionFlow.extras}");
       }
@@ -112,6 +116,23 @@ public class ExecutionFlowMapperProvider {
     }.toString();
   }
 
+  /**
+   * 更新 worker, 以 master 租约的 epoch 作为 fencing token, 已经失去租约的 master 不能再分发任务
+   */
+  public String updateWorkerFenced(Map<String, Object> parameter) {
+    return new SQL() {
+      {
+        UPDATE(TABLE_NAME);
+
+        SET("worker = #{worker}");
+
+        WHERE("id = #{execId}");
+        WHERE("exists (select 1 from " + MasterServerMapperProvider.TABLE_NAME + " where id = "
+            + MasterServerMapperProvider.LEASE_ID + " and epoch = #{epoch})");
+      }
+    }.toString();
+  }
+
   /**
    * 更新 workflow data
    */
@@ -126,12 +147,32 @@ public class ExecutionFlowMapperProvider {
   }
 
   /**
-   * 查询所有没有完成的任务
+   * 按 id 分页查询没有完成的任务
+   */
+  public String selectNoFinishFlowPage(Map<String, Object> parameter) {
+    return new SQL() {
+      {
+        SELECT("a.id, a.flow_id, a.worker, a.status, a.flow_priority, a.deadline");
+        SELECT("c.name as project_name");
+
+        FROM(TABLE_NAME + " a");
+
+        INNER_JOIN("project_flows b on a.flow_id = b.id");
+        INNER_JOIN("project c on b.project_id = c.id");
+
+        WHERE("a.status <=" + FlowStatus.RUNNING.ordinal());
+        WHERE("a.id > #{afterId}");
+      }
+    }.toString() + " order by a.id limit #{limit}";
+  }
+
+  /**
+   * 未完成的工作流数
    */
-  public String selectAllNoFinishFlow() {
+  public String countNoFinishFlow() {
     return new SQL() {
       {
-        SELECT("id, flow_id, worker, status");
+        SELECT("count(0)");
 
         FROM(TABLE_NAME);
 
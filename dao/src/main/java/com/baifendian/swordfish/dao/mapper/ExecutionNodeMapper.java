@@ -17,6 +17,8 @@ package com.baifendian.swordfish.dao.mapper;
 
 import com.baifendian.swordfish.dao.enums.FlowStatus;
 import com.baifendian.swordfish.dao.model.ExecutionNode;
+import com.baifendian.swordfish.dao.model.ExecutionNodeDuration;
+import com.baifendian.swordfish.dao.model.ExecutionNodeResource;
 import java.util.Date;
 import java.util.List;
 import org.apache.ibatis.annotations.DeleteProvider;
@@ -61,7 +63,13 @@ public interface ExecutionNodeMapper {
           @Result(property = "attempt", column = "attempt", javaType = int.class, jdbcType = JdbcType.TINYINT),
           @Result(property = "appLinks", column = "app_links", javaType = String.class, jdbcType = JdbcType.VARCHAR),
           @Result(property = "jobLinks", column = "job_links", javaType = String.class, jdbcType = JdbcType.VARCHAR),
-          @Result(property = "jobId", column = "job_id", javaType = String.class, jdbcType = JdbcType.VARCHAR)
+          @Result(property = "jobId", column = "job_id", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "cpuPeak", column = "cpu_peak", javaType = Double.class, jdbcType = JdbcType.DOUBLE),
+          @Result(property = "cpuAvg", column = "cpu_avg", javaType = Double.class, jdbcType = JdbcType.DOUBLE),
+          @Result(property = "memPeak", column = "mem_peak", javaType = Long.class, jdbcType = JdbcType.BIGINT),
+          @Result(property = "memAvg", column = "mem_avg", javaType = Long.class, jdbcType = JdbcType.BIGINT),
+          @Result(property = "ioRead", column = "io_read", javaType = Long.class, jdbcType = JdbcType.BIGINT),
+          @Result(property = "ioWrite", column = "io_write", javaType = Long.class, jdbcType = JdbcType.BIGINT)
   })
   @SelectProvider(type = ExecutionNodeMapperProvider.class, method = "selectExecNode")
   ExecutionNode selectExecNode(@Param("execId") Long execId, @Param("name") String name);
@@ -80,7 +88,13 @@ public interface ExecutionNodeMapper {
           @Result(property = "attempt", column = "attempt", javaType = int.class, jdbcType = JdbcType.TINYINT),
           @Result(property = "appLinks", column = "app_links", javaType = String.class, jdbcType = JdbcType.VARCHAR),
           @Result(property = "jobLinks", column = "job_links", javaType = String.class, jdbcType = JdbcType.VARCHAR),
-          @Result(property = "jobId", column = "job_id", javaType = String.class, jdbcType = JdbcType.VARCHAR)
+          @Result(property = "jobId", column = "job_id", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "cpuPeak", column = "cpu_peak", javaType = Double.class, jdbcType = JdbcType.DOUBLE),
+          @Result(property = "cpuAvg", column = "cpu_avg", javaType = Double.class, jdbcType = JdbcType.DOUBLE),
+          @Result(property = "memPeak", column = "mem_peak", javaType = Long.class, jdbcType = JdbcType.BIGINT),
+          @Result(property = "memAvg", column = "mem_avg", javaType = Long.class, jdbcType = JdbcType.BIGINT),
+          @Result(property = "ioRead", column = "io_read", javaType = Long.class, jdbcType = JdbcType.BIGINT),
+          @Result(property = "ioWrite", column = "io_write", javaType = Long.class, jdbcType = JdbcType.BIGINT)
   })
   @SelectProvider(type = ExecutionNodeMapperProvider.class, method = "selectExecNodeById")
   List<ExecutionNode> selectExecNodeById(@Param("execId") int execId);
@@ -108,8 +122,43 @@ public interface ExecutionNodeMapper {
           @Result(property = "attempt", column = "attempt", javaType = int.class, jdbcType = JdbcType.TINYINT),
           @Result(property = "appLinks", column = "app_links", javaType = String.class, jdbcType = JdbcType.VARCHAR),
           @Result(property = "jobLinks", column = "job_links", javaType = String.class, jdbcType = JdbcType.VARCHAR),
-          @Result(property = "jobId", column = "job_id", javaType = String.class, jdbcType = JdbcType.VARCHAR)
+          @Result(property = "jobId", column = "job_id", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "cpuPeak", column = "cpu_peak", javaType = Double.class, jdbcType = JdbcType.DOUBLE),
+          @Result(property = "cpuAvg", column = "cpu_avg", javaType = Double.class, jdbcType = JdbcType.DOUBLE),
+          @Result(property = "memPeak", column = "mem_peak", javaType = Long.class, jdbcType = JdbcType.BIGINT),
+          @Result(property = "memAvg", column = "mem_avg", javaType = Long.class, jdbcType = JdbcType.BIGINT),
+          @Result(property = "ioRead", column = "io_read", javaType = Long.class, jdbcType = JdbcType.BIGINT),
+          @Result(property = "ioWrite", column = "io_write", javaType = Long.class, jdbcType = JdbcType.BIGINT)
   })
   @SelectProvider(type = ExecutionNodeMapperProvider.class, method = "selectExecNodeByJobId")
   ExecutionNode selectExecNodeByJobId(@Param("jobId") String jobId);
+
+  /**
+   * 统计某个时间之后各个工作流节点成功运行的平均时长
+   *
+   * @param since
+   * @return
+   */
+  @Results(value = {
+          @Result(property = "flowId", column = "flow_id", javaType = int.class, jdbcType = JdbcType.INTEGER),
+          @Result(property = "name", column = "name", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "duration", column = "duration", javaType = long.class, jdbcType = JdbcType.BIGINT)
+  })
+  @SelectProvider(type = ExecutionNodeMapperProvider.class, method = "selectDurations")
+  List<ExecutionNodeDuration> selectDurations(@Param("since") Date since);
+
+  /**
+   * 按节点名称统计某个工作流成功运行时资源使用峰值的平均
+   *
+   * @param flowId
+   * @param since
+   * @return
+   */
+  @Results(value = {
+          @Result(property = "name", column = "name", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "cpuPeak", column = "cpu_peak", javaType = double.class, jdbcType = JdbcType.DOUBLE),
+          @Result(property = "memPeak", column = "mem_peak", javaType = long.class, jdbcType = JdbcType.BIGINT)
+  })
+  @SelectProvider(type = ExecutionNodeMapperProvider.class, method = "selectResources")
+  List<ExecutionNodeResource> selectResources(@Param("flowId") int flowId, @Param("since") Date since);
 }
@@ -79,6 +79,15 @@ public class ExecutionNodeMapperProvider {
           SET("job_links = #{executionNode.jobLinks}");
         }
 
+        if (executionNode.getCpuPeak() != null) {
+          SET("cpu_peak = #{executionNode.cpuPeak}");
+          SET("cpu_avg = #{executionNode.cpuAvg}");
+          SET("mem_peak = #{executionNode.memPeak}");
+          SET("mem_avg = #{executionNode.memAvg}");
+          SET("io_read = #{executionNode.ioRead}");
+          SET("io_write = #{executionNode.ioWrite}");
+        }
+
         WHERE("exec_id = #{executionNode.execId}");
         WHERE("name = #{executionNode.name}");
       }
@@ -134,6 +143,58 @@ public class ExecutionNodeMapperProvider {
     }.toString();
   }
 
+  /**
+   * 按工作流和节点名称统计成功运行的平均时长, 单位秒
+   *
+   * @param parameter
+   * @return
+   */
+  public String selectDurations(Map<String, Object> parameter) {
+    return new SQL() {
+      {
+        SELECT("a.flow_id");
+        SELECT("n.name");
+        SELECT("cast(avg(timestampdiff(second, n.start_time, n.end_time)) as signed) as duration");
+
+        FROM(TABLE_NAME + " n");
+
+        INNER_JOIN("execution_flows a on n.exec_id = a.id");
+
+        WHERE("n.status = " + FlowStatus.SUCCESS.ordinal());
+        WHERE("n.end_time >= #{since}");
+
+        GROUP_BY("a.flow_id");
+        GROUP_BY("n.name");
+      }
+    }.toString();
+  }
+
+  /**
+   * 按节点名称统计某个工作流成功运行时资源使用峰值的平均
+   *
+   * @param parameter
+   * @return
+   */
+  public String selectResources(Map<String, Object> parameter) {
+    return new SQL() {
+      {
+        SELECT("n.name");
+        SELECT("avg(n.cpu_peak) as cpu_peak");
+        SELECT("cast(avg(n.mem_peak) as signed) as mem_peak");
+
+        FROM(TABLE_NAME + " n");
+
+        INNER_JOIN("execution_flows a on n.exec_id = a.id");
+
+        WHERE("a.flow_id = #{flowId}");
+        WHERE("n.status = " + FlowStatus.SUCCESS.ordinal());
+        WHERE("n.end_time >= #{since}");
+        WHERE("n.cpu_peak is not null");
+
+        GROUP_BY("n.name");
+      }
+    }.toString();
+  }
 
   /**
    * 删除结点
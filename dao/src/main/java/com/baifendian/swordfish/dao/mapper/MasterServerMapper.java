@@ -36,6 +36,8 @@ public interface MasterServerMapper {
       @Result(property = "id", column = "id", javaType = Integer.class, jdbcType = JdbcType.INTEGER),
       @Result(property = "host", column = "host", javaType = String.class, jdbcType = JdbcType.VARCHAR),
       @Result(property = "port", column = "port", javaType = int.class, jdbcType = JdbcType.INTEGER),
+      @Result(property = "epoch", column = "epoch", javaType = long.class, jdbcType = JdbcType.BIGINT),
+      @Result(property = "leaseExpire", column = "lease_expire", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
       @Result(property = "createTime", column = "create_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
       @Result(property = "modifyTime", column = "modify_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP)
   })
@@ -46,19 +48,30 @@ public interface MasterServerMapper {
    * 插入一个 master 信息
    *
    * @param masterServer
+   * @param leaseMillis 租约的时长, 单位毫秒, 从数据库的当前时间开始计算
    * @return
    */
   @InsertProvider(type = MasterServerMapperProvider.class, method = "insert")
-  int insert(@Param("masterServer") MasterServer masterServer);
+  int insert(@Param("masterServer") MasterServer masterServer,
+      @Param("leaseMillis") long leaseMillis);
 
   /**
-   * 更新一个 master 信息
+   * 抢占租约, 只有租约已经过期或者本来就是自己持有时才能成功, 成功后 epoch 加 1, 过期的判断和新的过期时间都以数据库的时钟为准
    *
-   * @param masterServer
-   * @return
+   * @return 更新的记录数, 1 表示成功
+   */
+  @UpdateProvider(type = MasterServerMapperProvider.class, method = "acquireLease")
+  int acquireLease(@Param("host") String host, @Param("port") int port,
+      @Param("leaseMillis") long leaseMillis, @Param("now") Date now);
+
+  /**
+   * 续约, 只有 host, port 和 epoch 都匹配时才能成功, 新的过期时间以数据库的时钟为准
+   *
+   * @return 更新的记录数, 1 表示成功
    */
-  @UpdateProvider(type = MasterServerMapperProvider.class, method = "update")
-  int update(@Param("masterServer") MasterServer masterServer);
+  @UpdateProvider(type = MasterServerMapperProvider.class, method = "renewLease")
+  int renewLease(@Param("host") String host, @Param("port") int port, @Param("epoch") long epoch,
+      @Param("leaseMillis") long leaseMillis, @Param("now") Date now);
 
   /**
    * 删除 master 信息
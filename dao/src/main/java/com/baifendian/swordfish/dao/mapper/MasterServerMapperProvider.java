@@ -22,6 +22,17 @@ public class MasterServerMapperProvider {
 
   public static final String TABLE_NAME = "master_server";
 
+  /**
+   * 租约只有一行记录, 固定的 id
+   */
+  public static final int LEASE_ID = 1;
+
+  /**
+   * 租约的过期时间按数据库的时钟计算, 不受各个 master 本地时钟的偏差影响
+   */
+  private static final String LEASE_EXPIRE =
+      "FROM_UNIXTIME((UNIX_TIMESTAMP(NOW(3)) * 1000 + #{leaseMillis}) / 1000)";
+
   /**
    * 查询 master 的所有信息
    *
@@ -32,6 +43,8 @@ public class MasterServerMapperProvider {
       SELECT("*");
 
       FROM(TABLE_NAME);
+
+      WHERE("id = " + LEASE_ID);
     }}.toString();
   }
 
@@ -45,27 +58,54 @@ public class MasterServerMapperProvider {
     return new SQL() {{
       INSERT_INTO(TABLE_NAME);
 
+      VALUES("id", Integer.toString(LEASE_ID));
       VALUES("host", "#{masterServer.host}");
       VALUES("port", "#{masterServer.port}");
+      VALUES("epoch", "#{masterServer.epoch}");
+      VALUES("lease_expire", LEASE_EXPIRE);
       VALUES("create_time", "#{masterServer.createTime}");
       VALUES("modify_time", "#{masterServer.modifyTime}");
     }}.toString();
   }
 
   /**
-   * 更新信息
+   * 抢占租约
    *
    * @param parameter
    * @return
    */
-  public String update(Map<String, Object> parameter) {
+  public String acquireLease(Map<String, Object> parameter) {
     return new SQL() {{
       UPDATE(TABLE_NAME);
 
-      SET("modify_time = #{masterServer.modifyTime}");
+      SET("host = #{host}");
+      SET("port = #{port}");
+      SET("epoch = epoch + 1");
+      SET("lease_expire = " + LEASE_EXPIRE);
+      SET("modify_time = #{now}");
 
-      WHERE("host = #{masterServer.host}");
-      WHERE("port = #{masterServer.port}");
+      WHERE("id = " + LEASE_ID);
+      WHERE("(lease_expire < NOW(3) or (host = #{host} and port = #{port}))");
+    }}.toString();
+  }
+
+  /**
+   * 续约
+   *
+   * @param parameter
+   * @return
+   */
+  public String renewLease(Map<String, Object> parameter) {
+    return new SQL() {{
+      UPDATE(TABLE_NAME);
+
+      SET("lease_expire = " + LEASE_EXPIRE);
+      SET("modify_time = #{now}");
+
+      WHERE("id = " + LEASE_ID);
+      WHERE("host = #{host}");
+      WHERE("port = #{port}");
+      WHERE("epoch = #{epoch}");
     }}.toString();
   }
 
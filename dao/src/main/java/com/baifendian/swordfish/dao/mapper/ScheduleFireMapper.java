@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.dao.mapper;
+
+import com.baifendian.swordfish.dao.model.ScheduleFire;
+import java.util.Date;
+import java.util.List;
+import org.apache.ibatis.annotations.DeleteProvider;
+import org.apache.ibatis.annotations.InsertProvider;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.SelectProvider;
+import org.apache.ibatis.annotations.UpdateProvider;
+import org.apache.ibatis.type.JdbcType;
+
+public interface ScheduleFireMapper {
+
+  /**
+   * 批量记录将要触发的调度, 已经存在的忽略
+   */
+  @InsertProvider(type = ScheduleFireMapperProvider.class, method = "insertBatch")
+  int insertBatch(@Param("fires") List<ScheduleFire> fires);
+
+  /**
+   * 批量标记已经创建了执行记录
+   */
+  @UpdateProvider(type = ScheduleFireMapperProvider.class, method = "updateFired")
+  int updateFired(@Param("fires") List<ScheduleFire> fires);
+
+  /**
+   * 查询还没有创建执行记录的触发
+   */
+  @Results(value = {
+      @Result(property = "flowId", column = "flow_id", id = true, javaType = int.class, jdbcType = JdbcType.INTEGER),
+      @Result(property = "fireTime", column = "fire_time", id = true, javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
+      @Result(property = "fired", column = "fired", javaType = boolean.class, jdbcType = JdbcType.TINYINT)
+  })
+  @SelectProvider(type = ScheduleFireMapperProvider.class, method = "selectPending")
+  List<ScheduleFire> selectPending();
+
+  /**
+   * 查询各个工作流最近的触发时间
+   */
+  @Results(value = {
+      @Result(property = "flowId", column = "flow_id", id = true, javaType = int.class, jdbcType = JdbcType.INTEGER),
+      @Result(property = "fireTime", column = "fire_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP)
+  })
+  @SelectProvider(type = ScheduleFireMapperProvider.class, method = "selectLast")
+  List<ScheduleFire> selectLast();
+
+  /**
+   * 删除已经创建了执行记录的触发, 每个工作流只保留最近的一条
+   */
+  @DeleteProvider(type = ScheduleFireMapperProvider.class, method = "prune")
+  int prune();
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.dao.mapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.ibatis.jdbc.SQL;
+
+public class ScheduleFireMapperProvider {
+
+  public static final String TABLE_NAME = "schedule_fires";
+
+  /**
+   * 批量插入, 已经存在的忽略
+   *
+   * @param parameter
+   * @return
+   */
+  public String insertBatch(Map<String, Object> parameter) {
+    List<?> fires = (List<?>) parameter.get("fires");
+
+    return "insert ignore into " + TABLE_NAME + " (flow_id, fire_time, fired) values "
+        + IntStream.range(0, fires.size())
+        .mapToObj(i -> "(#{fires[" + i + "].flowId}, #{fires[" + i + "].fireTime}, 0)")
+        .collect(Collectors.joining(","));
+  }
+
+  /**
+   * 批量标记已经创建了执行记录
+   *
+   * @param parameter
+   * @return
+   */
+  public String updateFired(Map<String, Object> parameter) {
+    List<?> fires = (List<?>) parameter.get("fires");
+
+    return new SQL() {{
+      UPDATE(TABLE_NAME);
+
+      SET("fired = 1");
+
+      WHERE("(flow_id, fire_time) in (" + IntStream.range(0, fires.size())
+          .mapToObj(i -> "(#{fires[" + i + "].flowId}, #{fires[" + i + "].fireTime})")
+          .collect(Collectors.joining(",")) + ")");
+    }}.toString();
+  }
+
+  /**
+   * 查询还没有创建执行记录的触发
+   *
+   * @return
+   */
+  public String selectPending() {
+    return new SQL() {{
+      SELECT("*");
+
+      FROM(TABLE_NAME);
+
+      WHERE("fired = 0");
+    }}.toString();
+  }
+
+  /**
+   * 查询各个工作流最近的触发时间
+   *
+   * @return
+   */
+  public String selectLast() {
+    return new SQL() {{
+      SELECT("flow_id");
+      SELECT("max(fire_time) as fire_time");
+
+      FROM(TABLE_NAME);
+
+      GROUP_BY("flow_id");
+    }}.toString();
+  }
+
+  /**
+   * 删除已经创建了执行记录的触发, 每个工作流只保留最近的一条, 用于重启时计算错过的触发
+   *
+   * @return
+   */
+  public String prune() {
+    return "delete f from " + TABLE_NAME + " f join (select flow_id, max(fire_time) as last_time"
+        + " from " + TABLE_NAME + " where fired = 1 group by flow_id) l"
+        + " on f.flow_id = l.flow_id where f.fired = 1 and f.fire_time < l.last_time";
+  }
+}
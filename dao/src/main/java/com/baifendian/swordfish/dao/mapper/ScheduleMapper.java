@@ -17,6 +17,7 @@ package com.baifendian.swordfish.dao.mapper;
 
 import com.baifendian.swordfish.dao.enums.DepPolicyType;
 import com.baifendian.swordfish.dao.enums.FailurePolicyType;
+import com.baifendian.swordfish.dao.enums.FlowPriority;
 import com.baifendian.swordfish.dao.enums.NotifyType;
 import com.baifendian.swordfish.dao.enums.ScheduleStatus;
 import com.baifendian.swordfish.dao.model.Schedule;
@@ -67,8 +68,10 @@ public interface ScheduleMapper {
           @Result(property = "failurePolicy", column = "failure_policy", typeHandler = EnumOrdinalTypeHandler.class, javaType = FailurePolicyType.class, jdbcType = JdbcType.TINYINT),
           @Result(property = "maxTryTimes", column = "max_try_times", javaType = int.class, jdbcType = JdbcType.INTEGER),
           @Result(property = "notifyType", column = "notify_type", typeHandler = EnumOrdinalTypeHandler.class, javaType = NotifyType.class, jdbcType = JdbcType.TINYINT),
+          @Result(property = "flowPriority", column = "flow_priority", typeHandler = EnumOrdinalTypeHandler.class, javaType = FlowPriority.class, jdbcType = JdbcType.TINYINT),
           @Result(property = "notifyMailsStr", column = "notify_mails", javaType = String.class, jdbcType = JdbcType.VARCHAR),
           @Result(property = "timeout", column = "timeout", javaType = int.class, jdbcType = JdbcType.INTEGER),
+          @Result(property = "deadline", column = "deadline", javaType = Integer.class, jdbcType = JdbcType.INTEGER),
           @Result(property = "createTime", column = "create_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
           @Result(property = "modifyTime", column = "modify_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
           @Result(property = "ownerId", column = "owner", javaType = int.class, jdbcType = JdbcType.INTEGER),
@@ -97,8 +100,10 @@ public interface ScheduleMapper {
           @Result(property = "failurePolicy", column = "failure_policy", typeHandler = EnumOrdinalTypeHandler.class, javaType = FailurePolicyType.class, jdbcType = JdbcType.TINYINT),
           @Result(property = "maxTryTimes", column = "max_try_times", javaType = int.class, jdbcType = JdbcType.INTEGER),
           @Result(property = "notifyType", column = "notify_type", typeHandler = EnumOrdinalTypeHandler.class, javaType = NotifyType.class, jdbcType = JdbcType.TINYINT),
+          @Result(property = "flowPriority", column = "flow_priority", typeHandler = EnumOrdinalTypeHandler.class, javaType = FlowPriority.class, jdbcType = JdbcType.TINYINT),
           @Result(property = "notifyMailsStr", column = "notify_mails", javaType = String.class, jdbcType = JdbcType.VARCHAR),
           @Result(property = "timeout", column = "timeout", javaType = int.class, jdbcType = JdbcType.INTEGER),
+          @Result(property = "deadline", column = "deadline", javaType = Integer.class, jdbcType = JdbcType.INTEGER),
           @Result(property = "createTime", column = "create_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
           @Result(property = "modifyTime", column = "modify_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
           @Result(property = "ownerId", column = "owner", javaType = int.class, jdbcType = JdbcType.INTEGER),
@@ -125,8 +130,10 @@ public interface ScheduleMapper {
           @Result(property = "failurePolicy", column = "failure_policy", typeHandler = EnumOrdinalTypeHandler.class, javaType = FailurePolicyType.class, jdbcType = JdbcType.TINYINT),
           @Result(property = "maxTryTimes", column = "max_try_times", javaType = int.class, jdbcType = JdbcType.INTEGER),
           @Result(property = "notifyType", column = "notify_type", typeHandler = EnumOrdinalTypeHandler.class, javaType = NotifyType.class, jdbcType = JdbcType.TINYINT),
+          @Result(property = "flowPriority", column = "flow_priority", typeHandler = EnumOrdinalTypeHandler.class, javaType = FlowPriority.class, jdbcType = JdbcType.TINYINT),
           @Result(property = "notifyMailsStr", column = "notify_mails", javaType = String.class, jdbcType = JdbcType.VARCHAR),
           @Result(property = "timeout", column = "timeout", javaType = int.class, jdbcType = JdbcType.INTEGER),
+          @Result(property = "deadline", column = "deadline", javaType = Integer.class, jdbcType = JdbcType.INTEGER),
           @Result(property = "createTime", column = "create_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
           @Result(property = "modifyTime", column = "modify_time", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
           @Result(property = "ownerId", column = "owner", javaType = int.class, jdbcType = JdbcType.INTEGER),
@@ -135,4 +142,20 @@ public interface ScheduleMapper {
   })
   @SelectProvider(type = ScheduleMapperProvider.class, method = "selectByFlowName")
   Schedule selectByFlowName(@Param("projectName") String projectName, @Param("name") String name);
+
+  /**
+   * 查询所有上线的调度, 只包含触发需要的字段
+   *
+   * @return
+   */
+  @Results(value = {
+          @Result(property = "flowId", column = "flow_id", id = true, javaType = int.class, jdbcType = JdbcType.INTEGER),
+          @Result(property = "projectId", column = "project_id", javaType = int.class, jdbcType = JdbcType.INTEGER),
+          @Result(property = "startDate", column = "start_date", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
+          @Result(property = "endDate", column = "end_date", javaType = Date.class, jdbcType = JdbcType.TIMESTAMP),
+          @Result(property = "crontab", column = "crontab", javaType = String.class, jdbcType = JdbcType.VARCHAR),
+          @Result(property = "scheduleStatus", column = "schedule_status", typeHandler = EnumOrdinalTypeHandler.class, javaType = ScheduleStatus.class, jdbcType = JdbcType.TINYINT),
+  })
+  @SelectProvider(type = ScheduleMapperProvider.class, method = "selectOnline")
+  List<Schedule> selectOnline();
 }
@@ -17,6 +17,7 @@ package com.baifendian.swordfish.dao.mapper;
 
 import com.baifendian.swordfish.dao.enums.DepPolicyType;
 import com.baifendian.swordfish.dao.enums.FailurePolicyType;
+import com.baifendian.swordfish.dao.enums.FlowPriority;
 import com.baifendian.swordfish.dao.enums.NotifyType;
 import com.baifendian.swordfish.dao.enums.ScheduleStatus;
 import com.baifendian.swordfish.dao.mapper.utils.EnumFieldUtil;
@@ -40,8 +41,10 @@ public class ScheduleMapperProvider {
       VALUES("`failure_policy`", EnumFieldUtil.genFieldStr("schedule.failurePolicy", FailurePolicyType.class));
       VALUES("`max_try_times`", "#{schedule.maxTryTimes}");
       VALUES("`notify_type`", EnumFieldUtil.genFieldStr("schedule.notifyType", NotifyType.class));
+      VALUES("`flow_priority`", EnumFieldUtil.genFieldStr("schedule.flowPriority", FlowPriority.class));
       VALUES("`notify_mails`", "#{schedule.notifyMailsStr}");
       VALUES("`timeout`", "#{schedule.timeout}");
+      VALUES("`deadline`", "#{schedule.deadline}");
       VALUES("`create_time`", "#{schedule.createTime}");
       VALUES("`modify_time`", "#{schedule.modifyTime}");
       VALUES("`owner`", "#{schedule.ownerId}");
@@ -62,8 +65,10 @@ public class ScheduleMapperProvider {
         SET("`failure_policy`=" + EnumFieldUtil.genFieldStr("schedule.failurePolicy", FailurePolicyType.class));
         SET("`max_try_times`=#{schedule.maxTryTimes}");
         SET("`notify_type`=" + EnumFieldUtil.genFieldStr("schedule.notifyType", NotifyType.class));
+        SET("`flow_priority`=" + EnumFieldUtil.genFieldStr("schedule.flowPriority", FlowPriority.class));
         SET("`notify_mails`=#{schedule.notifyMailsStr}");
         SET("`timeout`=#{schedule.timeout}");
+        SET("`deadline`=#{schedule.deadline}");
         SET("`create_time`=#{schedule.createTime}");
         SET("`modify_time`=#{schedule.modifyTime}");
         SET("`owner`=#{schedule.ownerId}");
@@ -126,4 +131,21 @@ public class ScheduleMapperProvider {
       WHERE("p_f.name = #{name}");
     }}.toString();
   }
+
+  public String selectOnline() {
+    return new SQL() {{
+      SELECT("p_f.project_id");
+      SELECT("s.flow_id");
+      SELECT("s.start_date");
+      SELECT("s.end_date");
+      SELECT("s.crontab");
+      SELECT("s.schedule_status");
+
+      FROM(DB_NAME + " as s");
+
+      JOIN("project_flows as p_f on s.flow_id = p_f.id");
+
+      WHERE("s.schedule_status = " + ScheduleStatus.ONLINE.ordinal());
+    }}.toString();
+  }
 }
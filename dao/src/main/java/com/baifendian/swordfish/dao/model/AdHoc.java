@@ -90,6 +90,16 @@ public class AdHoc {
    */
   private Date endTime;
 
+  /**
+   * 查询的指纹, 用于结果缓存, 为空表示不可缓存
+   */
+  private String fingerprint;
+
+  /**
+   * 结果来自缓存时, 为提供结果的执行 id
+   */
+  private Integer cacheSource;
+
   public int getId() {
     return id;
   }
@@ -201,4 +211,20 @@ public class AdHoc {
   public void setType(SqlEngineType type) {
     this.type = type;
   }
+
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  public void setFingerprint(String fingerprint) {
+    this.fingerprint = fingerprint;
+  }
+
+  public Integer getCacheSource() {
+    return cacheSource;
+  }
+
+  public void setCacheSource(Integer cacheSource) {
+    this.cacheSource = cacheSource;
+  }
 }
@@ -29,6 +29,11 @@ public class AdHocResult {
    */
   private String name;
 
+  /**
+   * 结果来自缓存时, 为提供结果的执行 id
+   */
+  private Integer cacheSource;
+
   /**
    * 执行语句在查询语句数组中的索引
    */
@@ -44,6 +49,26 @@ public class AdHocResult {
    */
   private String result;
 
+  /**
+   * 结果的总行数
+   */
+  private long rowCount;
+
+  /**
+   * 结果分片的目录, 结果只有一页时为空
+   */
+  private String resultPath;
+
+  /**
+   * 结果分片数
+   */
+  private int segmentCount;
+
+  /**
+   * 每个结果分片的行数
+   */
+  private int segmentRows;
+
   /**
    * 执行状态
    */
@@ -96,6 +121,38 @@ public class AdHocResult {
     this.result = result;
   }
 
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  public void setRowCount(long rowCount) {
+    this.rowCount = rowCount;
+  }
+
+  public String getResultPath() {
+    return resultPath;
+  }
+
+  public void setResultPath(String resultPath) {
+    this.resultPath = resultPath;
+  }
+
+  public int getSegmentCount() {
+    return segmentCount;
+  }
+
+  public void setSegmentCount(int segmentCount) {
+    this.segmentCount = segmentCount;
+  }
+
+  public int getSegmentRows() {
+    return segmentRows;
+  }
+
+  public void setSegmentRows(int segmentRows) {
+    this.segmentRows = segmentRows;
+  }
+
   public FlowStatus getStatus() {
     return status;
   }
@@ -135,4 +192,12 @@ public class AdHocResult {
   public void setName(String name) {
     this.name = name;
   }
+
+  public Integer getCacheSource() {
+    return cacheSource;
+  }
+
+  public void setCacheSource(Integer cacheSource) {
+    this.cacheSource = cacheSource;
+  }
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.dao.model;
+
+import java.util.Date;
+
+/**
+ * 等待分发的 workflow, 持久化在 dispatch_queue 表中
+ */
+public class DispatchQueueItem {
+
+  /**
+   * workflow 的 exec id
+   */
+  private int execId;
+
+  /**
+   * 项目名称, 按项目公平分发和限制并发
+   */
+  private String projectName;
+
+  /**
+   * 建议的 executor host, 为空表示任意
+   */
+  private String host;
+
+  /**
+   * 建议的 executor port
+   */
+  private Integer port;
+
+  /**
+   * 标签, 拉取模式下只有带有该标签的 executor 才能领取, 为空表示任意
+   */
+  private String label;
+
+  /**
+   * 优先级, 同一个项目内越大越先分发
+   */
+  private int priority;
+
+  /**
+   * 完成期限, 同一个优先级内期限早的先分发, 为空表示没有期限
+   */
+  private Date deadline;
+
+  /**
+   * 在这个时间之前不分发
+   */
+  private Date notBefore;
+
+  /**
+   * 领取的令牌, 没有被领取时为空
+   */
+  private String claimToken;
+
+  /**
+   * 领取的过期时间, 过期后可以被重新领取
+   */
+  private Date claimExpire;
+
+  /**
+   * 创建时间
+   */
+  private Date createTime;
+
+  public int getExecId() {
+    return execId;
+  }
+
+  public void setExecId(int execId) {
+    this.execId = execId;
+  }
+
+  public String getProjectName() {
+    return projectName;
+  }
+
+  public void setProjectName(String projectName) {
+    this.projectName = projectName;
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  public void setHost(String host) {
+    this.host = host;
+  }
+
+  public Integer getPort() {
+    return port;
+  }
+
+  public void setPort(Integer port) {
+    this.port = port;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public void setLabel(String label) {
+    this.label = label;
+  }
+
+  public int getPriority() {
+    return priority;
+  }
+
+  public void setPriority(int priority) {
+    this.priority = priority;
+  }
+
+  public Date getDeadline() {
+    return deadline;
+  }
+
+  public void setDeadline(Date deadline) {
+    this.deadline = deadline;
+  }
+
+  public Date getNotBefore() {
+    return notBefore;
+  }
+
+  public void setNotBefore(Date notBefore) {
+    this.notBefore = notBefore;
+  }
+
+  public String getClaimToken() {
+    return claimToken;
+  }
+
+  public void setClaimToken(String claimToken) {
+    this.claimToken = claimToken;
+  }
+
+  public Date getClaimExpire() {
+    return claimExpire;
+  }
+
+  public void setClaimExpire(Date claimExpire) {
+    this.claimExpire = claimExpire;
+  }
+
+  public Date getCreateTime() {
+    return createTime;
+  }
+
+  public void setCreateTime(Date createTime) {
+    this.createTime = createTime;
+  }
+
+  @Override
+  public String toString() {
+    return "DispatchQueueItem{" +
+        "execId=" + execId +
+        ", projectName='" + projectName + '\'' +
+        ", host='" + host + '\'' +
+        ", port=" + port +
+        ", label='" + label + '\'' +
+        ", priority=" + priority +
+        ", notBefore=" + notBefore +
+        ", claimToken='" + claimToken + '\'' +
+        ", claimExpire=" + claimExpire +
+        '}';
+  }
+}
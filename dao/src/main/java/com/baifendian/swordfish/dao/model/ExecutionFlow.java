@@ -17,6 +17,7 @@ package com.baifendian.swordfish.dao.model;
 
 import com.baifendian.swordfish.dao.enums.ExecType;
 import com.baifendian.swordfish.dao.enums.FailurePolicyType;
+import com.baifendian.swordfish.dao.enums.FlowPriority;
 import com.baifendian.swordfish.dao.enums.FlowStatus;
 import com.baifendian.swordfish.dao.enums.NotifyType;
 import com.baifendian.swordfish.dao.model.flow.Property;
@@ -169,6 +170,16 @@ public class ExecutionFlow {
    **/
   private String queue;
 
+  /**
+   * 优先级 数据库映射字段 flow_priority
+   */
+  private FlowPriority flowPriority = FlowPriority.MEDIUM;
+
+  /**
+   * 完成期限 数据库映射字段 deadline, 为空表示没有期限
+   */
+  private Date deadline;
+
   public String getWorkflowName() {
     return workflowName;
   }
@@ -353,6 +364,22 @@ public class ExecutionFlow {
     this.notifyType = notifyType;
   }
 
+  public FlowPriority getFlowPriority() {
+    return flowPriority;
+  }
+
+  public void setFlowPriority(FlowPriority flowPriority) {
+    this.flowPriority = flowPriority;
+  }
+
+  public Date getDeadline() {
+    return deadline;
+  }
+
+  public void setDeadline(Date deadline) {
+    this.deadline = deadline;
+  }
+
   public String getNotifyMails() {
     return notifyMails;
   }
@@ -79,6 +79,36 @@ public class ExecutionNode {
    */
   private List<String> jobLinkList = new ArrayList<>();
 
+  /**
+   * 进程树占用 cpu 核数的峰值
+   */
+  private Double cpuPeak;
+
+  /**
+   * 进程树占用 cpu 核数的平均值
+   */
+  private Double cpuAvg;
+
+  /**
+   * 进程树常驻内存的峰值, 单位字节
+   */
+  private Long memPeak;
+
+  /**
+   * 进程树常驻内存的平均值, 单位字节
+   */
+  private Long memAvg;
+
+  /**
+   * 进程树读的字节数
+   */
+  private Long ioRead;
+
+  /**
+   * 进程树写的字节数
+   */
+  private Long ioWrite;
+
   public Integer getExecId() {
     return execId;
   }
@@ -218,4 +248,52 @@ public class ExecutionNode {
       this.jobLinks = JsonUtil.toJsonString(jobLinkList);
     }
   }
+
+  public Double getCpuPeak() {
+    return cpuPeak;
+  }
+
+  public void setCpuPeak(Double cpuPeak) {
+    this.cpuPeak = cpuPeak;
+  }
+
+  public Double getCpuAvg() {
+    return cpuAvg;
+  }
+
+  public void setCpuAvg(Double cpuAvg) {
+    this.cpuAvg = cpuAvg;
+  }
+
+  public Long getMemPeak() {
+    return memPeak;
+  }
+
+  public void setMemPeak(Long memPeak) {
+    this.memPeak = memPeak;
+  }
+
+  public Long getMemAvg() {
+    return memAvg;
+  }
+
+  public void setMemAvg(Long memAvg) {
+    this.memAvg = memAvg;
+  }
+
+  public Long getIoRead() {
+    return ioRead;
+  }
+
+  public void setIoRead(Long ioRead) {
+    this.ioRead = ioRead;
+  }
+
+  public Long getIoWrite() {
+    return ioWrite;
+  }
+
+  public void setIoWrite(Long ioWrite) {
+    this.ioWrite = ioWrite;
+  }
 }
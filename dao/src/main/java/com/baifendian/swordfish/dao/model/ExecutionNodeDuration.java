@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.dao.model;
+
+/**
+ * 工作流节点的历史运行时长统计
+ */
+public class ExecutionNodeDuration {
+
+  /**
+   * 工作流 id
+   */
+  private int flowId;
+
+  /**
+   * 节点名称
+   */
+  private String name;
+
+  /**
+   * 成功运行的平均时长, 单位秒
+   */
+  private long duration;
+
+  public int getFlowId() {
+    return flowId;
+  }
+
+  public void setFlowId(int flowId) {
+    this.flowId = flowId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public long getDuration() {
+    return duration;
+  }
+
+  public void setDuration(long duration) {
+    this.duration = duration;
+  }
+}
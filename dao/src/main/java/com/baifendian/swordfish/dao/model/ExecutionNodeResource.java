@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.dao.model;
+
+/**
+ * 工作流节点的历史资源使用统计
+ */
+public class ExecutionNodeResource {
+
+  /**
+   * 节点名称
+   */
+  private String name;
+
+  /**
+   * 成功运行时 cpu 核数峰值的平均
+   */
+  private double cpuPeak;
+
+  /**
+   * 成功运行时常驻内存峰值的平均, 单位字节
+   */
+  private long memPeak;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public double getCpuPeak() {
+    return cpuPeak;
+  }
+
+  public void setCpuPeak(double cpuPeak) {
+    this.cpuPeak = cpuPeak;
+  }
+
+  public long getMemPeak() {
+    return memPeak;
+  }
+
+  public void setMemPeak(long memPeak) {
+    this.memPeak = memPeak;
+  }
+}
@@ -34,6 +34,16 @@ public class MasterServer {
    */
   private int port;
 
+  /**
+   * 租约的版本, 每次有新的 master 获得租约时加 1, 用作 fencing token
+   */
+  private long epoch;
+
+  /**
+   * 租约的过期时间
+   */
+  private Date leaseExpire;
+
   /**
    * 创建时间
    */
@@ -68,6 +78,22 @@ public class MasterServer {
     this.port = port;
   }
 
+  public long getEpoch() {
+    return epoch;
+  }
+
+  public void setEpoch(long epoch) {
+    this.epoch = epoch;
+  }
+
+  public Date getLeaseExpire() {
+    return leaseExpire;
+  }
+
+  public void setLeaseExpire(Date leaseExpire) {
+    this.leaseExpire = leaseExpire;
+  }
+
   public Date getCreateTime() {
     return createTime;
   }
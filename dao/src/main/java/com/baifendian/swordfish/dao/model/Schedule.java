@@ -17,6 +17,7 @@ package com.baifendian.swordfish.dao.model;
 
 import com.baifendian.swordfish.dao.enums.DepPolicyType;
 import com.baifendian.swordfish.dao.enums.FailurePolicyType;
+import com.baifendian.swordfish.dao.enums.FlowPriority;
 import com.baifendian.swordfish.dao.enums.NotifyType;
 import com.baifendian.swordfish.dao.enums.ScheduleStatus;
 import com.baifendian.swordfish.dao.utils.json.JsonUtil;
@@ -38,6 +39,12 @@ public class Schedule {
    */
   private int flowId;
 
+  /**
+   * 工作流所属项目 id
+   * 触发引擎需要字段
+   */
+  private int projectId;
+
   /**
    * 工作流名称
    * DTO需要字段
@@ -104,6 +111,18 @@ public class Schedule {
    */
   private NotifyType notifyType;
 
+  /**
+   * 工作流的优先级
+   * 数据库映射字段/DTO需要字段 flow_priority
+   */
+  private FlowPriority flowPriority = FlowPriority.MEDIUM;
+
+  /**
+   * 完成期限, 相对调度时间的秒数, 为空表示没有期限
+   * 数据库映射字段/DTO需要字段 deadline
+   */
+  private Integer deadline;
+
   /**
    * 报警邮箱列表
    * 数据库映射字段/DTO需要字段 notify_mails
@@ -177,6 +196,14 @@ public class Schedule {
     this.flowId = flowId;
   }
 
+  public int getProjectId() {
+    return projectId;
+  }
+
+  public void setProjectId(int projectId) {
+    this.projectId = projectId;
+  }
+
   public String getFlowName() {
     return flowName;
   }
@@ -260,6 +287,22 @@ public class Schedule {
     this.notifyType = notifyType;
   }
 
+  public FlowPriority getFlowPriority() {
+    return flowPriority;
+  }
+
+  public void setFlowPriority(FlowPriority flowPriority) {
+    this.flowPriority = flowPriority;
+  }
+
+  public Integer getDeadline() {
+    return deadline;
+  }
+
+  public void setDeadline(Integer deadline) {
+    this.deadline = deadline;
+  }
+
   public String getNotifyMailsStr() {
     return notifyMailsStr;
   }
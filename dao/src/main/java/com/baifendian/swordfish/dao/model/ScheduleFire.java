@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.dao.model;
+
+import java.util.Date;
+
+/**
+ * 调度的一次触发, 持久化在 schedule_fires 表中, 作为时间轮触发引擎的预写日志
+ */
+public class ScheduleFire {
+
+  /**
+   * 工作流 id
+   */
+  private int flowId;
+
+  /**
+   * 触发时间, 即调度时间
+   */
+  private Date fireTime;
+
+  /**
+   * 是否已经创建了执行记录
+   */
+  private boolean fired;
+
+  public ScheduleFire() {
+  }
+
+  public ScheduleFire(int flowId, Date fireTime) {
+    this.flowId = flowId;
+    this.fireTime = fireTime;
+  }
+
+  public int getFlowId() {
+    return flowId;
+  }
+
+  public void setFlowId(int flowId) {
+    this.flowId = flowId;
+  }
+
+  public Date getFireTime() {
+    return fireTime;
+  }
+
+  public void setFireTime(Date fireTime) {
+    this.fireTime = fireTime;
+  }
+
+  public boolean isFired() {
+    return fired;
+  }
+
+  public void setFired(boolean fired) {
+    this.fired = fired;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.dao;
+
+import static org.junit.Assert.assertEquals;
+
+import com.baifendian.swordfish.dao.mapper.DispatchQueueMapper;
+import com.baifendian.swordfish.dao.model.DispatchQueueItem;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class DispatchQueueDaoTest {
+
+  @Test
+  public void testCandidatesOfBackloggedProject() throws Exception {
+    List<DispatchQueueItem> rows = new ArrayList<>();
+    Date notBefore = new Date(System.currentTimeMillis() - 60 * 1000);
+
+    // 补数据一次加入大量同一时间的记录, 其中一条优先级更高, 另一个项目只有一条
+    for (int i = 1; i <= 20000; ++i) {
+      rows.add(item(i, "backfill", (i == 20000) ? 10 : 0, notBefore));
+    }
+
+    rows.add(item(30000, "other", 0, new Date(notBefore.getTime() + 1000)));
+
+    DispatchQueueDao dao = new DispatchQueueDao();
+    Field field = DispatchQueueDao.class.getDeclaredField("dispatchQueueMapper");
+    field.setAccessible(true);
+    field.set(dao, mapper(rows));
+
+    List<DispatchQueueItem> candidates = dao.candidates(5, null);
+
+    assertEquals(6, candidates.size());
+    assertEquals(20000, candidates.get(0).getExecId());
+    assertEquals(1, candidates.stream().filter(item -> "other".equals(item.getProjectName()))
+        .count());
+  }
+
+  private static DispatchQueueItem item(int execId, String projectName, int priority,
+      Date notBefore) {
+    DispatchQueueItem item = new DispatchQueueItem();
+
+    item.setExecId(execId);
+    item.setProjectName(projectName);
+    item.setPriority(priority);
+    item.setNotBefore(notBefore);
+
+    return item;
+  }
+
+  /**
+   * 按 sql 的语义在内存中查询, 只实现候选相关的接口
+   */
+  @SuppressWarnings("unchecked")
+  private static DispatchQueueMapper mapper(List<DispatchQueueItem> rows) {
+    return (DispatchQueueMapper) Proxy.newProxyInstance(DispatchQueueMapper.class.getClassLoader(),
+        new Class[]{DispatchQueueMapper.class}, (proxy, method, args) -> {
+          Date now = (Date) args[0];
+          List<DispatchQueueItem> due = rows.stream()
+              .filter(item -> !item.getNotBefore().after(now)).collect(Collectors.toList());
+
+          switch (method.getName()) {
+            case "selectDueProjects":
+              return due.stream().map(DispatchQueueItem::getProjectName).distinct()
+                  .collect(Collectors.toList());
+            case "selectCandidates":
+              List<DispatchQueueItem> result = new ArrayList<>();
+
+              for (String project : (List<String>) args[1]) {
+                due.stream().filter(item -> item.getProjectName().equals(project))
+                    .sorted(Comparator.comparing(DispatchQueueItem::getPriority).reversed()
+                        .thenComparing(DispatchQueueItem::getNotBefore)
+                        .thenComparing(DispatchQueueItem::getExecId))
+                    .limit((int) args[2]).forEach(result::add);
+              }
+
+              return result;
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+}
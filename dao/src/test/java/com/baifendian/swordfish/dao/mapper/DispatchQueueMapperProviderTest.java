@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.dao.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class DispatchQueueMapperProviderTest {
+
+  private final DispatchQueueMapperProvider provider = new DispatchQueueMapperProvider();
+
+  @Test
+  public void testUpsertResetsClaim() {
+    String sql = provider.upsert(new HashMap<>());
+
+    // 重新加入队列后, 旧的领取者不能再 ack 掉新的记录
+    assertTrue(sql.endsWith("claim_token = null, claim_expire = null"));
+  }
+
+  @Test
+  public void testSelectCandidates() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("projects", Arrays.asList("backfill", "other"));
+    parameter.put("labels", Collections.singletonList("gpu"));
+
+    String sql = provider.selectCandidates(parameter);
+
+    // 积压的项目不会挤掉其它项目: 每个项目单独排序和限制条数, 没有全局的截断
+    String[] parts = sql.split(" union all ");
+
+    assertEquals(2, parts.length);
+
+    for (int i = 0; i < parts.length; ++i) {
+      String part = parts[i].replaceAll("\\s+", " ");
+
+      assertTrue(part.startsWith("(SELECT"));
+      assertTrue(part.contains("project_name <=> #{projects[" + i + "]}"));
+      assertTrue(part.contains("not_before <= #{now}"));
+      assertTrue(part.contains("label in (#{labels[0]})"));
+      assertTrue(part.endsWith("ORDER BY priority desc, deadline is null, deadline, not_before,"
+          + " exec_id limit #{perProject})"));
+    }
+
+    assertFalse(sql.contains("over ("));
+  }
+
+  @Test
+  public void testSelectDueProjects() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("labels", Collections.emptyList());
+
+    String sql = provider.selectDueProjects(parameter).replaceAll("\\s+", " ");
+
+    assertTrue(sql.startsWith("SELECT distinct project_name FROM dispatch_queue"));
+    assertTrue(sql.contains("label is null"));
+    assertFalse(sql.contains("limit"));
+  }
+}
@@ -15,22 +15,34 @@
  */
 package com.baifendian.swordfish.execserver;
 
-import static com.baifendian.swordfish.common.utils.ThriftUtil.getTThreadPoolServer;
+import static com.baifendian.swordfish.common.utils.ThriftUtil.getTServer;
 
+import com.baifendian.swordfish.common.config.BaseConfig;
 import com.baifendian.swordfish.common.hadoop.ConfigurationUtil;
 import com.baifendian.swordfish.common.hadoop.HdfsClient;
 import com.baifendian.swordfish.dao.DaoFactory;
 import com.baifendian.swordfish.dao.MasterDao;
 import com.baifendian.swordfish.dao.model.MasterServer;
+import com.baifendian.swordfish.execserver.common.DeadlineTimer;
+import com.baifendian.swordfish.execserver.common.ProcessSampler;
+import com.baifendian.swordfish.execserver.common.ResourceStager;
+import com.baifendian.swordfish.execserver.common.UdfJarStore;
+import com.baifendian.swordfish.execserver.launcher.ProcessLauncher;
+import com.baifendian.swordfish.execserver.runner.flow.FlowRunnerManager;
+import com.baifendian.swordfish.execserver.runner.node.JobTypeLimiter;
+import com.baifendian.swordfish.execserver.runner.node.ResourceAdmission;
 import com.baifendian.swordfish.execserver.service.ExecServiceImpl;
 import com.baifendian.swordfish.execserver.utils.Constants;
 import com.baifendian.swordfish.execserver.utils.OsUtil;
 import com.baifendian.swordfish.rpc.HeartBeatData;
+import com.baifendian.swordfish.rpc.RetInfo;
 import com.baifendian.swordfish.rpc.WorkerService;
 import com.baifendian.swordfish.rpc.client.MasterClient;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -39,11 +51,8 @@ import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.thrift.TProcessor;
-import org.apache.thrift.protocol.TBinaryProtocol;
-import org.apache.thrift.protocol.TProtocolFactory;
 import org.apache.thrift.server.TServer;
 import org.apache.thrift.transport.TTransportException;
-import org.apache.thrift.transport.TTransportFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -66,12 +75,12 @@ public class ExecThriftServer {
   /**
    * master 的地址信息
    */
-  private final MasterServer masterServer;
+  private volatile MasterServer masterServer;
 
   /**
    * master 的连接实例
    */
-  private final MasterClient masterClient;
+  private volatile MasterClient masterClient;
 
   /**
    * 当前 exec 的 host 信息
@@ -98,13 +107,38 @@ public class ExecThriftServer {
   /**
    * exec 服务的实现
    */
-  private ExecServiceImpl workerService;
+  private volatile ExecServiceImpl workerService;
 
   /**
    * 心跳时间间隔，单位秒
    */
   private int heartBeatInterval;
 
+  /**
+   * 连续心跳失败的容忍时间, 单位毫秒, 期间等待 master 切换
+   */
+  private long masterFailoverTimeout;
+
+  /**
+   * executor 的 epoch, 以启动时间表示, 每次重启都会变大
+   */
+  private final long epoch = System.currentTimeMillis();
+
+  /**
+   * 最近一次心跳成功的时间
+   */
+  private volatile long lastReportTime;
+
+  /**
+   * executor 的标签
+   */
+  private List<String> labels;
+
+  /**
+   * 一次心跳最多领取的 workflow 数
+   */
+  private int leaseMax;
+
   static {
     try {
       conf = new PropertiesConfiguration("worker.properties");
@@ -138,6 +172,28 @@ public class ExecThriftServer {
   public void run() throws UnknownHostException, TTransportException, InterruptedException {
     HdfsClient.init(ConfigurationUtil.getConfiguration());
 
+    ResourceStager.init(
+        conf.getInt(Constants.EXECUTOR_RESOURCE_STAGE_THREADS, Constants.defaultResourceStageThreads),
+        BaseConfig.getExecStagingDir());
+
+    UdfJarStore.init(BaseConfig.getHdfsUdfJarStoreDir(),
+        TimeUnit.HOURS.toMillis(conf.getInt(Constants.EXECUTOR_UDF_STORE_RETENTION_HOURS,
+            Constants.defaultUdfStoreRetentionHours)),
+        TimeUnit.MINUTES.toMillis(conf.getInt(Constants.EXECUTOR_UDF_STORE_GC_INTERVAL,
+            Constants.defaultUdfStoreGcInterval)));
+
+    DeadlineTimer.init();
+
+    ProcessSampler.init(TimeUnit.SECONDS.toMillis(conf.getInt(
+        Constants.EXECUTOR_RESOURCE_SAMPLE_INTERVAL, Constants.defaultResourceSampleInterval)));
+
+    if (conf.getBoolean(Constants.EXECUTOR_LAUNCHER_ENABLED, Constants.defaultLauncherEnabled)) {
+      ProcessLauncher.init(
+          conf.getString(Constants.EXECUTOR_LAUNCHER_SOCKET_DIR, Constants.defaultLauncherSocketDir),
+          conf.getInt(Constants.EXECUTOR_LAUNCHER_IDLE_TIMEOUT, Constants.defaultLauncherIdleTimeout),
+          conf.getString(Constants.EXECUTOR_LAUNCHER_JAVA_OPTS, Constants.defaultLauncherJavaOpts));
+    }
+
     logger.info("register to master {}:{}", masterServer.getHost(), masterServer.getPort());
 
     // 注册到 master
@@ -158,6 +214,12 @@ public class ExecThriftServer {
     // 心跳
     heartBeatInterval = conf
         .getInt(Constants.EXECUTOR_HEARTBEAT_INTERVAL, Constants.defaultExecutorHeartbeatInterval);
+    masterFailoverTimeout = conf.getInt(Constants.EXECUTOR_MASTER_FAILOVER_TIMEOUT,
+        Constants.defaultMasterFailoverTimeout) * 1000L;
+    lastReportTime = System.currentTimeMillis();
+
+    labels = Arrays.asList(conf.getStringArray(Constants.EXECUTOR_LABELS));
+    leaseMax = conf.getInt(Constants.EXECUTOR_LEASE_MAX, Constants.defaultExecutorLeaseMax);
 
     heartbeatExecutorService = Executors
         .newScheduledThreadPool(Constants.defaultExecutorHeartbeatThreadNum);
@@ -167,15 +229,12 @@ public class ExecThriftServer {
         .scheduleAtFixedRate(heartBeatThread, 10, heartBeatInterval, TimeUnit.SECONDS);
 
     // 启动 worker service
-    TProtocolFactory protocolFactory = new TBinaryProtocol.Factory();
-    TTransportFactory tTransportFactory = new TTransportFactory();
-
     workerService = new ExecServiceImpl(host, port, conf);
 
     TProcessor tProcessor = new WorkerService.Processor(workerService);
     inetSocketAddress = new InetSocketAddress(host, port);
-    server = getTThreadPoolServer(protocolFactory, tProcessor, tTransportFactory, inetSocketAddress,
-        Constants.defaultServerMinNum, Constants.defaultServerMaxNum);
+    server = getTServer(tProcessor, inetSocketAddress, Constants.defaultServerMinNum,
+        Constants.defaultServerMaxNum);
 
     logger.info("start thrift server on port:{}", port);
 
@@ -228,6 +287,10 @@ public class ExecThriftServer {
     if (masterClient != null) {
       masterClient.downExecutor(host, port);
     }
+
+    ProcessLauncher.destroy();
+    ProcessSampler.destroy();
+    DeadlineTimer.destroy();
   }
 
   /**
@@ -241,18 +304,79 @@ public class ExecThriftServer {
         heartBeatData.setReportDate(System.currentTimeMillis());
         heartBeatData.setCpuUsed(OsUtil.cpuUsage());
         heartBeatData.setMemUsed(OsUtil.memoryUsage());
+        heartBeatData.setEpoch(epoch);
+
+        // 作业进程树的资源使用
+        ProcessSampler sampler = ProcessSampler.getInstance();
+
+        if (sampler != null) {
+          heartBeatData.setJobCpuUsed(sampler.getCpuUsed());
+          heartBeatData.setJobMemUsed(sampler.getMemUsed());
+          heartBeatData.setJobIoRate(sampler.getIoRate());
+        }
+
+        // 汇报正在运行的 flow 和空闲的槽位, master 据此对账
+        ExecServiceImpl service = workerService;
+
+        if (service != null) {
+          FlowRunnerManager flowRunnerManager = service.getFlowRunnerManager();
+
+          heartBeatData.setExecIds(flowRunnerManager.getRunningExecIds());
+          heartBeatData.setFreeFlowSlots(flowRunnerManager.getFreeFlowSlots());
+          heartBeatData.setFreeNodeSlots(flowRunnerManager.getFreeNodeSlots());
+
+          // 汇报空闲的资源, master 按空闲内存选择 executor
+          ResourceAdmission admission = flowRunnerManager.getResourceAdmission();
+
+          if (admission != null) {
+            heartBeatData.setFreeCpu(admission.getFreeCpu());
+            heartBeatData.setFreeMemory(admission.getFreeMemory());
+          }
+
+          // master 为拉取模式时按空闲的槽位领取, node 槽位已经用完或者有节点在等待资源说明过载了, 暂停领取
+          boolean overload = heartBeatData.getFreeNodeSlots() <= 0
+              || (admission != null && admission.getWaiting() > 0);
+          int leaseCapacity = overload ? 0 : Math.min(heartBeatData.getFreeFlowSlots(), leaseMax);
+
+          heartBeatData.setLeaseCapacity(leaseCapacity);
+          heartBeatData.setLabels(labels);
+        }
+
+        // 汇报各个任务类型的需求, master 据此分配集群配额
+        JobTypeLimiter jobTypeLimiter = (service != null) ? service.getJobTypeLimiter() : null;
+
+        if (jobTypeLimiter != null) {
+          heartBeatData.setJobTypeDemands(jobTypeLimiter.getJobTypeDemands());
+        }
 
         logger.info("executor report heartbeat:{}", heartBeatData);
 
-        boolean result = masterClient.executorReport(host, port, heartBeatData);
+        RetInfo result = masterClient.executorReport(host, port, heartBeatData);
+
+        // 失败时检查 master 是否已经切换, 切换了则向新的 master 汇报
+        if (result == null && followMaster()) {
+          result = masterClient.executorReport(host, port, heartBeatData);
+        }
+
+        if (result != null) {
+          lastReportTime = System.currentTimeMillis();
 
-        if (!result) {
+          if (jobTypeLimiter != null) {
+            jobTypeLimiter.updateClusterQuotas(result.getJobTypeQuotas());
+          }
+
+          if (service != null && result.isSetLeasedExecIds()) {
+            execLeasedFlows(service, result.getLeasedExecIds());
+          }
+        } else if (System.currentTimeMillis() - lastReportTime > masterFailoverTimeout) {
           logger.warn("heart beat time out!");
           running.compareAndSet(true, false);
 
           synchronized (this) {
             notify();
           }
+        } else {
+          logger.warn("heart beat failed, wait for master failover");
         }
       }
     };
@@ -260,6 +384,53 @@ public class ExecThriftServer {
     return heartBeatThread;
   }
 
+  /**
+   * 执行拉取模式下领取到的 workflow, 执行失败的不用处理, 没有在心跳中汇报的, 租约过期后 master 会重新投递
+   */
+  private void execLeasedFlows(ExecServiceImpl service, List<Integer> execIds) {
+    for (Integer execId : execIds) {
+      try {
+        RetInfo retInfo = service.execFlow(execId);
+
+        if (retInfo.getStatus() != 0) {
+          logger.warn("exec leased flow {} failed: {}", execId, retInfo.getMsg());
+        }
+      } catch (Exception e) {
+        logger.error("exec leased flow " + execId + " exception", e);
+      }
+    }
+  }
+
+  /**
+   * 从数据库中得到当前的 master, 如果发生了切换, 则连接新的 master
+   *
+   * @return master 是否发生了切换
+   */
+  private boolean followMaster() {
+    MasterServer leader;
+
+    try {
+      leader = masterDao.getMasterServer();
+    } catch (Exception e) {
+      logger.error("query master server exception", e);
+      return false;
+    }
+
+    if (leader == null || (leader.getHost().equals(masterServer.getHost())
+        && leader.getPort() == masterServer.getPort())) {
+      return false;
+    }
+
+    logger.info("master changed from {}:{} to {}:{}, epoch: {}", masterServer.getHost(),
+        masterServer.getPort(), leader.getHost(), leader.getPort(), leader.getEpoch());
+
+    masterServer = leader;
+    masterClient = new MasterClient(leader.getHost(), leader.getPort(),
+        Constants.defaultThriftRpcRetrites);
+
+    return true;
+  }
+
   public class TServerThread extends Thread {
 
     private TServer server;
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.common;
+
+import com.baifendian.swordfish.common.utils.TimingWheel;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 所有节点共用的超时定时器 <p>
+ *
+ * 截止时间放在一个时间轮中, 由一个线程每个 tick 推进一次, 不再由各个作业自己等待或轮询. 到期的处理 (一般是 kill 作业) 可能阻塞, 交给单独的线程池执行.
+ */
+public class DeadlineTimer {
+
+  private static final Logger logger = LoggerFactory.getLogger(DeadlineTimer.class);
+
+  /**
+   * 时间轮每格的时长, 单位毫秒
+   */
+  private static final long TICK_MILLIS = 1000;
+
+  private static final int WHEEL_SIZE = 60;
+
+  private static volatile DeadlineTimer instance;
+
+  private final long tickMillis;
+
+  /**
+   * 时间轮, 只在持有锁时访问
+   */
+  private final TimingWheel<Timeout> wheel;
+
+  /**
+   * 推进时间轮的线程
+   */
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * 执行到期处理的线程池
+   */
+  private final ExecutorService expirePool;
+
+  DeadlineTimer(long tickMillis) {
+    this.tickMillis = tickMillis;
+    this.wheel = new TimingWheel<>(tickMillis, WHEEL_SIZE, System.currentTimeMillis());
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("Exec-Worker-DeadlineTimer").setDaemon(true).build());
+    this.expirePool = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+        .setNameFormat("Exec-Worker-DeadlineExpire-%d").setDaemon(true).build());
+  }
+
+  /**
+   * 初始化, 仅需调用一次
+   */
+  public static void init() {
+    if (instance == null) {
+      synchronized (DeadlineTimer.class) {
+        if (instance == null) {
+          DeadlineTimer timer = new DeadlineTimer(TICK_MILLIS);
+          timer.start();
+
+          instance = timer;
+        }
+      }
+    }
+  }
+
+  /**
+   * @return 没有初始化时返回 null
+   */
+  public static DeadlineTimer getInstance() {
+    return instance;
+  }
+
+  public static void destroy() {
+    DeadlineTimer timer = instance;
+
+    if (timer != null) {
+      timer.shutdown();
+      instance = null;
+    }
+  }
+
+  void start() {
+    scheduler.scheduleAtFixedRate(this::advanceQuietly, tickMillis, tickMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  void shutdown() {
+    scheduler.shutdownNow();
+    expirePool.shutdownNow();
+  }
+
+  /**
+   * 登记一个截止时间, 到期时执行 action, 精度为一个 tick, 不会早于截止时间
+   *
+   * @param deadline 截止时间, 单位毫秒
+   * @param action 到期的处理
+   * @return 登记的超时, 提前结束时调用 {@link Timeout#cancel()}
+   */
+  public Timeout schedule(long deadline, Runnable action) {
+    Timeout timeout = new Timeout(action);
+
+    synchronized (wheel) {
+      // 时间轮在截止时间所在的格到期, 向上取整避免提前
+      timeout.entry = wheel.add(timeout, deadline + tickMillis - 1);
+    }
+
+    return timeout;
+  }
+
+  /**
+   * 推进到当前时间, 到期的处理交给线程池
+   */
+  void advance(long now) {
+    List<Runnable> expired = new ArrayList<>();
+
+    synchronized (wheel) {
+      wheel.advance(now, entry -> {
+        Runnable action = entry.getValue().action;
+
+        if (action != null) {
+          expired.add(action);
+        }
+      });
+    }
+
+    for (Runnable action : expired) {
+      expirePool.execute(() -> {
+        try {
+          action.run();
+        } catch (Exception e) {
+          logger.error("Deadline expire action exception", e);
+        }
+      });
+    }
+  }
+
+  private void advanceQuietly() {
+    try {
+      advance(System.currentTimeMillis());
+    } catch (Exception e) {
+      logger.error("Advance deadline timer failed", e);
+    }
+  }
+
+  /**
+   * 登记的一个超时 <p>
+   *
+   * 时间轮中取消的条目到期时才会移除, 取消时清空到期的处理, 避免在此之前一直引用作业.
+   */
+  public static class Timeout {
+
+    private volatile Runnable action;
+
+    private volatile TimingWheel.Entry<Timeout> entry;
+
+    Timeout(Runnable action) {
+      this.action = action;
+    }
+
+    /**
+     * 取消, 到期时不再处理
+     */
+    public void cancel() {
+      action = null;
+
+      TimingWheel.Entry<Timeout> e = entry;
+
+      if (e != null) {
+        e.cancel();
+      }
+    }
+  }
+}
@@ -48,6 +48,26 @@ public class ExecResult {
    */
   private List<List<String>> values;
 
+  /**
+   * 结果的总行数
+   */
+  private long rowCount;
+
+  /**
+   * 结果分片的目录, 没有分片时为空
+   */
+  private String resultPath;
+
+  /**
+   * 结果分片数
+   */
+  private int segmentCount;
+
+  /**
+   * 每个结果分片的行数
+   */
+  private int segmentRows;
+
   /**
    * 返回的日志
    */
@@ -153,6 +173,38 @@ public class ExecResult {
     this.values = values;
   }
 
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  public void setRowCount(long rowCount) {
+    this.rowCount = rowCount;
+  }
+
+  public String getResultPath() {
+    return resultPath;
+  }
+
+  public void setResultPath(String resultPath) {
+    this.resultPath = resultPath;
+  }
+
+  public int getSegmentCount() {
+    return segmentCount;
+  }
+
+  public void setSegmentCount(int segmentCount) {
+    this.segmentCount = segmentCount;
+  }
+
+  public int getSegmentRows() {
+    return segmentRows;
+  }
+
+  public void setSegmentRows(int segmentRows) {
+    this.segmentRows = segmentRows;
+  }
+
   public List<String> getLogs() {
     return logs;
   }
@@ -15,25 +15,22 @@
  */
 package com.baifendian.swordfish.execserver.common;
 
-import com.baifendian.swordfish.common.config.BaseConfig;
 import com.baifendian.swordfish.common.enums.ExternalJobType;
-import com.baifendian.swordfish.common.hadoop.HdfsClient;
 import com.baifendian.swordfish.common.job.struct.node.common.UdfsInfo;
 import com.baifendian.swordfish.common.job.struct.resource.ResourceInfo;
 import com.baifendian.swordfish.dao.enums.SqlEngineType;
-import com.baifendian.swordfish.execserver.exception.ExecException;
 import com.google.common.base.Joiner;
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 
 public class FunctionUtil {
@@ -44,47 +41,39 @@ public class FunctionUtil {
   private static Joiner joiner = Joiner.on(",");
 
   /**
-   * 创建自定义函数, 即 udf
+   * 创建自定义函数, 即 udf, jar 放在共享的存储中, 由执行结束时释放
    *
    * @param srcDir 资源目录
    * @param isHdfsFile 源是否是 hdfs 文件系统
    */
-  public static List<String> createFuncs(List<UdfsInfo> udfsInfos, int execId, String nodeName,
-      Logger logger,
+  public static List<String> createFuncs(List<UdfsInfo> udfsInfos, int execId, Logger logger,
       String srcDir, boolean isHdfsFile,
       SqlEngineType type, ExternalJobType externalJobType)
       throws IOException, InterruptedException {
-    // 得到 hive udf jar 包路径
-    String hiveUdfJarPath = BaseConfig.getJobHiveUdfJarPath(execId, externalJobType, nodeName);
-
-    // 是否定义了 udf 的基本目录
-    if (StringUtils.isEmpty(hiveUdfJarPath)) {
-      logger.error("Not define hive udf jar path");
-      throw new RuntimeException("Hive udf jar base path not defined ");
-    }
-
     List<String> funcList = new ArrayList<>();
 
+    // 资源名称到存储路径的映射
+    Map<String, String> jarPaths = new HashMap<>();
+
     if (CollectionUtils.isNotEmpty(udfsInfos)) {
       Set<String> resources = getFuncResouces(udfsInfos);
 
       if (CollectionUtils.isNotEmpty(resources)) {
         // adHoc 查询时直接通过复制 hdfs 上文件的方式来处理
-        if (isHdfsFile) {
-          copyJars(resources, hiveUdfJarPath, srcDir, logger);
-        } else {
-          uploadUdfJars(resources, hiveUdfJarPath, srcDir, logger);
-        }
+        jarPaths = UdfJarStore.getInstance()
+            .acquire(UdfJarStore.holder(externalJobType, execId), resources, srcDir, isHdfsFile);
+
+        logger.debug("udf jars: {}", jarPaths);
 
         if (SqlEngineType.PHOENIX != type) {
           // Phoenix sql can not add jar
-          addJarSql(funcList, resources, hiveUdfJarPath);
+          addJarSql(funcList, jarPaths.values());
         }
       }
     }
 
     if (SqlEngineType.PHOENIX == type) {
-      addPhoenixTempFuncSql(funcList, udfsInfos, hiveUdfJarPath);
+      addPhoenixTempFuncSql(funcList, udfsInfos, jarPaths);
     } else {
       addTempFuncSql(funcList, udfsInfos);
     }
@@ -109,71 +98,16 @@ public class FunctionUtil {
     return resources;
   }
 
-  /**
-   * 上传 udf jar
-   */
-  private static void uploadUdfJars(Set<String> resources, String tarDir, String srcDir,
-      Logger logger) throws IOException, InterruptedException {
-    HdfsClient hdfsClient = HdfsClient.getInstance();
-
-    if (!hdfsClient.exists(tarDir)) {
-      hdfsClient.mkdir(tarDir);
-    }
-
-    for (String res : resources) {
-      // 如果目标不存在, 则进行拷贝
-      if (!hdfsClient.exists(String.format("%s/%s", tarDir, res))) {
-        String cmd = String.format("hdfs dfs -put %s/%s %s", srcDir, res, tarDir);
-
-        logger.debug("cmd:{}", cmd);
-
-        Process process = Runtime.getRuntime().exec(cmd);
-        int ret = process.waitFor();
-        if (ret != 0) {
-          logger.error("run cmd:" + cmd + " error");
-
-          String msg = IOUtils.toString(process.getErrorStream(), Charset.forName("UTF-8"));
-
-          logger.error(msg);
-
-          throw new ExecException(msg);
-        }
-      }
-    }
-  }
-
-  /**
-   * 复制资源文件到目标目录
-   */
-  private static void copyJars(Set<String> resources, String tarDir, String srcDir, Logger logger)
-      throws IOException, InterruptedException {
-    HdfsClient hdfsClient = HdfsClient.getInstance();
-
-    if (!hdfsClient.exists(tarDir)) {
-      hdfsClient.mkdir(tarDir);
-    }
-
-    for (String res : resources) {
-      // 如果目标不存在才进行拷贝
-      if (!hdfsClient.exists(String.format("%s/%s", tarDir, res))) {
-        logger.debug("create symlink {}/{} -> {}/{}", tarDir, res, srcDir, res);
-        hdfsClient
-            .copy(String.format("%s/%s", srcDir, res), String.format("%s/%s", tarDir, res), false,
-                true);
-      }
-    }
-  }
-
   /**
    * 添加 jar
    */
-  private static void addJarSql(List<String> sqls, Set<String> resources, String uploadPath) {
-    if (!uploadPath.startsWith("hdfs:")) {
-      uploadPath = "hdfs://" + uploadPath;
-    }
+  private static void addJarSql(List<String> sqls, Collection<String> jarPaths) {
+    for (String jarPath : jarPaths) {
+      if (!jarPath.startsWith("hdfs:")) {
+        jarPath = "hdfs://" + jarPath;
+      }
 
-    for (String resource : resources) {
-      sqls.add(String.format("add jar %s/%s", uploadPath, resource));
+      sqls.add(String.format("add jar %s", jarPath));
     }
   }
 
@@ -193,14 +127,14 @@ public class FunctionUtil {
    * PHOENIX临时函数
    */
   private static void addPhoenixTempFuncSql(List<String> sqls, List<UdfsInfo> udfsInfos,
-      String hdfsPath) {
+      Map<String, String> jarPaths) {
     if (CollectionUtils.isNotEmpty(udfsInfos)) {
       for (UdfsInfo udfsInfo : udfsInfos) {
         String argTypes = "";
         if (CollectionUtils.isNotEmpty(udfsInfo.getArgTypes())) {
           argTypes = joiner.join(udfsInfo.getArgTypes());
         }
-        String hdfsFile = hdfsPath + "/" + udfsInfo.getLibJars().get(0).getRes();
+        String hdfsFile = jarPaths.get(udfsInfo.getLibJars().get(0).getRes());
 
         sqls.add(MessageFormat
             .format(CREATE_PHOENIX_FUNCTION_FORMAT, udfsInfo.getFunc(), argTypes,
@@ -222,8 +156,9 @@ public class FunctionUtil {
     udfsInfo.setLibJars(Arrays.asList(resourceInfo));
     udfsInfos.add(udfsInfo);
 
-    String hdfsPath = "/test/";
+    Map<String, String> jarPaths = new HashMap<>();
+    jarPaths.put("test.jar", "/test/test.jar");
 
-    addPhoenixTempFuncSql(sqls, udfsInfos, hdfsPath);
+    addPhoenixTempFuncSql(sqls, udfsInfos, jarPaths);
   }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.common;
+
+import com.baifendian.swordfish.dao.utils.json.JsonUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 节点的截止时间 <p>
+ *
+ * 分为三层: 工作流的超时, 节点的超时 (从节点提交开始, 包括所有重试), 单次执行的超时, 每次执行的截止时间取三者中最早的.
+ * 节点参数中可以声明 timeout 和 attemptTimeout, 单位秒, 不声明或为 0 时不限制.
+ */
+public class NodeDeadline {
+
+  /**
+   * 节点的截止时间, 已经不晚于工作流的截止时间, 单位毫秒
+   */
+  private final long nodeDeadline;
+
+  /**
+   * 单次执行的超时, 单位毫秒, 为 0 时不限制
+   */
+  private final long attemptTimeout;
+
+  public NodeDeadline(long flowDeadline, long nodeStart, long nodeTimeout, long attemptTimeout) {
+    this.nodeDeadline = (nodeTimeout > 0) ? Math.min(flowDeadline, nodeStart + nodeTimeout)
+        : flowDeadline;
+    this.attemptTimeout = Math.max(attemptTimeout, 0);
+  }
+
+  /**
+   * 按节点参数构造
+   *
+   * @param parameter 节点参数
+   * @param flowDeadline 工作流的截止时间
+   * @param nodeStart 节点提交的时间
+   */
+  public static NodeDeadline of(String parameter, long flowDeadline, long nodeStart) {
+    long nodeTimeout = 0;
+    long attemptTimeout = 0;
+
+    JsonNode node = (parameter == null) ? null : JsonUtil.readTree(parameter);
+
+    if (node != null) {
+      nodeTimeout = TimeUnit.SECONDS.toMillis(node.path("timeout").asLong(0));
+      attemptTimeout = TimeUnit.SECONDS.toMillis(node.path("attemptTimeout").asLong(0));
+    }
+
+    return new NodeDeadline(flowDeadline, nodeStart, nodeTimeout, attemptTimeout);
+  }
+
+  /**
+   * 一次执行的截止时间
+   *
+   * @param attemptStart 本次执行开始的时间
+   */
+  public long attemptDeadline(long attemptStart) {
+    return (attemptTimeout > 0) ? Math.min(nodeDeadline, attemptStart + attemptTimeout)
+        : nodeDeadline;
+  }
+
+  /**
+   * 节点或者工作流是否已经到期, 到期后不再重试
+   */
+  public boolean isExpired(long now) {
+    return now >= nodeDeadline;
+  }
+
+  public long getNodeDeadline() {
+    return nodeDeadline;
+  }
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.common;
+
+import com.baifendian.swordfish.execserver.utils.OsUtil;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按节点统计作业进程树的资源使用 <p>
+ *
+ * 节点运行前登记, 作业启动进程后挂上根进程的 pid. 一个线程定期扫描一遍 /proc, 只读每个进程的 stat (ppid, cpu 时间, rss), 沿 ppid
+ * 找到所属的根进程并按节点汇总, 只有属于作业的进程才再读 io. 每次采样的开销只和机器上的进程数有关, 和运行的节点数无关, 没有登记的节点时不扫描.
+ * 已退出并被回收的子进程的 cpu 时间和读写字节数计入父进程, 所以累计值不会因为短命的子进程丢失.
+ */
+public class ProcessSampler {
+
+  private static final Logger logger = LoggerFactory.getLogger(ProcessSampler.class);
+
+  private static final File PROC = new File("/proc");
+
+  private static volatile ProcessSampler instance;
+
+  /**
+   * 每秒的 clock tick 数
+   */
+  private final long ticksPerSecond;
+
+  /**
+   * 内存页大小, 单位字节
+   */
+  private final long pageSize;
+
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * 登记的节点, key 为 job app id
+   */
+  private final Map<String, ResourceUsage> usages = new ConcurrentHashMap<>();
+
+  /**
+   * 读文件的缓冲区, 只在采样线程中使用
+   */
+  private final byte[] buffer = new byte[4096];
+
+  /**
+   * 所有节点的当前值的合计
+   */
+  private volatile double cpuUsed;
+
+  private volatile long memUsed;
+
+  private volatile long ioRate;
+
+  ProcessSampler(long ticksPerSecond, long pageSize) {
+    this.ticksPerSecond = ticksPerSecond;
+    this.pageSize = pageSize;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("Exec-Worker-ProcessSampler").setDaemon(true).build());
+  }
+
+  /**
+   * 初始化, 仅需调用一次, 没有 /proc 的平台上不启用
+   *
+   * @param interval 采样间隔, 单位毫秒, 不大于 0 时不启用
+   */
+  public static void init(long interval) {
+    if (instance == null) {
+      synchronized (ProcessSampler.class) {
+        if (instance == null) {
+          if (interval <= 0 || !new File(PROC, "self/stat").exists()) {
+            logger.warn("Process sampler is disabled, interval: {}", interval);
+            return;
+          }
+
+          ProcessSampler sampler = new ProcessSampler(getconf("CLK_TCK", 100),
+              getconf("PAGESIZE", 4096));
+
+          sampler.scheduler.scheduleWithFixedDelay(sampler::sampleQuietly, interval, interval,
+              TimeUnit.MILLISECONDS);
+
+          instance = sampler;
+        }
+      }
+    }
+  }
+
+  /**
+   * @return 没有启用时返回 null
+   */
+  public static ProcessSampler getInstance() {
+    return instance;
+  }
+
+  public static void destroy() {
+    ProcessSampler sampler = instance;
+
+    if (sampler != null) {
+      sampler.scheduler.shutdownNow();
+      instance = null;
+    }
+  }
+
+  /**
+   * 登记一个节点
+   *
+   * @param key job app id
+   */
+  public ResourceUsage track(String key) {
+    ResourceUsage usage = new ResourceUsage();
+    usages.put(key, usage);
+
+    return usage;
+  }
+
+  /**
+   * 取消登记, 返回节点运行期间的资源使用
+   */
+  public ResourceUsage untrack(String key) {
+    return usages.remove(key);
+  }
+
+  /**
+   * 挂上节点启动的进程, 节点没有登记时忽略
+   *
+   * @param key job app id
+   * @param pid 进程 id
+   */
+  public void attach(String key, int pid) {
+    ResourceUsage usage = usages.get(key);
+
+    if (usage == null || pid <= 0) {
+      return;
+    }
+
+    // 从进程启动时开始计算
+    if (usage.roots.isEmpty()) {
+      usage.idle(System.currentTimeMillis());
+    }
+
+    usage.roots.add(pid);
+  }
+
+  /**
+   * 所有节点的进程树占用的 cpu 核数
+   */
+  public double getCpuUsed() {
+    return cpuUsed;
+  }
+
+  /**
+   * 所有节点的进程树的常驻内存, 单位字节
+   */
+  public long getMemUsed() {
+    return memUsed;
+  }
+
+  /**
+   * 所有节点的进程树的读写速率, 单位字节每秒
+   */
+  public long getIoRate() {
+    return ioRate;
+  }
+
+  private void sampleQuietly() {
+    try {
+      sample();
+    } catch (Exception e) {
+      logger.error("Sample process resource usage failed", e);
+    }
+  }
+
+  /**
+   * 采样一次
+   */
+  void sample() {
+    // 根进程到所属节点
+    Map<Integer, ResourceUsage> rootUsages = new HashMap<>();
+
+    for (ResourceUsage usage : usages.values()) {
+      for (Integer root : usage.roots) {
+        rootUsages.put(root, usage);
+      }
+    }
+
+    long now = System.currentTimeMillis();
+
+    if (rootUsages.isEmpty()) {
+      for (ResourceUsage usage : usages.values()) {
+        usage.idle(now);
+      }
+
+      cpuUsed = 0;
+      memUsed = 0;
+      ioRate = 0;
+      return;
+    }
+
+    String[] names = PROC.list();
+
+    if (names == null) {
+      return;
+    }
+
+    // 读所有进程的 stat
+    int count = 0;
+    int[] pids = new int[names.length];
+    int[] ppids = new int[names.length];
+    long[][] stats = new long[names.length][];
+    Map<Integer, Integer> indexes = new HashMap<>(names.length * 2);
+
+    for (String name : names) {
+      if (name.isEmpty() || name.charAt(0) < '0' || name.charAt(0) > '9') {
+        continue;
+      }
+
+      int length = read(name + "/stat");
+      long[] stat = (length > 0) ? parseStat(buffer, length) : null;
+
+      if (stat == null) {
+        continue;
+      }
+
+      pids[count] = Integer.parseInt(name);
+      ppids[count] = (int) stat[STAT_PPID];
+      stats[count] = stat;
+      indexes.put(pids[count], count);
+      count++;
+    }
+
+    // 每个进程所属的节点, 沿 ppid 向上找到第一个根进程, 结果记下来避免重复查找
+    ResourceUsage[] owners = new ResourceUsage[count];
+    boolean[] resolved = new boolean[count];
+    Map<ResourceUsage, long[]> totals = new HashMap<>();
+
+    for (int i = 0; i < count; ++i) {
+      ResourceUsage owner = resolve(i, pids, ppids, indexes, rootUsages, owners, resolved);
+
+      if (owner == null) {
+        continue;
+      }
+
+      long[] total = totals.computeIfAbsent(owner, k -> new long[4]);
+      long[] stat = stats[i];
+
+      total[0] += stat[STAT_UTIME] + stat[STAT_STIME] + stat[STAT_CUTIME] + stat[STAT_CSTIME];
+      total[1] += stat[STAT_RSS] * pageSize;
+
+      // 没有权限读其他用户进程的 io 时忽略
+      int length = read(pids[i] + "/io");
+
+      if (length > 0) {
+        total[2] += parseIo(buffer, length, "read_bytes");
+        total[3] += parseIo(buffer, length, "write_bytes");
+      }
+    }
+
+    double cpu = 0;
+    long mem = 0;
+    long io = 0;
+
+    for (ResourceUsage usage : usages.values()) {
+      // 已经退出的根进程不再跟踪, 扫描期间新挂上的除外
+      usage.roots.removeIf(root -> rootUsages.containsKey(root) && !indexes.containsKey(root));
+
+      long[] total = totals.get(usage);
+
+      if (total == null) {
+        usage.idle(now);
+        continue;
+      }
+
+      usage.update(now, total[0], ticksPerSecond, total[1], total[2], total[3]);
+
+      cpu += usage.getCpuUsed();
+      mem += usage.getMemUsed();
+      io += usage.getIoRate();
+    }
+
+    cpuUsed = cpu;
+    memUsed = mem;
+    ioRate = io;
+  }
+
+  /**
+   * 找进程所属的节点
+   */
+  private static ResourceUsage resolve(int i, int[] pids, int[] ppids,
+      Map<Integer, Integer> indexes, Map<Integer, ResourceUsage> rootUsages,
+      ResourceUsage[] owners, boolean[] resolved) {
+    if (resolved[i]) {
+      return owners[i];
+    }
+
+    // 先标记, 防止 ppid 成环
+    resolved[i] = true;
+
+    ResourceUsage owner = rootUsages.get(pids[i]);
+
+    if (owner == null && ppids[i] > 1) {
+      Integer parent = indexes.get(ppids[i]);
+
+      if (parent != null) {
+        owner = resolve(parent, pids, ppids, indexes, rootUsages, owners, resolved);
+      }
+    }
+
+    owners[i] = owner;
+
+    return owner;
+  }
+
+  /**
+   * 读 /proc 下的文件到缓冲区
+   *
+   * @return 读到的字节数, 进程已经退出或者没有权限时返回 -1
+   */
+  private int read(String path) {
+    try (FileInputStream in = new FileInputStream(new File(PROC, path))) {
+      int length = 0;
+      int n;
+
+      while (length < buffer.length && (n = in.read(buffer, length, buffer.length - length)) > 0) {
+        length += n;
+      }
+
+      return length;
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  static final int STAT_PPID = 0;
+
+  static final int STAT_UTIME = 1;
+
+  static final int STAT_STIME = 2;
+
+  static final int STAT_CUTIME = 3;
+
+  static final int STAT_CSTIME = 4;
+
+  static final int STAT_RSS = 5;
+
+  /**
+   * stat 中需要的字段的序号 (从 1 开始), 依次为 ppid, utime, stime, cutime, cstime, rss
+   */
+  private static final int[] STAT_FIELDS = {4, 14, 15, 16, 17, 24};
+
+  /**
+   * 解析 /proc/[pid]/stat, 进程名在括号中且可能包含空格和括号, 所以从最后一个右括号之后开始按空格切分
+   *
+   * @return 格式不对时返回 null
+   */
+  static long[] parseStat(byte[] bytes, int length) {
+    int pos = length - 1;
+
+    while (pos >= 0 && bytes[pos] != ')') {
+      pos--;
+    }
+
+    if (pos < 0) {
+      return null;
+    }
+
+    long[] values = new long[STAT_FIELDS.length];
+
+    // 右括号之后是第 3 个字段
+    int field = 2;
+    int found = 0;
+    long value = 0;
+    boolean negative = false;
+    boolean inField = false;
+
+    for (int i = pos + 1; i <= length && found < values.length; ++i) {
+      byte b = (i < length) ? bytes[i] : (byte) ' ';
+
+      if (b == ' ' || b == '\n') {
+        if (inField && field == STAT_FIELDS[found]) {
+          values[found++] = negative ? -value : value;
+        }
+
+        inField = false;
+        continue;
+      }
+
+      if (!inField) {
+        inField = true;
+        field++;
+        value = 0;
+        negative = false;
+      }
+
+      if (b == '-') {
+        negative = true;
+      } else if (b >= '0' && b <= '9') {
+        value = value * 10 + (b - '0');
+      }
+    }
+
+    return (found == values.length) ? values : null;
+  }
+
+  /**
+   * 解析 /proc/[pid]/io 中某一项的值
+   */
+  static long parseIo(byte[] bytes, int length, String key) {
+    String content = new String(bytes, 0, length);
+    int pos = content.indexOf("\n" + key + ":");
+
+    if (pos < 0) {
+      return 0;
+    }
+
+    int end = content.indexOf('\n', pos + 1);
+    String value = content.substring(pos + key.length() + 2, (end < 0) ? length : end).trim();
+
+    return StringUtils.isNumeric(value) ? Long.parseLong(value) : 0;
+  }
+
+  /**
+   * 得到系统配置, 失败时返回默认值
+   */
+  private static long getconf(String name, long defaultValue) {
+    try {
+      String value = OsUtil.exeCmd("getconf " + name).trim();
+
+      return StringUtils.isNumeric(value) && !value.isEmpty() ? Long.parseLong(value)
+          : defaultValue;
+    } catch (IOException e) {
+      return defaultValue;
+    }
+  }
+}
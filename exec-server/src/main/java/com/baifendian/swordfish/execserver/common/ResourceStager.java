@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.common;
+
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
+import com.baifendian.swordfish.execserver.exception.ExecException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 资源文件的准备 <p>
+ *
+ * 所有执行共用一个大小固定的传输线程池, 并发地在 hdfs 和本地之间传输资源文件, 调用方拿到 future, 需要时再等待. 多个执行同时请求同一个 hdfs
+ * 文件时只下载一次到暂存目录, 再分别拷贝到各自的执行目录 (本地拷贝, 各个执行之间互不影响), 最后一个拷贝完成后删除暂存的文件.
+ */
+public class ResourceStager {
+
+  private static final Logger logger = LoggerFactory.getLogger(ResourceStager.class);
+
+  private static volatile ResourceStager instance;
+
+  /**
+   * 传输线程池
+   */
+  private final ExecutorService transferPool;
+
+  /**
+   * 下载的暂存目录
+   */
+  private final File stagingDir;
+
+  /**
+   * 正在进行和刚完成的下载, key 为 hdfs 路径
+   */
+  private final Map<String, Transfer> transfers = new HashMap<>();
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  private ResourceStager(int threads, String stagingDir) {
+    ThreadFactory threadFactory = new ThreadFactoryBuilder()
+        .setNameFormat("Exec-Worker-ResourceStager-%d").setDaemon(true).build();
+
+    this.transferPool = Executors.newFixedThreadPool(threads, threadFactory);
+    this.stagingDir = new File(stagingDir);
+
+    // 清理上次退出时残留的文件
+    FileUtils.deleteQuietly(this.stagingDir);
+  }
+
+  /**
+   * 初始化, 仅需调用一次
+   *
+   * @param threads 传输线程数
+   * @param stagingDir 下载的暂存目录
+   */
+  public static void init(int threads, String stagingDir) {
+    if (instance == null) {
+      synchronized (ResourceStager.class) {
+        if (instance == null) {
+          instance = new ResourceStager(threads, stagingDir);
+        }
+      }
+    }
+  }
+
+  public static ResourceStager getInstance() {
+    if (instance == null) {
+      throw new ExecException("Get ResourceStager instance failed, please call init first");
+    }
+
+    return instance;
+  }
+
+  /**
+   * 下载 hdfs 文件到本地, 本地文件已经存在时跳过
+   *
+   * @param hdfsPath hdfs 文件路径
+   * @param dest 本地文件
+   */
+  public CompletableFuture<Void> download(String hdfsPath, File dest) {
+    if (dest.exists()) {
+      logger.info("file:{} exists, ignore", dest.getName());
+      return CompletableFuture.completedFuture(null);
+    }
+
+    Transfer transfer = acquire(hdfsPath);
+
+    return transfer.future
+        .thenAccept(file -> copyLocal(file, dest))
+        .whenComplete((v, e) -> release(hdfsPath, transfer));
+  }
+
+  /**
+   * 上传本地文件到 hdfs, 目标已经存在时跳过
+   */
+  public CompletableFuture<Void> upload(String localPath, String hdfsPath) {
+    return CompletableFuture.runAsync(() -> {
+      if (!hdfsExists(hdfsPath)) {
+        HdfsClient.getInstance().copyLocalToHdfs(localPath, hdfsPath, false, true);
+      }
+    }, transferPool);
+  }
+
+  /**
+   * hdfs 上的拷贝, 目标已经存在时跳过
+   */
+  public CompletableFuture<Void> copy(String srcPath, String dstPath) {
+    return CompletableFuture.runAsync(() -> {
+      if (!hdfsExists(dstPath)) {
+        HdfsClient.getInstance().copy(srcPath, dstPath, false, true);
+      }
+    }, transferPool);
+  }
+
+  /**
+   * 等待全部完成, 抛出第一个失败的原因
+   */
+  public static void await(Collection<CompletableFuture<Void>> futures)
+      throws IOException, InterruptedException {
+    try {
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+
+      if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      }
+
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      throw new ExecException("stage resources failed", cause);
+    }
+  }
+
+  /**
+   * 加入或者发起一个下载
+   */
+  private Transfer acquire(String hdfsPath) {
+    synchronized (transfers) {
+      Transfer transfer = transfers.get(hdfsPath);
+
+      if (transfer == null) {
+        File file = new File(stagingDir,
+            sequence.incrementAndGet() + "-" + new File(hdfsPath).getName());
+
+        transfer = new Transfer(file, CompletableFuture.supplyAsync(() -> {
+          logger.info("get project file:{}", hdfsPath);
+          HdfsClient.getInstance().copyHdfsToLocal(hdfsPath, file.getPath(), false, true);
+
+          return file;
+        }, transferPool));
+
+        transfers.put(hdfsPath, transfer);
+      } else {
+        logger.info("join the download of {}", hdfsPath);
+      }
+
+      transfer.refs++;
+
+      return transfer;
+    }
+  }
+
+  /**
+   * 最后一个请求方拷贝完成后删除暂存的文件
+   */
+  private void release(String hdfsPath, Transfer transfer) {
+    synchronized (transfers) {
+      if (--transfer.refs == 0) {
+        transfers.remove(hdfsPath, transfer);
+        FileUtils.deleteQuietly(transfer.file);
+      }
+    }
+  }
+
+  private static boolean hdfsExists(String path) {
+    try {
+      return HdfsClient.getInstance().exists(path);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void copyLocal(File src, File dest) {
+    try {
+      File parent = dest.getParentFile();
+
+      if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+        throw new IOException("create dir failed: " + parent);
+      }
+
+      Files.copy(src.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * 一个下载
+   */
+  private static class Transfer {
+
+    private final File file;
+
+    private final CompletableFuture<File> future;
+
+    /**
+     * 等待该下载的请求数
+     */
+    private int refs;
+
+    Transfer(File file, CompletableFuture<File> future) {
+      this.file = file;
+      this.future = future;
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.common;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一个节点的进程树的资源使用, 由 {@link ProcessSampler} 定期更新 <p>
+ *
+ * cpu 为占用的核数, 内存为常驻内存 (rss), 平均值按采样的时间间隔加权.
+ */
+public class ResourceUsage {
+
+  /**
+   * 进程树的根进程, 节点可能先后启动多个进程
+   */
+  final Set<Integer> roots = ConcurrentHashMap.newKeySet();
+
+  /**
+   * 上次采样的时间, 单位毫秒
+   */
+  private long lastSampleTime;
+
+  /**
+   * 上次采样时进程树累计的 cpu 时间 (clock tick) 和读写字节数
+   */
+  private long lastCpuTicks;
+
+  private long lastReadBytes;
+
+  private long lastWriteBytes;
+
+  private int samples;
+
+  /**
+   * 累计的采样时长, 单位毫秒
+   */
+  private long sampleMillis;
+
+  private double cpuUsed;
+
+  private double cpuPeak;
+
+  private double cpuSum;
+
+  private long memUsed;
+
+  private long memPeak;
+
+  private double memSum;
+
+  private long ioRate;
+
+  private long ioRead;
+
+  private long ioWrite;
+
+  ResourceUsage() {
+    this.lastSampleTime = System.currentTimeMillis();
+  }
+
+  /**
+   * 记录一次采样, 累计值变小 (根进程换了或者子进程被进程树外的进程回收) 时本次的增量按 0 计算
+   *
+   * @param now 采样时间
+   * @param cpuTicks 进程树累计的 cpu 时间
+   * @param ticksPerSecond 每秒的 clock tick 数
+   * @param rss 进程树的常驻内存, 单位字节
+   * @param readBytes 进程树累计读的字节数
+   * @param writeBytes 进程树累计写的字节数
+   */
+  synchronized void update(long now, long cpuTicks, long ticksPerSecond, long rss, long readBytes,
+      long writeBytes) {
+    long elapsed = now - lastSampleTime;
+
+    if (elapsed <= 0) {
+      return;
+    }
+
+    long readDelta = Math.max(0, readBytes - lastReadBytes);
+    long writeDelta = Math.max(0, writeBytes - lastWriteBytes);
+
+    cpuUsed = Math.max(0, cpuTicks - lastCpuTicks) * 1000.0 / ticksPerSecond / elapsed;
+    memUsed = rss;
+    ioRate = (readDelta + writeDelta) * 1000 / elapsed;
+
+    cpuPeak = Math.max(cpuPeak, cpuUsed);
+    memPeak = Math.max(memPeak, memUsed);
+    cpuSum += cpuUsed * elapsed;
+    memSum += (double) memUsed * elapsed;
+    ioRead += readDelta;
+    ioWrite += writeDelta;
+
+    sampleMillis += elapsed;
+    samples++;
+
+    lastSampleTime = now;
+    lastCpuTicks = cpuTicks;
+    lastReadBytes = readBytes;
+    lastWriteBytes = writeBytes;
+  }
+
+  /**
+   * 没有运行中的进程, 当前值清零, 下次采样从此刻开始计算
+   */
+  synchronized void idle(long now) {
+    cpuUsed = 0;
+    memUsed = 0;
+    ioRate = 0;
+
+    lastSampleTime = now;
+    lastCpuTicks = 0;
+    lastReadBytes = 0;
+    lastWriteBytes = 0;
+  }
+
+  /**
+   * 采样次数, 为 0 时其它值都没有意义
+   */
+  public synchronized int getSamples() {
+    return samples;
+  }
+
+  public synchronized double getCpuUsed() {
+    return cpuUsed;
+  }
+
+  public synchronized double getCpuPeak() {
+    return cpuPeak;
+  }
+
+  public synchronized double getCpuAvg() {
+    return (sampleMillis == 0) ? 0 : cpuSum / sampleMillis;
+  }
+
+  public synchronized long getMemUsed() {
+    return memUsed;
+  }
+
+  public synchronized long getMemPeak() {
+    return memPeak;
+  }
+
+  public synchronized long getMemAvg() {
+    return (sampleMillis == 0) ? 0 : (long) (memSum / sampleMillis);
+  }
+
+  /**
+   * 读写速率, 单位字节每秒
+   */
+  public synchronized long getIoRate() {
+    return ioRate;
+  }
+
+  public synchronized long getIoRead() {
+    return ioRead;
+  }
+
+  public synchronized long getIoWrite() {
+    return ioWrite;
+  }
+}
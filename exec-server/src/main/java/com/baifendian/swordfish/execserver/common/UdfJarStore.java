@@ -0,0 +1,423 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.common;
+
+import com.baifendian.swordfish.common.enums.ExternalJobType;
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
+import com.baifendian.swordfish.common.hadoop.HdfsException;
+import com.baifendian.swordfish.execserver.exception.ExecException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.hadoop.fs.FileStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * udf jar 的共享存储 <p>
+ *
+ * jar 按内容的哈希存放在 {store}/{hash}/{jar 名称}, 内容相同的 jar 只上传一次, 各个执行和节点共用同一个路径, hive 会话也就可以复用已经加载的
+ * jar. 引用计数记录在 {store}/{hash}/.refs 下, 每个持有方 (一次执行) 一个空文件, 执行结束时删除. 定期回收没有引用且超过保留时间的版本,
+ * executor 异常退出时残留的引用超过最长持有时间后视为失效. 回收时先把版本目录移到 {store}/.trash 再检查一次引用,
+ * 检查和移动之间登记的引用会随目录一起移走, 这时把文件移回原来的位置.
+ */
+public class UdfJarStore {
+
+  private static final Logger logger = LoggerFactory.getLogger(UdfJarStore.class);
+
+  /**
+   * 引用文件所在的目录
+   */
+  private static final String REFS_DIR = ".refs";
+
+  /**
+   * 回收中的版本目录所在的目录
+   */
+  private static final String TRASH_DIR = ".trash";
+
+  /**
+   * 哈希缓存的大小
+   */
+  private static final int HASH_CACHE_SIZE = 1000;
+
+  /**
+   * 引用的最长持有时间, 超过后视为残留
+   */
+  private static final long MAX_HOLD_TIME = TimeUnit.DAYS.toMillis(7);
+
+  private static volatile UdfJarStore instance;
+
+  /**
+   * 存储的根目录
+   */
+  private final String storeDir;
+
+  /**
+   * 没有引用的版本的保留时间, 单位毫秒
+   */
+  private final long retention;
+
+  /**
+   * 本 executor 上各个持有方引用的哈希
+   */
+  private final Map<String, Set<String>> holds = new ConcurrentHashMap<>();
+
+  /**
+   * 文件哈希的缓存, key 为 (路径, 大小, 修改时间), 避免重复读取未变化的文件
+   */
+  private final Map<String, String> hashCache = new LinkedHashMap<String, String>(16, 0.75f,
+      true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+      return size() > HASH_CACHE_SIZE;
+    }
+  };
+
+  private final ScheduledExecutorService gcExecutor;
+
+  private UdfJarStore(String storeDir, long retention, long gcInterval) {
+    this.storeDir = storeDir;
+    this.retention = retention;
+
+    this.gcExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("Exec-Worker-UdfJarGC").setDaemon(true).build());
+
+    if (gcInterval > 0) {
+      gcExecutor.scheduleWithFixedDelay(() -> {
+        try {
+          gc(System.currentTimeMillis());
+        } catch (Exception e) {
+          logger.error("udf jar gc failed", e);
+        }
+      }, gcInterval, gcInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * 初始化, 仅需调用一次
+   *
+   * @param storeDir hdfs 上的存储目录
+   * @param retention 没有引用的版本的保留时间, 单位毫秒
+   * @param gcInterval 回收的间隔, 单位毫秒, 0 表示不回收
+   */
+  public static void init(String storeDir, long retention, long gcInterval) {
+    if (instance == null) {
+      synchronized (UdfJarStore.class) {
+        if (instance == null) {
+          instance = new UdfJarStore(storeDir, retention, gcInterval);
+        }
+      }
+    }
+  }
+
+  public static UdfJarStore getInstance() {
+    if (instance == null) {
+      throw new ExecException("Get UdfJarStore instance failed, please call init first");
+    }
+
+    return instance;
+  }
+
+  /**
+   * 持有方的标识
+   */
+  public static String holder(ExternalJobType externalJobType, long execId) {
+    return externalJobType.name() + "-" + execId;
+  }
+
+  /**
+   * 是否是存储中的路径, 存储中的路径按内容区分, 路径相同内容就相同
+   */
+  public static boolean isStorePath(String path) {
+    UdfJarStore store = instance;
+
+    return store != null && path.contains(store.storeDir + "/");
+  }
+
+  /**
+   * 登记引用并发布 jar, 已经存在的内容不再上传, 各个 jar 并发处理
+   *
+   * @param holder 持有方, 见 {@link #holder}
+   * @param resources 资源名称
+   * @param srcDir 资源目录
+   * @param isHdfsFile 资源目录是否在 hdfs 上
+   * @return 资源名称到存储路径的映射
+   */
+  public Map<String, String> acquire(String holder, Set<String> resources, String srcDir,
+      boolean isHdfsFile) throws IOException, InterruptedException {
+    HdfsClient hdfsClient = HdfsClient.getInstance();
+    ResourceStager stager = ResourceStager.getInstance();
+
+    Map<String, String> paths = new LinkedHashMap<>();
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+    for (String res : resources) {
+      String src = String.format("%s/%s", srcDir, res);
+      String hash = hash(src, isHdfsFile);
+      String hashDir = String.format("%s/%s", storeDir, hash);
+      String target = String.format("%s/%s", hashDir, res);
+
+      // 先登记引用, 再发布, 避免发布后被回收
+      holds.computeIfAbsent(holder, k -> ConcurrentHashMap.newKeySet()).add(hash);
+      hdfsClient.create(String.format("%s/%s/%s", hashDir, REFS_DIR, holder), true).close();
+
+      paths.put(res, target);
+
+      if (hdfsClient.exists(target)) {
+        logger.debug("udf jar {} exists in store, hash: {}", res, hash);
+        continue;
+      }
+
+      // 先传到临时文件, 再重命名, 其它 executor 看到的总是完整的 jar
+      String tmp = String.format("%s/.%s.tmp", hashDir, UUID.randomUUID());
+
+      logger.info("publish udf jar {} to store, hash: {}", res, hash);
+
+      CompletableFuture<Void> future = isHdfsFile ? stager.copy(src, tmp) : stager.upload(src, tmp);
+      futures.add(future.thenRun(() -> commit(tmp, target)));
+    }
+
+    ResourceStager.await(futures);
+
+    return paths;
+  }
+
+  /**
+   * 释放持有方的全部引用, 执行结束时调用
+   */
+  public void release(String holder) {
+    Set<String> hashes = holds.remove(holder);
+
+    if (hashes == null) {
+      return;
+    }
+
+    for (String hash : hashes) {
+      String ref = String.format("%s/%s/%s/%s", storeDir, hash, REFS_DIR, holder);
+
+      try {
+        HdfsClient.getInstance().delete(ref, false);
+      } catch (Exception e) {
+        logger.error(String.format("release udf jar ref exception: %s", ref), e);
+      }
+    }
+  }
+
+  /**
+   * 回收没有引用且超过保留时间的版本, 各个 executor 都会执行, 重复删除没有影响
+   *
+   * @param now 当前时间
+   * @return 回收的版本数
+   */
+  int gc(long now) throws IOException {
+    HdfsClient hdfsClient = HdfsClient.getInstance();
+
+    if (!hdfsClient.exists(storeDir)) {
+      return 0;
+    }
+
+    String trashDir = String.format("%s/%s", storeDir, TRASH_DIR);
+    int removed = 0;
+
+    // 回收时异常退出留下的目录, 名称为 {hash}-{移走的时间}, 目录的修改时间在移动时不变
+    if (hdfsClient.exists(trashDir)) {
+      for (FileStatus trashStatus : hdfsClient.listFileStatus(trashDir)) {
+        String[] parts = trashStatus.getPath().getName().split("-");
+
+        if (parts.length == 2 && now - Long.parseLong(parts[1]) > retention) {
+          purge(trashStatus.getPath().toUri().getPath(),
+              String.format("%s/%s", storeDir, parts[0]), now);
+        }
+      }
+    }
+
+    for (FileStatus hashStatus : hdfsClient.listFileStatus(storeDir)) {
+      if (hashStatus.getPath().getName().startsWith(".")) {
+        continue;
+      }
+
+      String hashDir = hashStatus.getPath().toUri().getPath();
+      String refsDir = String.format("%s/%s", hashDir, REFS_DIR);
+
+      // 引用目录的修改时间即最近一次登记或释放引用的时间
+      long lastUsed = hashStatus.getModificationTime();
+
+      if (hdfsClient.exists(refsDir)) {
+        lastUsed = Math.max(lastUsed, hdfsClient.getFileStatus(refsDir).getModificationTime());
+      }
+
+      if (referenced(refsDir, now) || now - lastUsed <= retention) {
+        continue;
+      }
+
+      // 移动是原子的, 移动之后登记的引用看不到 jar, 会重新发布
+      String trash = String.format("%s/%s-%d", trashDir, hashStatus.getPath().getName(), now);
+
+      hdfsClient.mkdir(trashDir);
+
+      if (!hdfsClient.rename(hashDir, trash)) {
+        continue;
+      }
+
+      if (purge(trash, hashDir, now)) {
+        logger.info("remove unused udf jar: {}", hashDir);
+        ++removed;
+      }
+    }
+
+    return removed;
+  }
+
+  /**
+   * 是否有有效的引用, 同时删除残留的引用
+   */
+  private static boolean referenced(String refsDir, long now) throws IOException {
+    HdfsClient hdfsClient = HdfsClient.getInstance();
+
+    if (!hdfsClient.exists(refsDir)) {
+      return false;
+    }
+
+    boolean referenced = false;
+
+    for (FileStatus ref : hdfsClient.listFileStatus(refsDir)) {
+      if (now - ref.getModificationTime() > MAX_HOLD_TIME) {
+        logger.warn("remove stale udf jar ref: {}", ref.getPath());
+        hdfsClient.delete(ref.getPath().toUri().getPath(), false);
+      } else {
+        referenced = true;
+      }
+    }
+
+    return referenced;
+  }
+
+  /**
+   * 删除移走的版本目录, 移走之前登记了引用时先把 jar 和引用移回原来的位置 <p>
+   *
+   * 原来的位置可能已经被之后登记的引用重新创建, 所以逐个文件移回, 已经存在的不覆盖.
+   *
+   * @return 没有引用, 直接删除时返回 true
+   */
+  private static boolean purge(String trash, String hashDir, long now) throws IOException {
+    HdfsClient hdfsClient = HdfsClient.getInstance();
+    String trashRefsDir = String.format("%s/%s", trash, REFS_DIR);
+    boolean referenced = referenced(trashRefsDir, now);
+
+    if (referenced) {
+      logger.info("udf jar {} is referenced while removing, restore it", hashDir);
+
+      String refsDir = String.format("%s/%s", hashDir, REFS_DIR);
+      hdfsClient.mkdir(refsDir);
+
+      for (FileStatus ref : hdfsClient.listFileStatus(trashRefsDir)) {
+        hdfsClient.rename(ref.getPath().toUri().getPath(),
+            String.format("%s/%s", refsDir, ref.getPath().getName()));
+      }
+
+      for (FileStatus jar : hdfsClient.listFileStatus(trash)) {
+        String name = jar.getPath().getName();
+        String target = String.format("%s/%s", hashDir, name);
+
+        if (!jar.isDirectory() && !name.startsWith(".") && !hdfsClient.exists(target)) {
+          hdfsClient.rename(jar.getPath().toUri().getPath(), target);
+        }
+      }
+    }
+
+    hdfsClient.delete(trash, true);
+
+    return !referenced;
+  }
+
+  private static boolean hdfsExists(String path) {
+    try {
+      return HdfsClient.getInstance().exists(path);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public void destroy() {
+    gcExecutor.shutdownNow();
+  }
+
+  /**
+   * 计算文件内容的哈希
+   */
+  private String hash(String path, boolean isHdfsFile) throws IOException {
+    String key;
+
+    if (isHdfsFile) {
+      FileStatus status = HdfsClient.getInstance().getFileStatus(path);
+      key = String.format("%s:%d:%d", path, status.getLen(), status.getModificationTime());
+    } else {
+      File file = new File(path);
+      key = String.format("%s:%d:%d", path, file.length(), file.lastModified());
+    }
+
+    synchronized (hashCache) {
+      String hash = hashCache.get(key);
+
+      if (hash != null) {
+        return hash;
+      }
+    }
+
+    String hash;
+
+    try (InputStream in = isHdfsFile ? HdfsClient.getInstance().open(path)
+        : new FileInputStream(path)) {
+      hash = DigestUtils.sha256Hex(in);
+    }
+
+    synchronized (hashCache) {
+      hashCache.put(key, hash);
+    }
+
+    return hash;
+  }
+
+  /**
+   * 临时文件重命名为正式的 jar, 其它 executor 已经发布过时删除临时文件
+   */
+  private static void commit(String tmp, String target) {
+    HdfsClient hdfsClient = HdfsClient.getInstance();
+
+    if (!hdfsClient.rename(tmp, target)) {
+      hdfsClient.delete(tmp, false);
+
+      if (!hdfsExists(target)) {
+        throw new HdfsException("publish udf jar failed: " + target);
+      }
+    }
+  }
+}
@@ -32,6 +32,9 @@ public class HiveConfig {
   @Value("${hive.thrift.uris}")
   private String thriftUris;
 
+  @Value("${hive.meta.cache.ttl:60}")
+  private int metaCacheTtl;
+
   @Bean
   public HiveService2Client hiveService2Client() {
     return HiveService2Client.getInstance();
@@ -58,4 +61,12 @@ public class HiveConfig {
   public void setThriftUris(String thriftUris) {
     this.thriftUris = thriftUris;
   }
+
+  public int getMetaCacheTtl() {
+    return metaCacheTtl;
+  }
+
+  public void setMetaCacheTtl(int metaCacheTtl) {
+    this.metaCacheTtl = metaCacheTtl;
+  }
 }
@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.engine.hive;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.hive.jdbc.HiveStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * executor 全局的 hive 日志拉取器 <p>
+ *
+ * 所有活跃的 {@link HiveStatement} 注册到这里, 由一个共享的线程按各自的间隔增量拉取日志: 有新日志时以最小间隔拉取,
+ * 没有新日志时间隔逐步加倍, 直到最大间隔. 日志中的 application/job id 和进度也在这里统一解析, 任务不需要再各自扫描.
+ */
+public class HiveLogPoller {
+
+  private static final Logger logger = LoggerFactory.getLogger(HiveLogPoller.class);
+
+  // 抽取应用 id 的规则
+  private static final Pattern APPLICATION_REGEX = Pattern.compile("application_\\d+_\\d+");
+
+  // 抽取 job id 的规则
+  private static final Pattern JOB_REGEX = Pattern.compile("job_\\d+_\\d+");
+
+  // mr 的进度, 如: Stage-1 map = 50%,  reduce = 0%
+  private static final Pattern MR_PROGRESS_REGEX = Pattern
+      .compile("Stage-\\d+ map = (\\d+)%,\\s+reduce = (\\d+)%");
+
+  // tez 的进度, 如: Map 1: 3(+2)/10	Reducer 2: 0/1
+  private static final Pattern TEZ_PROGRESS_REGEX = Pattern
+      .compile("(?:Map|Reducer) \\d+: (\\d+)(?:\\(\\+\\d+\\))?(?:\\(-\\d+\\))?/(\\d+)");
+
+  /**
+   * 调度的周期, 也是最小的拉取间隔, 单位毫秒
+   */
+  private static final int MIN_INTERVAL = 500;
+
+  /**
+   * 最大的拉取间隔, 单位毫秒
+   */
+  private static final int MAX_INTERVAL = 5000;
+
+  /**
+   * 每次最多拉取的日志行数
+   */
+  private static final int FETCH_SIZE = 1000;
+
+  private static volatile HiveLogPoller hiveLogPoller;
+
+  /**
+   * 活跃的语句
+   */
+  private final Map<HiveStatement, Tracked> statements = new ConcurrentHashMap<>();
+
+  private HiveLogPoller() {
+    ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("Exec-Server-HiveLogPoller").setDaemon(true)
+            .build());
+
+    executorService
+        .scheduleWithFixedDelay(this::pollAll, MIN_INTERVAL, MIN_INTERVAL, TimeUnit.MILLISECONDS);
+  }
+
+  public static HiveLogPoller getInstance() {
+    if (hiveLogPoller == null) {
+      synchronized (HiveLogPoller.class) {
+        if (hiveLogPoller == null) {
+          hiveLogPoller = new HiveLogPoller();
+        }
+      }
+    }
+
+    return hiveLogPoller;
+  }
+
+  /**
+   * 注册需要拉取日志的语句
+   */
+  public void register(HiveStatement statement, HiveLogListener listener) {
+    statements.put(statement, new Tracked(statement, listener));
+  }
+
+  /**
+   * 拉取语句当前执行的剩余日志, 在每条 sql 执行完成后调用, 保证日志完整
+   */
+  public void flush(HiveStatement statement) {
+    Tracked tracked = statements.get(statement);
+
+    if (tracked != null) {
+      tracked.poll(true);
+    }
+  }
+
+  /**
+   * 取消注册, 会先拉取剩余的日志
+   */
+  public void unregister(HiveStatement statement) {
+    Tracked tracked = statements.remove(statement);
+
+    if (tracked != null) {
+      tracked.poll(true);
+    }
+  }
+
+  /**
+   * 得到语句最近的进度, 0-100, 未知时返回 -1
+   */
+  public int getProgress(HiveStatement statement) {
+    Tracked tracked = statements.get(statement);
+
+    return (tracked != null) ? tracked.progress : -1;
+  }
+
+  /**
+   * 拉取到期的语句的日志
+   */
+  private void pollAll() {
+    long now = System.currentTimeMillis();
+
+    for (Tracked tracked : statements.values()) {
+      if (tracked.nextPollTime <= now) {
+        try {
+          tracked.poll(false);
+        } catch (Exception e) {
+          logger.error("poll hive log exception", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * 解析日志中的 application id, 没有返回 null
+   */
+  static String findAppId(String line) {
+    return find(APPLICATION_REGEX, line);
+  }
+
+  /**
+   * 解析日志中的 job id, 没有返回 null
+   */
+  static String findJobId(String line) {
+    return find(JOB_REGEX, line);
+  }
+
+  private static String find(Pattern pattern, String line) {
+    Matcher matcher = pattern.matcher(line);
+
+    return matcher.find() ? matcher.group() : null;
+  }
+
+  /**
+   * 解析日志中的进度, 0-100, 没有进度信息返回 -1
+   */
+  static int parseProgress(String line) {
+    Matcher matcher = MR_PROGRESS_REGEX.matcher(line);
+
+    if (matcher.find()) {
+      return (Integer.parseInt(matcher.group(1)) + Integer.parseInt(matcher.group(2))) / 2;
+    }
+
+    matcher = TEZ_PROGRESS_REGEX.matcher(line);
+
+    long completed = 0;
+    long total = 0;
+
+    while (matcher.find()) {
+      completed += Long.parseLong(matcher.group(1));
+      total += Long.parseLong(matcher.group(2));
+    }
+
+    return (total > 0) ? (int) (completed * 100 / total) : -1;
+  }
+
+  /**
+   * 日志的监听器
+   */
+  public interface HiveLogListener {
+
+    /**
+     * 处理新的日志
+     */
+    void onLogs(List<String> logs);
+
+    /**
+     * 处理新发现的 application id 和 job id
+     */
+    default void onJobIds(List<String> appIds, List<String> jobIds) {
+    }
+  }
+
+  /**
+   * 跟踪的语句
+   */
+  private static class Tracked {
+
+    private final HiveStatement statement;
+
+    private final HiveLogListener listener;
+
+    /**
+     * 已经发现的 id, 避免重复通知
+     */
+    private final Set<String> foundIds = new LinkedHashSet<>();
+
+    /**
+     * 当前的拉取间隔
+     */
+    private int interval = MIN_INTERVAL;
+
+    private volatile long nextPollTime = 0;
+
+    private volatile int progress = -1;
+
+    Tracked(HiveStatement statement, HiveLogListener listener) {
+      this.statement = statement;
+      this.listener = listener;
+    }
+
+    /**
+     * 拉取日志, 同一个语句的拉取是串行的
+     *
+     * @param all 是否拉取全部剩余的日志
+     */
+    synchronized void poll(boolean all) {
+      int fetched = 0;
+
+      while (true) {
+        List<String> logs;
+
+        try {
+          logs = statement.getQueryLog(true, FETCH_SIZE);
+        } catch (Exception e) {
+          // 语句还没开始执行, 或者已经关闭
+          break;
+        }
+
+        if (logs.isEmpty()) {
+          break;
+        }
+
+        fetched += logs.size();
+
+        handle(logs);
+
+        if (!all && logs.size() < FETCH_SIZE) {
+          break;
+        }
+      }
+
+      // 有新日志时保持最小间隔, 没有时逐步加大间隔
+      interval = (fetched > 0) ? MIN_INTERVAL : Math.min(interval * 2, MAX_INTERVAL);
+      nextPollTime = System.currentTimeMillis() + interval;
+    }
+
+    private void handle(List<String> logs) {
+      List<String> appIds = new ArrayList<>();
+      List<String> jobIds = new ArrayList<>();
+
+      for (String line : logs) {
+        String appId = findAppId(line);
+
+        if (appId != null && foundIds.add(appId)) {
+          appIds.add(appId);
+        }
+
+        String jobId = findJobId(line);
+
+        if (jobId != null && foundIds.add(jobId)) {
+          jobIds.add(jobId);
+        }
+
+        int lineProgress = parseProgress(line);
+
+        if (lineProgress >= 0) {
+          progress = lineProgress;
+        }
+      }
+
+      listener.onLogs(logs);
+
+      if (!appIds.isEmpty() || !jobIds.isEmpty()) {
+        listener.onJobIds(appIds, jobIds);
+      }
+    }
+  }
+}
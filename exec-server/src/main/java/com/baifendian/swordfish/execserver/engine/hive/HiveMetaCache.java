@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.engine.hive;
+
+import com.baifendian.swordfish.execserver.job.impexp.Args.HqlColumn;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * hive 表结构的缓存, executor 内共用 <p>
+ *
+ * 一张表的普通字段和分区字段在一次元数据访问中获取, 有效期较短. 同一张表并发的加载合并为一次, 加载失败不缓存. 执行过 DDL 的表主动失效.
+ */
+public class HiveMetaCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(HiveMetaCache.class);
+
+  /**
+   * 超过该条目数时清理过期的条目
+   */
+  private static final int MAX_ENTRIES = 10000;
+
+  /**
+   * DDL 语句中的表名, 如 create external table if not exists db.t, alter table `t`
+   */
+  private static final Pattern DDL_TABLE_PATTERN = Pattern.compile(
+      "^\\s*(?:create|drop|alter)\\s+(?:temporary\\s+)?(?:external\\s+)?(?:table|view)\\s+"
+          + "(?:if\\s+(?:not\\s+)?exists\\s+)?([\\w`.]+)", Pattern.CASE_INSENSITIVE);
+
+  private static volatile HiveMetaCache instance;
+
+  /**
+   * 有效期, 单位毫秒, 0 表示不缓存
+   */
+  private final long ttl;
+
+  /**
+   * key 为 db.table, 小写
+   */
+  private final Map<String, CompletableFuture<TableSchema>> cache = new ConcurrentHashMap<>();
+
+  HiveMetaCache(long ttl) {
+    this.ttl = ttl;
+  }
+
+  public static HiveMetaCache getInstance() {
+    if (instance == null) {
+      synchronized (HiveMetaCache.class) {
+        if (instance == null) {
+          instance = new HiveMetaCache(
+              TimeUnit.SECONDS.toMillis(MyHiveFactoryUtil.getInstance().getMetaCacheTtl()));
+        }
+      }
+    }
+
+    return instance;
+  }
+
+  /**
+   * 获取表结构, 没有缓存或已经过期时加载
+   */
+  public TableSchema get(String dbName, String tableName, Loader loader) throws Exception {
+    if (ttl <= 0) {
+      return loader.load();
+    }
+
+    String key = key(dbName, tableName);
+
+    while (true) {
+      CompletableFuture<TableSchema> future = cache.get(key);
+
+      if (future != null && future.isDone() && !future.isCompletedExceptionally()
+          && isExpired(future.join())) {
+        cache.remove(key, future);
+        continue;
+      }
+
+      if (future == null) {
+        CompletableFuture<TableSchema> loading = new CompletableFuture<>();
+
+        if (cache.putIfAbsent(key, loading) != null) {
+          continue;
+        }
+
+        evictExpired();
+
+        try {
+          TableSchema schema = loader.load();
+          loading.complete(schema);
+
+          return schema;
+        } catch (Exception e) {
+          cache.remove(key, loading);
+          loading.completeExceptionally(e);
+
+          throw e;
+        }
+      }
+
+      try {
+        return future.get();
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        throw (cause instanceof Exception) ? (Exception) cause : e;
+      }
+    }
+  }
+
+  /**
+   * 失效一张表
+   */
+  public void invalidate(String dbName, String tableName) {
+    cache.remove(key(dbName, tableName));
+  }
+
+  /**
+   * 执行 DDL 后失效涉及的表, 没有指定 db 时失效所有 db 下的同名表, 解析不出表名时全部失效
+   */
+  public void invalidateByDDL(String sql) {
+    Matcher matcher = DDL_TABLE_PATTERN.matcher(sql);
+
+    if (!matcher.find()) {
+      logger.debug("invalidate all table schemas by ddl: {}", sql);
+      cache.clear();
+      return;
+    }
+
+    String name = matcher.group(1).replace("`", "").toLowerCase();
+
+    if (name.contains(".")) {
+      cache.remove(name);
+    } else {
+      cache.keySet().removeIf(key -> key.endsWith("." + name));
+    }
+  }
+
+  private boolean isExpired(TableSchema schema) {
+    return System.currentTimeMillis() - schema.loadTime > ttl;
+  }
+
+  private void evictExpired() {
+    if (cache.size() <= MAX_ENTRIES) {
+      return;
+    }
+
+    cache.values().removeIf(future -> future.isDone() && (future.isCompletedExceptionally()
+        || isExpired(future.join())));
+  }
+
+  private static String key(String dbName, String tableName) {
+    return (dbName + "." + tableName).replace("`", "").toLowerCase();
+  }
+
+  /**
+   * 加载表结构
+   */
+  public interface Loader {
+
+    TableSchema load() throws Exception;
+  }
+
+  /**
+   * 表结构, 各个字段视图都由它得到
+   */
+  public static class TableSchema {
+
+    /**
+     * 普通字段
+     */
+    private final List<FieldSchema> fields;
+
+    /**
+     * 分区字段
+     */
+    private final List<FieldSchema> partitionKeys;
+
+    /**
+     * 存储信息 (位置, 文件格式, serde), 可能为空
+     */
+    private final StorageDescriptor storage;
+
+    private final long loadTime = System.currentTimeMillis();
+
+    public TableSchema(List<FieldSchema> fields, List<FieldSchema> partitionKeys) {
+      this(fields, partitionKeys, null);
+    }
+
+    public TableSchema(List<FieldSchema> fields, List<FieldSchema> partitionKeys,
+        StorageDescriptor storage) {
+      this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
+      this.partitionKeys = Collections.unmodifiableList(
+          (partitionKeys == null) ? new ArrayList<>() : new ArrayList<>(partitionKeys));
+      this.storage = storage;
+    }
+
+    public List<FieldSchema> getFields() {
+      return fields;
+    }
+
+    public List<FieldSchema> getPartitionKeys() {
+      return partitionKeys;
+    }
+
+    public StorageDescriptor getStorage() {
+      return storage;
+    }
+
+    /**
+     * 全部字段, 普通字段在前, 分区字段在后
+     */
+    public List<HqlColumn> getHqlColumns() {
+      List<HqlColumn> columns = new ArrayList<>();
+
+      for (FieldSchema fieldSchema : fields) {
+        columns.add(new HqlColumn(fieldSchema.getName(), fieldSchema.getType()));
+      }
+
+      for (FieldSchema fieldSchema : partitionKeys) {
+        columns.add(new HqlColumn(fieldSchema.getName(), fieldSchema.getType()));
+      }
+
+      return columns;
+    }
+  }
+}
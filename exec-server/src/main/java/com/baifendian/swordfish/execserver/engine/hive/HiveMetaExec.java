@@ -18,11 +18,14 @@ package com.baifendian.swordfish.execserver.engine.hive;
 import com.baifendian.swordfish.common.hive.metastore.HiveMetaPoolClient;
 import com.baifendian.swordfish.common.job.struct.node.impexp.column.HiveColumn;
 import com.baifendian.swordfish.dao.DaoFactory;
+import com.baifendian.swordfish.execserver.engine.hive.HiveMetaCache.TableSchema;
 import com.baifendian.swordfish.execserver.job.impexp.Args.HqlColumn;
 import com.baifendian.swordfish.execserver.job.impexp.ImpExpUtil;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.hive.common.StatsSetupConst;
 import org.apache.hadoop.hive.metastore.HiveMetaStoreClient;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.metastore.api.Table;
@@ -55,21 +58,54 @@ public class HiveMetaExec {
   }
 
   /**
-   * 获取一个 hive 的表结构
+   * 获取一个表的结构, 普通字段和分区字段在一次元数据访问中获取, 结果在 executor 内短期缓存
    */
-  public List<HqlColumn> getHiveDesc(String dbName, String tableName)
-      throws Exception {
+  public TableSchema getTableSchema(String dbName, String tableName) throws Exception {
+    return HiveMetaCache.getInstance().get(dbName, tableName, () -> {
+      HiveMetaStoreClient hiveMetaStoreClient = hiveMetaPoolClient.borrowClient();
+
+      try {
+        List<FieldSchema> fields = hiveMetaStoreClient.getFields(dbName, tableName);
+        Table table = hiveMetaStoreClient.getTable(dbName, tableName);
+
+        return new TableSchema(fields, table.getPartitionKeys(), table.getSd());
+      } catch (Exception e) {
+        doWithException(hiveMetaStoreClient, e);
+        throw e;
+      } finally {
+        if (hiveMetaStoreClient != null) {
+          hiveMetaPoolClient.returnClient(hiveMetaStoreClient);
+        }
+      }
+    });
+  }
+
+  /**
+   * 失效一个表的结构缓存, 作业自己修改了表结构后调用
+   */
+  public void invalidate(String dbName, String tableName) {
+    HiveMetaCache.getInstance().invalidate(dbName, tableName);
+  }
+
+  /**
+   * 直接改写了表的数据文件后, 标记表的统计信息不再准确, 避免查询直接使用过期的行数
+   */
+  public void resetTableStats(String dbName, String tableName) throws Exception {
     HiveMetaStoreClient hiveMetaStoreClient = hiveMetaPoolClient.borrowClient();
-    List<HqlColumn> res = new ArrayList<>();
 
     try {
-      List<FieldSchema> fieldSchemaList = hiveMetaStoreClient.getFields(dbName, tableName);
       Table table = hiveMetaStoreClient.getTable(dbName, tableName);
-      fieldSchemaList.addAll(table.getPartitionKeys());
+      Map<String, String> params = table.getParameters();
 
-      for (FieldSchema fieldSchema : fieldSchemaList) {
-        res.add(new HqlColumn(fieldSchema.getName(), fieldSchema.getType()));
+      if (params == null) {
+        return;
       }
+
+      params.remove(StatsSetupConst.ROW_COUNT);
+      params.remove(StatsSetupConst.RAW_DATA_SIZE);
+      params.put(StatsSetupConst.COLUMN_STATS_ACCURATE, StatsSetupConst.FALSE);
+
+      hiveMetaStoreClient.alter_table(dbName, tableName, table);
     } catch (Exception e) {
       doWithException(hiveMetaStoreClient, e);
       throw e;
@@ -78,8 +114,14 @@ public class HiveMetaExec {
         hiveMetaPoolClient.returnClient(hiveMetaStoreClient);
       }
     }
+  }
 
-    return res;
+  /**
+   * 获取一个 hive 的表结构
+   */
+  public List<HqlColumn> getHiveDesc(String dbName, String tableName)
+      throws Exception {
+    return getTableSchema(dbName, tableName).getHqlColumns();
   }
 
   /**
@@ -87,34 +129,23 @@ public class HiveMetaExec {
    */
   public List<HqlColumn> checkHiveColumn(List<HiveColumn> srcColumn, List<HqlColumn> destColumn)
       throws Exception {
-    HiveMetaStoreClient hiveMetaStoreClient = hiveMetaPoolClient.borrowClient();
-
     List<HqlColumn> hqlColumnList = new ArrayList<>();
 
-    try {
-      for (HiveColumn srcCol : srcColumn) {
-        boolean found = false;
-
-        for (HqlColumn destCol : destColumn) {
-          if (ImpExpUtil.equalIgnoreCaseWithoutBackQuota(srcCol.getName(), destCol.getName())) {
-            hqlColumnList.add(destCol);
-            found = true;
-            break;
-          }
-        }
+    for (HiveColumn srcCol : srcColumn) {
+      boolean found = false;
 
-        if (!found) {
-          // 如果没有找到匹配的抛出异常
-          throw new Exception(
-              MessageFormat.format("Write hive column {0} not found", srcCol.getName()));
+      for (HqlColumn destCol : destColumn) {
+        if (ImpExpUtil.equalIgnoreCaseWithoutBackQuota(srcCol.getName(), destCol.getName())) {
+          hqlColumnList.add(destCol);
+          found = true;
+          break;
         }
       }
-    } catch (Exception e) {
-      doWithException(hiveMetaStoreClient, e);
-      throw e;
-    } finally {
-      if (hiveMetaStoreClient != null) {
-        hiveMetaPoolClient.returnClient(hiveMetaStoreClient);
+
+      if (!found) {
+        // 如果没有找到匹配的抛出异常
+        throw new Exception(
+            MessageFormat.format("Write hive column {0} not found", srcCol.getName()));
       }
     }
 
@@ -128,20 +159,7 @@ public class HiveMetaExec {
    * @param table 表名称
    */
   public List<FieldSchema> getPartionField(String dbName, String table) throws Exception {
-    HiveMetaStoreClient hiveMetaStoreClient = hiveMetaPoolClient.borrowClient();
-
-    try {
-      Table destTable = hiveMetaStoreClient.getTable(dbName, table);
-
-      return destTable.getPartitionKeys();
-    } catch (Exception e) {
-      doWithException(hiveMetaStoreClient, e);
-      throw e;
-    } finally {
-      if (hiveMetaStoreClient != null) {
-        hiveMetaPoolClient.returnClient(hiveMetaStoreClient);
-      }
-    }
+    return getTableSchema(dbName, table).getPartitionKeys();
   }
 
   /**
@@ -151,18 +169,7 @@ public class HiveMetaExec {
    * @param table 表名称
    */
   public List<FieldSchema> getGeneralField(String dbName, String table) throws Exception {
-    HiveMetaStoreClient hiveMetaStoreClient = hiveMetaPoolClient.borrowClient();
-
-    try {
-      return hiveMetaStoreClient.getFields(dbName, table);
-    } catch (Exception e) {
-      doWithException(hiveMetaStoreClient, e);
-      throw e;
-    } finally {
-      if (hiveMetaStoreClient != null) {
-        hiveMetaPoolClient.returnClient(hiveMetaStoreClient);
-      }
-    }
+    return getTableSchema(dbName, table).getFields();
   }
 
   /**
@@ -15,25 +15,34 @@
  */
 package com.baifendian.swordfish.execserver.engine.hive;
 
+import com.baifendian.swordfish.common.adhoc.AdHocResultWriter;
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
 import com.baifendian.swordfish.common.hive.service2.HiveService2Client;
 import com.baifendian.swordfish.common.hive.service2.HiveService2ConnectionInfo;
+import com.baifendian.swordfish.common.utils.http.HttpUtil;
 import com.baifendian.swordfish.dao.DaoFactory;
 import com.baifendian.swordfish.dao.enums.FlowStatus;
 import com.baifendian.swordfish.dao.exception.DaoSemanticException;
 import com.baifendian.swordfish.execserver.common.ExecResult;
 import com.baifendian.swordfish.execserver.common.ResultCallback;
-import com.baifendian.swordfish.execserver.utils.Constants;
+import com.baifendian.swordfish.execserver.common.UdfJarStore;
+import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.SQLTimeoutException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.fs.FileChecksum;
 import org.apache.hive.jdbc.HiveConnection;
 import org.apache.hive.jdbc.HiveStatement;
 import org.apache.hive.service.cli.HiveSQLException;
@@ -49,6 +58,17 @@ public class HiveSqlExec {
    */
   private static int defaultQueryLimit = 1000;
 
+  /**
+   * 每次从 hive server 获取的行数
+   */
+  private static int defaultFetchSize = 1000;
+
+  /**
+   * 添加 jar 的语句
+   */
+  private static final Pattern ADD_JAR_PATTERN = Pattern
+      .compile("^add\\s+jar\\s+(\\S+)$", Pattern.CASE_INSENSITIVE);
+
   /**
    * {@link HiveUtil}
    */
@@ -59,6 +79,21 @@ public class HiveSqlExec {
    */
   private Consumer<List<String>> logHandler;
 
+  /**
+   * application id 和 job id 的处理器, 由 {@link HiveLogPoller} 解析日志后回调
+   */
+  private BiConsumer<List<String>, List<String>> jobIdsHandler;
+
+  /**
+   * 当前执行的语句
+   */
+  private volatile HiveStatement currentStatement;
+
+  /**
+   * 是否已经取消, 取消后不再执行后面的语句
+   */
+  private volatile boolean cancelled;
+
   /**
    * 执行用户
    */
@@ -69,15 +104,26 @@ public class HiveSqlExec {
    */
   private Logger logger;
 
+  /**
+   * queue name
+   */
+  private String queue;
+
   /**
    * queue name
    */
   private String queueSQL;
 
+  /**
+   * 结果写入器的工厂, 参数为语句的索引, 为空时结果只保存在内存中
+   */
+  private IntFunction<AdHocResultWriter> resultWriterFactory;
+
   public HiveSqlExec(Consumer<List<String>> logHandler, String userName, Logger logger, String queue) {
     this.logHandler = logHandler;
     this.userName = userName;
     this.logger = logger;
+    this.queue = queue;
     if (StringUtils.isEmpty(queue)){
       queueSQL = null;
     }else {
@@ -86,6 +132,46 @@ public class HiveSqlExec {
     this.hiveUtil = DaoFactory.getDaoInstance(HiveUtil.class);
   }
 
+  /**
+   * 设置 application id 和 job id 的处理器, 日志中的 id 统一由 {@link HiveLogPoller} 解析
+   */
+  public void setJobIdsHandler(BiConsumer<List<String>, List<String>> jobIdsHandler) {
+    this.jobIdsHandler = jobIdsHandler;
+  }
+
+  /**
+   * 得到当前语句最近的进度, 0-100, 未知时返回 -1
+   */
+  public int getProgress() {
+    HiveStatement statement = currentStatement;
+
+    return (statement != null) ? HiveLogPoller.getInstance().getProgress(statement) : -1;
+  }
+
+  /**
+   * 取消执行, 正在执行的语句由 hive server 取消, 会 kill 对应的 yarn 应用
+   */
+  public void cancel() {
+    cancelled = true;
+
+    HiveStatement statement = currentStatement;
+
+    if (statement != null) {
+      try {
+        statement.cancel();
+      } catch (Exception e) {
+        logger.error("cancel hive statement exception", e);
+      }
+    }
+  }
+
+  /**
+   * 设置结果写入器的工厂, 设置后查询结果会按批写入分片, 内存中只保留第一页
+   */
+  public void setResultWriterFactory(IntFunction<AdHocResultWriter> resultWriterFactory) {
+    this.resultWriterFactory = resultWriterFactory;
+  }
+
   /**
    * 执行多个 sql 语句 并返回查询的语句, 注意, 多次调用 execute, 上下文是不相关的
    *
@@ -108,45 +194,66 @@ public class HiveSqlExec {
     queryLimit = (queryLimit != null) ? queryLimit : defaultQueryLimit;
 
     HiveConnection hiveConnection = null;
-    Statement sta = null;
-    Thread logThread = null;
+    HiveStatement sta = null;
+    HiveLogPoller hiveLogPoller = HiveLogPoller.getInstance();
 
-    // 得到 hive 的连接信息
-    HiveService2ConnectionInfo hiveService2ConnectionInfo = hiveUtil
-        .getHiveService2ConnectionInfo(userName);
+    // 会话的初始化语句, 设置队列和创建临时 function, 只在创建连接时执行
+    List<String> setupSqls = new ArrayList<>();
 
-    logger.info("execution connection information:{}", hiveService2ConnectionInfo);
+    if (queueSQL != null) {
+      setupSqls.add(queueSQL);
+    }
+
+    if (createFuncs != null) {
+      setupSqls.addAll(createFuncs);
+    }
+
+    HiveService2ConnectionInfo hiveService2ConnectionInfo = null;
 
     HiveService2Client hiveService2Client = hiveUtil.getHiveService2Client();
 
+    // 连接是否可以归还到连接池, 改变过会话状态或出现异常的连接不能复用
+    boolean reusable = true;
+
     try {
       try {
+        // 得到 hive 的连接信息, 连接池按 (用户, 队列, udf 集合) 区分
+        hiveService2ConnectionInfo = hiveUtil
+            .getHiveService2ConnectionInfo(userName, queue, udfsHash(createFuncs), setupSqls);
+
+        logger.info("execution connection information:{}", hiveService2ConnectionInfo);
+
+        long setupStartTime = System.currentTimeMillis();
+
         hiveConnection = hiveService2Client.borrowClient(hiveService2ConnectionInfo);
 
-        sta = hiveConnection.createStatement();
-//        sta.setQueryTimeout(remainTime);
+        logger.info("hive session setup cost: {} ms",
+            System.currentTimeMillis() - setupStartTime);
 
-        // 日志线程
-        logThread = new Thread(new JdbcLogRunnable(sta));
-        logThread.setDaemon(true);
-        logThread.start();
+        sta = (HiveStatement) hiveConnection.createStatement();
+//        sta.setQueryTimeout(remainTime);
 
-        // set queue
-        if (queueSQL != null) {
-          logger.info("hive queue : {}", queueSQL);
-          sta.execute(queueSQL);
-        }
+        // 注册到共享的日志拉取器
+        hiveLogPoller.register(sta, new HiveLogPoller.HiveLogListener() {
+          @Override
+          public void onLogs(List<String> logs) {
+            logHandler.accept(logs);
+          }
 
-        // 创建临时 function
-        if (createFuncs != null) {
-          for (String createFunc : createFuncs) {
-            logger.info("hive create function sql: {}", createFunc);
-            sta.execute(createFunc);
+          @Override
+          public void onJobIds(List<String> appIds, List<String> jobIds) {
+            if (jobIdsHandler != null) {
+              jobIdsHandler.accept(appIds, jobIds);
+            }
           }
-        }
+        });
+
+        currentStatement = sta;
       } catch (Exception e) {
         logger.error("execute query exception", e);
 
+        reusable = false;
+
         // 这里就失败了, 会记录下错误记录, 然后返回
         handlerResults(0, sqls, FlowStatus.FAILED, resultCallback);
 
@@ -157,10 +264,28 @@ public class HiveSqlExec {
       for (int index = 0; index < sqls.size(); ++index) {
         String sql = sqls.get(index);
 
+        if (cancelled) {
+          logger.info("hive execution is cancelled");
+
+          reusable = false;
+
+          handlerResults(index, sqls, FlowStatus.KILL, resultCallback);
+          return false;
+        }
+
+        // 拉取上一条语句剩余的日志, 之后语句的句柄会变化
+        if (index > 0) {
+          hiveLogPoller.flush(sta);
+        }
+
         Date startTime = new Date();
 
         logger.info("hive execute sql: {}", sql);
 
+        if (HiveUtil.isSessionStateStm(sql)) {
+          reusable = false;
+        }
+
         ExecResult execResult = new ExecResult();
         execResult.setIndex(index);
         execResult.setStm(sql);
@@ -169,6 +294,7 @@ public class HiveSqlExec {
           // 只对 query 和 show 语句显示结果
           if (HiveUtil.isTokQuery(sql) || HiveUtil.isLikeShowStm(sql)) {
             sta.setMaxRows(queryLimit);
+            sta.setFetchSize(defaultFetchSize);
             ResultSet res = sta.executeQuery(sql);
 
             ResultSetMetaData resultSetMetaData = res.getMetaData();
@@ -181,18 +307,9 @@ public class HiveSqlExec {
 
             execResult.setTitles(colums);
 
-            List<List<String>> datas = new ArrayList<>();
-
             // 如果字段数大于 1, 或是 query 语句
             if (count > 1 || HiveUtil.isTokQuery(sql)) {
-              while (res.next()) {
-                List<String> values = new ArrayList<>();
-                for (int i = 1; i <= count; ++i) {
-                  values.add(res.getString(i));
-                }
-
-                datas.add(values);
-              }
+              fetchResults(index, res, count, execResult, resultCallback != null);
             } else {
               StringBuffer buffer = new StringBuffer();
 
@@ -201,20 +318,30 @@ public class HiveSqlExec {
                 buffer.append("\n");
               }
 
+              List<List<String>> datas = new ArrayList<>();
               List<String> values = new ArrayList<>();
               values.add(buffer.toString().trim());
 
               datas.add(values);
-            }
 
-            execResult.setValues(datas);
+              execResult.setValues(datas);
+              execResult.setRowCount(datas.size());
+            }
           } else {
             sta.execute(sql);
+
+            // 表结构可能已经变化
+            if (HiveUtil.isTokDDL(sql)) {
+              HiveMetaCache.getInstance().invalidateByDDL(sql);
+            }
           }
 
           // 执行到这里，说明已经执行成功了
           execResult.setStatus(FlowStatus.SUCCESS);
 
+          logger.info("hive execute sql cost: {} ms",
+              System.currentTimeMillis() - startTime.getTime());
+
           // 执行结果回调处理
           if (resultCallback != null) {
             Date endTime = new Date();
@@ -224,12 +351,16 @@ public class HiveSqlExec {
           // sql 超时异常
           logger.error("executeQuery timeout exception", e);
 
+          reusable = false;
+
           handlerResults(index, sqls, FlowStatus.FAILED, resultCallback);
           return false;
         } catch (DaoSemanticException | HiveSQLException e) {
           // 语义异常
           logger.error("executeQuery exception", e);
 
+          reusable = false;
+
           if (isContinue) {
             handlerResult(index, sql, FlowStatus.FAILED, resultCallback);
           } else {
@@ -237,6 +368,8 @@ public class HiveSqlExec {
             return false;
           }
         } catch (Exception e) {
+          reusable = false;
+
           // TTransport 异常
           if (e.toString().contains("TTransportException")) {
             logger.error("Get TTransportException return a client", e);
@@ -265,6 +398,12 @@ public class HiveSqlExec {
         }
       }
     } finally {
+      // 取消注册, 会拉取剩余的日志
+      if (sta != null) {
+        hiveLogPoller.unregister(sta);
+        currentStatement = null;
+      }
+
       // 关闭连接
       try {
         if (sta != null) {
@@ -275,146 +414,148 @@ public class HiveSqlExec {
       }
 
       try {
-        // 返回连接
+        // 返回连接, 保留会话的初始化状态供下次使用, 不能复用的则销毁
         if (hiveConnection != null) {
-          // 关闭
-          hiveConnection.close();
-
-          // 返回连接, 这里不再返回
-          hiveService2Client.returnClient(hiveService2ConnectionInfo, hiveConnection);
+          if (reusable) {
+            hiveService2Client.returnClient(hiveService2ConnectionInfo, hiveConnection);
+          } else {
+            hiveService2Client.invalidateObject(hiveService2ConnectionInfo, hiveConnection);
+          }
         }
       } catch (Exception e) {
         logger.error("Catch an exception", e);
       }
-
-      // 关闭日志
-      try {
-        if (logThread != null) {
-          logThread.interrupt();
-          logThread.join(HiveUtil.DEFAULT_QUERY_PROGRESS_THREAD_TIMEOUT);
-        }
-      } catch (Exception e) {
-//        logger.error("Catch an exception", e);
-      }
     }
 
     return true;
   }
 
   /**
-   * 处理结果, 从 fromIndex 开始
+   * 计算 udf 集合的哈希值, jar 按内容计算, 这样不同执行引用的相同 jar 可以共用会话
    */
-  private void handlerResults(int fromIndex, List<String> sqls, FlowStatus status,
-      ResultCallback resultCallback) {
-    for (int i = fromIndex; i < sqls.size(); ++i) {
-      String sql = sqls.get(i);
-
-      handlerResult(i, sql, status, resultCallback);
+  private String udfsHash(List<String> createFuncs) {
+    if (CollectionUtils.isEmpty(createFuncs)) {
+      return null;
     }
-  }
 
-  /**
-   * 处理单条记录
-   */
-  private void handlerResult(int index, String sql, FlowStatus status,
-      ResultCallback resultCallback) {
-    Date now = new Date();
+    List<String> items = new ArrayList<>();
 
-    ExecResult execResult = new ExecResult();
+    for (String createFunc : createFuncs) {
+      Matcher matcher = ADD_JAR_PATTERN.matcher(createFunc);
 
-    execResult.setIndex(index);
-    execResult.setStm(sql);
-    execResult.setStatus(status);
+      if (matcher.matches()) {
+        String jarPath = matcher.group(1);
 
-    if (resultCallback != null) {
-      // 执行结果回调处理
-      resultCallback.handleResult(execResult, now, now);
+        // 共享存储中的路径已经按内容区分, 不需要再取校验和
+        if (UdfJarStore.isStorePath(jarPath)) {
+          items.add("jar:" + jarPath);
+          continue;
+        }
+
+        FileChecksum checksum = HdfsClient.getInstance().getFileChecksum(jarPath);
+
+        items.add("jar:" + ((checksum != null) ? checksum.toString() : jarPath));
+      } else {
+        items.add(createFunc);
+      }
     }
+
+    Collections.sort(items);
+
+    return HttpUtil.getMd5(String.join("\n", items));
   }
 
   /**
-   * 打印 jdbc 日志
+   * 流式的读取查询结果, 不需要结果时只消费不保存
+   *
+   * @param index 语句索引
+   * @param res 查询结果
+   * @param count 字段数
+   * @param execResult 执行结果
+   * @param keepResult 是否需要保存结果
    */
-  private class JdbcLogRunnable implements Runnable {
+  private void fetchResults(int index, ResultSet res, int count, ExecResult execResult,
+      boolean keepResult) throws SQLException, IOException {
+    if (!keepResult) {
+      long rows = 0;
 
-    private static final int DEFAULT_QUERY_PROGRESS_INTERVAL = 1000;
+      while (res.next()) {
+        ++rows;
+      }
+
+      execResult.setRowCount(rows);
+      return;
+    }
 
-    private HiveStatement hiveStatement;
-    private List<String> logs;
+    // 没有写入器时, 结果都保存在内存中
+    if (resultWriterFactory == null) {
+      List<List<String>> datas = new ArrayList<>();
 
-    public JdbcLogRunnable(Statement statement) {
-      if (statement instanceof HiveStatement) {
-        this.hiveStatement = (HiveStatement) statement;
+      while (res.next()) {
+        datas.add(fetchRow(res, count));
       }
 
-      this.logs = Collections.synchronizedList(new ArrayList<>());
+      execResult.setValues(datas);
+      execResult.setRowCount(datas.size());
+      return;
     }
 
-    @Override
-    public void run() {
-      if (hiveStatement == null) {
-        return;
+    try (AdHocResultWriter writer = resultWriterFactory.apply(index)) {
+      while (res.next()) {
+        writer.write(fetchRow(res, count));
       }
 
-      // 当前 flush 的时间
-      long preFlushTime = System.currentTimeMillis();
+      writer.close();
 
-      synchronized (this) { // 不能异步处理
-        while (true) {
-          try {
-            for (String log : hiveStatement.getQueryLog()) {
-              logs.add(log);
+      execResult.setValues(writer.getFirstPage());
+      execResult.setRowCount(writer.getRowCount());
+      execResult.setResultPath(writer.getResultDir());
+      execResult.setSegmentCount(writer.getSegmentCount());
+      execResult.setSegmentRows(writer.getSegmentRows());
+    }
+  }
 
-              long now = System.currentTimeMillis();
+  /**
+   * 读取当前行
+   */
+  private List<String> fetchRow(ResultSet res, int count) throws SQLException {
+    List<String> values = new ArrayList<>(count);
 
-              // 到一定日志量就输出处理
-              if (logs.size() >= Constants.defaultLogBufferSize
-                  || now - preFlushTime > Constants.defaultLogFlushInterval) {
-                preFlushTime = now;
+    for (int i = 1; i <= count; ++i) {
+      values.add(res.getString(i));
+    }
 
-                // 日志处理器
-                logHandler.accept(logs);
+    return values;
+  }
 
-                logs.clear();
-              }
-            }
+  /**
+   * 处理结果, 从 fromIndex 开始
+   */
+  private void handlerResults(int fromIndex, List<String> sqls, FlowStatus status,
+      ResultCallback resultCallback) {
+    for (int i = fromIndex; i < sqls.size(); ++i) {
+      String sql = sqls.get(i);
 
-            Thread.sleep(DEFAULT_QUERY_PROGRESS_INTERVAL);
-          } catch (SQLException e) {
-            return;
-          } catch (InterruptedException e) {
-//            logger.error(e.getMessage(), e);
-            return;
-          } catch (Exception e) {
-            logger.error(e.getMessage(), e);
-            return;
-          } finally {
-            // 处理剩余日志
-            showRemainingLogsIfAny();
-          }
-        }
-      }
+      handlerResult(i, sql, status, resultCallback);
     }
+  }
 
-    private void showRemainingLogsIfAny() {
-      List<String> logsTemp;
-      do {
-        try {
-          logsTemp = hiveStatement.getQueryLog();
-        } catch (Exception e) {
-          /*logger.error(e.getMessage(), e);*/
-          return;
-        }
+  /**
+   * 处理单条记录
+   */
+  private void handlerResult(int index, String sql, FlowStatus status,
+      ResultCallback resultCallback) {
+    Date now = new Date();
 
-        for (String log : logsTemp) {
-          logs.add(log);
+    ExecResult execResult = new ExecResult();
 
-          // 日志处理器
-          logHandler.accept(logs);
+    execResult.setIndex(index);
+    execResult.setStm(sql);
+    execResult.setStatus(status);
 
-          logs.clear();
-        }
-      } while (logsTemp.size() > 0);
+    if (resultCallback != null) {
+      // 执行结果回调处理
+      resultCallback.handleResult(execResult, now, now);
     }
   }
 }
@@ -36,8 +36,6 @@ public class HiveUtil extends BaseDao {
 
   private static Logger logger = LoggerFactory.getLogger(HiveUtil.class);
 
-  public static final int DEFAULT_QUERY_PROGRESS_THREAD_TIMEOUT = 10 * 1000;
-
   // 配置信息
   @Autowired
   HiveConfig hiveConfig;
@@ -178,6 +176,23 @@ public class HiveUtil extends BaseDao {
     return false;
   }
 
+  /**
+   * 是否是会改变会话状态的语句, 如 set/use/add jar/创建临时函数或临时表等 <p>
+   *
+   * 执行过这类语句的连接不能再复用
+   */
+  public static boolean isSessionStateStm(String sql) {
+    if (StringUtils.isEmpty(sql)) {
+      return false;
+    }
+
+    String tmp = sql.trim().toUpperCase();
+
+    return tmp.startsWith("SET") || tmp.startsWith("USE") || tmp.startsWith("ADD")
+        || tmp.startsWith("DELETE") || tmp.startsWith("RESET") || tmp.startsWith("RELOAD")
+        || tmp.matches("^(CREATE|DROP)\\s+TEMPORARY\\b[\\s\\S]*");
+  }
+
   public HiveService2Client getHiveService2Client() {
     return hiveService2Client;
   }
@@ -200,4 +215,23 @@ public class HiveUtil extends BaseDao {
 
     return hiveService2ConnectionInfo;
   }
+
+  /**
+   * 获取带会话初始化信息的连接信息, 相同 (用户, 队列, udf 集合) 的连接可以复用 <p>
+   *
+   * @param userName 用户
+   * @param queue 队列
+   * @param udfsHash udf 集合的哈希值
+   * @param setupSqls 初始化语句
+   */
+  public HiveService2ConnectionInfo getHiveService2ConnectionInfo(String userName, String queue,
+      String udfsHash, List<String> setupSqls) {
+    HiveService2ConnectionInfo hiveService2ConnectionInfo = getHiveService2ConnectionInfo(userName);
+
+    hiveService2ConnectionInfo.setQueue(queue);
+    hiveService2ConnectionInfo.setUdfsHash(udfsHash);
+    hiveService2ConnectionInfo.setSetupSqls(setupSqls);
+
+    return hiveService2ConnectionInfo;
+  }
 }
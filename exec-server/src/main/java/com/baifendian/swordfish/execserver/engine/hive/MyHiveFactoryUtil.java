@@ -54,6 +54,7 @@ public class MyHiveFactoryUtil {
   public static void buildHiveConfig(HiveConfig hiveConfig) {
     hiveConfig.setMetastoreUris(properties.getProperty("hive.metastore.uris"));
     hiveConfig.setThriftUris(properties.getProperty("hive.thrift.uris"));
+    hiveConfig.setMetaCacheTtl(Integer.parseInt(properties.getProperty("hive.meta.cache.ttl", "60")));
   }
 
   /**
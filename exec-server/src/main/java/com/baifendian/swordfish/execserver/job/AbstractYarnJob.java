@@ -22,10 +22,12 @@ import com.baifendian.swordfish.dao.StreamingDao;
 import com.baifendian.swordfish.dao.enums.FlowStatus;
 import com.baifendian.swordfish.dao.model.ExecutionNode;
 import com.baifendian.swordfish.dao.model.StreamingResult;
+import com.baifendian.swordfish.execserver.launcher.ProcessLauncher;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -82,24 +84,60 @@ public abstract class AbstractYarnJob extends Job {
   public void logProcess(List<String> logs) {
     super.logProcess(logs);
 
-    boolean captureAppLinks = false;
-    boolean captureJobLinks = false;
+    List<String> appIds = new ArrayList<>();
+    List<String> jobIds = new ArrayList<>();
 
     // 分析日志
     for (String log : logs) {
-      // app id 操作
       String appId = findAppId(log);
 
-      if (StringUtils.isNotEmpty(appId) && !appLinks.contains(appId)) {
+      if (StringUtils.isNotEmpty(appId)) {
+        appIds.add(appId);
+      }
+
+      String jobId = findJobId(log);
+
+      if (StringUtils.isNotEmpty(jobId)) {
+        jobIds.add(jobId);
+      }
+    }
+
+    jobIdsProcess(appIds, jobIds);
+  }
+
+  /**
+   * 处理已经解析过 id 的日志, 如 hive 的日志由 HiveLogPoller 统一解析, 这里只需要输出
+   *
+   * @param logs 待打印日志
+   */
+  public void parsedLogProcess(List<String> logs) {
+    super.logProcess(logs);
+
+    cancelApplicationIfNeed();
+  }
+
+  /**
+   * 处理 application id 和 job id
+   *
+   * @param appIds 应用 id
+   * @param jobIds job id
+   */
+  public void jobIdsProcess(List<String> appIds, List<String> jobIds) {
+    boolean captureAppLinks = false;
+    boolean captureJobLinks = false;
+
+    // app id 操作
+    for (String appId : appIds) {
+      if (!appLinks.contains(appId)) {
         logger.info("find app id: {}", appId);
         appLinks.add(appId);
         captureAppLinks = true;
       }
+    }
 
-      // job id 操作
-      String jobId = findJobId(log);
-
-      if (StringUtils.isNotEmpty(jobId) && !jobLinks.contains(jobId)) {
+    // job id 操作
+    for (String jobId : jobIds) {
+      if (!jobLinks.contains(jobId)) {
         logger.info("find job id: {}", jobId);
         jobLinks.add(jobId);
         captureJobLinks = true;
@@ -148,7 +186,13 @@ public abstract class AbstractYarnJob extends Job {
       }
     }
 
-    // 如果已经被取消, 感觉取消应用, 不然会比较危险
+    cancelApplicationIfNeed();
+  }
+
+  /**
+   * 如果已经被取消, 赶紧取消应用, 不然会比较危险
+   */
+  private void cancelApplicationIfNeed() {
     if (!isLongJob && isCancel() && !appLinks.isEmpty()) {
       try {
         cancelApplication(appLinks, props, logger);
@@ -238,6 +282,20 @@ public abstract class AbstractYarnJob extends Job {
         FileUtils.writeStringToFile(new File(commandFile), sb.toString(), Charset.forName("UTF-8"));
       }
 
+      // 启用了启动器时由代理用户的启动器运行
+      ProcessLauncher launcher = ProcessLauncher.getInstance();
+
+      if (launcher != null && StringUtils.isNotEmpty(props.getProxyUser())) {
+        try {
+          launcher.start(props.getProxyUser(), props.getWorkDir(), Arrays.asList("sh", commandFile));
+
+          logger.info("kill cmd by launcher: sh {}", commandFile);
+          return;
+        } catch (Exception e) {
+          logger.warn("kill application by launcher failed, fall back to sudo", e);
+        }
+      }
+
       // 以某账号运行
       String runCmd = "sh " + commandFile;
       if (StringUtils.isNotEmpty(props.getProxyUser())) {
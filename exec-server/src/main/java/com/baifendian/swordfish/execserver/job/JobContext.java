@@ -18,6 +18,8 @@ package com.baifendian.swordfish.execserver.job;
 import com.baifendian.swordfish.dao.model.ExecutionFlow;
 import com.baifendian.swordfish.dao.model.ExecutionNode;
 import com.baifendian.swordfish.dao.model.FlowNode;
+import com.baifendian.swordfish.execserver.common.NodeDeadline;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Semaphore;
 
 public class JobContext {
@@ -41,6 +43,16 @@ public class JobContext {
    */
   private Semaphore semaphore;
 
+  /**
+   * 节点需要的资源文件准备好, 可以为空
+   */
+  private CompletableFuture<Void> resourceFuture;
+
+  /**
+   * 节点的截止时间, 可以为空
+   */
+  private NodeDeadline deadline;
+
   public ExecutionFlow getExecutionFlow() {
     return executionFlow;
   }
@@ -72,4 +84,20 @@ public class JobContext {
   public void setSemaphore(Semaphore semaphore) {
     this.semaphore = semaphore;
   }
+
+  public CompletableFuture<Void> getResourceFuture() {
+    return resourceFuture;
+  }
+
+  public void setResourceFuture(CompletableFuture<Void> resourceFuture) {
+    this.resourceFuture = resourceFuture;
+  }
+
+  public NodeDeadline getDeadline() {
+    return deadline;
+  }
+
+  public void setDeadline(NodeDeadline deadline) {
+    this.deadline = deadline;
+  }
 }
@@ -16,7 +16,10 @@
 package com.baifendian.swordfish.execserver.job;
 
 import com.baifendian.swordfish.execserver.exception.ExecException;
+import com.baifendian.swordfish.execserver.common.ProcessSampler;
 import com.baifendian.swordfish.execserver.exception.ExecTimeoutException;
+import com.baifendian.swordfish.execserver.launcher.ProcessLauncher;
+import com.baifendian.swordfish.execserver.launcher.RemoteProcess;
 import com.baifendian.swordfish.execserver.utils.Constants;
 import com.baifendian.swordfish.execserver.utils.ProcessUtil;
 import java.io.BufferedReader;
@@ -28,6 +31,7 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -51,7 +55,7 @@ public class ProcessJob {
   /**
    * 具体的进程
    */
-  private Process process;
+  private volatile Process process;
 
   /**
    * 日志处理器
@@ -109,6 +113,11 @@ public class ProcessJob {
    */
   private final List<String> logs;
 
+  /**
+   * 是否已经取消, 在进程启动之前取消的, 启动后立即 kill
+   */
+  private volatile boolean cancelled;
+
   public ProcessJob(Consumer<List<String>> logHandler, BooleanSupplier isCompleted,
       boolean isLongJob, String workDir, String jobAppId, String proxyUser, String envFile,
       Date startTime, int timeout, Logger logger) {
@@ -197,10 +206,11 @@ public class ProcessJob {
 
       // 将 error 信息 merge 到标准输出流
       processBuilder.redirectErrorStream(true);
-      process = processBuilder.start();
+      process = startProcess(commandFile);
 
       // 打印进程的启动命令行
-      printCommand(processBuilder);
+      printCommand((process instanceof RemoteProcess) ? Arrays.asList("sh", commandFile)
+          : processBuilder.command());
 
       // 读取控制台输出
       readProcessOutput();
@@ -209,6 +219,18 @@ public class ProcessJob {
 
       logger.info("Process start, process id is: {}", pid);
 
+      // 统计进程树的资源使用
+      ProcessSampler sampler = ProcessSampler.getInstance();
+
+      if (sampler != null) {
+        sampler.attach(jobAppId, pid);
+      }
+
+      // 进程启动之前已经取消
+      if (cancelled) {
+        cancel();
+      }
+
       // 长任务是比较特殊的
       if (isLongJob) {
         // 如果没有完成, 会循环, 认为是没有提交
@@ -246,10 +268,31 @@ public class ProcessJob {
     return exitCode;
   }
 
+  /**
+   * 启用了启动器时由代理用户常驻的启动器运行, 省去每次 fork sudo 的开销, 否则通过 sudo 运行
+   *
+   * @param commandFile 命令文件
+   */
+  private Process startProcess(String commandFile) throws IOException, InterruptedException {
+    ProcessLauncher launcher = ProcessLauncher.getInstance();
+
+    if (launcher != null) {
+      try {
+        return launcher.start(proxyUser, workDir, Arrays.asList("sh", commandFile));
+      } catch (IOException e) {
+        logger.warn("Start process by launcher failed, fall back to sudo", e);
+      }
+    }
+
+    return processBuilder.start();
+  }
+
   /**
    * 取消一个具体的 shell 任务
    */
   public void cancel() throws Exception {
+    cancelled = true;
+
     if (process == null) {
       return;
     }
@@ -283,6 +326,14 @@ public class ProcessJob {
       throws InterruptedException {
     // 不是 0 号进程, 且进程存在
     if (processId != 0 && process.isAlive()) {
+      // 由启动器发送信号
+      if (process instanceof RemoteProcess) {
+        logger.info("softkill job:{}, process id:{} by launcher", jobAppId, processId);
+
+        process.destroy();
+        return process.isAlive();
+      }
+
       try {
         // 注意通过 sudo -u user command 运行的命令, 是不能直接通过 user 来 kill 的
         String cmd = String.format("sudo kill %d", processId);
@@ -306,6 +357,13 @@ public class ProcessJob {
   private void hardKill(int processId) {
     // 不是 0 号进程, 且进程存在
     if (processId != 0 && process.isAlive()) {
+      if (process instanceof RemoteProcess) {
+        logger.info("hardKill job:{}, process id:{} by launcher", jobAppId, processId);
+
+        process.destroyForcibly();
+        return;
+      }
+
       try {
         String cmd = String.format("sudo kill -9 %d", processId);
 
@@ -321,13 +379,13 @@ public class ProcessJob {
   /**
    * 打印命令
    *
-   * @param processBuilder 进程构建器
+   * @param command 命令
    */
-  private void printCommand(ProcessBuilder processBuilder) {
+  private void printCommand(List<String> command) {
     String cmdStr;
 
     try {
-      cmdStr = ProcessUtil.genCmdStr(processBuilder.command());
+      cmdStr = ProcessUtil.genCmdStr(command);
       logger.info("job run command:\n{}", cmdStr);
     } catch (IOException e) {
       logger.error(e.getMessage(), e);
@@ -341,6 +399,10 @@ public class ProcessJob {
    * @return 得到进程的 id
    */
   private int getProcessId(Process process) {
+    if (process instanceof RemoteProcess) {
+      return ((RemoteProcess) process).getPid();
+    }
+
     int processId = 0;
 
     try {
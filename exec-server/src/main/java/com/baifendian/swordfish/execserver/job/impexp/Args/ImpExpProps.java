@@ -18,6 +18,7 @@ package com.baifendian.swordfish.execserver.job.impexp.Args;
 import com.baifendian.swordfish.common.job.struct.node.impexp.ImpExpParam;
 import com.baifendian.swordfish.dao.DaoFactory;
 import com.baifendian.swordfish.dao.DatasourceDao;
+import com.baifendian.swordfish.execserver.job.impexp.ImpExpEngine;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
@@ -42,6 +43,11 @@ public class ImpExpProps {
    */
   private ImpExpParam impExpParam;
 
+  /**
+   * 执行引擎
+   */
+  private ImpExpEngine engine = ImpExpEngine.DATAX;
+
   public ImpExpProps(ImpExpParam impExpParam, Logger logger) {
     this.impExpParam = impExpParam;
     this.datasourceDao = DaoFactory.getDaoInstance(DatasourceDao.class);
@@ -95,4 +101,12 @@ public class ImpExpProps {
   public void setImpExpParam(ImpExpParam impExpParam) {
     this.impExpParam = impExpParam;
   }
+
+  public ImpExpEngine getEngine() {
+    return engine;
+  }
+
+  public void setEngine(ImpExpEngine engine) {
+    this.engine = engine;
+  }
 }
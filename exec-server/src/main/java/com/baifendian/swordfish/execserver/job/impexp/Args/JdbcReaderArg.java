@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.job.impexp.Args;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import java.util.List;
+
+/**
+ * jdbc 类数据源的读参数, 进程内传输时也使用
+ */
+public interface JdbcReaderArg extends ReaderArg {
+
+  String getUsername();
+
+  String getPassword();
+
+  List<String> getColumn();
+
+  String getWhere();
+
+  /**
+   * 连接信息, 第一个元素中有 jdbcUrl, table 或 querySql
+   */
+  ArrayNode getConnection();
+}
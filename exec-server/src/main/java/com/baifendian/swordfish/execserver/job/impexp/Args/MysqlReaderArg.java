@@ -29,7 +29,7 @@ import org.json.JSONException;
  * DataX 中 mysqlReader 的配置
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
-public class MysqlReaderArg implements ReaderArg {
+public class MysqlReaderArg implements JdbcReaderArg {
 
   private String username;
   private String password;
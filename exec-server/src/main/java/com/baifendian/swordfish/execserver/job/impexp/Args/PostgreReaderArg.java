@@ -25,7 +25,7 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
-public class PostgreReaderArg implements ReaderArg {
+public class PostgreReaderArg implements JdbcReaderArg {
 
   private String username;
   private String password;
@@ -5,29 +5,44 @@ import static com.baifendian.swordfish.execserver.job.impexp.ImpExpJobConst.DATA
 import static com.baifendian.swordfish.execserver.job.impexp.ImpExpJobConst.DATAX_JSON;
 
 import com.baifendian.swordfish.common.job.struct.node.BaseParam;
+import com.baifendian.swordfish.common.job.struct.node.impexp.reader.MysqlReader;
+import com.baifendian.swordfish.common.job.struct.node.impexp.reader.PostgreReader;
+import com.baifendian.swordfish.common.job.struct.node.impexp.reader.Reader;
 import com.baifendian.swordfish.common.job.struct.node.impexp.setting.Setting;
 import com.baifendian.swordfish.dao.utils.json.JsonUtil;
 import com.baifendian.swordfish.execserver.job.AbstractYarnProcessJob;
 import com.baifendian.swordfish.execserver.job.JobProps;
+import com.baifendian.swordfish.execserver.job.impexp.Args.HdfsWriterArg;
 import com.baifendian.swordfish.execserver.job.impexp.Args.ImpExpProps;
+import com.baifendian.swordfish.execserver.job.impexp.Args.JdbcReaderArg;
 import com.baifendian.swordfish.execserver.job.impexp.Args.ReaderArg;
 import com.baifendian.swordfish.execserver.job.impexp.Args.WriterArg;
+import com.baifendian.swordfish.execserver.job.impexp.transfer.JdbcTransfer;
 import com.baifendian.swordfish.execserver.parameter.ParamHelper;
+import com.baifendian.swordfish.execserver.utils.Constants;
+import com.fasterxml.jackson.databind.JsonNode;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 
 /**
- * DataX 类型任务
+ * DataX 类型任务, 选择 native 引擎时在进程内传输, 不启动 DataX
  */
 public abstract class DataXJob extends AbstractYarnProcessJob {
 
   protected ImpExpProps impExpProps;
 
+  /**
+   * 进程内传输, 使用 native 引擎时才有
+   */
+  private volatile JdbcTransfer transfer;
+
   public DataXJob(JobProps props, boolean isLongJob, Logger logger, ImpExpProps impExpProps) {
     super(props, isLongJob, logger);
     this.impExpProps = impExpProps;
@@ -108,6 +123,119 @@ public abstract class DataXJob extends AbstractYarnProcessJob {
   }
 
 
+  @Override
+  public void process() throws Exception {
+    if (impExpProps.getEngine() != ImpExpEngine.NATIVE) {
+      super.process();
+      return;
+    }
+
+    try {
+      exitCode = (nativeTransfer() >= 0) ? 0 : -1;
+    } catch (Exception e) {
+      logger.error("Native transfer exception", e);
+      exitCode = -1;
+    }
+  }
+
+  @Override
+  public void cancel(boolean cancelApplication) throws Exception {
+    JdbcTransfer jdbcTransfer = transfer;
+
+    if (jdbcTransfer != null) {
+      jdbcTransfer.cancel();
+    }
+
+    super.cancel(cancelApplication);
+  }
+
+  /**
+   * 进程内传输, 读写参数和 DataX 相同
+   *
+   * @return 传输的行数
+   */
+  private long nativeTransfer() throws Exception {
+    logger.info("Start native transfer...");
+
+    ReaderArg readerArg = getDataXReaderArg();
+    WriterArg writerArg = getDateXWriterArg();
+
+    if (!(readerArg instanceof JdbcReaderArg) || !(writerArg instanceof HdfsWriterArg)) {
+      throw new IllegalArgumentException(MessageFormat
+          .format("Native transfer not support {0} to {1}", readerArg.dataxName(),
+              writerArg.dataxName()));
+    }
+
+    JdbcReaderArg jdbcReaderArg = (JdbcReaderArg) readerArg;
+    HdfsWriterArg hdfsWriterArg = (HdfsWriterArg) writerArg;
+    JsonNode connection = jdbcReaderArg.getConnection().get(0);
+
+    JdbcTransfer jdbcTransfer = new JdbcTransfer(connection.get("jdbcUrl").get(0).asText(),
+        jdbcReaderArg.getUsername(), jdbcReaderArg.getPassword(), logger);
+
+    // 同 DataX 的 json, 替换其中的变量
+    List<String> tables = new ArrayList<>();
+
+    if (connection.has("table")) {
+      for (JsonNode table : connection.get("table")) {
+        tables.add(resolve(table.asText()));
+      }
+    }
+
+    jdbcTransfer.setTables(tables);
+    jdbcTransfer.setColumns(jdbcReaderArg.getColumn());
+    jdbcTransfer.setWhere(resolve(jdbcReaderArg.getWhere()));
+    jdbcTransfer.setQuerySql(
+        connection.has("querySql") ? resolve(connection.get("querySql").asText()) : null);
+    jdbcTransfer.setSplitPk(getSplitPk());
+    jdbcTransfer.setFetchSize(impExpProps.getWorkConf()
+        .getInt(Constants.EXECUTOR_IMPEXP_FETCH_SIZE, Constants.defaultImpExpFetchSize));
+
+    Setting setting = impExpProps.getImpExpParam().getSetting();
+
+    if (setting != null && setting.getSpeed() != null) {
+      jdbcTransfer.setChannel(setting.getSpeed().getChannel());
+    }
+
+    hdfsWriterArg.setPath(resolve(hdfsWriterArg.getPath()));
+    hdfsWriterArg.setFileName(resolve(hdfsWriterArg.getFileName()));
+
+    transfer = jdbcTransfer;
+
+    if (cancel) {
+      return -1;
+    }
+
+    long start = System.currentTimeMillis();
+    long rows = jdbcTransfer.transfer(hdfsWriterArg);
+
+    logger.info("Finish native transfer, rows: {}, cost: {} ms", rows,
+        System.currentTimeMillis() - start);
+
+    return rows;
+  }
+
+  /**
+   * 切分字段, 没有指定时按主键切分
+   */
+  private String getSplitPk() {
+    Reader reader = impExpProps.getImpExpParam().getReader();
+
+    if (reader instanceof MysqlReader) {
+      return ((MysqlReader) reader).getSplitPk();
+    }
+
+    if (reader instanceof PostgreReader) {
+      return ((PostgreReader) reader).getSplitPk();
+    }
+
+    return null;
+  }
+
+  private String resolve(String text) {
+    return (text == null) ? null : ParamHelper.resolvePlaceholders(text, props.getDefinedParams());
+  }
+
   @Override
   public BaseParam getParam() {
     return impExpProps.getImpExpParam();
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.job.impexp;
+
+import com.baifendian.swordfish.common.enums.FileColumnType;
+import com.baifendian.swordfish.common.enums.HiveColumnType;
+import com.baifendian.swordfish.common.job.struct.node.impexp.column.FileColumn;
+import com.baifendian.swordfish.common.job.struct.node.impexp.column.HiveColumn;
+import com.baifendian.swordfish.common.job.struct.node.impexp.reader.FileReader;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 把文件中的一行转换为目标表的一行 <p>
+ *
+ * 结果和 "文本临时表 + insert select" 一致: 分隔符取第一个字节, \N 为 null, 缺少的字段为 null, 日期按格式解析到秒, 其它字段按 hive 的隐式转换.
+ * 非线程安全.
+ */
+class FileRowConverter {
+
+  /**
+   * 文本临时表默认的 null
+   */
+  private static final String NULL_FORMAT = "\\N";
+
+  private final char delimiter;
+
+  /**
+   * 目标字段对应的源字段下标, -1 表示没有对应的源字段
+   */
+  private final int[] srcIndexes;
+
+  /**
+   * 源字段是否为 boolean
+   */
+  private final boolean[] srcBooleans;
+
+  /**
+   * 源字段为日期时的解析格式
+   */
+  private final SimpleDateFormat[] dateFormats;
+
+  private final HiveColumnType[] destTypes;
+
+  private FileRowConverter(char delimiter, int[] srcIndexes, boolean[] srcBooleans,
+      SimpleDateFormat[] dateFormats, HiveColumnType[] destTypes) {
+    this.delimiter = delimiter;
+    this.srcIndexes = srcIndexes;
+    this.srcBooleans = srcBooleans;
+    this.dateFormats = dateFormats;
+    this.destTypes = destTypes;
+  }
+
+  /**
+   * @param fileReader 文件读取配置
+   * @param columnRel 目标字段名到文件字段的映射
+   * @param destColumns 目标表的字段
+   * @return 无法逐行转换时 (如目标字段是表达式) 返回 null
+   */
+  static FileRowConverter create(FileReader fileReader, Map<String, FileColumn> columnRel,
+      List<HiveColumn> destColumns) {
+    String delimiter = fileReader.getFieldDelimiter();
+
+    if (StringUtils.isEmpty(delimiter) || delimiter.charAt(0) > 127
+        || StringUtils.isNumeric(delimiter)) {
+      return null;
+    }
+
+    List<FileColumn> srcColumns = fileReader.getSrcColumn();
+
+    int[] srcIndexes = new int[destColumns.size()];
+    boolean[] srcBooleans = new boolean[destColumns.size()];
+    SimpleDateFormat[] dateFormats = new SimpleDateFormat[destColumns.size()];
+    HiveColumnType[] destTypes = new HiveColumnType[destColumns.size()];
+
+    for (int i = 0; i < destColumns.size(); ++i) {
+      HiveColumn destColumn = destColumns.get(i);
+      FileColumn target = columnRel.get(ImpExpUtil.exceptBackQuota(destColumn.getName()));
+
+      destTypes[i] = destColumn.getType();
+      srcIndexes[i] = (target == null) ? -1 : indexOf(srcColumns, target.getName());
+
+      if (target == null) {
+        continue;
+      }
+
+      // 只支持直接引用源字段
+      if (srcIndexes[i] < 0) {
+        return null;
+      }
+
+      srcBooleans[i] = srcColumns.get(srcIndexes[i]).getType() == FileColumnType.BOOLEAN;
+
+      if (target.getType() == FileColumnType.DATE || target.getType() == FileColumnType.TIMESTAMP) {
+        if (destTypes[i] != HiveColumnType.DATE && destTypes[i] != HiveColumnType.TIMESTAMP) {
+          return null;
+        }
+
+        dateFormats[i] = new SimpleDateFormat(target.getDateFormat());
+      }
+    }
+
+    return new FileRowConverter(delimiter.charAt(0), srcIndexes, srcBooleans, dateFormats,
+        destTypes);
+  }
+
+  private static int indexOf(List<FileColumn> srcColumns, String name) {
+    for (int i = 0; i < srcColumns.size(); ++i) {
+      if (ImpExpUtil.equalIgnoreCaseWithoutBackQuota(srcColumns.get(i).getName(), name)) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * 转换一行
+   */
+  Object[] convert(String line) {
+    String[] fields = StringUtils.splitPreserveAllTokens(line, delimiter);
+    Object[] values = new Object[destTypes.length];
+
+    for (int i = 0; i < destTypes.length; ++i) {
+      int index = srcIndexes[i];
+
+      if (index < 0 || index >= fields.length || NULL_FORMAT.equals(fields[index])) {
+        continue;
+      }
+
+      String field = fields[index];
+
+      if (dateFormats[i] != null) {
+        values[i] = parseDate(field, dateFormats[i], destTypes[i]);
+      } else if (srcBooleans[i]) {
+        values[i] = HiveStaging.cast(parseBoolean(field), destTypes[i]);
+      } else {
+        values[i] = HiveStaging.cast(field, destTypes[i]);
+      }
+    }
+
+    return values;
+  }
+
+  /**
+   * 和 unix_timestamp(col, format) 一致, 精确到秒, 解析失败为 null
+   */
+  private static Object parseDate(String field, SimpleDateFormat format, HiveColumnType type) {
+    try {
+      long seconds = Math.floorDiv(format.parse(field).getTime(), 1000);
+
+      return HiveStaging.cast(new Timestamp(seconds * 1000), type);
+    } catch (ParseException e) {
+      return null;
+    }
+  }
+
+  private static Boolean parseBoolean(String field) {
+    if ("true".equalsIgnoreCase(field)) {
+      return true;
+    }
+
+    return "false".equalsIgnoreCase(field) ? false : null;
+  }
+}
@@ -11,6 +11,7 @@ import com.baifendian.swordfish.common.job.struct.node.impexp.column.FileColumn;
 import com.baifendian.swordfish.common.job.struct.node.impexp.column.HiveColumn;
 import com.baifendian.swordfish.common.job.struct.node.impexp.reader.FileReader;
 import com.baifendian.swordfish.common.job.struct.node.impexp.writer.HiveWriter;
+import com.baifendian.swordfish.execserver.engine.hive.HiveMetaCache.TableSchema;
 import com.baifendian.swordfish.execserver.engine.hive.HiveMetaExec;
 import com.baifendian.swordfish.execserver.engine.hive.HiveSqlExec;
 import com.baifendian.swordfish.execserver.engine.hive.HiveUtil;
@@ -18,19 +19,25 @@ import com.baifendian.swordfish.execserver.job.AbstractYarnJob;
 import com.baifendian.swordfish.execserver.job.JobProps;
 import com.baifendian.swordfish.execserver.job.impexp.Args.HqlColumn;
 import com.baifendian.swordfish.execserver.job.impexp.Args.ImpExpProps;
+import com.baifendian.swordfish.execserver.job.impexp.transfer.HdfsRecordWriter;
 import com.baifendian.swordfish.execserver.parameter.ParamHelper;
+import com.baifendian.swordfish.execserver.utils.Constants;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.InputStreamReader;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
@@ -52,6 +59,11 @@ public class FileToHiveJob extends AbstractYarnJob {
 
   private HiveMetaExec hiveMetaExec;
 
+  /**
+   * 目标表的结构, 只获取一次, 各个字段视图都由它得到
+   */
+  private TableSchema destSchema;
+
   /**
    * swordfish reader 配置
    */
@@ -72,6 +84,11 @@ public class FileToHiveJob extends AbstractYarnJob {
    */
   private List<HqlColumn> destHiveColumns;
 
+  /**
+   * 正在执行的 hive 语句, 取消时使用
+   */
+  private volatile HiveSqlExec hiveSqlExec;
+
   /**
    * @param props 作业配置信息, 各类作业根据此配置信息生成具体的作业
    * @param logger 日志
@@ -118,7 +135,8 @@ public class FileToHiveJob extends AbstractYarnJob {
       hiveMetaExec = new HiveMetaExec(logger);
 
       // 获取源 HQL 字段
-      destHiveColumns = hiveMetaExec.getHiveDesc(hiveWriter.getDatabase(), hiveWriter.getTable());
+      destSchema = hiveMetaExec.getTableSchema(hiveWriter.getDatabase(), hiveWriter.getTable());
+      destHiveColumns = destSchema.getHqlColumns();
 
       // 获取源字段
       srcHiveColumns = hiveMetaExec.checkHiveColumn(hiveWriter.getColumn(), destHiveColumns);
@@ -177,6 +195,11 @@ public class FileToHiveJob extends AbstractYarnJob {
         logger.info("Finish upload file to temp hdfs dir!");
       }
 
+      // 目标表满足条件时直接按表的格式写, 不再经过临时表
+      if (writeDirect(hdfsPath)) {
+        return;
+      }
+
       // 1.创建临时表
       logger.info("First, create temp table...");
 
@@ -198,10 +221,17 @@ public class FileToHiveJob extends AbstractYarnJob {
 
       logger.info("Start exec sql to hive...");
       execSqls = Arrays.asList(ddl, "SET hive.exec.dynamic.partition.mode=nonstrict", sql);
-      HiveSqlExec hiveSqlExec = new HiveSqlExec(this::logProcess, props.getProxyUser(), logger, props.getQueue());
+      hiveSqlExec = new HiveSqlExec(this::logProcess, props.getProxyUser(), logger, props.getQueue());
+
+      if (cancel) {
+        hiveSqlExec.cancel();
+      }
 
       exitCode = (hiveSqlExec.execute(null, execSqls, false, null, null, getRemainTime())) ? 0 : -1;
 
+      // 临时表已经重建
+      hiveMetaExec.invalidate(DEFAULT_DB, srcTable);
+
       logger.info("Finish exec sql!");
     } catch (Exception e) {
       logger.error(String.format("hql process exception, sql: %s", String.join(";", execSqls)), e);
@@ -211,6 +241,100 @@ public class FileToHiveJob extends AbstractYarnJob {
 
   @Override
   public void cancel(boolean cancelApplication) throws Exception {
+    cancel = true;
+
+    HiveSqlExec exec = hiveSqlExec;
+
+    if (exec != null) {
+      exec.cancel();
+    }
+  }
+
+  /**
+   * 逐行读取源文件, 转换为目标表的格式写到暂存目录, 再提交到表的目录, 读取时被取消则不提交
+   *
+   * @param hdfsPath 源文件目录
+   * @return 目标表不能直写时返回 false, 否则已经设置了 exitCode
+   */
+  private boolean writeDirect(String hdfsPath) throws Exception {
+    if (!workConf.getBoolean(Constants.EXECUTOR_IMPEXP_HIVE_DIRECT,
+        Constants.defaultImpExpHiveDirect)) {
+      return false;
+    }
+
+    HiveStaging staging = HiveStaging.create(hiveMetaExec, hiveWriter.getDatabase(),
+        hiveWriter.getTable(), destSchema, logger);
+
+    if (staging == null) {
+      return false;
+    }
+
+    FileRowConverter converter = FileRowConverter.create(fileReader,
+        getFileHiveColumnRel(fileReader.getTargetColumn(), hiveWriter.getColumn()),
+        staging.getColumns());
+
+    if (converter == null) {
+      logger.info("Target columns can't be converted row by row, can't be written directly");
+      return false;
+    }
+
+    HdfsClient hdfsClient = HdfsClient.getInstance();
+
+    // 以 _ 开头, 不会被当作源文件
+    String stagingDir = MessageFormat.format("{0}/_staging", BaseConfig
+        .getHdfsImpExpDir(props.getProjectId(), props.getExecId(), props.getNodeName()));
+    String file = MessageFormat.format("{0}/{1}__{2}", stagingDir, props.getNodeName(),
+        UUID.randomUUID().toString());
+
+    logger.info("Start write file directly: {}", file);
+
+    try {
+      hdfsClient.delete(stagingDir, true);
+
+      try (HdfsRecordWriter writer = HdfsRecordWriter.create(staging.getFileType(), file,
+          staging.getColumns(), staging.getFieldDelimiter())) {
+        for (FileStatus status : hdfsClient.listFileStatus(hdfsPath)) {
+          String name = status.getPath().getName();
+
+          if (cancel) {
+            break;
+          }
+
+          if (status.isDirectory() || name.startsWith("_") || name.startsWith(".")) {
+            continue;
+          }
+
+          try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+              hdfsClient.open(status.getPath().toString()), fileReader.getFileCode()))) {
+            String line;
+
+            while (!cancel && (line = reader.readLine()) != null) {
+              writer.write(converter.convert(line));
+            }
+          }
+        }
+
+        logger.info("Finish write {} rows", writer.getRows());
+      }
+
+      if (cancel) {
+        logger.info("Job is cancelled, staged files are not committed");
+        exitCode = -1;
+        return true;
+      }
+
+      staging.commit(stagingDir, hiveWriter.getWriteMode());
+      exitCode = 0;
+    } finally {
+      // 提交之后只剩清理, 失败不影响结果
+      try {
+        hdfsClient.delete(stagingDir, true);
+      } catch (Exception e) {
+        logger.warn("Delete staging dir {} failed", stagingDir, e);
+      }
+    }
+
+    return true;
   }
 
   /**
@@ -264,7 +388,7 @@ public class FileToHiveJob extends AbstractYarnJob {
 
     // 所有的分区都是必传字段先整理出分区字段
 
-    List<FieldSchema> partFieldList = hiveMetaExec.getPartionField(destDbName, destTable);
+    List<FieldSchema> partFieldList = destSchema.getPartitionKeys();
 
     if (CollectionUtils.isNotEmpty(partFieldList)) {
       List<String> partNameList = new ArrayList<>();
@@ -0,0 +1,404 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.job.impexp;
+
+import com.baifendian.swordfish.common.enums.HiveColumnType;
+import com.baifendian.swordfish.common.enums.WriteHdfsType;
+import com.baifendian.swordfish.common.enums.WriteMode;
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
+import com.baifendian.swordfish.common.job.struct.node.impexp.column.HiveColumn;
+import com.baifendian.swordfish.execserver.engine.hive.HiveMetaCache.TableSchema;
+import com.baifendian.swordfish.execserver.engine.hive.HiveMetaExec;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.SerDeInfo;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.slf4j.Logger;
+
+/**
+ * 导入 hive 的直写方式 <p>
+ *
+ * 目标表不分区, 不分桶, 存储格式为 orc 或 null 写为空串的文本时, 数据直接按目标表的格式写到暂存目录, 完成后改名到表的目录下, 不再经过临时表和 insert 语句.
+ * 暂存目录和表目录需要在同一个文件系统上, 改名只修改元数据.
+ */
+public class HiveStaging {
+
+  private static final String ORC_INPUT_FORMAT = "org.apache.hadoop.hive.ql.io.orc.OrcInputFormat";
+
+  private static final String TEXT_INPUT_FORMAT = "org.apache.hadoop.mapred.TextInputFormat";
+
+  private static final String LAZY_SIMPLE_SERDE = "org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe";
+
+  private static final String DEFAULT_FIELD_DELIMITER = "\u0001";
+
+  /**
+   * 和 hive 一致, 以 _ 或 . 开头的文件是隐藏文件
+   */
+  private static final PathFilter VISIBLE_FILTER = path -> !path.getName().startsWith("_")
+      && !path.getName().startsWith(".");
+
+  private final HiveMetaExec hiveMetaExec;
+
+  private final String dbName;
+
+  private final String tableName;
+
+  private final Logger logger;
+
+  /**
+   * 表的目录
+   */
+  private final Path location;
+
+  private final WriteHdfsType fileType;
+
+  private final String fieldDelimiter;
+
+  /**
+   * 表的字段, 顺序和文件中一致
+   */
+  private final List<HiveColumn> columns;
+
+  private HiveStaging(HiveMetaExec hiveMetaExec, String dbName, String tableName, Logger logger,
+      Path location, WriteHdfsType fileType, String fieldDelimiter, List<HiveColumn> columns) {
+    this.hiveMetaExec = hiveMetaExec;
+    this.dbName = dbName;
+    this.tableName = tableName;
+    this.logger = logger;
+    this.location = location;
+    this.fileType = fileType;
+    this.fieldDelimiter = fieldDelimiter;
+    this.columns = Collections.unmodifiableList(columns);
+  }
+
+  /**
+   * 检查目标表能否直写
+   *
+   * @return 不能直写时返回 null
+   */
+  public static HiveStaging create(HiveMetaExec hiveMetaExec, String dbName, String tableName,
+      TableSchema schema, Logger logger) {
+    String reason = check(schema);
+
+    if (reason != null) {
+      logger.info("Table {}.{} can't be written directly, {}", dbName, tableName, reason);
+      return null;
+    }
+
+    StorageDescriptor storage = schema.getStorage();
+    boolean orc = ORC_INPUT_FORMAT.equals(storage.getInputFormat());
+
+    List<HiveColumn> columns = new ArrayList<>();
+
+    for (FieldSchema field : schema.getFields()) {
+      HiveColumn column = new HiveColumn();
+
+      column.setName(field.getName());
+      column.setType(parseType(field.getType()));
+
+      columns.add(column);
+    }
+
+    return new HiveStaging(hiveMetaExec, dbName, tableName, logger,
+        new Path(storage.getLocation()), orc ? WriteHdfsType.ORC : WriteHdfsType.TEXT,
+        orc ? DEFAULT_FIELD_DELIMITER : fieldDelimiter(storage.getSerdeInfo().getParameters()),
+        columns);
+  }
+
+  /**
+   * @return 不能直写的原因, 可以直写时返回 null
+   */
+  private static String check(TableSchema schema) {
+    StorageDescriptor storage = schema.getStorage();
+
+    if (storage == null || StringUtils.isEmpty(storage.getLocation())) {
+      return "no location";
+    }
+
+    if (CollectionUtils.isNotEmpty(schema.getPartitionKeys())) {
+      return "table is partitioned";
+    }
+
+    if (storage.getNumBuckets() > 0 || CollectionUtils.isNotEmpty(storage.getBucketCols())) {
+      return "table is bucketed";
+    }
+
+    try {
+      HdfsClient.getInstance().getFileSystem().makeQualified(new Path(storage.getLocation()));
+    } catch (IllegalArgumentException e) {
+      return "location is on another file system";
+    }
+
+    boolean orc = ORC_INPUT_FORMAT.equals(storage.getInputFormat());
+
+    if (!orc && !isPlainText(storage)) {
+      return "unsupported storage format " + storage.getInputFormat();
+    }
+
+    for (FieldSchema field : schema.getFields()) {
+      HiveColumnType type = parseType(field.getType());
+
+      // orc 文件中 varchar/char 只能写为 string, 和表定义不一致
+      if (type == null || (orc && (type == HiveColumnType.VARCHAR
+          || type == HiveColumnType.CHAR))) {
+        return "unsupported column type " + field.getType();
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * 文本表, 没有转义, 以 utf-8 编码, 并且 null 写为空串
+   */
+  private static boolean isPlainText(StorageDescriptor storage) {
+    SerDeInfo serDeInfo = storage.getSerdeInfo();
+
+    if (!TEXT_INPUT_FORMAT.equals(storage.getInputFormat()) || serDeInfo == null
+        || !LAZY_SIMPLE_SERDE.equals(serDeInfo.getSerializationLib())) {
+      return false;
+    }
+
+    Map<String, String> params = serDeInfo.getParameters();
+
+    if (params == null) {
+      return false;
+    }
+
+    String encoding = params.get("serialization.encoding");
+
+    return "".equals(params.get("serialization.null.format"))
+        && !params.containsKey("escape.delim")
+        && (encoding == null || "UTF-8".equalsIgnoreCase(encoding));
+  }
+
+  /**
+   * 文本表的分隔符, 和 LazySimpleSerDe 一致, 数字表示字节值
+   */
+  private static String fieldDelimiter(Map<String, String> params) {
+    String delimiter = params.get("field.delim");
+
+    if (StringUtils.isEmpty(delimiter)) {
+      delimiter = params.get("serialization.format");
+    }
+
+    if (StringUtils.isEmpty(delimiter)) {
+      return DEFAULT_FIELD_DELIMITER;
+    }
+
+    try {
+      return String.valueOf((char) Byte.parseByte(delimiter));
+    } catch (NumberFormatException e) {
+      return delimiter.substring(0, 1);
+    }
+  }
+
+  /**
+   * hive 字段类型, 如 int, varchar(32), 不支持的类型返回 null
+   */
+  static HiveColumnType parseType(String type) {
+    String name = StringUtils.substringBefore(type, "(").trim().toUpperCase();
+
+    try {
+      return HiveColumnType.valueOf(name);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * 写入的字段和表的字段是否完全一致, 包括顺序
+   */
+  public boolean matches(List<HiveColumn> writerColumns) {
+    if (writerColumns == null || writerColumns.size() != columns.size()) {
+      return false;
+    }
+
+    for (int i = 0; i < columns.size(); ++i) {
+      if (!ImpExpUtil.equalIgnoreCaseWithoutBackQuota(writerColumns.get(i).getName(),
+          columns.get(i).getName())) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  public WriteHdfsType getFileType() {
+    return fileType;
+  }
+
+  public String getFieldDelimiter() {
+    return fieldDelimiter;
+  }
+
+  public List<HiveColumn> getColumns() {
+    return columns;
+  }
+
+  /**
+   * 把暂存目录下的文件改名到表的目录, 覆盖写时先把原有文件移到暂存目录, 任何一步失败都会恢复原来的文件 <p>
+   *
+   * 统计信息在改名之前标记为不准确, 文件提交之后不再有会失败的步骤, 否则追加写重试时数据会重复.
+   *
+   * @param stagingDir 暂存目录, 需要和表的目录在同一个文件系统上
+   * @param writeMode 写入模式
+   * @return 提交的文件数
+   */
+  public int commit(String stagingDir, WriteMode writeMode) throws Exception {
+    hiveMetaExec.resetTableStats(dbName, tableName);
+
+    return commitFiles(stagingDir, writeMode);
+  }
+
+  /**
+   * 只移动文件, 不修改元数据
+   */
+  int commitFiles(String stagingDir, WriteMode writeMode) throws IOException {
+    FileSystem fs = HdfsClient.getInstance().getFileSystem();
+
+    Path replacedDir = new Path(stagingDir, "_replaced");
+    List<Path> replaced = new ArrayList<>();
+    List<Path> committed = new ArrayList<>();
+
+    try {
+      if (!fs.exists(location)) {
+        fs.mkdirs(location);
+      } else if (writeMode == WriteMode.OVERWRITE) {
+        fs.mkdirs(replacedDir);
+
+        for (FileStatus status : fs.listStatus(location, VISIBLE_FILTER)) {
+          rename(fs, status.getPath(), new Path(replacedDir, status.getPath().getName()));
+          replaced.add(status.getPath());
+        }
+      }
+
+      for (FileStatus status : fs.listStatus(new Path(stagingDir), VISIBLE_FILTER)) {
+        if (status.isDirectory()) {
+          continue;
+        }
+
+        Path dest = new Path(location, status.getPath().getName());
+
+        rename(fs, status.getPath(), dest);
+        committed.add(dest);
+      }
+    } catch (IOException e) {
+      logger.error("Commit staged files to {} failed, roll back", location, e);
+
+      for (Path path : committed) {
+        fs.delete(path, false);
+      }
+
+      for (Path path : replaced) {
+        fs.rename(new Path(replacedDir, path.getName()), path);
+      }
+
+      throw e;
+    }
+
+    fs.delete(replacedDir, true);
+
+    logger.info("Commit {} files to {}, replaced {} files", committed.size(), location,
+        replaced.size());
+
+    return committed.size();
+  }
+
+  private static void rename(FileSystem fs, Path src, Path dest) throws IOException {
+    if (!fs.rename(src, dest)) {
+      throw new IOException(String.format("Rename %s to %s failed", src, dest));
+    }
+  }
+
+  /**
+   * 按 hive 的隐式转换把值转换为字段类型, 无法转换时为 null
+   */
+  public static Object cast(Object value, HiveColumnType type) {
+    if (value == null) {
+      return null;
+    }
+
+    try {
+      switch (type) {
+        case TINYINT:
+        case SMALLINT:
+        case INT:
+        case BIGINT:
+          return integral(value, type);
+        case FLOAT:
+          return (value instanceof Boolean) ? ((Boolean) value ? 1f : 0f)
+              : Float.valueOf(value.toString());
+        case DOUBLE:
+          return (value instanceof Boolean) ? ((Boolean) value ? 1d : 0d)
+              : Double.valueOf(value.toString());
+        case BOOLEAN:
+          // 和 hive 一致, 非空字符串为 true
+          return (value instanceof Boolean) ? value : !value.toString().isEmpty();
+        case DATE:
+          if (value instanceof java.util.Date) {
+            return Date.valueOf(new Timestamp(((java.util.Date) value).getTime())
+                .toLocalDateTime().toLocalDate());
+          }
+
+          return Date.valueOf(value.toString().trim());
+        case TIMESTAMP:
+          if (value instanceof java.util.Date) {
+            return new Timestamp(((java.util.Date) value).getTime());
+          }
+
+          return Timestamp.valueOf(value.toString().trim());
+        default:
+          // 和 hive 一致, boolean 转为大写的字符串
+          return (value instanceof Boolean) ? value.toString().toUpperCase() : value.toString();
+      }
+    } catch (IllegalArgumentException | ArithmeticException e) {
+      return null;
+    }
+  }
+
+  /**
+   * 整数类型, 小数部分截断, 超出范围时为 null
+   */
+  private static Object integral(Object value, HiveColumnType type) {
+    long v = (value instanceof Boolean) ? ((Boolean) value ? 1 : 0)
+        : new BigDecimal(value.toString()).toBigInteger().longValueExact();
+
+    switch (type) {
+      case TINYINT:
+        return (v == (byte) v) ? (Object) (byte) v : null;
+      case SMALLINT:
+        return (v == (short) v) ? (Object) (short) v : null;
+      case INT:
+        return (v == (int) v) ? (Object) (int) v : null;
+      default:
+        return v;
+    }
+  }
+}
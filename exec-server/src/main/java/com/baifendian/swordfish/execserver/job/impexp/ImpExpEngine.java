@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.job.impexp;
+
+import com.baifendian.swordfish.common.enums.ImpExpType;
+
+/**
+ * 导入导出的执行引擎
+ */
+public enum ImpExpEngine {
+  /**
+   * 0 启动外部的 DataX 进程, 1 进程内的 jdbc 传输, 只支持 jdbc 到 hdfs/hive
+   */
+  DATAX, NATIVE;
+
+  /**
+   * 引擎是否支持该类型的导入导出
+   */
+  public boolean support(ImpExpType type) {
+    switch (this) {
+      case NATIVE:
+        switch (type) {
+          case MYSQL_TO_HIVE:
+          case MYSQL_TO_HDFS:
+          case POSTGRES_TO_HIVE:
+          case POSTGRES_TO_HDFS:
+            return true;
+          default:
+            return false;
+        }
+      default:
+        return true;
+    }
+  }
+}
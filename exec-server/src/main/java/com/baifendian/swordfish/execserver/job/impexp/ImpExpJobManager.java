@@ -22,6 +22,7 @@ import com.baifendian.swordfish.common.job.struct.node.impexp.ImpExpParam;
 import com.baifendian.swordfish.execserver.job.Job;
 import com.baifendian.swordfish.execserver.job.JobProps;
 import com.baifendian.swordfish.execserver.job.impexp.Args.ImpExpProps;
+import com.baifendian.swordfish.execserver.utils.Constants;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 
@@ -41,6 +42,18 @@ public class ImpExpJobManager {
         .getBaseParam(jobTypeStr, props.getJobParams());
     ImpExpProps impExpProps = new ImpExpProps(impExpParam, logger);
 
+    // 选择执行引擎, 不支持的类型使用 DataX
+    ImpExpEngine engine = ImpExpEngine.valueOf(impExpProps.getWorkConf()
+        .getString(Constants.EXECUTOR_IMPEXP_ENGINE, Constants.defaultImpExpEngine).toUpperCase());
+
+    if (!engine.support(impExpParam.getType())) {
+      logger.info("engine {} not support {}, use {}", engine, impExpParam.getType(),
+          ImpExpEngine.DATAX);
+      engine = ImpExpEngine.DATAX;
+    }
+
+    impExpProps.setEngine(engine);
+
     switch (impExpParam.getType()) {
       case MYSQL_TO_HIVE:
         return new MysqlToHiveJob(props, false, logger, impExpProps);
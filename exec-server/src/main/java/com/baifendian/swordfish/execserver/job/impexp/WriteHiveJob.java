@@ -10,6 +10,7 @@ import com.baifendian.swordfish.common.hadoop.HdfsClient;
 import com.baifendian.swordfish.common.job.struct.node.BaseParam;
 import com.baifendian.swordfish.common.job.struct.node.impexp.writer.HiveWriter;
 import com.baifendian.swordfish.dao.utils.json.JsonUtil;
+import com.baifendian.swordfish.execserver.engine.hive.HiveMetaCache.TableSchema;
 import com.baifendian.swordfish.execserver.engine.hive.HiveMetaExec;
 import com.baifendian.swordfish.execserver.engine.hive.HiveSqlExec;
 import com.baifendian.swordfish.execserver.engine.hive.HiveUtil;
@@ -17,6 +18,7 @@ import com.baifendian.swordfish.execserver.job.JobProps;
 import com.baifendian.swordfish.execserver.job.impexp.Args.HdfsWriterArg;
 import com.baifendian.swordfish.execserver.job.impexp.Args.HqlColumn;
 import com.baifendian.swordfish.execserver.job.impexp.Args.ImpExpProps;
+import com.baifendian.swordfish.execserver.utils.Constants;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -39,10 +41,25 @@ public abstract class WriteHiveJob extends DataXJob {
 
   private HiveMetaExec hiveMetaExec;
 
+  /**
+   * 目标表的结构, 只获取一次, 各个字段视图都由它得到
+   */
+  private TableSchema destSchema;
+
   private List<HqlColumn> destColumns;
 
   private List<HqlColumn> srcColumns;
 
+  /**
+   * 直写目标表时不为空
+   */
+  private HiveStaging staging;
+
+  /**
+   * 正在执行的 hive 语句, 取消时使用
+   */
+  private volatile HiveSqlExec hiveSqlExec;
+
   public WriteHiveJob(JobProps props, boolean isLongJob, Logger logger, ImpExpProps impExpProps) {
     super(props, isLongJob, logger, impExpProps);
     // 先获取 swordfish 读写配置方便后面使用
@@ -58,12 +75,25 @@ public abstract class WriteHiveJob extends DataXJob {
       // 构造一个hive服务类，预备使用
       hiveMetaExec = new HiveMetaExec(logger);
       // 获取源HQL字段
-      destColumns = hiveMetaExec.getHiveDesc(hiveWriter.getDatabase(), hiveWriter.getTable());
+      destSchema = hiveMetaExec.getTableSchema(hiveWriter.getDatabase(), hiveWriter.getTable());
+      destColumns = destSchema.getHqlColumns();
       logger.info("dest col: {}", JsonUtil.toJsonString(destColumns));
 
       // 获取源字段
       srcColumns = hiveMetaExec.checkHiveColumn(hiveWriter.getColumn(), destColumns);
 
+      // 写入的字段和目标表完全一致时, 按目标表的格式直接写, 不再经过临时表
+      if (impExpProps.getWorkConf().getBoolean(Constants.EXECUTOR_IMPEXP_HIVE_DIRECT,
+          Constants.defaultImpExpHiveDirect)) {
+        staging = HiveStaging.create(hiveMetaExec, hiveWriter.getDatabase(),
+            hiveWriter.getTable(), destSchema, logger);
+
+        if (staging != null && !staging.matches(hiveWriter.getColumn())) {
+          logger.info("Write columns not match table columns, can't be written directly");
+          staging = null;
+        }
+      }
+
       logger.info("Finish MysqlToHiveJob before function!");
     } catch (Exception e) {
       logger.error("MysqlToHiveJob before function error", e);
@@ -109,6 +139,13 @@ public abstract class WriteHiveJob extends DataXJob {
     hdfsWriterArg.setFileType(DEFAULT_FILE_TYPE);
     hdfsWriterArg.setFieldDelimiter(DEFAULT_DELIMITER);
     hdfsWriterArg.setWriteMode(WriteMode.OVERWRITE.getHdfsType());
+
+    if (staging != null) {
+      hdfsWriterArg.setColumn(staging.getColumns());
+      hdfsWriterArg.setFileType(staging.getFileType());
+      hdfsWriterArg.setFieldDelimiter(staging.getFieldDelimiter());
+    }
+
     logger.info("Finish MysqlToHiveJob get dataX writer arg!");
     this.hdfsWriterArg = hdfsWriterArg;
     return hdfsWriterArg;
@@ -123,6 +160,18 @@ public abstract class WriteHiveJob extends DataXJob {
       return;
     }
 
+    if (staging != null) {
+      try {
+        logger.info("Commit staged files to hive table directly...");
+        staging.commit(hdfsWriterArg.getPath(), hiveWriter.getWriteMode());
+      } catch (Exception e) {
+        logger.error("Commit staged files to hive table failed", e);
+        exitCode = -1;
+      }
+
+      return;
+    }
+
     exitCode = -1;
 
     List<String> execSqls = new ArrayList<>();
@@ -147,10 +196,17 @@ public abstract class WriteHiveJob extends DataXJob {
       execSqls = Arrays.asList(ddl, "SET hive.exec.dynamic.partition.mode=nonstrict", insertSql);
 
       // 执行 sql
-      HiveSqlExec hiveSqlExec = new HiveSqlExec(this::logProcess, props.getProxyUser(), logger, props.getQueue());
+      hiveSqlExec = new HiveSqlExec(this::logProcess, props.getProxyUser(), logger, props.getQueue());
+
+      if (cancel) {
+        hiveSqlExec.cancel();
+      }
 
       exitCode = (hiveSqlExec.execute(null, execSqls, false, null, null, getRemainTime())) ? 0 : -1;
 
+      // 临时表已经重建
+      hiveMetaExec.invalidate(DEFAULT_DB, srcTableName);
+
       logger.info("Finish exec sql!");
     } catch (Exception e) {
       logger.error(String.format("hql process exception, sql: %s", String.join(";", execSqls)), e);
@@ -158,6 +214,19 @@ public abstract class WriteHiveJob extends DataXJob {
     }
   }
 
+  @Override
+  public void cancel(boolean cancelApplication) throws Exception {
+    cancel = true;
+
+    HiveSqlExec exec = hiveSqlExec;
+
+    if (exec != null) {
+      exec.cancel();
+    }
+
+    super.cancel(cancelApplication);
+  }
+
   @Override
   public BaseParam getParam() {
     return impExpProps.getImpExpParam();
@@ -173,7 +242,7 @@ public abstract class WriteHiveJob extends DataXJob {
     String partFieldSql = "";
 
     // 所有的分区都是必传字段先整理出分区字段
-    List<FieldSchema> partFieldList = hiveMetaExec.getPartionField(destDbName, destTableName);
+    List<FieldSchema> partFieldList = destSchema.getPartitionKeys();
 
     if (CollectionUtils.isNotEmpty(partFieldList)) {
       List<String> partNameList = new ArrayList<>();
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.job.impexp.transfer;
+
+import com.baifendian.swordfish.common.enums.HiveColumnType;
+import com.baifendian.swordfish.common.enums.WriteHdfsType;
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
+import com.baifendian.swordfish.common.job.struct.node.impexp.column.HiveColumn;
+import com.baifendian.swordfish.execserver.job.impexp.HiveStaging;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.io.orc.CompressionKind;
+import org.apache.hadoop.hive.ql.io.orc.OrcFile;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+
+/**
+ * 写 hdfs 文件, 一次写一行, 内存占用有上限: 文本文件只有写缓冲, orc 文件最多缓存一个 stripe
+ */
+public abstract class HdfsRecordWriter implements Closeable {
+
+  private static final int TEXT_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * orc 文件的 stripe 大小, 也就是每个写入线程缓存的上限
+   */
+  private static final long ORC_STRIPE_SIZE = 32 * 1024 * 1024L;
+
+  /**
+   * 写入的行数
+   */
+  protected long rows;
+
+  /**
+   * 写一行, 值为 jdbc 读出的原始对象
+   */
+  public abstract void write(Object[] values) throws IOException;
+
+  public long getRows() {
+    return rows;
+  }
+
+  /**
+   * 创建写入器
+   *
+   * @param fileType 文件类型
+   * @param file 文件路径
+   * @param columns 字段, orc 文件必须指定
+   * @param fieldDelimiter 文本文件的分隔符
+   */
+  public static HdfsRecordWriter create(WriteHdfsType fileType, String file,
+      List<HiveColumn> columns, String fieldDelimiter) throws IOException {
+    if (fileType == WriteHdfsType.ORC) {
+      if (CollectionUtils.isEmpty(columns)) {
+        throw new IllegalArgumentException("Columns must be specified for orc file");
+      }
+
+      return new OrcRecordWriter(file, columns);
+    }
+
+    return new TextRecordWriter(file, fieldDelimiter);
+  }
+
+  /**
+   * 文本文件, 和 DataX 一致, null 写为空串
+   */
+  static class TextRecordWriter extends HdfsRecordWriter {
+
+    private final Writer writer;
+
+    private final String fieldDelimiter;
+
+    TextRecordWriter(String file, String fieldDelimiter) {
+      this.writer = new BufferedWriter(new OutputStreamWriter(
+          HdfsClient.getInstance().create(file, true), StandardCharsets.UTF_8), TEXT_BUFFER_SIZE);
+      this.fieldDelimiter = fieldDelimiter;
+    }
+
+    @Override
+    public void write(Object[] values) throws IOException {
+      for (int i = 0; i < values.length; ++i) {
+        if (i > 0) {
+          writer.write(fieldDelimiter);
+        }
+
+        if (values[i] != null) {
+          writer.write(values[i].toString());
+        }
+      }
+
+      writer.write('\n');
+      ++rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+      writer.close();
+    }
+  }
+
+  /**
+   * orc 文件, 值按字段类型转换
+   */
+  static class OrcRecordWriter extends HdfsRecordWriter {
+
+    private final org.apache.hadoop.hive.ql.io.orc.Writer writer;
+
+    private final HiveColumnType[] types;
+
+    OrcRecordWriter(String file, List<HiveColumn> columns) throws IOException {
+      List<String> names = new ArrayList<>();
+      List<ObjectInspector> inspectors = new ArrayList<>();
+
+      types = new HiveColumnType[columns.size()];
+
+      for (int i = 0; i < columns.size(); ++i) {
+        names.add(columns.get(i).getName());
+        inspectors.add(inspector(columns.get(i).getType()));
+
+        types[i] = columns.get(i).getType();
+      }
+
+      FileSystem fileSystem = HdfsClient.getInstance().getFileSystem();
+
+      writer = OrcFile.createWriter(new Path(file), OrcFile.writerOptions(fileSystem.getConf())
+          .fileSystem(fileSystem)
+          .inspector(ObjectInspectorFactory.getStandardStructObjectInspector(names, inspectors))
+          .stripeSize(ORC_STRIPE_SIZE)
+          .compress(CompressionKind.ZLIB));
+    }
+
+    @Override
+    public void write(Object[] values) throws IOException {
+      Object[] row = new Object[types.length];
+
+      for (int i = 0; i < types.length && i < values.length; ++i) {
+        row[i] = convert(values[i], types[i]);
+      }
+
+      writer.addRow(Arrays.asList(row));
+      ++rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+      writer.close();
+    }
+
+    private static ObjectInspector inspector(HiveColumnType type) {
+      switch (type) {
+        case TINYINT:
+          return PrimitiveObjectInspectorFactory.javaByteObjectInspector;
+        case SMALLINT:
+          return PrimitiveObjectInspectorFactory.javaShortObjectInspector;
+        case INT:
+          return PrimitiveObjectInspectorFactory.javaIntObjectInspector;
+        case BIGINT:
+          return PrimitiveObjectInspectorFactory.javaLongObjectInspector;
+        case FLOAT:
+          return PrimitiveObjectInspectorFactory.javaFloatObjectInspector;
+        case DOUBLE:
+          return PrimitiveObjectInspectorFactory.javaDoubleObjectInspector;
+        case BOOLEAN:
+          return PrimitiveObjectInspectorFactory.javaBooleanObjectInspector;
+        case DATE:
+          return PrimitiveObjectInspectorFactory.javaDateObjectInspector;
+        case TIMESTAMP:
+          return PrimitiveObjectInspectorFactory.javaTimestampObjectInspector;
+        default:
+          // varchar/char 没有长度信息, 按 string 写入, hive 读取时会按表定义截断
+          return PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+      }
+    }
+
+    /**
+     * jdbc 的值转换为字段类型对应的 java 类型, 和 hive 一致, 超出范围或者不能解析的值为 null
+     */
+    static Object convert(Object value, HiveColumnType type) {
+      if (value == null) {
+        return null;
+      }
+
+      try {
+        switch (type) {
+          case TINYINT:
+          case SMALLINT:
+          case INT:
+          case BIGINT:
+          case FLOAT:
+          case DOUBLE:
+            return HiveStaging.cast((value instanceof String) ? ((String) value).trim() : value,
+                type);
+          case BOOLEAN:
+            if (value instanceof Boolean) {
+              return value;
+            }
+
+            return (value instanceof Number) ? ((Number) value).intValue() != 0
+                : Boolean.parseBoolean(value.toString());
+          case DATE:
+            if (value instanceof java.util.Date) {
+              return new Date(((java.util.Date) value).getTime());
+            }
+
+            return Date.valueOf(value.toString().trim());
+          case TIMESTAMP:
+            if (value instanceof Timestamp) {
+              return value;
+            }
+
+            if (value instanceof java.util.Date) {
+              return new Timestamp(((java.util.Date) value).getTime());
+            }
+
+            return Timestamp.valueOf(value.toString().trim());
+          default:
+            return value.toString();
+        }
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+    }
+  }
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.job.impexp.transfer;
+
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
+import com.baifendian.swordfish.execserver.job.impexp.Args.HdfsWriterArg;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.fs.FileStatus;
+import org.slf4j.Logger;
+
+/**
+ * jdbc 到 hdfs 的进程内传输 <p>
+ *
+ * 源表按整数主键 (或指定的 splitPk) 的范围切分成多个分片, 由 channel 个线程并发读取, 每个线程一个 jdbc 连接, 以流式的 fetch size 读取,
+ * 并写到自己的 hdfs 文件中. 文件先以 "_" 开头的临时名称写入 (hive 会忽略), 全部成功后再重命名, 失败时删除. 不能切分时 (自定义 sql,
+ * 没有整数主键) 只有一个分片.
+ */
+public class JdbcTransfer {
+
+  /**
+   * 每个线程对应的分片数, 分片小一些各个线程的负载更均衡
+   */
+  private static final int SPLITS_PER_CHANNEL = 4;
+
+  /**
+   * 检查取消的行间隔
+   */
+  private static final int CANCEL_CHECK_ROWS = 1024;
+
+  /**
+   * 失败时等待读写线程退出的时长, 单位秒
+   */
+  private static final long TERMINATION_TIMEOUT_SECONDS = 60;
+
+  private final String jdbcUrl;
+
+  private final String username;
+
+  private final String password;
+
+  private final Logger logger;
+
+  private List<String> tables = Collections.emptyList();
+
+  private List<String> columns = Collections.singletonList("*");
+
+  private String where;
+
+  private String querySql;
+
+  private String splitPk;
+
+  private int channel = 1;
+
+  private int fetchSize = 1024;
+
+  /**
+   * 正在执行的语句, 取消时中断
+   */
+  private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+
+  private volatile boolean cancel = false;
+
+  public JdbcTransfer(String jdbcUrl, String username, String password, Logger logger) {
+    this.jdbcUrl = jdbcUrl;
+    this.username = username;
+    this.password = password;
+    this.logger = logger;
+  }
+
+  public void setTables(List<String> tables) {
+    this.tables = tables;
+  }
+
+  public void setColumns(List<String> columns) {
+    if (CollectionUtils.isNotEmpty(columns)) {
+      this.columns = columns;
+    }
+  }
+
+  public void setWhere(String where) {
+    this.where = where;
+  }
+
+  public void setQuerySql(String querySql) {
+    this.querySql = querySql;
+  }
+
+  public void setSplitPk(String splitPk) {
+    this.splitPk = splitPk;
+  }
+
+  public void setChannel(int channel) {
+    this.channel = Math.max(1, channel);
+  }
+
+  public void setFetchSize(int fetchSize) {
+    this.fetchSize = fetchSize;
+  }
+
+  /**
+   * 执行传输
+   *
+   * @param writerArg 写入的参数, 同 DataX 的 hdfswriter
+   * @return 传输的行数
+   */
+  public long transfer(HdfsWriterArg writerArg) throws Exception {
+    HdfsClient hdfsClient = HdfsClient.getInstance();
+
+    String path = writerArg.getPath();
+    String fileName = writerArg.getFileName();
+
+    prepareDir(writerArg);
+
+    Queue<String> splits = new ConcurrentLinkedQueue<>(split());
+
+    if (splits.isEmpty()) {
+      throw new IllegalArgumentException("Neither table nor querySql is specified");
+    }
+
+    int threads = Math.min(channel, splits.size());
+
+    logger.info("Transfer {} splits with {} channels", splits.size(), threads);
+
+    // 同 DataX, 文件名为 fileName__uuid, 多个线程再加上序号
+    String prefix = fileName + "__" + UUID.randomUUID().toString().replace("-", "");
+    List<String> tmpFiles = new ArrayList<>();
+
+    for (int i = 0; i < threads; ++i) {
+      tmpFiles.add(MessageFormat.format("{0}/_tmp_{1}_{2}", path, prefix, Integer.toString(i)));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setNameFormat("Exec-Transfer-" + fileName + "-%d").build());
+
+    long rows = 0;
+
+    try {
+      CompletionService<Long> completionService = new ExecutorCompletionService<>(executor);
+
+      for (String tmpFile : tmpFiles) {
+        completionService.submit(() -> {
+          try (HdfsRecordWriter writer = HdfsRecordWriter
+              .create(writerArg.getFileType(), tmpFile, writerArg.getColumn(),
+                  writerArg.getFieldDelimiter())) {
+            String sql;
+
+            while (!cancel && (sql = splits.poll()) != null) {
+              read(sql, writer);
+            }
+
+            return writer.getRows();
+          }
+        });
+      }
+
+      // 按完成的顺序获取, 一个线程失败时立即取消其它线程
+      for (int i = 0; i < tmpFiles.size(); ++i) {
+        rows += completionService.take().get();
+      }
+
+      if (cancel) {
+        throw new InterruptedException("transfer is cancelled");
+      }
+
+      // 全部成功后重命名为正式的文件
+      for (int i = 0; i < tmpFiles.size(); ++i) {
+        String file = MessageFormat.format("{0}/{1}_{2}", path, prefix, Integer.toString(i));
+
+        if (!hdfsClient.rename(tmpFiles.get(i), file)) {
+          throw new IOException("rename file failed: " + tmpFiles.get(i));
+        }
+      }
+    } catch (Exception e) {
+      cancel();
+
+      // 等线程关闭 writer 之后再删除临时文件, 否则 writer 关闭时会重新写出文件
+      executor.shutdownNow();
+
+      try {
+        if (!executor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+          logger.warn("Transfer threads of {} are still running, delete tmp files anyway",
+              fileName);
+        }
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+
+      for (String tmpFile : tmpFiles) {
+        hdfsClient.delete(tmpFile, false);
+      }
+
+      throw e;
+    } finally {
+      executor.shutdownNow();
+    }
+
+    return rows;
+  }
+
+  /**
+   * 取消传输, 正在执行的查询会被中断
+   */
+  public void cancel() {
+    cancel = true;
+
+    for (Statement statement : statements) {
+      try {
+        statement.cancel();
+      } catch (SQLException e) {
+        logger.warn("cancel statement failed", e);
+      }
+    }
+  }
+
+  /**
+   * 按写入模式处理目标目录, 和 DataX 的 hdfswriter 一致: append 直接追加, nonConflict 时已有同名前缀的文件则失败, truncate 删除同名前缀的文件
+   */
+  private void prepareDir(HdfsWriterArg writerArg) throws IOException {
+    HdfsClient hdfsClient = HdfsClient.getInstance();
+    String path = writerArg.getPath();
+
+    if (!hdfsClient.exists(path)) {
+      hdfsClient.mkdir(path);
+      return;
+    }
+
+    String writeMode = StringUtils.defaultString(writerArg.getWriteMode(), "append");
+
+    if (writeMode.equalsIgnoreCase("append")) {
+      return;
+    }
+
+    for (FileStatus status : hdfsClient.listFileStatus(path)) {
+      String name = status.getPath().getName();
+
+      if (!name.startsWith(writerArg.getFileName())) {
+        continue;
+      }
+
+      if (writeMode.equalsIgnoreCase("nonConflict")) {
+        throw new IOException(MessageFormat
+            .format("File {0} already exists in {1}, write mode is nonConflict", name, path));
+      }
+
+      hdfsClient.delete(status.getPath().toUri().getPath(), true);
+    }
+  }
+
+  /**
+   * 生成各个分片的查询语句
+   */
+  List<String> split() throws SQLException {
+    List<String> splits = new ArrayList<>();
+
+    if (StringUtils.isNotEmpty(querySql)) {
+      splits.add(querySql);
+      return splits;
+    }
+
+    String columnSql = String.join(",", columns);
+
+    try (Connection connection = connect()) {
+      for (String table : tables) {
+        String baseSql = MessageFormat.format("SELECT {0} FROM {1}", columnSql, table);
+        String pk = StringUtils.isNotEmpty(splitPk) ? splitPk : primaryKey(connection, table);
+
+        long[] range = (pk == null) ? null : range(connection, table, pk);
+
+        if (range == null) {
+          splits.add(StringUtils.isEmpty(where) ? baseSql : baseSql + " WHERE " + where);
+          continue;
+        }
+
+        BigInteger min = BigInteger.valueOf(range[0]);
+        BigInteger max = BigInteger.valueOf(range[1]);
+
+        // 按数值范围等分, 最后一个分片包含最大值, 用 BigInteger 计算以免主键接近 long 的边界时溢出
+        BigInteger span = max.subtract(min).add(BigInteger.ONE);
+        BigInteger count = span.min(BigInteger.valueOf((long) channel * SPLITS_PER_CHANNEL));
+        BigInteger step = span.add(count).subtract(BigInteger.ONE).divide(count);
+
+        BigInteger lower = min;
+
+        while (true) {
+          BigInteger upper = lower.add(step);
+
+          if (upper.compareTo(max) > 0) {
+            splits.add(baseSql + " WHERE " + and(MessageFormat
+                .format("{0} >= {1} AND {0} <= {2}", pk, lower.toString(), max.toString())));
+            break;
+          }
+
+          splits.add(baseSql + " WHERE " + and(MessageFormat
+              .format("{0} >= {1} AND {0} < {2}", pk, lower.toString(), upper.toString())));
+          lower = upper;
+        }
+
+        // 指定的切分字段可能有空值
+        if (StringUtils.isNotEmpty(splitPk)) {
+          splits.add(baseSql + " WHERE " + and(pk + " IS NULL"));
+        }
+      }
+    }
+
+    return splits;
+  }
+
+  /**
+   * 读取一个分片, 写入到 writer
+   */
+  private void read(String sql, HdfsRecordWriter writer) throws SQLException, IOException {
+    long start = System.currentTimeMillis();
+    long rows = writer.getRows();
+
+    try (Connection connection = connect();
+        Statement statement = connection
+            .createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+      // mysql 只有 Integer.MIN_VALUE 时才流式读取, postgres 需要关闭自动提交才使用游标
+      if (jdbcUrl.startsWith("jdbc:mysql:")) {
+        statement.setFetchSize(Integer.MIN_VALUE);
+      } else {
+        connection.setAutoCommit(false);
+        statement.setFetchSize(fetchSize);
+      }
+
+      statements.add(statement);
+
+      try (ResultSet rs = statement.executeQuery(sql)) {
+        int count = rs.getMetaData().getColumnCount();
+        Object[] values = new Object[count];
+        int n = 0;
+
+        while (rs.next()) {
+          for (int i = 0; i < count; ++i) {
+            values[i] = rs.getObject(i + 1);
+          }
+
+          writer.write(values);
+
+          if (++n % CANCEL_CHECK_ROWS == 0 && cancel) {
+            return;
+          }
+        }
+      } finally {
+        statements.remove(statement);
+
+        // 只读的事务, 结束后回滚, 有的驱动不允许关闭有活动事务的连接
+        if (!connection.getAutoCommit()) {
+          connection.rollback();
+        }
+      }
+    }
+
+    logger.info("Read {} rows in {} ms, sql: {}", writer.getRows() - rows,
+        System.currentTimeMillis() - start, sql);
+  }
+
+  private String and(String cond) {
+    return StringUtils.isEmpty(where) ? cond : MessageFormat.format("({0}) AND ({1})", where, cond);
+  }
+
+  /**
+   * 单列整数主键, 否则返回 null
+   */
+  private String primaryKey(Connection connection, String table) throws SQLException {
+    DatabaseMetaData metaData = connection.getMetaData();
+
+    // 不同数据库的元数据对表名大小写的处理不同, 依次尝试
+    for (String name : new String[]{table, table.toUpperCase(), table.toLowerCase()}) {
+      List<String> keys = new ArrayList<>();
+
+      try (ResultSet rs = metaData.getPrimaryKeys(null, null, name)) {
+        while (rs.next()) {
+          keys.add(rs.getString("COLUMN_NAME"));
+        }
+      }
+
+      if (!keys.isEmpty()) {
+        return (keys.size() == 1) ? keys.get(0) : null;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * 切分字段的最小和最大值, 不是整数, 超出 long 的范围 (例如 DECIMAL(20,0), BIGINT UNSIGNED) 或没有数据时返回 null
+   */
+  private long[] range(Connection connection, String table, String pk) throws SQLException {
+    String sql = MessageFormat.format("SELECT MIN({0}), MAX({0}) FROM {1}", pk, table);
+
+    if (StringUtils.isNotEmpty(where)) {
+      sql += " WHERE " + where;
+    }
+
+    try (Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery(sql)) {
+      if (!rs.next() || rs.getObject(1) == null) {
+        return null;
+      }
+
+      ResultSetMetaData metaData = rs.getMetaData();
+
+      switch (metaData.getColumnType(1)) {
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+        case Types.BIGINT:
+          break;
+        case Types.NUMERIC:
+        case Types.DECIMAL:
+          if (metaData.getScale(1) == 0) {
+            break;
+          }
+        default:
+          logger.info("Split pk {} is not an integer, don't split", pk);
+          return null;
+      }
+
+      // getLong 对超出范围的值会溢出或者报错, 统一按 BigDecimal 读取
+      BigDecimal min = rs.getBigDecimal(1);
+      BigDecimal max = rs.getBigDecimal(2);
+
+      try {
+        return new long[]{min.longValueExact(), max.longValueExact()};
+      } catch (ArithmeticException e) {
+        logger.info("Split pk {} is out of the range of long, don't split", pk);
+        return null;
+      }
+    }
+  }
+
+  private Connection connect() throws SQLException {
+    return DriverManager.getConnection(jdbcUrl, username, password);
+  }
+}
@@ -33,6 +33,11 @@ public class EtlSqlJob extends AbstractYarnJob {
 
   protected HqlParam param;
 
+  /**
+   * 正在执行的 hive 语句, 取消时使用
+   */
+  private volatile HiveSqlExec hiveSqlExec;
+
   public EtlSqlJob(JobProps props, boolean isLongJob, Logger logger) {
     super(props, isLongJob, logger);
   }
@@ -50,7 +55,7 @@ public class EtlSqlJob extends AbstractYarnJob {
       // 解析其中的变量
       sqls = ParamHelper.resolvePlaceholders(sqls, props.getDefinedParams());
       List<String> funcs = FunctionUtil
-          .createFuncs(param.getUdfs(), props.getExecId(), props.getNodeName(), logger,
+          .createFuncs(param.getUdfs(), props.getExecId(), logger,
               props.getWorkDir(), false, param.getType(), ExternalJobType.WORKFLOW);
 
       logger.info("\nhql:\n{}\nfuncs:\n{}", sqls, funcs);
@@ -68,7 +73,14 @@ public class EtlSqlJob extends AbstractYarnJob {
         case HIVE:
         case SPARK:
         default: {
-          HiveSqlExec hiveSqlExec = new HiveSqlExec(this::logProcess, props.getProxyUser(), logger, props.getQueue());
+          // 日志中的 id 由 HiveLogPoller 统一解析
+          hiveSqlExec = new HiveSqlExec(this::parsedLogProcess, props.getProxyUser(), logger, props.getQueue());
+          hiveSqlExec.setJobIdsHandler(this::jobIdsProcess);
+
+          // 创建之前已经取消
+          if (cancel) {
+            hiveSqlExec.cancel();
+          }
 
           exitCode = (hiveSqlExec.execute(funcs, execSqls, false, null, null, getRemainTime())) ? 0 : -1;
         }
@@ -79,6 +91,19 @@ public class EtlSqlJob extends AbstractYarnJob {
     }
   }
 
+  @Override
+  public void cancel(boolean cancelApplication) throws Exception {
+    cancel = true;
+
+    HiveSqlExec exec = hiveSqlExec;
+
+    if (exec != null) {
+      exec.cancel();
+    }
+
+    super.cancel(cancelApplication);
+  }
+
   @Override
   public BaseParam getParam() {
     return param;
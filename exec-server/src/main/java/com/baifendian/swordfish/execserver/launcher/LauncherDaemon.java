@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.launcher;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.channel.unix.PeerCredentials;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 常驻的进程启动器, 以代理用户的身份运行, 每个代理用户一个 <p>
+ *
+ * 监听 unix domain socket, 按 executor 的请求启动子进程, 转发输出, 发送信号, 回收退出码. 子进程直接由它 fork, 不再经过 sudo. 只接受指定 uid
+ * 的连接, 没有运行的子进程且空闲超过一定时间后退出.
+ */
+public class LauncherDaemon {
+
+  private static final Logger logger = LoggerFactory.getLogger(LauncherDaemon.class);
+
+  /**
+   * socket 文件
+   */
+  private final File socket;
+
+  /**
+   * 允许连接的 uid, 即 executor 的 uid
+   */
+  private final int allowedUid;
+
+  /**
+   * 空闲超时, 单位毫秒
+   */
+  private final long idleTimeout;
+
+  /**
+   * 正在运行的子进程数
+   */
+  private final AtomicInteger running = new AtomicInteger();
+
+  private volatile long lastActiveTime = System.currentTimeMillis();
+
+  private Channel serverChannel;
+
+  LauncherDaemon(String socketPath, int allowedUid, long idleTimeout) {
+    this.socket = new File(socketPath);
+    this.allowedUid = allowedUid;
+    this.idleTimeout = idleTimeout;
+  }
+
+  /**
+   * 参数: socket 文件路径, 允许连接的 uid, 空闲超时 (秒)
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length < 3) {
+      System.err.println("Usage: LauncherDaemon <socket path> <allowed uid> <idle timeout>");
+      System.exit(1);
+    }
+
+    new LauncherDaemon(args[0], Integer.parseInt(args[1]),
+        TimeUnit.SECONDS.toMillis(Long.parseLong(args[2]))).run();
+  }
+
+  void run() throws InterruptedException {
+    // 删除上次残留的 socket 文件
+    socket.delete();
+
+    EventLoopGroup group = new EpollEventLoopGroup(1, new ThreadFactoryBuilder()
+        .setNameFormat("LauncherDaemon-EventLoop-%d").setDaemon(true).build());
+
+    try {
+      ServerBootstrap bootstrap = new ServerBootstrap()
+          .group(group)
+          .channel(EpollServerDomainSocketChannel.class)
+          .childHandler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel channel) {
+              LauncherProtocol.initPipeline(channel.pipeline());
+              channel.pipeline().addLast(new SpawnHandler());
+            }
+          });
+
+      serverChannel = bootstrap.bind(new DomainSocketAddress(socket)).sync().channel();
+
+      // 任何用户都可以连接, 连接后再校验对端的 uid
+      socket.setReadable(true, false);
+      socket.setWritable(true, false);
+
+      logger.info("Launcher daemon listen on {}, allowed uid: {}", socket, allowedUid);
+
+      long interval = Math.max(1000, Math.min(idleTimeout / 2, 10000));
+      group.scheduleAtFixedRate(this::checkIdle, interval, interval, TimeUnit.MILLISECONDS);
+
+      serverChannel.closeFuture().sync();
+    } finally {
+      group.shutdownGracefully();
+    }
+
+    logger.info("Launcher daemon exit");
+  }
+
+  /**
+   * 空闲超时后退出, 在事件线程中执行, 和接受连接互斥
+   */
+  private void checkIdle() {
+    if (running.get() == 0 && System.currentTimeMillis() - lastActiveTime > idleTimeout) {
+      logger.info("Launcher daemon is idle for {} ms, exit", idleTimeout);
+
+      // 先删除 socket 文件再关闭, 避免删掉新启动的启动器的 socket 文件
+      socket.delete();
+      serverChannel.close();
+    }
+  }
+
+  /**
+   * 处理一个连接, 对应一个子进程
+   */
+  private class SpawnHandler extends SimpleChannelInboundHandler<ByteBuf> {
+
+    private Process process;
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+      PeerCredentials credentials = ((EpollDomainSocketChannel) ctx.channel()).peerCredentials();
+
+      if (credentials.uid() != allowedUid) {
+        logger.warn("Reject connection from uid {}", credentials.uid());
+        ctx.close();
+        return;
+      }
+
+      lastActiveTime = System.currentTimeMillis();
+
+      super.channelActive(ctx);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+      byte type = msg.readByte();
+
+      if (type == LauncherProtocol.SPAWN && process == null) {
+        spawn(ctx.channel(), LauncherProtocol.readString(msg), LauncherProtocol.readCommand(msg));
+      } else if (type == LauncherProtocol.SIGNAL && process != null) {
+        boolean force = msg.readBoolean();
+
+        logger.info("Signal process {}, force: {}", pid(process), force);
+
+        if (force) {
+          process.destroyForcibly();
+        } else {
+          process.destroy();
+        }
+      }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+      logger.error("Launcher connection error", cause);
+      ctx.close();
+    }
+
+    private void spawn(Channel channel, String workDir, List<String> command) {
+      try {
+        process = new ProcessBuilder(command)
+            .directory(new File(workDir))
+            .redirectErrorStream(true)
+            .start();
+      } catch (IOException e) {
+        logger.error("Start process failed, command: {}", command, e);
+
+        LauncherProtocol.sendString(channel, LauncherProtocol.ERROR, String.valueOf(e.getMessage()))
+            .addListener(ChannelFutureListener.CLOSE);
+        return;
+      }
+
+      running.incrementAndGet();
+
+      int pid = pid(process);
+
+      logger.info("Start process {}, command: {}", pid, command);
+
+      LauncherProtocol.sendInt(channel, LauncherProtocol.STARTED, pid);
+
+      Process started = process;
+
+      Thread pumpThread = new Thread(() -> pump(channel, started),
+          "LauncherDaemon-Pump-" + pid);
+
+      pumpThread.setDaemon(true);
+      pumpThread.start();
+    }
+  }
+
+  /**
+   * 转发子进程的输出, 结束后发送退出码. executor 断开后继续读取, 避免子进程因输出阻塞
+   */
+  private void pump(Channel channel, Process process) {
+    byte[] buf = new byte[LauncherProtocol.OUTPUT_CHUNK_SIZE];
+    int exitCode = -1;
+
+    try (InputStream in = process.getInputStream()) {
+      int n;
+
+      while ((n = in.read(buf)) >= 0) {
+        while (channel.isActive() && !channel.isWritable()) {
+          Thread.sleep(10);
+        }
+
+        if (n > 0 && channel.isActive()) {
+          LauncherProtocol.send(channel, LauncherProtocol.OUTPUT, Unpooled.wrappedBuffer(buf, 0, n));
+        }
+      }
+
+      exitCode = process.waitFor();
+    } catch (IOException | InterruptedException e) {
+      logger.error("Read process output failed", e);
+    } finally {
+      running.decrementAndGet();
+      lastActiveTime = System.currentTimeMillis();
+
+      logger.info("Process {} exit, exit code: {}", pid(process), exitCode);
+
+      if (channel.isActive()) {
+        LauncherProtocol.sendInt(channel, LauncherProtocol.EXIT, exitCode)
+            .addListener(ChannelFutureListener.CLOSE);
+      }
+    }
+  }
+
+  /**
+   * 得到进程 id
+   */
+  static int pid(Process process) {
+    try {
+      // java 9 以上
+      return ((Long) Process.class.getMethod("pid").invoke(process)).intValue();
+    } catch (ReflectiveOperationException e) {
+      // java 8
+    }
+
+    try {
+      Field field = process.getClass().getDeclaredField("pid");
+      field.setAccessible(true);
+
+      return field.getInt(process);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.launcher;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * executor 和启动器之间的协议 <p>
+ *
+ * 每个子进程使用一个连接, 消息为 4 字节长度 + 1 字节类型 + 内容: <br> executor 发送 SPAWN (工作目录, 命令) 和 SIGNAL (是否强制); <br>
+ * 启动器返回 STARTED (pid), OUTPUT (标准输出和错误输出的原始字节), EXIT (退出码) 或 ERROR (错误信息).
+ */
+final class LauncherProtocol {
+
+  static final byte SPAWN = 1;
+
+  static final byte SIGNAL = 2;
+
+  static final byte STARTED = 11;
+
+  static final byte OUTPUT = 12;
+
+  static final byte EXIT = 13;
+
+  static final byte ERROR = 14;
+
+  /**
+   * 一条消息的最大长度
+   */
+  private static final int MAX_FRAME_LENGTH = 1024 * 1024;
+
+  /**
+   * 输出分块的大小
+   */
+  static final int OUTPUT_CHUNK_SIZE = 8 * 1024;
+
+  private LauncherProtocol() {
+  }
+
+  /**
+   * 加上消息的编解码
+   */
+  static void initPipeline(ChannelPipeline pipeline) {
+    pipeline.addLast(new LengthFieldBasedFrameDecoder(MAX_FRAME_LENGTH, 0, 4, 0, 4));
+    pipeline.addLast(new LengthFieldPrepender(4));
+  }
+
+  static ChannelFuture send(Channel channel, byte type, ByteBuf content) {
+    ByteBuf buf = channel.alloc().buffer(1 + content.readableBytes());
+
+    buf.writeByte(type);
+    buf.writeBytes(content);
+    content.release();
+
+    return channel.writeAndFlush(buf);
+  }
+
+  static ChannelFuture sendInt(Channel channel, byte type, int value) {
+    return send(channel, type, channel.alloc().buffer(4).writeInt(value));
+  }
+
+  static ChannelFuture sendString(Channel channel, byte type, String value) {
+    ByteBuf buf = channel.alloc().buffer();
+    writeString(buf, value);
+
+    return send(channel, type, buf);
+  }
+
+  /**
+   * SPAWN 消息: 工作目录, 命令个数, 各个命令
+   */
+  static ChannelFuture sendSpawn(Channel channel, String workDir, List<String> command) {
+    ByteBuf buf = channel.alloc().buffer();
+
+    writeString(buf, workDir);
+    buf.writeInt(command.size());
+
+    for (String arg : command) {
+      writeString(buf, arg);
+    }
+
+    return send(channel, SPAWN, buf);
+  }
+
+  static List<String> readCommand(ByteBuf buf) {
+    int size = buf.readInt();
+    List<String> command = new ArrayList<>(size);
+
+    for (int i = 0; i < size; ++i) {
+      command.add(readString(buf));
+    }
+
+    return command;
+  }
+
+  static void writeString(ByteBuf buf, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+    buf.writeInt(bytes.length);
+    buf.writeBytes(bytes);
+  }
+
+  static String readString(ByteBuf buf) {
+    byte[] bytes = new byte[buf.readInt()];
+    buf.readBytes(bytes);
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
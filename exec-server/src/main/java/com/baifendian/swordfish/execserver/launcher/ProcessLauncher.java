@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.launcher;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.security.auth.module.UnixSystem;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.unix.DomainSocketAddress;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 通过常驻的启动器运行子进程 <p>
+ *
+ * 每个代理用户一个 {@link LauncherDaemon}, 第一次使用时通过 sudo 启动, 之后启动子进程, 发送信号都通过 unix domain socket 完成, 不再每次 fork
+ * sudo. 启动器空闲一段时间后自动退出, 下次使用时重新启动. 只连接属主为代理用户的 socket 文件.
+ */
+public class ProcessLauncher {
+
+  private static final Logger logger = LoggerFactory.getLogger(ProcessLauncher.class);
+
+  /**
+   * 等待启动器启动, 子进程启动的超时时间, 单位毫秒
+   */
+  private static final long START_TIMEOUT = 30 * 1000;
+
+  private static volatile ProcessLauncher instance;
+
+  /**
+   * socket 文件的目录, 所有用户可写, 带粘滞位
+   */
+  private final File socketDir;
+
+  /**
+   * 启动器的空闲超时, 单位秒
+   */
+  private final int idleTimeout;
+
+  /**
+   * 启动器的 jvm 参数
+   */
+  private final String javaOpts;
+
+  private final EventLoopGroup group;
+
+  /**
+   * 每个用户一把锁, 避免同时启动多个启动器
+   */
+  private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+  ProcessLauncher(String socketDir, int idleTimeout, String javaOpts) throws IOException {
+    this.socketDir = new File(socketDir);
+    this.idleTimeout = idleTimeout;
+    this.javaOpts = javaOpts;
+
+    if (!this.socketDir.exists() && !this.socketDir.mkdirs()) {
+      throw new IOException("Create launcher socket dir failed: " + socketDir);
+    }
+
+    // 各个用户的启动器都要在这里创建 socket 文件, 粘滞位保证只能删除自己的文件
+    Process chmod = new ProcessBuilder("chmod", "1777", this.socketDir.getPath()).start();
+
+    try {
+      if (chmod.waitFor() != 0) {
+        throw new IOException("Chmod launcher socket dir failed: " + socketDir);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+
+    this.group = new EpollEventLoopGroup(1, new ThreadFactoryBuilder()
+        .setNameFormat("Exec-Worker-ProcessLauncher-%d").setDaemon(true).build());
+  }
+
+  /**
+   * 初始化, 仅需调用一次, 当前平台不支持 epoll 时不启用
+   *
+   * @param socketDir socket 文件的目录
+   * @param idleTimeout 启动器的空闲超时, 单位秒
+   * @param javaOpts 启动器的 jvm 参数
+   */
+  public static void init(String socketDir, int idleTimeout, String javaOpts) {
+    if (instance == null) {
+      synchronized (ProcessLauncher.class) {
+        if (instance == null) {
+          if (!Epoll.isAvailable()) {
+            logger.warn("Epoll is not available, process launcher is disabled",
+                Epoll.unavailabilityCause());
+            return;
+          }
+
+          try {
+            instance = new ProcessLauncher(socketDir, idleTimeout, javaOpts);
+          } catch (IOException e) {
+            logger.error("Init process launcher failed, process launcher is disabled", e);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return 没有启用时返回 null
+   */
+  public static ProcessLauncher getInstance() {
+    return instance;
+  }
+
+  /**
+   * 以代理用户的身份启动子进程, 启动器没有运行时先启动
+   *
+   * @param user 代理用户
+   * @param workDir 工作目录
+   * @param command 命令
+   */
+  public RemoteProcess start(String user, String workDir, List<String> command)
+      throws IOException, InterruptedException {
+    File socket = new File(socketDir, user + ".sock");
+
+    Channel channel = connect(user, socket);
+
+    if (channel == null) {
+      synchronized (locks.computeIfAbsent(user, k -> new Object())) {
+        channel = connect(user, socket);
+
+        if (channel == null) {
+          channel = startDaemon(user, socket);
+        }
+      }
+    }
+
+    RemoteProcess process = new RemoteProcess(channel);
+    channel.pipeline().addLast(process.handler());
+
+    LauncherProtocol.sendSpawn(channel, workDir, command);
+
+    int pid = process.awaitStarted(START_TIMEOUT);
+
+    logger.debug("Launcher start process {} for user {}", pid, user);
+
+    return process;
+  }
+
+  /**
+   * 启动一个启动器, 并等待连接上
+   */
+  private Channel startDaemon(String user, File socket) throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+
+    // 就是当前用户时不需要 sudo
+    if (!user.equals(System.getProperty("user.name"))) {
+      command.add("sudo");
+      command.add("-u");
+      command.add(user);
+    }
+
+    command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+
+    if (StringUtils.isNotBlank(javaOpts)) {
+      for (String opt : StringUtils.split(javaOpts)) {
+        command.add(opt);
+      }
+    }
+
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(LauncherDaemon.class.getName());
+    command.add(socket.getPath());
+    command.add(String.valueOf(new UnixSystem().getUid()));
+    command.add(String.valueOf(idleTimeout));
+
+    logger.info("Start launcher daemon for user {}", user);
+
+    new ProcessBuilder(command)
+        .redirectErrorStream(true)
+        .redirectOutput(Redirect.appendTo(new File(socketDir, user + ".log")))
+        .start();
+
+    long deadline = System.currentTimeMillis() + START_TIMEOUT;
+
+    while (System.currentTimeMillis() < deadline) {
+      Thread.sleep(100);
+
+      Channel channel = connect(user, socket);
+
+      if (channel != null) {
+        return channel;
+      }
+    }
+
+    throw new IOException("Wait for launcher daemon of " + user + " timeout");
+  }
+
+  /**
+   * 连接用户的启动器
+   *
+   * @return 没有运行或 socket 文件的属主不对时返回 null
+   */
+  private Channel connect(String user, File socket) throws InterruptedException {
+    try {
+      if (!socket.exists() || !user.equals(Files.getOwner(socket.toPath()).getName())) {
+        return null;
+      }
+    } catch (IOException e) {
+      return null;
+    }
+
+    ChannelFuture future = new Bootstrap()
+        .group(group)
+        .channel(EpollDomainSocketChannel.class)
+        .handler(new ChannelInitializer<Channel>() {
+          @Override
+          protected void initChannel(Channel channel) {
+            LauncherProtocol.initPipeline(channel.pipeline());
+          }
+        })
+        .connect(new DomainSocketAddress(socket))
+        .await();
+
+    return future.isSuccess() ? future.channel() : null;
+  }
+
+  /**
+   * 关闭和启动器的连接, 启动器不退出, 等待空闲超时
+   */
+  public static void destroy() {
+    ProcessLauncher launcher = instance;
+
+    if (launcher != null) {
+      launcher.group.shutdownGracefully();
+      instance = null;
+    }
+  }
+}
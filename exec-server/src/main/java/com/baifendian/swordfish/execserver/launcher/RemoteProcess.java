@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.launcher;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.commons.io.output.NullOutputStream;
+
+/**
+ * 由启动器运行的子进程, 用法和本地的 {@link Process} 一致 <p>
+ *
+ * 标准输出和错误输出合并在 {@link #getInputStream()} 中, 不支持标准输入. 和启动器的连接断开时认为进程以 -1 退出.
+ */
+public class RemoteProcess extends Process {
+
+  /**
+   * 输出结束的标记
+   */
+  private static final byte[] EOF = new byte[0];
+
+  private final Channel channel;
+
+  /**
+   * 启动结果, 值为 pid
+   */
+  private final CompletableFuture<Integer> started = new CompletableFuture<>();
+
+  private final CountDownLatch exited = new CountDownLatch(1);
+
+  private final BlockingQueue<byte[]> output = new LinkedBlockingQueue<>();
+
+  private final InputStream inputStream = new OutputInputStream();
+
+  private volatile int exitCode = -1;
+
+  RemoteProcess(Channel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * 处理启动器发来的消息
+   */
+  SimpleChannelInboundHandler<ByteBuf> handler() {
+    return new SimpleChannelInboundHandler<ByteBuf>() {
+      @Override
+      protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+        switch (msg.readByte()) {
+          case LauncherProtocol.STARTED:
+            started.complete(msg.readInt());
+            break;
+          case LauncherProtocol.OUTPUT:
+            byte[] bytes = new byte[msg.readableBytes()];
+            msg.readBytes(bytes);
+            output.add(bytes);
+            break;
+          case LauncherProtocol.EXIT:
+            finish(msg.readInt());
+            break;
+          case LauncherProtocol.ERROR:
+            started.completeExceptionally(new IOException(LauncherProtocol.readString(msg)));
+            finish(-1);
+            break;
+          default:
+            break;
+        }
+      }
+
+      @Override
+      public void channelInactive(ChannelHandlerContext ctx) {
+        started.completeExceptionally(new IOException("Launcher connection closed"));
+        finish(-1);
+      }
+
+      @Override
+      public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        ctx.close();
+      }
+    };
+  }
+
+  private synchronized void finish(int code) {
+    if (exited.getCount() == 0) {
+      return;
+    }
+
+    exitCode = code;
+    output.add(EOF);
+    exited.countDown();
+
+    channel.close();
+  }
+
+  /**
+   * 等待启动完成
+   *
+   * @return 进程 id
+   */
+  int awaitStarted(long timeout) throws IOException, InterruptedException {
+    try {
+      return started.get(timeout, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      throw (e.getCause() instanceof IOException) ? (IOException) e.getCause()
+          : new IOException(e.getCause());
+    } catch (TimeoutException e) {
+      channel.close();
+      throw new IOException("Wait for process start timeout");
+    }
+  }
+
+  /**
+   * 进程 id, 没有启动成功时为 0
+   */
+  public int getPid() {
+    return started.getNow(0);
+  }
+
+  /**
+   * 发送信号, 和本地进程的 destroy/destroyForcibly 一致, 分别为 SIGTERM 和 SIGKILL
+   */
+  private void signal(boolean force) {
+    if (isAlive()) {
+      LauncherProtocol.send(channel, LauncherProtocol.SIGNAL,
+          channel.alloc().buffer(1).writeBoolean(force));
+    }
+  }
+
+  @Override
+  public OutputStream getOutputStream() {
+    return NullOutputStream.NULL_OUTPUT_STREAM;
+  }
+
+  @Override
+  public InputStream getInputStream() {
+    return inputStream;
+  }
+
+  @Override
+  public InputStream getErrorStream() {
+    return new ByteArrayInputStream(EOF);
+  }
+
+  @Override
+  public int waitFor() throws InterruptedException {
+    exited.await();
+    return exitCode;
+  }
+
+  @Override
+  public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+    return exited.await(timeout, unit);
+  }
+
+  @Override
+  public int exitValue() {
+    if (isAlive()) {
+      throw new IllegalThreadStateException("process hasn't exited");
+    }
+
+    return exitCode;
+  }
+
+  @Override
+  public boolean isAlive() {
+    return exited.getCount() > 0;
+  }
+
+  @Override
+  public void destroy() {
+    signal(false);
+  }
+
+  @Override
+  public Process destroyForcibly() {
+    signal(true);
+    return this;
+  }
+
+  /**
+   * 按块读取收到的输出
+   */
+  private class OutputInputStream extends InputStream {
+
+    private byte[] current = new byte[0];
+
+    private int pos;
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return (read(b, 0, 1) < 0) ? -1 : (b[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+
+      while (pos >= current.length) {
+        if (current == EOF) {
+          return -1;
+        }
+
+        try {
+          current = output.take();
+          pos = 0;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException(e);
+        }
+      }
+
+      int n = Math.min(len, current.length - pos);
+      System.arraycopy(current, pos, b, off, n);
+      pos += n;
+
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return current.length - pos;
+    }
+  }
+}
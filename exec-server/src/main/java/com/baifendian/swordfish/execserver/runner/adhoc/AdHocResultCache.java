@@ -0,0 +1,391 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.runner.adhoc;
+
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
+import com.baifendian.swordfish.common.hive.metastore.HiveMetaPoolClient;
+import com.baifendian.swordfish.common.job.struct.node.adhoc.AdHocParam;
+import com.baifendian.swordfish.common.job.struct.node.common.UdfsInfo;
+import com.baifendian.swordfish.common.utils.CommonUtil;
+import com.baifendian.swordfish.common.utils.http.HttpUtil;
+import com.baifendian.swordfish.dao.AdHocDao;
+import com.baifendian.swordfish.dao.DaoFactory;
+import com.baifendian.swordfish.dao.enums.ExecType;
+import com.baifendian.swordfish.dao.enums.FlowStatus;
+import com.baifendian.swordfish.dao.enums.SqlEngineType;
+import com.baifendian.swordfish.dao.model.AdHoc;
+import com.baifendian.swordfish.dao.model.AdHocResult;
+import com.baifendian.swordfish.dao.utils.json.JsonUtil;
+import com.baifendian.swordfish.execserver.engine.hive.HiveUtil;
+import com.baifendian.swordfish.execserver.parameter.ParamHelper;
+import com.baifendian.swordfish.execserver.parameter.SystemParamManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.hive.metastore.HiveMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.ql.lib.Node;
+import org.apache.hadoop.hive.ql.parse.ASTNode;
+import org.apache.hadoop.hive.ql.parse.BaseSemanticAnalyzer;
+import org.apache.hadoop.hive.ql.parse.HiveParser;
+import org.apache.hadoop.hive.ql.parse.ParseDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 即席查询的结果缓存 <p>
+ *
+ * 缓存的 key 是查询的指纹(规范化后的 sql + 代理用户 + 队列 + udf 集合 + 引擎 + limit), 保存在 ad_hocs 表中,
+ * 所以多个 executor 之间是共享的. 命中条件: 指纹相同的查询在 ttl 内成功结束, 且涉及的表在那次执行开始之后没有修改过.
+ */
+public class AdHocResultCache {
+
+  private static Logger logger = LoggerFactory.getLogger(AdHocResultCache.class.getName());
+
+  /**
+   * 存在不确定结果的函数时, 不能缓存
+   */
+  private static final Pattern NON_DETERMINISTIC_PATTERN = Pattern.compile(
+      "\\b(rand|uuid|unix_timestamp|current_timestamp|current_date|current_user|reflect|java_method|in_file)\\b");
+
+  /**
+   * hive 表最后修改时间的属性, 单位是秒
+   */
+  private static final String LAST_DDL_TIME = "transient_lastDdlTime";
+
+  /**
+   * 默认的数据库
+   */
+  private static final String DEFAULT_DB = "default";
+
+  /**
+   * 缓存的有效期, 单位是秒
+   */
+  private final int ttl;
+
+  private final AdHocDao adHocDao;
+
+  private final HiveUtil hiveUtil;
+
+  public AdHocResultCache(int ttl) {
+    this.ttl = ttl;
+    this.adHocDao = DaoFactory.getDaoInstance(AdHocDao.class);
+    this.hiveUtil = DaoFactory.getDaoInstance(HiveUtil.class);
+  }
+
+  /**
+   * 计算即席查询的缓存 key, 不可缓存时返回 null
+   */
+  public CacheKey genCacheKey(AdHoc adHoc, AdHocParam param) {
+    // phoenix 的表不在 hive 中, 无法判断是否修改过
+    if (adHoc.getType() == SqlEngineType.PHOENIX) {
+      return null;
+    }
+
+    try {
+      String sqls = ParamHelper.resolvePlaceholders(param.getStms(),
+          SystemParamManager.buildSystemParam(ExecType.DIRECT, adHoc.getCreateTime()));
+
+      List<String> normalizedSqls = new ArrayList<>();
+
+      for (String sql : CommonUtil.sqlSplit(sqls)) {
+        String normalizedSql = normalize(sql);
+
+        if (!isCacheable(normalizedSql)) {
+          return null;
+        }
+
+        normalizedSqls.add(normalizedSql);
+      }
+
+      if (normalizedSqls.isEmpty()) {
+        return null;
+      }
+
+      Set<String> tables = parseTables(normalizedSqls);
+
+      String fingerprint = fingerprint(normalizedSqls, adHoc.getProxyUser(), adHoc.getQueue(),
+          adHoc.getType(), param.getUdfs(), param.getLimit());
+
+      return new CacheKey(fingerprint, tables);
+    } catch (Exception e) {
+      logger.warn(String.format("ad hoc %d is not cacheable", adHoc.getId()), e);
+      return null;
+    }
+  }
+
+  /**
+   * 尝试用缓存的结果作为即席查询的结果, 命中则直接更新结果和状态
+   *
+   * @return 是否命中缓存
+   */
+  public boolean serve(AdHoc adHoc, CacheKey cacheKey, Logger jobLogger) {
+    try {
+      Date since = new Date(System.currentTimeMillis() - ttl * 1000L);
+
+      AdHoc cached = adHocDao.queryCachedAdHoc(cacheKey.getFingerprint(), since);
+
+      if (cached == null || cached.getId() == adHoc.getId()) {
+        return false;
+      }
+
+      // 执行开始之后, 表被修改过了, 结果可能已经过期
+      if (lastModifiedTime(cacheKey.getTables()) >= cached.getStartTime().getTime()) {
+        logger.info("ad hoc cache of exec {} is stale, tables: {}", cached.getId(),
+            cacheKey.getTables());
+        return false;
+      }
+
+      List<AdHocResult> results = adHocDao.queryAdHocResults(cached.getId());
+
+      if (CollectionUtils.isEmpty(results)) {
+        return false;
+      }
+
+      for (AdHocResult result : results) {
+        if (result.getStatus() != FlowStatus.SUCCESS) {
+          return false;
+        }
+
+        // 结果分片可能被清理了
+        if (StringUtils.isNotEmpty(result.getResultPath()) && !HdfsClient.getInstance()
+            .exists(result.getResultPath())) {
+          return false;
+        }
+      }
+
+      adHocDao.copyAdHocResults(results, adHoc.getId());
+
+      adHoc.setStatus(FlowStatus.SUCCESS);
+      adHoc.setCacheSource(cached.getId());
+      adHoc.setEndTime(new Date());
+
+      adHocDao.updateAdHoc(adHoc);
+
+      jobLogger.info("result is served from cache of exec id: {}, fingerprint: {}",
+          cached.getId(), cacheKey.getFingerprint());
+
+      return true;
+    } catch (Exception e) {
+      logger.error(String.format("serve ad hoc %d from cache exception", adHoc.getId()), e);
+      return false;
+    }
+  }
+
+  /**
+   * 得到这些表最后的修改时间, 单位是毫秒
+   */
+  private long lastModifiedTime(Set<String> tables) throws Exception {
+    HiveMetaPoolClient hiveMetaPoolClient = hiveUtil.getHiveMetaPoolClient();
+    HiveMetaStoreClient client = hiveMetaPoolClient.borrowClient();
+
+    long lastModified = 0;
+
+    try {
+      for (String table : tables) {
+        String[] names = table.split("\\.", 2);
+
+        try {
+          Table t = client.getTable(names[0], names[1]);
+          String lastDdlTime = (t.getParameters() == null) ? null
+              : t.getParameters().get(LAST_DDL_TIME);
+
+          // 不知道修改时间的, 认为是刚修改过
+          long modified = (lastDdlTime == null) ? Long.MAX_VALUE
+              : Long.parseLong(lastDdlTime) * 1000;
+
+          lastModified = Math.max(lastModified, modified);
+        } catch (NoSuchObjectException e) {
+          // with 子句中定义的名称等, 不是真实的表
+          logger.debug("table {} not exists, ignore it", table);
+        }
+      }
+    } catch (Exception e) {
+      hiveMetaPoolClient.invalidateObject(client);
+      client = null;
+      throw e;
+    } finally {
+      if (client != null) {
+        hiveMetaPoolClient.returnClient(client);
+      }
+    }
+
+    return lastModified;
+  }
+
+  /**
+   * 规范化 sql: 去掉注释, 合并空白, 引号外的部分转为小写
+   */
+  static String normalize(String sql) {
+    StringBuilder builder = new StringBuilder();
+
+    char quote = 0;
+    boolean space = false;
+
+    for (int i = 0; i < sql.length(); ++i) {
+      char c = sql.charAt(i);
+
+      if (quote != 0) {
+        builder.append(c);
+
+        if (c == '\\' && i + 1 < sql.length()) {
+          builder.append(sql.charAt(++i));
+        } else if (c == quote) {
+          quote = 0;
+        }
+
+        continue;
+      }
+
+      // 行注释
+      if (c == '-' && i + 1 < sql.length() && sql.charAt(i + 1) == '-') {
+        while (i < sql.length() && sql.charAt(i) != '\n') {
+          ++i;
+        }
+
+        space = true;
+        continue;
+      }
+
+      if (Character.isWhitespace(c)) {
+        space = true;
+        continue;
+      }
+
+      if (space && builder.length() > 0) {
+        builder.append(' ');
+      }
+
+      space = false;
+
+      if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+        builder.append(c);
+      } else {
+        builder.append(Character.toLowerCase(c));
+      }
+    }
+
+    return builder.toString();
+  }
+
+  /**
+   * 只有查询语句, 且没有不确定的函数, 才可以缓存
+   */
+  static boolean isCacheable(String normalizedSql) {
+    if (normalizedSql.startsWith("use ")) {
+      return true;
+    }
+
+    return HiveUtil.isTokQuery(normalizedSql) && !NON_DETERMINISTIC_PATTERN
+        .matcher(normalizedSql).find();
+  }
+
+  /**
+   * 解析语句中涉及的表, 格式为 db.table
+   */
+  static Set<String> parseTables(List<String> normalizedSqls) throws Exception {
+    Set<String> tables = new TreeSet<>();
+
+    ParseDriver parseDriver = new ParseDriver();
+    String db = DEFAULT_DB;
+
+    for (String sql : normalizedSqls) {
+      if (sql.startsWith("use ")) {
+        db = BaseSemanticAnalyzer.unescapeIdentifier(sql.substring(4).trim());
+        continue;
+      }
+
+      collectTables(parseDriver.parse(sql), db, tables);
+    }
+
+    return tables;
+  }
+
+  private static void collectTables(ASTNode node, String db, Set<String> tables) {
+    if (node.getType() == HiveParser.TOK_TABNAME) {
+      if (node.getChildCount() == 2) {
+        tables.add(BaseSemanticAnalyzer.unescapeIdentifier(node.getChild(0).getText()) + "."
+            + BaseSemanticAnalyzer.unescapeIdentifier(node.getChild(1).getText()));
+      } else {
+        tables.add(db + "." + BaseSemanticAnalyzer.unescapeIdentifier(node.getChild(0).getText()));
+      }
+
+      return;
+    }
+
+    if (node.getChildren() != null) {
+      for (Node child : node.getChildren()) {
+        collectTables((ASTNode) child, db, tables);
+      }
+    }
+  }
+
+  /**
+   * 计算指纹
+   */
+  static String fingerprint(List<String> normalizedSqls, String proxyUser, String queue,
+      SqlEngineType type, List<UdfsInfo> udfs, Integer limit) {
+    List<String> udfList = (udfs == null) ? Collections.emptyList()
+        : udfs.stream().map(JsonUtil::toJsonString).sorted().collect(Collectors.toList());
+
+    String key = String.join("\n", normalizedSqls)
+        + "\u0001" + proxyUser
+        + "\u0001" + queue
+        + "\u0001" + type
+        + "\u0001" + String.join(",", udfList)
+        + "\u0001" + limit;
+
+    return HttpUtil.getMd5(key);
+  }
+
+  /**
+   * 缓存的 key
+   */
+  public static class CacheKey {
+
+    /**
+     * 指纹
+     */
+    private final String fingerprint;
+
+    /**
+     * 涉及的表
+     */
+    private final Set<String> tables;
+
+    public CacheKey(String fingerprint, Set<String> tables) {
+      this.fingerprint = fingerprint;
+      this.tables = tables;
+    }
+
+    public String getFingerprint() {
+      return fingerprint;
+    }
+
+    public Set<String> getTables() {
+      return tables;
+    }
+  }
+}
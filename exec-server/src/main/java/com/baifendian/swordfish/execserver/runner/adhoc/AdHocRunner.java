@@ -15,9 +15,11 @@
  */
 package com.baifendian.swordfish.execserver.runner.adhoc;
 
+import com.baifendian.swordfish.common.enums.ExternalJobType;
 import com.baifendian.swordfish.dao.AdHocDao;
 import com.baifendian.swordfish.dao.enums.FlowStatus;
 import com.baifendian.swordfish.dao.model.AdHoc;
+import com.baifendian.swordfish.execserver.common.UdfJarStore;
 import com.baifendian.swordfish.execserver.job.JobProps;
 import java.util.Date;
 import org.slf4j.Logger;
@@ -64,6 +66,8 @@ public class AdHocRunner implements Runnable {
     } catch (Exception e) {
       logger.error("run adHoc job error", e);
       status = FlowStatus.FAILED;
+    } finally {
+      UdfJarStore.getInstance().release(UdfJarStore.holder(ExternalJobType.ADHOC, adHoc.getId()));
     }
 
     Date now = new Date();
@@ -15,6 +15,8 @@
  */
 package com.baifendian.swordfish.execserver.runner.adhoc;
 
+import com.baifendian.swordfish.common.config.BaseConfig;
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
 import com.baifendian.swordfish.common.job.struct.node.adhoc.AdHocParam;
 import com.baifendian.swordfish.common.utils.CommonUtil;
 import com.baifendian.swordfish.common.utils.DateUtils;
@@ -24,6 +26,7 @@ import com.baifendian.swordfish.dao.enums.FlowStatus;
 import com.baifendian.swordfish.dao.model.AdHoc;
 import com.baifendian.swordfish.dao.utils.json.JsonUtil;
 import com.baifendian.swordfish.execserver.utils.Constants;
+import com.baifendian.swordfish.execserver.runner.adhoc.AdHocResultCache.CacheKey;
 import com.baifendian.swordfish.execserver.utils.JobLogger;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.Date;
@@ -41,9 +44,19 @@ public class AdHocRunnerManager {
 
   private AdHocDao adHocDao;
 
+  /**
+   * 结果缓存, 没有开启时为 null
+   */
+  private AdHocResultCache adHocResultCache;
+
   public AdHocRunnerManager(Configuration conf) {
     adHocDao = DaoFactory.getDaoInstance(AdHocDao.class);
 
+    if (conf.getBoolean(Constants.EXECUTOR_ADHOC_CACHE_ENABLED, false)) {
+      adHocResultCache = new AdHocResultCache(
+          conf.getInt(Constants.EXECUTOR_ADHOC_CACHE_TTL, Constants.defaultAdhocCacheTtl));
+    }
+
     int threads = conf.getInt(Constants.EXECUTOR_ADHOCRUNNER_THREADS, Constants.defaultAdhocExecutorNum);
 
     ThreadFactory flowThreadFactory = new ThreadFactoryBuilder().setNameFormat("Exec-Server-AdHocRunner").build();
@@ -69,22 +82,53 @@ public class AdHocRunnerManager {
 
     adHoc.setJobId(jobId);
 
-    adHocDao.updateAdHoc(adHoc);
-
     // 将语句进行分差, 插入到相应的表中(需要在这里插入, 防止返回的时候, 语句还没插入)
     AdHocParam param = JsonUtil.parseObject(adHoc.getParameter(), AdHocParam.class);
 
+    // 计算缓存的 key, 指纹会随执行记录保存, 成功后可被之后相同的查询复用
+    CacheKey cacheKey = (adHocResultCache != null && param != null) ? adHocResultCache
+        .genCacheKey(adHoc, param) : null;
+
+    adHoc.setFingerprint((cacheKey != null) ? cacheKey.getFingerprint() : null);
+    adHoc.setCacheSource(null);
+
+    adHocDao.updateAdHoc(adHoc);
+
     if (param != null) {
+      // 清理之前执行遗留的结果分片
+      cleanResultSegments(adHoc.getId());
+
       adHocDao.initAdHocResult(adHoc.getId(), CommonUtil.sqlSplit(param.getStms()));
     }
 
-    // 提交执行
     Logger jobLogger = new JobLogger(jobId);
 
+    // 命中缓存的直接返回结果, 不占用执行线程
+    if (cacheKey != null && adHocResultCache.serve(adHoc, cacheKey, jobLogger)) {
+      logger.info("ad hoc {} is served from cache", adHoc.getId());
+      return;
+    }
+
+    // 提交执行
     AdHocRunner adHocRunner = new AdHocRunner(adHoc, adHocDao, jobLogger);
     adHocExecutorService.submit(adHocRunner);
   }
 
+  /**
+   * 清理即席查询的结果分片
+   */
+  private void cleanResultSegments(int execId) {
+    String resultDir = BaseConfig.getHdfsAdHocResultDir(execId);
+
+    try {
+      if (HdfsClient.getInstance().exists(resultDir)) {
+        HdfsClient.getInstance().delete(resultDir, true);
+      }
+    } catch (Exception e) {
+      logger.error(String.format("clean ad hoc result dir: %s exception", resultDir), e);
+    }
+  }
+
   /**
    * 停止线程执行
    */
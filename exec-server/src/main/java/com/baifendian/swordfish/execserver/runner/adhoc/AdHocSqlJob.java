@@ -15,6 +15,10 @@
  */
 package com.baifendian.swordfish.execserver.runner.adhoc;
 
+import static com.baifendian.swordfish.common.consts.Constants.ADHOC_RESULT_FIRST_PAGE_ROWS;
+import static com.baifendian.swordfish.common.consts.Constants.ADHOC_RESULT_SEGMENT_ROWS;
+
+import com.baifendian.swordfish.common.adhoc.AdHocResultWriter;
 import com.baifendian.swordfish.common.config.BaseConfig;
 import com.baifendian.swordfish.common.enums.ExternalJobType;
 import com.baifendian.swordfish.common.job.struct.node.adhoc.AdHocParam;
@@ -99,7 +103,7 @@ public class AdHocSqlJob {
 
     // 创建自定义函数
     List<String> funcs = FunctionUtil
-        .createFuncs(param.getUdfs(), props.getExecJobId(), null, logger,
+        .createFuncs(param.getUdfs(), props.getExecJobId(), logger,
             BaseConfig.getHdfsResourcesDir(props.getProjectId()), true, type,
             ExternalJobType.ADHOC);
 
@@ -135,6 +139,12 @@ public class AdHocSqlJob {
 
       adHocResult.setResult(JsonUtil.toJsonString(adHocJsonObject));
 
+      // 超过第一页的结果存放在分片中, 数据库只保存元信息
+      adHocResult.setRowCount(execResult.getRowCount());
+      adHocResult.setResultPath(execResult.getResultPath());
+      adHocResult.setSegmentCount(execResult.getSegmentCount());
+      adHocResult.setSegmentRows(execResult.getSegmentRows());
+
       adHocResult.setStartTime(startTime);
       adHocResult.setEndTime(endTime);
 
@@ -156,6 +166,11 @@ public class AdHocSqlJob {
       default: {
         HiveSqlExec hiveSqlExec = new HiveSqlExec(this::logProcess, props.getProxyUser(), logger, props.getQueue());
 
+        // 结果按批写入分片, 避免大结果集占用内存
+        hiveSqlExec.setResultWriterFactory(index -> new AdHocResultWriter(
+            BaseConfig.getHdfsAdHocResultDir(props.getExecJobId(), index),
+            ADHOC_RESULT_FIRST_PAGE_ROWS, ADHOC_RESULT_SEGMENT_ROWS));
+
         return hiveSqlExec.execute(funcs, execSqls, true, resultCallback, param.getLimit(),
             Constants.ADHOC_TIMEOUT)
             ? FlowStatus.SUCCESS : FlowStatus.FAILED;
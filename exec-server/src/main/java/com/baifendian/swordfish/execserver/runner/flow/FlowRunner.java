@@ -21,6 +21,7 @@ import com.baifendian.swordfish.common.hadoop.HdfsClient;
 import com.baifendian.swordfish.common.job.struct.node.BaseParam;
 import com.baifendian.swordfish.common.job.struct.node.BaseParamFactory;
 import com.baifendian.swordfish.common.mail.EmailManager;
+import com.baifendian.swordfish.common.utils.ZipExtractor;
 import com.baifendian.swordfish.common.utils.graph.DAGGraph;
 import com.baifendian.swordfish.common.utils.graph.Graph;
 import com.baifendian.swordfish.dao.DaoFactory;
@@ -30,22 +31,25 @@ import com.baifendian.swordfish.dao.enums.FailurePolicyType;
 import com.baifendian.swordfish.dao.enums.FlowStatus;
 import com.baifendian.swordfish.dao.model.ExecutionFlow;
 import com.baifendian.swordfish.dao.model.ExecutionNode;
+import com.baifendian.swordfish.dao.model.ExecutionNodeResource;
 import com.baifendian.swordfish.dao.model.FlowNode;
 import com.baifendian.swordfish.dao.model.FlowNodeRelation;
 import com.baifendian.swordfish.dao.model.flow.FlowDag;
 import com.baifendian.swordfish.dao.utils.json.JsonUtil;
+import com.baifendian.swordfish.execserver.common.NodeDeadline;
+import com.baifendian.swordfish.execserver.common.UdfJarStore;
 import com.baifendian.swordfish.execserver.exception.ExecTimeoutException;
 import com.baifendian.swordfish.execserver.job.JobContext;
 import com.baifendian.swordfish.execserver.parameter.ParamHelper;
 import com.baifendian.swordfish.execserver.parameter.SystemParamManager;
+import com.baifendian.swordfish.execserver.runner.node.JobTypeLimiter;
 import com.baifendian.swordfish.execserver.runner.node.NodeRunner;
+import com.baifendian.swordfish.execserver.runner.node.ResourceRequest;
 import com.baifendian.swordfish.execserver.utils.EnvHelper;
 import com.baifendian.swordfish.execserver.utils.LoggerUtil;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.nio.charset.Charset;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -54,15 +58,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -76,6 +80,12 @@ public class FlowRunner implements Runnable {
 
   private static final String JOB_PREFIX = "FLOW";
 
+  /**
+   * 工作流 zip 中运行时不需要的条目: 工作流定义已经在数据库中, 以及 mac 打包时的元数据
+   */
+  private static final Predicate<String> WORKFLOW_ZIP_FILTER = name -> !name.equals("workflow.json")
+      && !name.startsWith("__MACOSX/");
+
   /**
    * {@link FlowDao}
    */
@@ -87,9 +97,29 @@ public class FlowRunner implements Runnable {
   private final ExecutionFlow executionFlow;
 
   /**
-   * {@link ExecutorService}
+   * {@link JobTypeLimiter}
+   */
+  private final JobTypeLimiter jobTypeLimiter;
+
+  /**
+   * 节点默认申请的资源, 为 null 表示不按资源准入
+   */
+  private final ResourceRequest defaultResourceRequest;
+
+  /**
+   * 估计节点的申请时参考最近多少天的执行
+   */
+  private final int resourceHistoryDays;
+
+  /**
+   * 节点历史的资源使用, key 为节点名称
+   */
+  private final Map<String, ExecutionNodeResource> nodeResourceHistory = new HashMap<>();
+
+  /**
+   * 节点的截止时间, 第一次提交时确定, 重试时沿用, key 为节点名称
    */
-  private final ExecutorService nodeExecutorService;
+  private final Map<String, NodeDeadline> nodeDeadlines = new HashMap<>();
 
   /**
    * 所有提交过的节点, node name => ExecutionNode
@@ -121,6 +151,16 @@ public class FlowRunner implements Runnable {
    */
   private final long startTime;
 
+  /**
+   * 工作流 zip 的解压
+   */
+  private final ZipExtractor zipExtractor;
+
+  /**
+   * 各个节点需要的资源文件准备好, key 为节点名称
+   */
+  private final Map<String, CompletableFuture<Void>> nodeResources = new HashMap<>();
+
   /**
    * 是否停止
    */
@@ -132,11 +172,14 @@ public class FlowRunner implements Runnable {
   public FlowRunner(FlowRunnerContext context) {
     this.flowDao = DaoFactory.getDaoInstance(FlowDao.class);
     this.executionFlow = context.getExecutionFlow();
-    this.nodeExecutorService = context.getNodeExecutorService();
+    this.jobTypeLimiter = context.getJobTypeLimiter();
+    this.defaultResourceRequest = context.getDefaultResourceRequest();
+    this.resourceHistoryDays = context.getResourceHistoryDays();
     this.maxTryTimes = context.getMaxTryTimes();
     this.timeout = context.getTimeout();
     this.failurePolicyType = context.getFailurePolicyType();
     this.startTime = executionFlow.getStartTime().getTime();
+    this.zipExtractor = context.getZipExtractor();
     this.shutdown = false;
   }
 
@@ -211,38 +254,35 @@ public class FlowRunner implements Runnable {
       HdfsClient hdfsClient = HdfsClient.getInstance();
 
       if (hdfsClient.exists(workflowHdfsFile)) {
-        logger.info("get hdfs workflow file:{}", workflowHdfsFile);
-
-        String destPath = execLocalPath + File.separator + executionFlow.getWorkflowName() + ".zip";
-        logger.info("Copy hdfs workflow: {} to local: {}", workflowHdfsFile, destPath);
-
-        HdfsClient.getInstance().copyHdfsToLocal(workflowHdfsFile, destPath, false, true);
+        logger.info("extract hdfs workflow: {} to local: {}", workflowHdfsFile, execLocalPath);
 
-        // 资源文件解压缩处理 workflow 下的文件为 workflowName.zip
-        File zipFile = new File(destPath);
-        if (zipFile.exists()) {
-          String cmd = String.format("unzip -o %s -d %s", destPath, execLocalPath);
+        // 直接从 hdfs 的输入流解压, 不落地 zip 文件
+        long extractStart = System.currentTimeMillis();
+        long bytes = zipExtractor.extract(hdfsClient.open(workflowHdfsFile),
+            new File(execLocalPath), WORKFLOW_ZIP_FILTER);
 
-          logger.info("call cmd:{}", cmd);
-
-          Process process = Runtime.getRuntime().exec(cmd);
-          int ret = process.waitFor();
-          if (ret != 0) {
-            logger.error("run cmd error:{}", cmd);
-            logger.error(IOUtils.toString(process.getErrorStream(), Charset.forName("UTF-8")));
-          }
-        } else {
-          logger.error("can't found workflow zip file:{}", zipFile.getPath());
-        }
+        logger.info("extract {} bytes, cost {} ms", bytes,
+            System.currentTimeMillis() - extractStart);
       } else {
         logger.debug("hdfs workflow file:{} not exists", workflowHdfsFile);
       }
 
-      // 解析作业参数获取需要的 "项目级资源文件" 清单
-      List<String> projectRes = genProjectResFiles(flowDag);
+      // 解析作业参数获取各个节点需要的 "项目级资源文件" 清单
+      Map<String, List<String>> nodeRes = genNodeResFiles(flowDag);
 
-      // 将 hdfs 资源拷贝到本地
-      EnvHelper.copyResToLocal(executionFlow.getProjectId(), execLocalPath, projectRes, logger);
+      Set<String> projectRes = new HashSet<>();
+      nodeRes.values().forEach(projectRes::addAll);
+
+      logger.info("stage {} project files", projectRes.size());
+
+      // 开始并发地将 hdfs 资源拷贝到本地, 节点只等待自己需要的
+      Map<String, CompletableFuture<Void>> resFutures = EnvHelper
+          .stageResToLocal(executionFlow.getProjectId(), execLocalPath, projectRes);
+
+      for (Map.Entry<String, List<String>> entry : nodeRes.entrySet()) {
+        nodeResources.put(entry.getKey(), CompletableFuture.allOf(entry.getValue().stream()
+            .map(resFutures::get).toArray(CompletableFuture[]::new)));
+      }
 
       // 生成具体 Dag, 待执行
       Graph<String, FlowNode, FlowNodeRelation> dagGraph = genDagGraph(flowDag);
@@ -293,12 +333,12 @@ public class FlowRunner implements Runnable {
   }
 
   /**
-   * 生成项目的资源文件
+   * 生成各个节点需要的项目资源文件, key 为节点名称, 没有资源文件的节点不在其中
    */
-  private List<String> genProjectResFiles(FlowDag flowDag) throws
+  private Map<String, List<String>> genNodeResFiles(FlowDag flowDag) throws
       IllegalArgumentException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
     List<FlowNode> nodes = flowDag.getNodes();
-    Set<String> projectFiles = new HashSet<>();
+    Map<String, List<String>> nodeFiles = new HashMap<>();
 
     for (FlowNode node : nodes) {
       // 得到结点参数信息
@@ -307,13 +347,13 @@ public class FlowRunner implements Runnable {
       // 结点参数中获取资源文件
       if (baseParam != null) {
         List<String> projectResourceFiles = baseParam.getProjectResourceFiles();
-        if (projectResourceFiles != null) {
-          projectFiles.addAll(projectResourceFiles);
+        if (CollectionUtils.isNotEmpty(projectResourceFiles)) {
+          nodeFiles.put(node.getName(), projectResourceFiles);
         }
       }
     }
 
-    return new ArrayList<>(projectFiles);
+    return nodeFiles;
   }
 
   /**
@@ -341,6 +381,8 @@ public class FlowRunner implements Runnable {
       return FlowStatus.FAILED;
     }
 
+    loadNodeResourceHistory();
+
     // 得到起始结点
     Collection<String> startVertex = dagGraph.getStartVertex();
 
@@ -427,8 +469,16 @@ public class FlowRunner implements Runnable {
               // 如果没有达到重试次数, 重试即可
               ExecutionNode executionNode = executionNodeMap.get(nodeRunner.getNodename());
 
-              // 比如, 次数是 2, 则可以尝试 2 次
-              if (executionNode.getAttempt() < maxTryTimes) {
+              NodeDeadline deadline = nodeDeadlines.get(nodeRunner.getNodename());
+
+              if (nodeRunner.isTimeout()) {
+                logger.info("node {} time out, attempt: {}", nodeRunner.getNodename(),
+                    executionNode.getAttempt());
+              }
+
+              // 比如, 次数是 2, 则可以尝试 2 次, 节点或工作流已经到期的不再重试
+              if (executionNode.getAttempt() < maxTryTimes && !deadline
+                  .isExpired(System.currentTimeMillis())) {
                 executionNode.incAttempt();
 
                 // 更新结点状态
@@ -521,6 +571,26 @@ public class FlowRunner implements Runnable {
     return executionNode;
   }
 
+  /**
+   * 查询节点最近成功执行时的资源使用, 用于估计节点的申请, 查询失败时不影响执行
+   */
+  private void loadNodeResourceHistory() {
+    if (defaultResourceRequest == null) {
+      return;
+    }
+
+    Date since = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(resourceHistoryDays));
+
+    try {
+      for (ExecutionNodeResource resource : flowDao
+          .queryExecutionNodeResources(executionFlow.getFlowId(), since)) {
+        nodeResourceHistory.put(resource.getName(), resource);
+      }
+    } catch (Exception e) {
+      logger.error("query node resource history exception", e);
+    }
+  }
+
   /**
    * 提交 NodeRunner 执行
    */
@@ -532,11 +602,23 @@ public class FlowRunner implements Runnable {
     jobContext.setExecutionNode(executionNode);
     jobContext.setFlowNode(flowNode);
     jobContext.setSemaphore(semaphore);
+    jobContext.setResourceFuture(nodeResources.get(flowNode.getName()));
+    jobContext.setDeadline(nodeDeadlines.computeIfAbsent(flowNode.getName(),
+        k -> NodeDeadline.of(flowNode.getParameter(), startTime + timeout * 1000L,
+            System.currentTimeMillis())));
 
     // 构建 node runner
     NodeRunner nodeRunner = new NodeRunner(jobContext);
 
-    Future<Boolean> future = nodeExecutorService.submit(nodeRunner);
+    // 按任务类型限流, 拿不到许可或者资源不够时排队, 不占用节点线程
+    ResourceRequest request = ResourceRequest.NONE;
+
+    if (defaultResourceRequest != null) {
+      request = ResourceRequest.of(flowNode.getParameter(),
+          nodeResourceHistory.get(flowNode.getName()), defaultResourceRequest);
+    }
+
+    Future<Boolean> future = jobTypeLimiter.submit(flowNode.getType(), request, nodeRunner);
 
     activeNodeRunners.putIfAbsent(nodeRunner, future);
   }
@@ -731,6 +813,10 @@ public class FlowRunner implements Runnable {
   private void postProcess() {
     logger.info("Develop mode is: {}", BaseConfig.isDevelopMode());
 
+    // 释放引用的 udf jar, jar 本身由共享存储回收
+    UdfJarStore.getInstance()
+        .release(UdfJarStore.holder(ExternalJobType.WORKFLOW, executionFlow.getId()));
+
     if (!BaseConfig.isDevelopMode()) {
       // 执行完后, 清理目录, 避免文件过大
       String execLocalPath = BaseConfig
@@ -743,9 +829,6 @@ public class FlowRunner implements Runnable {
         logger.error(String.format("delete exec dir exception: %s", execLocalPath), e);
       }
 
-      // 执行完后, 清理 udf 目录
-      hdfsCleanUp(BaseConfig.getJobHiveUdfJarPath(executionFlow.getId(), ExternalJobType.WORKFLOW));
-
       // 执行完后, 清理 import/export 目录
       hdfsCleanUp(BaseConfig.getHdfsImpExpDir(executionFlow.getProjectId(), executionFlow.getId()));
     }
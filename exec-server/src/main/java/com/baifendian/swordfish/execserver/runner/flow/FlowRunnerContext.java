@@ -15,10 +15,12 @@
  */
 package com.baifendian.swordfish.execserver.runner.flow;
 
+import com.baifendian.swordfish.common.utils.ZipExtractor;
 import com.baifendian.swordfish.dao.enums.FailurePolicyType;
 import com.baifendian.swordfish.dao.model.ExecutionFlow;
 import com.baifendian.swordfish.dao.model.Schedule;
-import java.util.concurrent.ExecutorService;
+import com.baifendian.swordfish.execserver.runner.node.JobTypeLimiter;
+import com.baifendian.swordfish.execserver.runner.node.ResourceRequest;
 
 /**
  * workflow 执行的上下文 <p>
@@ -30,9 +32,19 @@ public class FlowRunnerContext {
   private ExecutionFlow executionFlow;
 
   /**
-   * {@link ExecutorService}
+   * {@link JobTypeLimiter}
    */
-  private ExecutorService nodeExecutorService;
+  private JobTypeLimiter jobTypeLimiter;
+
+  /**
+   * 节点默认申请的资源, 为 null 表示不按资源准入
+   */
+  private ResourceRequest defaultResourceRequest;
+
+  /**
+   * 估计节点的申请时参考最近多少天的执行
+   */
+  private int resourceHistoryDays;
 
   /**
    * 调度信息
@@ -54,6 +66,11 @@ public class FlowRunnerContext {
    */
   private int timeout;
 
+  /**
+   * 工作流 zip 的解压
+   */
+  private ZipExtractor zipExtractor;
+
   /**
    * getter method
    *
@@ -77,21 +94,61 @@ public class FlowRunnerContext {
   /**
    * getter method
    *
-   * @return the nodeExecutorService
-   * @see FlowRunnerContext#nodeExecutorService
+   * @return the jobTypeLimiter
+   * @see FlowRunnerContext#jobTypeLimiter
    */
-  public ExecutorService getNodeExecutorService() {
-    return nodeExecutorService;
+  public JobTypeLimiter getJobTypeLimiter() {
+    return jobTypeLimiter;
   }
 
   /**
    * setter method
    *
-   * @param nodeExecutorService the nodeExecutorService to set
-   * @see FlowRunnerContext#nodeExecutorService
+   * @param jobTypeLimiter the jobTypeLimiter to set
+   * @see FlowRunnerContext#jobTypeLimiter
    */
-  public void setNodeExecutorService(ExecutorService nodeExecutorService) {
-    this.nodeExecutorService = nodeExecutorService;
+  public void setJobTypeLimiter(JobTypeLimiter jobTypeLimiter) {
+    this.jobTypeLimiter = jobTypeLimiter;
+  }
+
+  /**
+   * getter method
+   *
+   * @return the defaultResourceRequest
+   * @see FlowRunnerContext#defaultResourceRequest
+   */
+  public ResourceRequest getDefaultResourceRequest() {
+    return defaultResourceRequest;
+  }
+
+  /**
+   * setter method
+   *
+   * @param defaultResourceRequest the defaultResourceRequest to set
+   * @see FlowRunnerContext#defaultResourceRequest
+   */
+  public void setDefaultResourceRequest(ResourceRequest defaultResourceRequest) {
+    this.defaultResourceRequest = defaultResourceRequest;
+  }
+
+  /**
+   * getter method
+   *
+   * @return the resourceHistoryDays
+   * @see FlowRunnerContext#resourceHistoryDays
+   */
+  public int getResourceHistoryDays() {
+    return resourceHistoryDays;
+  }
+
+  /**
+   * setter method
+   *
+   * @param resourceHistoryDays the resourceHistoryDays to set
+   * @see FlowRunnerContext#resourceHistoryDays
+   */
+  public void setResourceHistoryDays(int resourceHistoryDays) {
+    this.resourceHistoryDays = resourceHistoryDays;
   }
 
   /**
@@ -173,4 +230,24 @@ public class FlowRunnerContext {
   public void setTimeout(int timeout) {
     this.timeout = timeout;
   }
+
+  /**
+   * getter method
+   *
+   * @return the zipExtractor
+   * @see FlowRunnerContext#zipExtractor
+   */
+  public ZipExtractor getZipExtractor() {
+    return zipExtractor;
+  }
+
+  /**
+   * setter method
+   *
+   * @param zipExtractor the zipExtractor to set
+   * @see FlowRunnerContext#zipExtractor
+   */
+  public void setZipExtractor(ZipExtractor zipExtractor) {
+    this.zipExtractor = zipExtractor;
+  }
 }
@@ -15,18 +15,26 @@
  */
 package com.baifendian.swordfish.execserver.runner.flow;
 
+import com.baifendian.swordfish.common.utils.ZipExtractor;
 import com.baifendian.swordfish.dao.DaoFactory;
 import com.baifendian.swordfish.dao.FlowDao;
 import com.baifendian.swordfish.dao.model.ExecutionFlow;
+import com.baifendian.swordfish.execserver.runner.node.JobTypeLimiter;
+import com.baifendian.swordfish.execserver.runner.node.ResourceAdmission;
+import com.baifendian.swordfish.execserver.runner.node.ResourceRequest;
+import com.baifendian.swordfish.execserver.utils.OsUtil;
 import com.baifendian.swordfish.execserver.utils.Constants;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.configuration.Configuration;
 import org.slf4j.Logger;
@@ -54,6 +62,46 @@ public class FlowRunnerManager {
    */
   private final ExecutorService nodeExecutorService;
 
+  /**
+   * flow 的线程数
+   */
+  private final int flowThreads;
+
+  /**
+   * flow 线程都被占用时最多排队的 flow 数
+   */
+  private final int flowQueueMax;
+
+  /**
+   * node 的线程数
+   */
+  private final int nodeThreads;
+
+  /**
+   * 按任务类型对节点限流
+   */
+  private final JobTypeLimiter jobTypeLimiter;
+
+  /**
+   * 按 cpu 和内存准入节点, 没有启用时为 null
+   */
+  private final ResourceAdmission resourceAdmission;
+
+  /**
+   * 没有声明也没有历史记录的节点的申请
+   */
+  private final ResourceRequest defaultResourceRequest;
+
+  /**
+   * 估计节点的申请时参考最近多少天的执行
+   */
+  private final int resourceHistoryDays;
+
+  /**
+   * 工作流 zip 的解压, 所有 flow 共用
+   */
+  private final ZipExtractor zipExtractor;
+
   /**
    * 正在运行的 flows, key => flow id, value => flow runner 线程
    */
@@ -62,23 +110,75 @@ public class FlowRunnerManager {
   public FlowRunnerManager(Configuration conf) {
     this.flowDao = DaoFactory.getDaoInstance(FlowDao.class);
 
-    int flowThreads = conf
+    flowThreads = conf
         .getInt(Constants.EXECUTOR_FLOWRUNNER_THREADS, Constants.defaultFlowRunnerThreadNum);
     ThreadFactory flowThreadFactory = new ThreadFactoryBuilder()
         .setNameFormat("Exec-Worker-FlowRunner").build();
     flowExecutorService = Executors.newFixedThreadPool(flowThreads, flowThreadFactory);
 
-    int nodeThreads = conf
+    flowQueueMax = conf
+        .getInt(Constants.EXECUTOR_FLOWRUNNER_QUEUE_MAX, Constants.defaultFlowRunnerQueueMax);
+
+    nodeThreads = conf
         .getInt(Constants.EXECUTOR_NODERUNNER_THREADS, Constants.defaultNodeRunnerThreadNum);
     ThreadFactory nodeThreadFactory = new ThreadFactoryBuilder()
         .setNameFormat("Exec-Worker-NodeRunner").build();
     nodeExecutorService = Executors.newFixedThreadPool(nodeThreads, nodeThreadFactory);
 
+    // 各个任务类型的并发上限, 如 executor.jobtype.limit.HQL=20
+    Map<String, Integer> localLimits = new HashMap<>();
+
+    for (Iterator<String> iter = conf.getKeys(Constants.EXECUTOR_JOBTYPE_LIMIT); iter.hasNext(); ) {
+      String key = iter.next();
+      String jobType = key.substring(Constants.EXECUTOR_JOBTYPE_LIMIT.length() + 1);
+
+      localLimits.put(jobType, conf.getInt(key));
+    }
+
+    logger.info("job type limits: {}", localLimits);
+
+    if (conf.getBoolean(Constants.EXECUTOR_ADMISSION_ENABLED,
+        Constants.defaultAdmissionEnabled)) {
+      double cpu = conf.getDouble(Constants.EXECUTOR_ADMISSION_CPU, 0);
+      long memory = conf.getLong(Constants.EXECUTOR_ADMISSION_MEMORY, 0);
+
+      if (cpu <= 0) {
+        cpu = Runtime.getRuntime().availableProcessors();
+      }
+
+      if (memory <= 0) {
+        memory = (long) (OsUtil.totalMemory() * Constants.defaultAdmissionMemoryRatio);
+      }
+
+      resourceAdmission = new ResourceAdmission(nodeExecutorService, cpu, memory);
+    } else {
+      resourceAdmission = null;
+    }
+
+    defaultResourceRequest = new ResourceRequest(
+        conf.getDouble(Constants.EXECUTOR_ADMISSION_DEFAULT_CPU, 0),
+        conf.getLong(Constants.EXECUTOR_ADMISSION_DEFAULT_MEMORY, 0));
+    resourceHistoryDays = conf.getInt(Constants.EXECUTOR_ADMISSION_HISTORY_DAYS,
+        Constants.defaultAdmissionHistoryDays);
+
+    jobTypeLimiter = new JobTypeLimiter(nodeExecutorService, localLimits, resourceAdmission);
+
+    zipExtractor = new ZipExtractor(
+        conf.getLong(Constants.EXECUTOR_WORKFLOW_EXTRACT_MAX_BYTES,
+            Constants.defaultWorkflowExtractMaxBytes),
+        conf.getInt(Constants.EXECUTOR_WORKFLOW_EXTRACT_MAX_ENTRIES,
+            Constants.defaultWorkflowExtractMaxEntries));
+
     // 主要指清理 runningFlows 中运行完成的任务
     Thread cleanThread = new Thread(() -> {
       while (true) {
         try {
           cleanFinishedFlows();
+
+          // 实际采样的用量会下降, 定期尝试准入排队的节点
+          if (resourceAdmission != null) {
+            resourceAdmission.drain();
+          }
         } catch (Exception e) {
           logger.error("clean thread error ", e);
         } finally {
@@ -113,10 +213,17 @@ public class FlowRunnerManager {
     FlowRunnerContext context = new FlowRunnerContext();
 
     context.setExecutionFlow(executionFlow);
-    context.setNodeExecutorService(nodeExecutorService);
+    context.setJobTypeLimiter(jobTypeLimiter);
+
+    if (resourceAdmission != null) {
+      context.setDefaultResourceRequest(defaultResourceRequest);
+      context.setResourceHistoryDays(resourceHistoryDays);
+    }
+
     context.setMaxTryTimes(maxTryTimes);
     context.setTimeout(timeout);
     context.setFailurePolicyType(executionFlow.getFailurePolicy());
+    context.setZipExtractor(zipExtractor);
 
     FlowRunner flowRunner = new FlowRunner(context);
 
@@ -133,6 +240,50 @@ public class FlowRunnerManager {
     }
   }
 
+  /**
+   * 是否已经不能再接受新的 flow, 线程池的队列本身是无界的, 这里按接受的数目限制
+   */
+  public boolean isFull() {
+    return runningFlows.size() >= flowThreads + flowQueueMax;
+  }
+
+  /**
+   * 得到已经接受的 flow 的 exec id, 用于心跳汇报
+   */
+  public List<Integer> getRunningExecIds() {
+    return new ArrayList<>(runningFlows.keySet());
+  }
+
+  /**
+   * 得到空闲的 flow 槽位数
+   */
+  public int getFreeFlowSlots() {
+    return Math.max(flowThreads - runningFlows.size(), 0);
+  }
+
+  /**
+   * 得到空闲的 node 槽位数
+   */
+  public int getFreeNodeSlots() {
+    return Math.max(nodeThreads - ((ThreadPoolExecutor) nodeExecutorService).getActiveCount(), 0);
+  }
+
+  /**
+   * 得到任务类型的限流器, 心跳时汇报需求并更新集群配额
+   */
+  public JobTypeLimiter getJobTypeLimiter() {
+    return jobTypeLimiter;
+  }
+
+  /**
+   * 得到资源准入, 心跳时汇报空闲的资源
+   *
+   * @return 没有启用时返回 null
+   */
+  public ResourceAdmission getResourceAdmission() {
+    return resourceAdmission;
+  }
+
   /**
    * 清理完成的 flows
    */
@@ -219,7 +370,7 @@ public class FlowRunnerManager {
       return;
     }
 
+    // 写入 kill 状态之前仍然随心跳汇报, 否则 master 会认为 flow 丢失, 由 cleanFinishedFlows 在状态结束后移除
     flowRunner.clean(true);
-    runningFlows.remove(execId);
   }
 }
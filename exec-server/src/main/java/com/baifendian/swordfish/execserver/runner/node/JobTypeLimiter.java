@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.runner.node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按任务类型限制节点的并发数 <p>
+ *
+ * 每个任务类型有本地的上限, 以及 master 通过心跳下发的集群配额, 取两者的较小值. 拿不到许可的节点在各自类型的队列中等待,
+ * 不占用节点线程, 有节点结束时再从队列中取出提交到线程池. 配置了 {@link ResourceAdmission} 时, 拿到许可的节点还要按
+ * cpu 和内存准入.
+ */
+public class JobTypeLimiter {
+
+  private static final Logger logger = LoggerFactory.getLogger(JobTypeLimiter.class);
+
+  /**
+   * 表示不限制
+   */
+  public static final int UNLIMITED = -1;
+
+  /**
+   * 实际执行节点的线程池
+   */
+  private final ExecutorService executorService;
+
+  /**
+   * 按资源准入, 可以为 null
+   */
+  private final ResourceAdmission admission;
+
+  /**
+   * 本地配置的上限, key 为任务类型, 没有配置的类型不限制
+   */
+  private final Map<String, Integer> localLimits;
+
+  /**
+   * 各个任务类型的状态
+   */
+  private final Map<String, Limit> limits = new HashMap<>();
+
+  public JobTypeLimiter(ExecutorService executorService, Map<String, Integer> localLimits) {
+    this(executorService, localLimits, null);
+  }
+
+  public JobTypeLimiter(ExecutorService executorService, Map<String, Integer> localLimits,
+      ResourceAdmission admission) {
+    this.executorService = executorService;
+    this.localLimits = localLimits;
+    this.admission = admission;
+  }
+
+  /**
+   * 提交节点, 有许可时直接提交到线程池, 否则进入该类型的队列等待
+   *
+   * @param jobType 任务类型
+   * @param callable 节点的执行体
+   * @return 节点的 future, 可以用来取消排队或者运行中的节点
+   */
+  public Future<Boolean> submit(String jobType, Callable<Boolean> callable) {
+    return submit(jobType, ResourceRequest.NONE, callable);
+  }
+
+  /**
+   * 提交节点, 同上, 配置了资源准入时还要等待申请的资源
+   *
+   * @param jobType 任务类型
+   * @param request 节点申请的资源
+   * @param callable 节点的执行体
+   * @return 节点的 future, 可以用来取消排队或者运行中的节点
+   */
+  public Future<Boolean> submit(String jobType, ResourceRequest request,
+      Callable<Boolean> callable) {
+    Queued queued = new Queued(new FutureTask<>(callable), request);
+
+    boolean run;
+
+    synchronized (this) {
+      Limit limit = getLimit(jobType);
+
+      run = limit.running < limit.effective();
+
+      if (run) {
+        limit.running++;
+      } else {
+        limit.waiting.add(queued);
+
+        logger.info("job type {} reach limit {}, queued: {}", jobType, limit.effective(),
+            limit.waiting.size());
+      }
+    }
+
+    if (run) {
+      execute(jobType, queued);
+    }
+
+    return queued.task;
+  }
+
+  /**
+   * 更新 master 下发的集群配额, 没有下发的类型不受集群限制, 为 null 表示 master 没有配置集群上限
+   */
+  public void updateClusterQuotas(Map<String, Integer> quotas) {
+    List<String> jobTypes;
+
+    synchronized (this) {
+      for (Map.Entry<String, Limit> entry : limits.entrySet()) {
+        Integer quota = (quotas == null) ? null : quotas.get(entry.getKey());
+        entry.getValue().clusterQuota = (quota == null) ? UNLIMITED : quota;
+      }
+
+      if (quotas != null) {
+        for (Map.Entry<String, Integer> entry : quotas.entrySet()) {
+          getLimit(entry.getKey()).clusterQuota = entry.getValue();
+        }
+      }
+
+      jobTypes = new ArrayList<>(limits.keySet());
+    }
+
+    // 配额可能变大了, 尝试调度排队的节点
+    for (String jobType : jobTypes) {
+      drain(jobType);
+    }
+  }
+
+  /**
+   * 各个任务类型的需求, 即正在运行和排队的节点数之和, 用于心跳汇报
+   */
+  public synchronized Map<String, Integer> getJobTypeDemands() {
+    Map<String, Integer> demands = new HashMap<>();
+
+    for (Map.Entry<String, Limit> entry : limits.entrySet()) {
+      Limit limit = entry.getValue();
+      demands.put(entry.getKey(), limit.running + limit.waiting.size());
+    }
+
+    return demands;
+  }
+
+  /**
+   * 得到某个类型排队的节点数
+   */
+  public synchronized int getWaiting(String jobType) {
+    Limit limit = limits.get(jobType);
+
+    return (limit == null) ? 0 : limit.waiting.size();
+  }
+
+  /**
+   * 得到某个类型正在运行的节点数
+   */
+  public synchronized int getRunning(String jobType) {
+    Limit limit = limits.get(jobType);
+
+    return (limit == null) ? 0 : limit.running;
+  }
+
+  private Limit getLimit(String jobType) {
+    return limits.computeIfAbsent(jobType,
+        k -> new Limit(localLimits.getOrDefault(k, UNLIMITED)));
+  }
+
+  /**
+   * 提交到线程池, 执行完成后释放许可
+   */
+  private void execute(String jobType, Queued queued) {
+    FutureTask<Boolean> task = queued.task;
+
+    if (admission != null) {
+      admission.execute(queued.request, task, () -> release(jobType));
+      return;
+    }
+
+    try {
+      executorService.execute(() -> {
+        try {
+          task.run();
+        } finally {
+          release(jobType);
+        }
+      });
+    } catch (Exception e) {
+      // 线程池已经关闭等情况, 归还许可
+      logger.error("submit job type {} exception", jobType, e);
+      task.cancel(false);
+      release(jobType);
+    }
+  }
+
+  /**
+   * 释放许可, 并调度队列中的节点
+   */
+  private void release(String jobType) {
+    synchronized (this) {
+      getLimit(jobType).running--;
+    }
+
+    drain(jobType);
+  }
+
+  /**
+   * 在许可允许的范围内, 把队列中的节点提交到线程池, 已经取消的节点直接丢弃
+   */
+  private void drain(String jobType) {
+    while (true) {
+      Queued queued;
+
+      synchronized (this) {
+        Limit limit = getLimit(jobType);
+
+        if (limit.running >= limit.effective()) {
+          return;
+        }
+
+        do {
+          queued = limit.waiting.poll();
+        } while (queued != null && queued.task.isCancelled());
+
+        if (queued == null) {
+          return;
+        }
+
+        limit.running++;
+      }
+
+      execute(jobType, queued);
+    }
+  }
+
+  /**
+   * 单个任务类型的许可和队列
+   */
+  private static class Limit {
+
+    /**
+     * 本地的上限
+     */
+    private final int localLimit;
+
+    /**
+     * 集群的配额
+     */
+    private int clusterQuota = UNLIMITED;
+
+    /**
+     * 正在运行的节点数
+     */
+    private int running = 0;
+
+    /**
+     * 等待许可的节点
+     */
+    private final Queue<Queued> waiting = new ArrayDeque<>();
+
+    Limit(int localLimit) {
+      this.localLimit = localLimit;
+    }
+
+    /**
+     * 实际生效的上限
+     */
+    int effective() {
+      int local = (localLimit < 0) ? Integer.MAX_VALUE : localLimit;
+      int cluster = (clusterQuota < 0) ? Integer.MAX_VALUE : clusterQuota;
+
+      return Math.min(local, cluster);
+    }
+  }
+
+  /**
+   * 等待许可的节点及其申请的资源
+   */
+  private static class Queued {
+
+    private final FutureTask<Boolean> task;
+
+    private final ResourceRequest request;
+
+    Queued(FutureTask<Boolean> task, ResourceRequest request) {
+      this.task = task;
+      this.request = request;
+    }
+  }
+}
@@ -24,15 +24,25 @@ import com.baifendian.swordfish.dao.enums.FlowStatus;
 import com.baifendian.swordfish.dao.model.ExecutionFlow;
 import com.baifendian.swordfish.dao.model.ExecutionNode;
 import com.baifendian.swordfish.dao.model.FlowNode;
+import com.baifendian.swordfish.execserver.common.DeadlineTimer;
+import com.baifendian.swordfish.execserver.common.DeadlineTimer.Timeout;
+import com.baifendian.swordfish.execserver.common.NodeDeadline;
+import com.baifendian.swordfish.execserver.common.ProcessSampler;
+import com.baifendian.swordfish.execserver.common.ResourceStager;
+import com.baifendian.swordfish.execserver.common.ResourceUsage;
+import com.baifendian.swordfish.execserver.exception.ExecTimeoutException;
 import com.baifendian.swordfish.execserver.job.Job;
 import com.baifendian.swordfish.execserver.job.JobContext;
 import com.baifendian.swordfish.execserver.job.JobManager;
 import com.baifendian.swordfish.execserver.job.JobProps;
 import com.baifendian.swordfish.execserver.parameter.SystemParamManager;
 import com.baifendian.swordfish.execserver.utils.JobLogger;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Semaphore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,18 +63,35 @@ public class NodeRunner implements Callable<Boolean> {
 
   private final FlowNode flowNode;
 
-  private Job job;
+  private volatile Job job;
 
   private Semaphore semaphore;
 
   private final FlowDao flowDao;
 
+  /**
+   * 节点需要的资源文件准备好
+   */
+  private final CompletableFuture<Void> resourceFuture;
+
+  /**
+   * 节点的截止时间, 可以为空
+   */
+  private final NodeDeadline deadline;
+
+  /**
+   * 本次执行是否超时
+   */
+  private volatile boolean timeout;
+
   public NodeRunner(JobContext jobContext) {
     this.flowDao = DaoFactory.getDaoInstance(FlowDao.class);
     this.executionFlow = jobContext.getExecutionFlow();
     this.executionNode = jobContext.getExecutionNode();
     this.flowNode = jobContext.getFlowNode();
     this.semaphore = jobContext.getSemaphore();
+    this.resourceFuture = jobContext.getResourceFuture();
+    this.deadline = jobContext.getDeadline();
   }
 
   public ExecType getExecType() {
@@ -85,6 +112,13 @@ public class NodeRunner implements Callable<Boolean> {
     return flowNode.getName();
   }
 
+  /**
+   * 本次执行是否因为超时被 kill
+   */
+  public boolean isTimeout() {
+    return timeout;
+  }
+
   @Override
   public Boolean call() {
     // 更新结点状态为正在运行
@@ -94,7 +128,24 @@ public class NodeRunner implements Callable<Boolean> {
 
     boolean success = false;
 
+    ProcessSampler sampler = ProcessSampler.getInstance();
+    String jobAppId = null;
+
+    // 本次执行的截止时间, 在共用的时间轮上到期时 kill 作业
+    long attemptStart = System.currentTimeMillis();
+    long attemptDeadline = (deadline != null) ? deadline.attemptDeadline(attemptStart)
+        : executionFlow.getStartTime().getTime() + executionFlow.getTimeout() * 1000L;
+
+    DeadlineTimer timer = DeadlineTimer.getInstance();
+    Timeout timeoutEntry = (timer != null) ? timer.schedule(attemptDeadline, this::expire)
+        : null;
+
     try {
+      // 只等待本节点需要的资源文件, 不用等整个 flow 的
+      if (resourceFuture != null) {
+        ResourceStager.await(Collections.singletonList(resourceFuture));
+      }
+
       // "项目id/flowId/执行id"
       String jobScriptPath = BaseConfig
           .getFlowExecDir(executionFlow.getProjectId(), executionFlow.getFlowId(),
@@ -136,16 +187,29 @@ public class NodeRunner implements Callable<Boolean> {
       props.setExecId(executionFlow.getId());
       props.setEnvFile(BaseConfig.getSystemEnvPath());
       props.setQueue(executionFlow.getQueue());
-      props.setExecJobStartTime(executionFlow.getStartTime()); // 设置为起始运行的时间
-      props.setExecJobTimeout(executionFlow.getTimeout());
+      // 作业的剩余时间按本次执行的截止时间计算
+      props.setExecJobStartTime(new Date(attemptStart));
+      props.setExecJobTimeout((int) ((attemptDeadline - attemptStart) / 1000));
+
+      jobAppId = String.format("%s_%s", executionNode.getJobId(),
+          HttpUtil.getMd5(executionNode.getName()).substring(0, 8));
+
+      props.setJobAppId(jobAppId);
 
-      props.setJobAppId(String.format("%s_%s", executionNode.getJobId(),
-          HttpUtil.getMd5(executionNode.getName()).substring(0, 8)));
+      // 登记后, 作业启动的进程树的资源使用计入本节点
+      if (sampler != null) {
+        sampler.track(jobAppId);
+      }
 
       JobLogger jobLogger = new JobLogger(executionNode.getJobId());
 
       job = JobManager.newJob(flowNode.getType(), props, jobLogger);
 
+      // 作业创建之前已经到期
+      if (timeout) {
+        throw new ExecTimeoutException("node execution time out");
+      }
+
       // job 的初始化
       job.init();
 
@@ -168,6 +232,14 @@ public class NodeRunner implements Callable<Boolean> {
 
       kill();
     } finally {
+      if (timeoutEntry != null) {
+        timeoutEntry.cancel();
+      }
+
+      if (sampler != null && jobAppId != null) {
+        saveResourceUsage(sampler.untrack(jobAppId));
+      }
+
       semaphore.release();
 
       logger.info("job process done, exec id: {}, node: {}, success: {}", executionFlow.getId(),
@@ -177,6 +249,38 @@ public class NodeRunner implements Callable<Boolean> {
     return success;
   }
 
+  /**
+   * 记录节点的资源使用, 随节点状态一起更新, 重试时为最后一次的值
+   */
+  private void saveResourceUsage(ResourceUsage usage) {
+    if (usage == null || usage.getSamples() == 0) {
+      return;
+    }
+
+    executionNode.setCpuPeak(usage.getCpuPeak());
+    executionNode.setCpuAvg(usage.getCpuAvg());
+    executionNode.setMemPeak(usage.getMemPeak());
+    executionNode.setMemAvg(usage.getMemAvg());
+    executionNode.setIoRead(usage.getIoRead());
+    executionNode.setIoWrite(usage.getIoWrite());
+
+    logger.info("exec id: {}, node: {}, cpu peak: {}, cpu avg: {}, mem peak: {}, mem avg: {}",
+        executionFlow.getId(), executionNode.getName(), usage.getCpuPeak(), usage.getCpuAvg(),
+        usage.getMemPeak(), usage.getMemAvg());
+  }
+
+  /**
+   * 本次执行到期, kill 作业, 进程, yarn 应用和 hive 语句都由作业的 cancel 处理
+   */
+  private void expire() {
+    timeout = true;
+
+    logger.info("job execution time out, exec id: {}, node: {}", executionFlow.getId(),
+        executionNode.getName());
+
+    kill();
+  }
+
   /**
    * 关闭任务
    */
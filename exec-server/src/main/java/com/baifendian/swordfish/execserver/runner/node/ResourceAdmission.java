@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.runner.node;
+
+import com.baifendian.swordfish.execserver.common.ProcessSampler;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按 cpu 和内存准入节点 <p>
+ *
+ * 节点启动前按申请预留资源, 结束后归还, 剩余资源放不下的节点按提交顺序排队, 不占用节点线程. 已用资源取预留和实际采样的较大值,
+ * 避免申请偏小的节点把机器压垮. 放不下队首时允许后面小的节点先运行, 但队首等待超过一定时间后不再插队, 为它攒够资源.
+ */
+public class ResourceAdmission {
+
+  private static final Logger logger = LoggerFactory.getLogger(ResourceAdmission.class);
+
+  /**
+   * 队首等待超过这个时间后, 后面的节点不能再插队, 单位毫秒
+   */
+  static final long HEAD_RESERVE_MILLIS = 60 * 1000;
+
+  /**
+   * 实际执行节点的线程池
+   */
+  private final ExecutorService executorService;
+
+  /**
+   * 可分配的 cpu 核数
+   */
+  private final double cpuCapacity;
+
+  /**
+   * 可分配的内存, 单位 MB
+   */
+  private final long memCapacity;
+
+  /**
+   * 已经预留的资源
+   */
+  private double reservedCpu;
+
+  private long reservedMem;
+
+  /**
+   * 正在运行的节点数
+   */
+  private int running;
+
+  /**
+   * 等待资源的节点
+   */
+  private final Deque<Pending> waiting = new ArrayDeque<>();
+
+  public ResourceAdmission(ExecutorService executorService, double cpuCapacity,
+      long memCapacity) {
+    this.executorService = executorService;
+    this.cpuCapacity = cpuCapacity;
+    this.memCapacity = memCapacity;
+
+    logger.info("resource admission capacity, cpu: {}, memory: {} MB", cpuCapacity, memCapacity);
+  }
+
+  /**
+   * 提交节点, 资源足够时直接提交到线程池, 否则排队 <p>
+   *
+   * 超过总量的申请按总量计算, 否则永远不能运行.
+   *
+   * @param request 节点的申请
+   * @param task 节点的执行体
+   * @param onFinish 执行完成, 或者排队时被取消, 或者线程池拒绝后调用
+   */
+  public void execute(ResourceRequest request, FutureTask<?> task, Runnable onFinish) {
+    ResourceRequest clamped = new ResourceRequest(Math.min(request.getCpu(), cpuCapacity),
+        Math.min(request.getMemory(), memCapacity));
+
+    synchronized (this) {
+      waiting.add(new Pending(clamped, task, onFinish, System.currentTimeMillis()));
+    }
+
+    drain();
+  }
+
+  /**
+   * 在资源允许的范围内, 把队列中的节点提交到线程池 <p>
+   *
+   * 节点结束时会自动调用, 实际采样的用量下降后也需要定期调用.
+   */
+  public void drain() {
+    while (true) {
+      Pending pending;
+
+      synchronized (this) {
+        pending = poll(System.currentTimeMillis());
+
+        if (pending == null) {
+          return;
+        }
+
+        reservedCpu += pending.request.getCpu();
+        reservedMem += pending.request.getMemory();
+        running++;
+      }
+
+      dispatch(pending);
+    }
+  }
+
+  /**
+   * 取出一个放得下的节点, 已经取消的节点直接结束
+   */
+  private Pending poll(long now) {
+    double freeCpu = cpuCapacity - usedCpu();
+    long freeMem = memCapacity - usedMem();
+
+    boolean head = true;
+
+    for (Iterator<Pending> iter = waiting.iterator(); iter.hasNext(); ) {
+      Pending pending = iter.next();
+
+      // 没有运行的节点时队首一定能运行, 采样值可能还没有更新
+      if (pending.task.isCancelled() || (head && running == 0) || fits(pending.request, freeCpu,
+          freeMem)) {
+        iter.remove();
+        return pending;
+      }
+
+      if (head && now - pending.queueTime > HEAD_RESERVE_MILLIS) {
+        return null;
+      }
+
+      head = false;
+    }
+
+    return null;
+  }
+
+  private static boolean fits(ResourceRequest request, double freeCpu, long freeMem) {
+    return (request.getCpu() == 0 || request.getCpu() <= freeCpu)
+        && (request.getMemory() == 0 || request.getMemory() <= freeMem);
+  }
+
+  /**
+   * 提交到线程池, 执行完成后归还资源
+   */
+  private void dispatch(Pending pending) {
+    if (pending.task.isCancelled()) {
+      release(pending);
+      return;
+    }
+
+    try {
+      executorService.execute(() -> {
+        try {
+          pending.task.run();
+        } finally {
+          release(pending);
+        }
+      });
+    } catch (Exception e) {
+      // 线程池已经关闭等情况, 归还资源
+      logger.error("submit node exception", e);
+      pending.task.cancel(false);
+      release(pending);
+    }
+  }
+
+  private void release(Pending pending) {
+    synchronized (this) {
+      reservedCpu -= pending.request.getCpu();
+      reservedMem -= pending.request.getMemory();
+      running--;
+    }
+
+    try {
+      pending.onFinish.run();
+    } finally {
+      drain();
+    }
+  }
+
+  /**
+   * 已用的 cpu 核数, 取预留和实际采样的较大值
+   */
+  private double usedCpu() {
+    ProcessSampler sampler = ProcessSampler.getInstance();
+
+    return (sampler == null) ? reservedCpu : Math.max(reservedCpu, sampler.getCpuUsed());
+  }
+
+  /**
+   * 已用的内存, 单位 MB
+   */
+  private long usedMem() {
+    ProcessSampler sampler = ProcessSampler.getInstance();
+
+    return (sampler == null) ? reservedMem
+        : Math.max(reservedMem, sampler.getMemUsed() / 1024 / 1024);
+  }
+
+  /**
+   * 排队的节点数
+   */
+  public synchronized int getWaiting() {
+    return waiting.size();
+  }
+
+  /**
+   * 空闲的 cpu 核数, 减去了排队节点的申请, 可能为负数, 用于心跳汇报
+   */
+  public synchronized double getFreeCpu() {
+    double free = cpuCapacity - usedCpu();
+
+    for (Pending pending : waiting) {
+      free -= pending.request.getCpu();
+    }
+
+    return free;
+  }
+
+  /**
+   * 空闲的内存, 单位 MB, 减去了排队节点的申请, 可能为负数, 用于心跳汇报
+   */
+  public synchronized long getFreeMemory() {
+    long free = memCapacity - usedMem();
+
+    for (Pending pending : waiting) {
+      free -= pending.request.getMemory();
+    }
+
+    return free;
+  }
+
+  /**
+   * 等待资源的节点
+   */
+  private static class Pending {
+
+    private final ResourceRequest request;
+
+    private final FutureTask<?> task;
+
+    private final Runnable onFinish;
+
+    /**
+     * 进入队列的时间
+     */
+    private final long queueTime;
+
+    Pending(ResourceRequest request, FutureTask<?> task, Runnable onFinish, long queueTime) {
+      this.request = request;
+      this.task = task;
+      this.onFinish = onFinish;
+      this.queueTime = queueTime;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.runner.node;
+
+import com.baifendian.swordfish.dao.model.ExecutionNodeResource;
+import com.baifendian.swordfish.dao.utils.json.JsonUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 节点申请的资源 <p>
+ *
+ * 节点参数中可以声明 cpuRequest (核数) 和 memRequest (MB), 没有声明的按历史上成功运行时的峰值估计, 都没有时使用默认值.
+ */
+public class ResourceRequest {
+
+  /**
+   * 不申请资源
+   */
+  public static final ResourceRequest NONE = new ResourceRequest(0, 0);
+
+  /**
+   * cpu 核数
+   */
+  private final double cpu;
+
+  /**
+   * 内存, 单位 MB
+   */
+  private final long memory;
+
+  public ResourceRequest(double cpu, long memory) {
+    this.cpu = Math.max(cpu, 0);
+    this.memory = Math.max(memory, 0);
+  }
+
+  /**
+   * 得到节点的申请
+   *
+   * @param parameter 节点参数
+   * @param history 历史的资源使用, 可以为 null
+   * @param defaultRequest 默认的申请
+   */
+  public static ResourceRequest of(String parameter, ExecutionNodeResource history,
+      ResourceRequest defaultRequest) {
+    double cpu = (history != null) ? history.getCpuPeak() : defaultRequest.cpu;
+    long memory = (history != null) ? history.getMemPeak() / 1024 / 1024 : defaultRequest.memory;
+
+    JsonNode node = (parameter == null) ? null : JsonUtil.readTree(parameter);
+
+    if (node != null) {
+      if (node.path("cpuRequest").isNumber()) {
+        cpu = node.get("cpuRequest").asDouble();
+      }
+
+      if (node.path("memRequest").isNumber()) {
+        memory = node.get("memRequest").asLong();
+      }
+    }
+
+    return new ResourceRequest(cpu, memory);
+  }
+
+  public double getCpu() {
+    return cpu;
+  }
+
+  public long getMemory() {
+    return memory;
+  }
+
+  @Override
+  public String toString() {
+    return "ResourceRequest{cpu=" + cpu + ", memory=" + memory + "}";
+  }
+}
@@ -25,6 +25,7 @@ import com.baifendian.swordfish.dao.model.ExecutionFlow;
 import com.baifendian.swordfish.dao.model.StreamingResult;
 import com.baifendian.swordfish.execserver.runner.adhoc.AdHocRunnerManager;
 import com.baifendian.swordfish.execserver.runner.flow.FlowRunnerManager;
+import com.baifendian.swordfish.execserver.runner.node.JobTypeLimiter;
 import com.baifendian.swordfish.execserver.runner.streaming.StreamingRunnerManager;
 import com.baifendian.swordfish.execserver.utils.ResultHelper;
 import com.baifendian.swordfish.rpc.RetInfo;
@@ -117,6 +118,12 @@ public class ExecServiceImpl implements Iface {
         return ResultHelper.createErrorResult("workflow exec id has finish");
       }
 
+      // 已经满了, 由 master 放回队列稍后重新分发
+      if (flowRunnerManager.isFull()) {
+        logger.warn("executor is full, reject exec id: {}", execId);
+        return ResultHelper.createBusyResult("executor is full");
+      }
+
       // 更新状态为 RUNNING
       String worker = String.format("%s:%d", host, port);
       flowDao.updateExecutionFlowStatus(execId, FlowStatus.RUNNING, worker);
@@ -312,6 +319,20 @@ public class ExecServiceImpl implements Iface {
     return ResultHelper.SUCCESS;
   }
 
+  /**
+   * 得到 flow 的执行管理器
+   */
+  public FlowRunnerManager getFlowRunnerManager() {
+    return flowRunnerManager;
+  }
+
+  /**
+   * 得到任务类型的限流器
+   */
+  public JobTypeLimiter getJobTypeLimiter() {
+    return flowRunnerManager.getJobTypeLimiter();
+  }
+
   /**
    * 销毁资源 <p>
    */
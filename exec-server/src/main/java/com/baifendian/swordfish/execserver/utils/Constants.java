@@ -23,14 +23,66 @@ public class Constants {
 
   public static final String EXECUTOR_HEARTBEAT_INTERVAL = "executor.heartbeat.interval";
 
+  public static final String EXECUTOR_MASTER_FAILOVER_TIMEOUT = "executor.master.failover.timeout";
+
+  public static final String EXECUTOR_LABELS = "executor.labels";
+
+  public static final String EXECUTOR_LEASE_MAX = "executor.lease.max";
+
   public static final String EXECUTOR_ADHOCRUNNER_THREADS = "executor.adhocrunner.threads";
 
   public static final String EXECUTOR_FLOWRUNNER_THREADS = "executor.flowrunner.threads";
 
+  public static final String EXECUTOR_FLOWRUNNER_QUEUE_MAX = "executor.flowrunner.queue.max";
+
   public static final String EXECUTOR_NODERUNNER_THREADS = "executor.noderunner.threads";
 
+  public static final String EXECUTOR_RESOURCE_STAGE_THREADS = "executor.resource.stage.threads";
+
+  public static final String EXECUTOR_UDF_STORE_RETENTION_HOURS = "executor.udf.store.retention.hours";
+
+  public static final String EXECUTOR_UDF_STORE_GC_INTERVAL = "executor.udf.store.gc.interval";
+
+  public static final String EXECUTOR_IMPEXP_ENGINE = "executor.impexp.engine";
+
+  public static final String EXECUTOR_IMPEXP_FETCH_SIZE = "executor.impexp.fetch.size";
+
+  public static final String EXECUTOR_IMPEXP_HIVE_DIRECT = "executor.impexp.hive.direct";
+
+  public static final String EXECUTOR_RESOURCE_SAMPLE_INTERVAL = "executor.resource.sample.interval";
+
+  public static final String EXECUTOR_LAUNCHER_ENABLED = "executor.launcher.enabled";
+
+  public static final String EXECUTOR_LAUNCHER_SOCKET_DIR = "executor.launcher.socket.dir";
+
+  public static final String EXECUTOR_LAUNCHER_IDLE_TIMEOUT = "executor.launcher.idle.timeout";
+
+  public static final String EXECUTOR_LAUNCHER_JAVA_OPTS = "executor.launcher.java.opts";
+
+  public static final String EXECUTOR_ADMISSION_ENABLED = "executor.admission.enabled";
+
+  public static final String EXECUTOR_ADMISSION_CPU = "executor.admission.cpu";
+
+  public static final String EXECUTOR_ADMISSION_MEMORY = "executor.admission.memory";
+
+  public static final String EXECUTOR_ADMISSION_DEFAULT_CPU = "executor.admission.default.cpu";
+
+  public static final String EXECUTOR_ADMISSION_DEFAULT_MEMORY = "executor.admission.default.memory";
+
+  public static final String EXECUTOR_ADMISSION_HISTORY_DAYS = "executor.admission.history.days";
+
+  public static final String EXECUTOR_WORKFLOW_EXTRACT_MAX_BYTES = "executor.workflow.extract.max.bytes";
+
+  public static final String EXECUTOR_WORKFLOW_EXTRACT_MAX_ENTRIES = "executor.workflow.extract.max.entries";
+
+  public static final String EXECUTOR_JOBTYPE_LIMIT = "executor.jobtype.limit";
+
   public static final String EXECUTOR_STREAMING_THREADS = "executor.streaming.threads";
 
+  public static final String EXECUTOR_ADHOC_CACHE_ENABLED = "executor.adhoc.cache.enabled";
+
+  public static final String EXECUTOR_ADHOC_CACHE_TTL = "executor.adhoc.cache.ttl";
+
   public static final int ADHOC_TIMEOUT = 3600 * 6;
 
   /**
@@ -53,6 +105,16 @@ public class Constants {
    */
   public static final int defaultExecutorHeartbeatInterval = 60;
 
+  /**
+   * 心跳连续失败后, 等待 master 切换的默认时间, 单位秒
+   */
+  public static final int defaultMasterFailoverTimeout = 60;
+
+  /**
+   * 拉取模式下一次心跳最多领取的 workflow 数
+   */
+  public static final int defaultExecutorLeaseMax = 10;
+
   /**
    * 心跳线程数
    */
@@ -73,6 +135,91 @@ public class Constants {
    */
   public static final int defaultFlowRunnerThreadNum = 20;
 
+  /**
+   * 等待 flow runner 线程的 workflow 的最大数目
+   */
+  public static final int defaultFlowRunnerQueueMax = 0;
+
+  /**
+   * 资源文件传输的线程数, 所有执行共用
+   */
+  public static final int defaultResourceStageThreads = 16;
+
+  /**
+   * 导入导出的默认执行引擎
+   */
+  public static final String defaultImpExpEngine = "datax";
+
+  /**
+   * 进程内传输时 jdbc 每次读取的行数
+   */
+  public static final int defaultImpExpFetchSize = 1024;
+
+  /**
+   * 导入 hive 时, 目标表满足条件是否直接写表的目录
+   */
+  public static final boolean defaultImpExpHiveDirect = true;
+
+  /**
+   * 作业进程树资源使用的采样间隔, 单位秒
+   */
+  public static final int defaultResourceSampleInterval = 5;
+
+  /**
+   * 是否通过常驻的启动器运行作业进程
+   */
+  public static final boolean defaultLauncherEnabled = false;
+
+  /**
+   * 启动器 socket 文件的目录
+   */
+  public static final String defaultLauncherSocketDir = "/tmp/swordfish-launcher";
+
+  /**
+   * 启动器的空闲超时, 单位秒
+   */
+  public static final int defaultLauncherIdleTimeout = 1800;
+
+  /**
+   * 启动器的 jvm 参数
+   */
+  public static final String defaultLauncherJavaOpts = "-Xmx64m";
+
+  /**
+   * 是否按 cpu 和内存准入节点
+   */
+  public static final boolean defaultAdmissionEnabled = true;
+
+  /**
+   * 没有配置可分配的内存时, 按物理内存的比例计算
+   */
+  public static final double defaultAdmissionMemoryRatio = 0.8;
+
+  /**
+   * 估计节点的申请时参考最近多少天的执行
+   */
+  public static final int defaultAdmissionHistoryDays = 7;
+
+  /**
+   * udf jar 共享存储中没有引用的版本的保留时间, 单位小时
+   */
+  public static final int defaultUdfStoreRetentionHours = 24;
+
+  /**
+   * udf jar 共享存储的回收间隔, 单位分钟
+   */
+  public static final int defaultUdfStoreGcInterval = 60;
+
+  /**
+   * 工作流 zip 解压的总字节数上限
+   */
+  public static final long defaultWorkflowExtractMaxBytes = 1024L * 1024 * 1024;
+
+  /**
+   * 工作流 zip 的条目数上限
+   */
+  public static final int defaultWorkflowExtractMaxEntries = 10000;
+
   /**
    * node runner 线程数
    */
@@ -102,4 +249,9 @@ public class Constants {
    * 默认的 streaming thread 数目
    */
   public static final int defaultStreamingThreadNum = 10;
+
+  /**
+   * 即席查询结果缓存的默认有效期, 单位是秒
+   */
+  public static final int defaultAdhocCacheTtl = 600;
 }
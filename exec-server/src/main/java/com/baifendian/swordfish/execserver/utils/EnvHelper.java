@@ -16,10 +16,14 @@
 package com.baifendian.swordfish.execserver.utils;
 
 import com.baifendian.swordfish.common.config.BaseConfig;
-import com.baifendian.swordfish.common.hadoop.HdfsClient;
+import com.baifendian.swordfish.execserver.common.ResourceStager;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -45,11 +49,8 @@ public class EnvHelper {
     // 创建目录
     FileUtils.forceMkdir(execLocalPathFile);
 
-    // proxyUser 用户处理, 如果系统不存在该用户，这里自动创建用户
-    List<String> osUserList = OsUtil.getUserList();
-
-    // 不存在, 则创建
-    if (!osUserList.contains(proxyUser)) {
+    // proxyUser 用户处理, 如果系统不存在该用户，这里自动创建用户, 已知存在的用户不再读取 /etc/passwd
+    if (!OsUtil.userExists(proxyUser)) {
       String userGroup = OsUtil.getGroup();
       if (StringUtils.isNotEmpty(userGroup)) {
         logger.info("create os user:{}", proxyUser);
@@ -64,25 +65,37 @@ public class EnvHelper {
   }
 
   /**
-   * 拷贝 hdfs 资源到本地中
+   * 拷贝 hdfs 资源到本地中, 并发传输, 全部完成后返回
    *
    * @param projectId
    * @param execLocalPath
    * @param projectRes
    * @param logger
    */
-  public static void copyResToLocal(int projectId, String execLocalPath, List<String> projectRes, Logger logger) {
-    for (String res : projectRes) {
-      File resFile = new File(execLocalPath, res);
-      if (!resFile.exists()) {
-        String resHdfsPath = BaseConfig.getHdfsResourcesFilename(projectId, res);
+  public static void copyResToLocal(int projectId, String execLocalPath, List<String> projectRes,
+      Logger logger) throws IOException, InterruptedException {
+    logger.info("copy {} project files to {}", projectRes.size(), execLocalPath);
 
-        logger.info("get project file:{}", resHdfsPath);
+    ResourceStager.await(stageResToLocal(projectId, execLocalPath, projectRes).values());
+  }
 
-        HdfsClient.getInstance().copyHdfsToLocal(resHdfsPath, execLocalPath + File.separator + res, false, true);
-      } else {
-        logger.info("file:{} exists, ignore", resFile.getName());
-      }
+  /**
+   * 开始拷贝 hdfs 资源到本地中, 不等待完成
+   *
+   * @param projectId
+   * @param execLocalPath
+   * @param projectRes
+   * @return 各个资源文件的 future, key 为资源文件名
+   */
+  public static Map<String, CompletableFuture<Void>> stageResToLocal(int projectId,
+      String execLocalPath, Collection<String> projectRes) {
+    Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+
+    for (String res : projectRes) {
+      futures.put(res, ResourceStager.getInstance()
+          .download(BaseConfig.getHdfsResourcesFilename(projectId, res), new File(execLocalPath, res)));
     }
+
+    return futures;
   }
 }
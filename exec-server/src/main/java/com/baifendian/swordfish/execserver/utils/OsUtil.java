@@ -15,15 +15,19 @@
  */
 package com.baifendian.swordfish.execserver.utils;
 
+import com.sun.management.OperatingSystemMXBean;
 import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +39,16 @@ public class OsUtil {
 
   private static final Logger logger = LoggerFactory.getLogger(OsUtil.class);
 
+  /**
+   * 已知存在的系统用户, 用户不会被删除, 只增不减
+   */
+  private static final Set<String> knownUsers = ConcurrentHashMap.newKeySet();
+
+  /**
+   * 当前用户的组
+   */
+  private static volatile String group;
+
   private OsUtil() {
   }
 
@@ -185,6 +199,17 @@ public class OsUtil {
     return map;
   }
 
+  /**
+   * 获取物理内存总量
+   *
+   * @return 单位 MB
+   */
+  public static long totalMemory() {
+    OperatingSystemMXBean os = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    return os.getTotalPhysicalMemorySize() / 1024 / 1024;
+  }
+
   /**
    * 得到用户列表信息
    *
@@ -226,18 +251,37 @@ public class OsUtil {
   }
 
   /**
-   * 得到系统 group 信息
+   * 系统用户是否存在, 结果缓存, 不在缓存中时才重新读取 /etc/passwd
+   */
+  public static boolean userExists(String user) {
+    if (knownUsers.contains(user)) {
+      return true;
+    }
+
+    knownUsers.addAll(getUserList());
+
+    return knownUsers.contains(user);
+  }
+
+  /**
+   * 得到系统 group 信息, 结果缓存
    *
    * @return
    * @throws IOException
    */
   public static String getGroup() throws IOException {
+    if (group != null) {
+      return group;
+    }
+
     String cmd = "groups";
     String result = exeCmd(cmd);
 
     if (StringUtils.isNotEmpty(result)) {
       String[] groupInfo = StringUtils.split(result);
-      return groupInfo[0];
+      group = groupInfo[0];
+
+      return group;
     }
 
     return null;
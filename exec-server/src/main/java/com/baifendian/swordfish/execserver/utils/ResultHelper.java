@@ -35,4 +35,13 @@ public class ResultHelper {
   public static RetInfo createErrorResult(String msg) {
     return new RetInfo(1, msg);
   }
+
+  /**
+   * 创建一个过载的返回包, 调用方稍后重试 <p>
+   *
+   * @return {@link RetInfo}
+   */
+  public static RetInfo createBusyResult(String msg) {
+    return new RetInfo(2, msg);
+  }
 }
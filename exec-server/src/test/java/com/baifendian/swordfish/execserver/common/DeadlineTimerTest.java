@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.baifendian.swordfish.execserver.common.DeadlineTimer.Timeout;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class DeadlineTimerTest {
+
+  @Test
+  public void testExpire() throws Exception {
+    DeadlineTimer timer = new DeadlineTimer(100);
+    timer.start();
+
+    try {
+      CountDownLatch expired = new CountDownLatch(1);
+      AtomicBoolean cancelled = new AtomicBoolean();
+
+      long now = System.currentTimeMillis();
+
+      timer.schedule(now + 300, expired::countDown);
+
+      // 提前结束的不会到期
+      Timeout timeout = timer.schedule(now + 200, () -> cancelled.set(true));
+      timeout.cancel();
+
+      assertTrue(expired.await(10, TimeUnit.SECONDS));
+      assertTrue(System.currentTimeMillis() >= now + 300);
+      assertFalse(cancelled.get());
+    } finally {
+      timer.shutdown();
+    }
+  }
+
+  @Test
+  public void testNodeDeadline() {
+    long flowDeadline = 100_000;
+
+    // 单次执行的截止时间不晚于节点和工作流的
+    NodeDeadline deadline = NodeDeadline
+        .of("{\"timeout\":60,\"attemptTimeout\":20}", flowDeadline, 10_000);
+
+    assertEquals(70_000, deadline.getNodeDeadline());
+    assertEquals(30_000, deadline.attemptDeadline(10_000));
+    assertEquals(70_000, deadline.attemptDeadline(55_000));
+    assertFalse(deadline.isExpired(69_999));
+    assertTrue(deadline.isExpired(70_000));
+
+    // 不声明时按工作流的截止时间
+    deadline = NodeDeadline.of("{\"script\":\"ls\"}", flowDeadline, 10_000);
+
+    assertEquals(flowDeadline, deadline.getNodeDeadline());
+    assertEquals(flowDeadline, deadline.attemptDeadline(90_000));
+
+    deadline = NodeDeadline.of("{\"timeout\":600}", flowDeadline, 10_000);
+
+    assertEquals(flowDeadline, deadline.getNodeDeadline());
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.common;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class ProcessSamplerTest {
+
+  @Test
+  public void testParseStat() {
+    // 进程名中带空格和括号
+    byte[] stat = ("4242 (a b) c)) S 1 4242 4242 0 -1 4194560 120 0 0 0 37 5 2 1 20 0 1 0 "
+        + "1000 10000000 256 18446744073709551615 1 1 0 0 0 0 0 0 0 0 0 0 17 0 0 0 0 0 0\n")
+        .getBytes(StandardCharsets.UTF_8);
+
+    assertArrayEquals(new long[]{1, 37, 5, 2, 1, 256},
+        ProcessSampler.parseStat(stat, stat.length));
+
+    stat = "4242 (truncated".getBytes(StandardCharsets.UTF_8);
+    assertNull(ProcessSampler.parseStat(stat, stat.length));
+  }
+
+  @Test
+  public void testParseIo() {
+    byte[] io = ("rchar: 100\nwchar: 200\nsyscr: 3\nsyscw: 4\nread_bytes: 4096\n"
+        + "write_bytes: 8192\ncancelled_write_bytes: 0\n").getBytes(StandardCharsets.UTF_8);
+
+    assertEquals(4096, ProcessSampler.parseIo(io, io.length, "read_bytes"));
+    assertEquals(8192, ProcessSampler.parseIo(io, io.length, "write_bytes"));
+    assertEquals(0, ProcessSampler.parseIo(io, io.length, "other"));
+  }
+
+  @Test
+  public void testSample() throws Exception {
+    Assume.assumeTrue(new File("/proc/self/stat").exists());
+
+    ProcessSampler sampler = new ProcessSampler(100, 4096);
+    ResourceUsage usage = sampler.track("job_1");
+
+    // 忙的是孙进程, 要沿进程树找到
+    Process process = new ProcessBuilder("sh", "-c",
+        "echo $$; timeout 3 sh -c 'while :; do :; done'; sleep 0").start();
+
+    try {
+      BufferedReader reader = new BufferedReader(
+          new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+
+      sampler.attach("job_1", Integer.parseInt(reader.readLine().trim()));
+
+      Thread.sleep(1000);
+      sampler.sample();
+
+      assertEquals(1, usage.getSamples());
+      assertTrue(usage.getCpuUsed() > 0.5);
+      assertTrue(usage.getMemUsed() > 0);
+      assertEquals(usage.getCpuUsed(), sampler.getCpuUsed(), 0.0001);
+
+      process.destroy();
+      process.waitFor(10, TimeUnit.SECONDS);
+
+      sampler.sample();
+
+      assertEquals(1, usage.getSamples());
+      assertTrue(usage.roots.isEmpty());
+      assertEquals(0, sampler.getCpuUsed(), 0.0001);
+    } finally {
+      process.destroyForcibly();
+    }
+
+    assertEquals(usage, sampler.untrack("job_1"));
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
+import com.baifendian.swordfish.common.hadoop.HdfsException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * 资源文件准备的测试, hdfs 使用本地文件系统
+ */
+public class ResourceStagerTest {
+
+  private static File dir;
+
+  @BeforeClass
+  public static void beforeClass() throws IOException {
+    dir = Files.createTempDirectory("resource-stager").toFile();
+
+    Configuration conf = new Configuration();
+    conf.set("fs.defaultFS", "file:///");
+
+    HdfsClient.init(conf);
+    ResourceStager.init(4, new File(dir, "staging").getPath());
+  }
+
+  @AfterClass
+  public static void afterClass() throws IOException {
+    FileUtils.deleteDirectory(dir);
+  }
+
+  @Test
+  public void testDownload() throws Exception {
+    File src = new File(dir, "res/data.txt");
+    FileUtils.writeStringToFile(src, "data", StandardCharsets.UTF_8);
+
+    // 多个执行同时请求同一个文件
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+    for (int i = 0; i < 10; ++i) {
+      futures.add(ResourceStager.getInstance()
+          .download(src.getPath(), new File(dir, "exec" + i + "/data.txt")));
+    }
+
+    ResourceStager.await(futures);
+
+    for (int i = 0; i < 10; ++i) {
+      assertEquals("data", FileUtils
+          .readFileToString(new File(dir, "exec" + i + "/data.txt"), StandardCharsets.UTF_8));
+    }
+
+    // 暂存的文件已经删除
+    File[] staged = new File(dir, "staging").listFiles();
+    assertTrue(staged == null || staged.length == 0);
+  }
+
+  @Test
+  public void testDownloadFailed() throws Exception {
+    try {
+      ResourceStager.await(Collections.singletonList(ResourceStager.getInstance()
+          .download(new File(dir, "missing.txt").getPath(), new File(dir, "exec/missing.txt"))));
+      fail();
+    } catch (HdfsException e) {
+      // 失败的原因传给等待方
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.baifendian.swordfish.common.enums.ExternalJobType;
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * udf jar 共享存储的测试, hdfs 使用本地文件系统
+ */
+public class UdfJarStoreTest {
+
+  private static File dir;
+
+  @BeforeClass
+  public static void beforeClass() throws IOException {
+    dir = Files.createTempDirectory("udf-store").toFile();
+
+    Configuration conf = new Configuration();
+    conf.set("fs.defaultFS", "file:///");
+
+    HdfsClient.init(conf);
+    ResourceStager.init(4, new File(dir, "staging").getPath());
+    UdfJarStore.init(new File(dir, "store").getPath(), TimeUnit.HOURS.toMillis(1), 0);
+  }
+
+  @AfterClass
+  public static void afterClass() throws IOException {
+    FileUtils.deleteDirectory(dir);
+  }
+
+  @Test
+  public void testAcquireAndGc() throws Exception {
+    UdfJarStore store = UdfJarStore.getInstance();
+
+    // 两个执行的工作目录中有相同内容的 jar
+    FileUtils.writeStringToFile(new File(dir, "exec1/udf.jar"), "v1", StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(new File(dir, "exec2/udf.jar"), "v1", StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(new File(dir, "exec3/udf.jar"), "v2", StandardCharsets.UTF_8);
+
+    String holder1 = UdfJarStore.holder(ExternalJobType.WORKFLOW, 1);
+    String holder2 = UdfJarStore.holder(ExternalJobType.WORKFLOW, 2);
+    String holder3 = UdfJarStore.holder(ExternalJobType.WORKFLOW, 3);
+
+    Map<String, String> paths1 = store.acquire(holder1, Collections.singleton("udf.jar"),
+        new File(dir, "exec1").getPath(), false);
+    Map<String, String> paths2 = store.acquire(holder2, Collections.singleton("udf.jar"),
+        new File(dir, "exec2").getPath(), false);
+    Map<String, String> paths3 = store.acquire(holder3, Collections.singleton("udf.jar"),
+        new File(dir, "exec3").getPath(), false);
+
+    String v1 = paths1.get("udf.jar");
+    String v2 = paths3.get("udf.jar");
+
+    assertEquals(v1, paths2.get("udf.jar"));
+    assertNotEquals(v1, v2);
+    assertTrue(UdfJarStore.isStorePath(v1));
+    assertEquals("v1", FileUtils.readFileToString(new File(v1), StandardCharsets.UTF_8));
+
+    long later = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(2);
+
+    // 还有引用的版本不回收
+    store.release(holder1);
+    store.release(holder3);
+
+    assertEquals(1, store.gc(later));
+    assertTrue(new File(v1).exists());
+    assertFalse(new File(v2).exists());
+
+    // 刚释放的版本在保留时间内不回收
+    store.release(holder2);
+
+    assertEquals(0, store.gc(System.currentTimeMillis()));
+    assertEquals(1, store.gc(later));
+    assertFalse(new File(v1).exists());
+  }
+
+  @Test
+  public void testRestoreReferenced() throws Exception {
+    UdfJarStore store = UdfJarStore.getInstance();
+
+    FileUtils.writeStringToFile(new File(dir, "exec4/udf.jar"), "v3", StandardCharsets.UTF_8);
+
+    String holder4 = UdfJarStore.holder(ExternalJobType.WORKFLOW, 4);
+
+    File jar = new File(store.acquire(holder4, Collections.singleton("udf.jar"),
+        new File(dir, "exec4").getPath(), false).get("udf.jar"));
+    File hashDir = jar.getParentFile();
+
+    // 模拟检查之后, 移走之前登记了引用, 回收时异常退出
+    File trash = new File(hashDir.getParentFile(), ".trash/" + hashDir.getName() + "-0");
+    trash.getParentFile().mkdirs();
+    assertTrue(hashDir.renameTo(trash));
+
+    long later = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(2);
+
+    assertEquals(0, store.gc(later));
+    assertEquals("v3", FileUtils.readFileToString(jar, StandardCharsets.UTF_8));
+    assertFalse(trash.exists());
+
+    store.release(holder4);
+
+    assertEquals(1, store.gc(later));
+    assertFalse(jar.exists());
+  }
+}
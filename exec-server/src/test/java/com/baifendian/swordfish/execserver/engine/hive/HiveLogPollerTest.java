@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.engine.hive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class HiveLogPollerTest {
+
+  @Test
+  public void testFindIds() {
+    String line = "INFO  : Starting Job = job_1499151077551_0548, Tracking URL = http://host:8088/proxy/application_1499151077551_0548/";
+
+    assertEquals("application_1499151077551_0548", HiveLogPoller.findAppId(line));
+    assertEquals("job_1499151077551_0548", HiveLogPoller.findJobId(line));
+    assertNull(HiveLogPoller.findAppId("INFO  : Hadoop job information for Stage-1"));
+  }
+
+  @Test
+  public void testParseProgress() {
+    assertEquals(25, HiveLogPoller
+        .parseProgress("INFO  : 2017-07-05 10:00:00,000 Stage-1 map = 50%,  reduce = 0%"));
+    assertEquals(50, HiveLogPoller.parseProgress("INFO  : Map 1: 3(+2)/5\tReducer 2: 2/5"));
+    assertEquals(-1, HiveLogPoller.parseProgress("INFO  : Compiling command"));
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.engine.hive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.baifendian.swordfish.execserver.engine.hive.HiveMetaCache.Loader;
+import com.baifendian.swordfish.execserver.engine.hive.HiveMetaCache.TableSchema;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.junit.Test;
+
+public class HiveMetaCacheTest {
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private final Loader loader = () -> {
+    loads.incrementAndGet();
+
+    return new TableSchema(Arrays.asList(new FieldSchema("id", "int", null)),
+        Collections.singletonList(new FieldSchema("ds", "string", null)));
+  };
+
+  @Test
+  public void testGet() throws Exception {
+    HiveMetaCache cache = new HiveMetaCache(60000);
+
+    TableSchema schema = cache.get("dw", "t", loader);
+
+    assertSame(schema, cache.get("DW", "`t`", loader));
+    assertEquals(1, loads.get());
+
+    // 字段视图: 普通字段在前, 分区字段在后
+    assertEquals(2, schema.getHqlColumns().size());
+    assertEquals("ds", schema.getHqlColumns().get(1).getName());
+  }
+
+  @Test
+  public void testInvalidateByDDL() throws Exception {
+    HiveMetaCache cache = new HiveMetaCache(60000);
+
+    cache.get("dw", "t", loader);
+    cache.get("ods", "t", loader);
+    cache.get("dw", "t2", loader);
+
+    cache.invalidateByDDL("ALTER TABLE dw.t ADD COLUMNS (c string)");
+    cache.get("dw", "t", loader);
+    assertEquals(4, loads.get());
+
+    // 没有指定 db, 失效所有 db 下的同名表
+    cache.invalidateByDDL("drop table if exists `t`");
+    cache.get("dw", "t", loader);
+    cache.get("ods", "t", loader);
+    cache.get("dw", "t2", loader);
+    assertEquals(6, loads.get());
+  }
+
+  @Test
+  public void testLoadFailed() throws Exception {
+    HiveMetaCache cache = new HiveMetaCache(60000);
+
+    try {
+      cache.get("dw", "t", () -> {
+        throw new IllegalStateException("metastore down");
+      });
+      fail();
+    } catch (IllegalStateException e) {
+      // 失败不缓存
+    }
+
+    cache.get("dw", "t", loader);
+    assertEquals(1, loads.get());
+  }
+}
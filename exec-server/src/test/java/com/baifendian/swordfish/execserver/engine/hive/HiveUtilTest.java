@@ -30,4 +30,16 @@ public class HiveUtilTest {
     assertFalse(HiveUtil.isTokDDL("select * from abc"));
     assertFalse(HiveUtil.isTokDDL(null));
   }
+
+  @Test
+  public void testSessionStateStm() {
+    assertTrue(HiveUtil.isSessionStateStm("set mapreduce.job.queuename=q1"));
+    assertTrue(HiveUtil.isSessionStateStm("use db1"));
+    assertTrue(HiveUtil.isSessionStateStm("add jar hdfs:///tmp/a.jar"));
+    assertTrue(HiveUtil.isSessionStateStm("create temporary function f as 'a.B'"));
+    assertTrue(HiveUtil.isSessionStateStm("CREATE TEMPORARY EXTERNAL TABLE t(a int)"));
+    assertFalse(HiveUtil.isSessionStateStm("create table t(a int)"));
+    assertFalse(HiveUtil.isSessionStateStm("select * from t"));
+    assertFalse(HiveUtil.isSessionStateStm(null));
+  }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.job.impexp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.baifendian.swordfish.common.enums.FileColumnType;
+import com.baifendian.swordfish.common.enums.HiveColumnType;
+import com.baifendian.swordfish.common.enums.WriteHdfsType;
+import com.baifendian.swordfish.common.enums.WriteMode;
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
+import com.baifendian.swordfish.common.job.struct.node.impexp.column.FileColumn;
+import com.baifendian.swordfish.common.job.struct.node.impexp.reader.FileReader;
+import com.baifendian.swordfish.execserver.engine.hive.HiveMetaCache.TableSchema;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.SerDeInfo;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class HiveStagingTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(HiveStagingTest.class);
+
+  private File dir;
+
+  @Before
+  public void before() throws IOException {
+    dir = Files.createTempDirectory("hive-staging").toFile();
+
+    Configuration conf = new Configuration();
+    conf.set("fs.defaultFS", "file:///");
+    HdfsClient.init(conf);
+  }
+
+  @After
+  public void after() throws IOException {
+    FileUtils.deleteDirectory(dir);
+  }
+
+  @Test
+  public void testCreate() {
+    List<FieldSchema> fields = Arrays.asList(new FieldSchema("id", "int", null),
+        new FieldSchema("name", "varchar(32)", null));
+
+    // orc 表中 varchar 不能直写
+    assertNull(create(fields, null, orc()));
+
+    fields = Arrays.asList(new FieldSchema("id", "int", null),
+        new FieldSchema("name", "string", null));
+
+    HiveStaging staging = create(fields, null, orc());
+
+    assertNotNull(staging);
+    assertEquals(WriteHdfsType.ORC, staging.getFileType());
+    assertEquals(HiveColumnType.STRING, staging.getColumns().get(1).getType());
+
+    // 分区表, 不支持的类型
+    assertNull(create(fields, Collections.singletonList(new FieldSchema("ds", "string", null)),
+        orc()));
+    assertNull(create(Collections.singletonList(new FieldSchema("d", "decimal(10,2)", null)),
+        null, orc()));
+
+    // 文本表需要 null 写为空串, 数字分隔符表示字节值
+    Map<String, String> params = new HashMap<>();
+    params.put("serialization.format", "1");
+
+    assertNull(create(fields, null, text(params)));
+
+    params.put("serialization.null.format", "");
+    staging = create(fields, null, text(params));
+
+    assertEquals(WriteHdfsType.TEXT, staging.getFileType());
+    assertEquals("\u0001", staging.getFieldDelimiter());
+  }
+
+  @Test
+  public void testCommit() throws IOException {
+    File table = new File(dir, "table");
+    File staging = new File(dir, "staging");
+
+    FileUtils.write(new File(table, "old"), "1", "UTF-8");
+    FileUtils.write(new File(staging, "a"), "2", "UTF-8");
+    FileUtils.write(new File(staging, "b"), "3", "UTF-8");
+    FileUtils.write(new File(staging, "_hidden"), "4", "UTF-8");
+
+    HiveStaging hiveStaging = create(Collections.singletonList(new FieldSchema("id", "int", null)),
+        null, orc(table.getPath()));
+
+    assertEquals(2, hiveStaging.commitFiles(staging.getPath(), WriteMode.APPEND));
+    assertArrayEquals(new String[]{"a", "b", "old"}, visible(table));
+
+    FileUtils.write(new File(staging, "c"), "5", "UTF-8");
+
+    assertEquals(1, hiveStaging.commitFiles(staging.getPath(), WriteMode.OVERWRITE));
+    assertArrayEquals(new String[]{"c"}, visible(table));
+    assertArrayEquals(new String[]{"_hidden"}, staging.list());
+  }
+
+  @Test
+  public void testCast() {
+    assertEquals(3, HiveStaging.cast("3.7", HiveColumnType.INT));
+    assertNull(HiveStaging.cast("abc", HiveColumnType.INT));
+    assertNull(HiveStaging.cast("300", HiveColumnType.TINYINT));
+    assertEquals(false, HiveStaging.cast("", HiveColumnType.BOOLEAN));
+    assertEquals("TRUE", HiveStaging.cast(true, HiveColumnType.STRING));
+    assertEquals(1L, HiveStaging.cast(true, HiveColumnType.BIGINT));
+    assertNull(HiveStaging.cast("2017-13-01", HiveColumnType.DATE));
+  }
+
+  @Test
+  public void testConvert() {
+    FileReader fileReader = new FileReader();
+    fileReader.setFieldDelimiter(",");
+    fileReader.setSrcColumn(Arrays.asList(column("a", FileColumnType.STRING),
+        column("b", FileColumnType.BOOLEAN), column("c", FileColumnType.STRING)));
+
+    Map<String, FileColumn> columnRel = new HashMap<>();
+    columnRel.put("id", column("a", FileColumnType.STRING));
+    columnRel.put("flag", column("b", FileColumnType.BOOLEAN));
+    columnRel.put("day", column("c", FileColumnType.DATE));
+
+    HiveStaging staging = create(Arrays.asList(new FieldSchema("id", "bigint", null),
+        new FieldSchema("flag", "boolean", null), new FieldSchema("day", "date", null),
+        new FieldSchema("memo", "string", null)), null, orc());
+
+    FileRowConverter converter = FileRowConverter
+        .create(fileReader, columnRel, staging.getColumns());
+
+    assertArrayEquals(new Object[]{7L, true, Date.valueOf("2017-08-01"), null},
+        converter.convert("7,TRUE,2017-08-01"));
+    assertArrayEquals(new Object[]{null, null, null, null}, converter.convert("\\N,yes,"));
+
+    // 日期写入 timestamp 精确到秒
+    staging = create(Collections.singletonList(new FieldSchema("day", "timestamp", null)), null,
+        orc());
+    columnRel.get("day").setDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+    assertArrayEquals(new Object[]{Timestamp.valueOf("2017-08-01 10:00:01")},
+        FileRowConverter.create(fileReader, columnRel, staging.getColumns())
+            .convert("1,true,2017-08-01 10:00:01.500"));
+
+    // 表达式不能逐行转换
+    columnRel.put("day", column("concat(a, c)", FileColumnType.STRING));
+
+    assertNull(FileRowConverter.create(fileReader, columnRel, staging.getColumns()));
+  }
+
+  private HiveStaging create(List<FieldSchema> fields, List<FieldSchema> partitionKeys,
+      StorageDescriptor storage) {
+    return HiveStaging.create(null, "dw", "t", new TableSchema(fields, partitionKeys, storage),
+        logger);
+  }
+
+  private StorageDescriptor orc() {
+    return orc(new File(dir, "table").getPath());
+  }
+
+  private static StorageDescriptor orc(String location) {
+    StorageDescriptor storage = new StorageDescriptor();
+
+    storage.setLocation(location);
+    storage.setInputFormat("org.apache.hadoop.hive.ql.io.orc.OrcInputFormat");
+    storage.setSerdeInfo(new SerDeInfo(null, "org.apache.hadoop.hive.ql.io.orc.OrcSerde",
+        new HashMap<>()));
+
+    return storage;
+  }
+
+  private StorageDescriptor text(Map<String, String> params) {
+    StorageDescriptor storage = new StorageDescriptor();
+
+    storage.setLocation(new File(dir, "table").getPath());
+    storage.setInputFormat("org.apache.hadoop.mapred.TextInputFormat");
+    storage.setSerdeInfo(new SerDeInfo(null,
+        "org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe", params));
+
+    return storage;
+  }
+
+  private static FileColumn column(String name, FileColumnType type) {
+    FileColumn column = new FileColumn();
+
+    column.setName(name);
+    column.setType(type);
+
+    return column;
+  }
+
+  private static String[] visible(File dir) {
+    String[] names = dir.list((d, name) -> !name.startsWith(".") && !name.endsWith(".crc"));
+    Arrays.sort(names);
+
+    return names;
+  }
+}
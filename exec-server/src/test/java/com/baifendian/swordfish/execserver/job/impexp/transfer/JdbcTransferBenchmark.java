@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.job.impexp.transfer;
+
+import com.baifendian.swordfish.common.enums.HiveColumnType;
+import com.baifendian.swordfish.common.enums.WriteHdfsType;
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
+import com.baifendian.swordfish.common.job.struct.node.impexp.column.HiveColumn;
+import com.baifendian.swordfish.execserver.job.impexp.Args.HdfsWriterArg;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 进程内传输的压测 <p>
+ *
+ * 源为 derby 内存库, 目标为本地 file:// 的 hadoop 文件系统, 分别以单线程和多线程写 text/orc, 输出耗时和每秒行数. DataX 每个任务至少要启动一个
+ * jvm 进程, 这里以启动 java -version 的耗时作为它额外开销的下限. 参数: [行数] [并发数] [次数]
+ */
+public class JdbcTransferBenchmark {
+
+  private static final Logger logger = LoggerFactory.getLogger(JdbcTransferBenchmark.class);
+
+  private static final String JDBC_URL = "jdbc:derby:memory:benchmark;create=true";
+
+  public static void main(String[] args) throws Exception {
+    int rows = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    int channel = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+    int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+
+    Configuration conf = new Configuration();
+    conf.set("fs.defaultFS", "file:///");
+    HdfsClient.init(conf);
+
+    createTable(rows);
+
+    File root = Files.createTempDirectory("transfer-benchmark").toFile();
+
+    try {
+      System.out.println(String.format("rows: %d, channel: %d", rows, channel));
+      System.out.println(String.format("%-12s %10s %10s %14s", "mode", "p50(ms)", "max(ms)",
+          "rows/s"));
+
+      run("text-1", root, WriteHdfsType.TEXT, 1, rows, iterations);
+      run("text-" + channel, root, WriteHdfsType.TEXT, channel, rows, iterations);
+      run("orc-1", root, WriteHdfsType.ORC, 1, rows, iterations);
+      run("orc-" + channel, root, WriteHdfsType.ORC, channel, rows, iterations);
+
+      fork(iterations);
+    } finally {
+      FileUtils.deleteDirectory(root);
+    }
+  }
+
+  private static void run(String mode, File root, WriteHdfsType fileType, int channel, int rows,
+      int iterations) throws Exception {
+    long[] costs = new long[iterations];
+
+    for (int i = 0; i < iterations; ++i) {
+      JdbcTransfer transfer = new JdbcTransfer(JDBC_URL, null, null, logger);
+
+      transfer.setTables(Collections.singletonList("orders"));
+      transfer.setColumns(Arrays.asList("id", "user_id", "amount", "memo"));
+      transfer.setChannel(channel);
+
+      HdfsWriterArg writerArg = new HdfsWriterArg();
+
+      writerArg.setPath(new File(root, mode).getPath());
+      writerArg.setFileName("orders");
+      writerArg.setFileType(fileType);
+      writerArg.setFieldDelimiter("\t");
+      writerArg.setWriteMode("truncate");
+      writerArg.setColumn(Arrays.asList(column("id", HiveColumnType.BIGINT),
+          column("user_id", HiveColumnType.INT), column("amount", HiveColumnType.DOUBLE),
+          column("memo", HiveColumnType.STRING)));
+
+      long start = System.nanoTime();
+
+      if (transfer.transfer(writerArg) != rows) {
+        throw new IllegalStateException("rows mismatch");
+      }
+
+      costs[i] = System.nanoTime() - start;
+    }
+
+    print(mode, costs, rows);
+  }
+
+  /**
+   * 启动一个 jvm 进程的耗时
+   */
+  private static void fork(int iterations) throws Exception {
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator
+        + "java";
+    long[] costs = new long[iterations];
+
+    for (int i = 0; i < iterations; ++i) {
+      long start = System.nanoTime();
+
+      Process process = new ProcessBuilder(java, "-version").redirectErrorStream(true).start();
+      process.getInputStream().skip(Long.MAX_VALUE);
+
+      if (process.waitFor() != 0) {
+        throw new IOException("java -version failed");
+      }
+
+      costs[i] = System.nanoTime() - start;
+    }
+
+    print("jvm-fork", costs, 0);
+  }
+
+  private static void print(String mode, long[] costs, int rows) {
+    Arrays.sort(costs);
+
+    long p50 = costs[costs.length / 2];
+
+    System.out.println(String.format("%-12s %10.2f %10.2f %14d", mode, p50 / 1000000.0,
+        costs[costs.length - 1] / 1000000.0, (rows == 0) ? 0 : rows * 1000000000L / p50));
+  }
+
+  private static void createTable(int rows) throws Exception {
+    try (Connection connection = DriverManager.getConnection(JDBC_URL);
+        Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, user_id INT, "
+          + "amount DOUBLE, memo VARCHAR(64))");
+
+      connection.setAutoCommit(false);
+
+      try (PreparedStatement insert = connection
+          .prepareStatement("INSERT INTO orders VALUES (?, ?, ?, ?)")) {
+        for (int i = 1; i <= rows; ++i) {
+          insert.setLong(1, i);
+          insert.setInt(2, i % 1000);
+          insert.setDouble(3, i * 0.01);
+          insert.setString(4, "order memo " + i);
+          insert.addBatch();
+
+          if (i % 10000 == 0) {
+            insert.executeBatch();
+          }
+        }
+
+        insert.executeBatch();
+      }
+
+      connection.commit();
+    }
+  }
+
+  private static HiveColumn column(String name, HiveColumnType type) {
+    HiveColumn column = new HiveColumn();
+
+    column.setName(name);
+    column.setType(type);
+
+    return column;
+  }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.job.impexp.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.baifendian.swordfish.common.enums.HiveColumnType;
+import com.baifendian.swordfish.common.enums.WriteHdfsType;
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
+import com.baifendian.swordfish.common.job.struct.node.impexp.column.HiveColumn;
+import com.baifendian.swordfish.execserver.job.impexp.Args.HdfsWriterArg;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.io.orc.OrcFile;
+import org.apache.hadoop.hive.ql.io.orc.Reader;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 进程内传输的测试, 源为 derby 内存库, hdfs 使用本地文件系统
+ */
+public class JdbcTransferTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(JdbcTransferTest.class);
+
+  private static final String JDBC_URL = "jdbc:derby:memory:transfer;create=true";
+
+  private static final int ROWS = 1000;
+
+  private static File dir;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    dir = Files.createTempDirectory("jdbc-transfer").toFile();
+
+    Configuration conf = new Configuration();
+    conf.set("fs.defaultFS", "file:///");
+    HdfsClient.init(conf);
+
+    try (Connection connection = DriverManager.getConnection(JDBC_URL);
+        Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE users (id INT PRIMARY KEY, name VARCHAR(32), score DOUBLE)");
+
+      try (PreparedStatement insert = connection
+          .prepareStatement("INSERT INTO users VALUES (?, ?, ?)")) {
+        for (int i = 1; i <= ROWS; ++i) {
+          insert.setInt(1, i);
+          insert.setString(2, (i % 10 == 0) ? null : "user" + i);
+          insert.setDouble(3, i / 2.0);
+          insert.addBatch();
+        }
+
+        insert.executeBatch();
+      }
+
+      statement.execute("CREATE TABLE big_ids (id DECIMAL(20, 0) PRIMARY KEY)");
+      statement.execute("INSERT INTO big_ids VALUES (1), (99999999999999999999)");
+
+      statement.execute("CREATE FUNCTION pace(id INT) RETURNS INT LANGUAGE JAVA PARAMETER STYLE JAVA"
+          + " NO SQL EXTERNAL NAME '" + JdbcTransferTest.class.getName() + ".pace'");
+
+      statement.execute("CREATE TABLE edge_ids (id BIGINT PRIMARY KEY)");
+      statement.execute("CREATE TABLE wide_ids (id BIGINT PRIMARY KEY)");
+
+      try (PreparedStatement edge = connection.prepareStatement("INSERT INTO edge_ids VALUES (?)");
+          PreparedStatement wide = connection.prepareStatement("INSERT INTO wide_ids VALUES (?)")) {
+        for (long id : new long[]{0, Long.MAX_VALUE - 1, Long.MAX_VALUE}) {
+          edge.setLong(1, id);
+          edge.addBatch();
+        }
+
+        for (long id : new long[]{Long.MIN_VALUE, -1, 0, Long.MAX_VALUE}) {
+          wide.setLong(1, id);
+          wide.addBatch();
+        }
+
+        edge.executeBatch();
+        wide.executeBatch();
+      }
+    }
+  }
+
+  @AfterClass
+  public static void afterClass() throws IOException {
+    FileUtils.deleteDirectory(dir);
+
+    try {
+      DriverManager.getConnection("jdbc:derby:memory:transfer;drop=true");
+    } catch (SQLException e) {
+      // 删除内存库时总是抛出异常
+    }
+  }
+
+  @Test
+  public void testSplit() throws Exception {
+    JdbcTransfer transfer = transfer(4);
+    transfer.setWhere("score > 10");
+
+    List<String> splits = transfer.split();
+
+    assertEquals(16, splits.size());
+    assertTrue(splits.get(0).contains("(score > 10) AND (ID >= 21 AND ID < "));
+    assertTrue(splits.get(15).endsWith("ID <= 1000)"));
+
+    // 自定义 sql 不切分
+    transfer.setQuerySql("SELECT id FROM users");
+    assertEquals(1, transfer.split().size());
+  }
+
+  @Test
+  public void testSplitOutOfLong() throws Exception {
+    JdbcTransfer transfer = transfer(4);
+    transfer.setTables(Collections.singletonList("big_ids"));
+    transfer.setColumns(Collections.singletonList("id"));
+
+    // 超出 long 的范围时不切分
+    assertEquals(1, transfer.split().size());
+  }
+
+  @Test
+  public void testSplitLongBoundary() throws Exception {
+    // 主键取到 long 的边界时, 范围的计算不能溢出, 分片要覆盖所有的记录
+    List<String> edge = splits("edge_ids");
+
+    assertEquals(16, edge.size());
+    assertTrue(edge.get(0).endsWith("WHERE ID >= 0 AND ID < 576460752303423488"));
+    assertTrue(edge.get(15).endsWith("ID <= 9223372036854775807"));
+    assertEquals(3, count(edge));
+
+    List<String> wide = splits("wide_ids");
+
+    assertEquals(16, wide.size());
+    assertTrue(wide.get(0).contains("WHERE ID >= -9223372036854775808 AND ID < "));
+    assertTrue(wide.get(15).endsWith("ID <= 9223372036854775807"));
+    assertEquals(4, count(wide));
+  }
+
+  @Test
+  public void testOrcConvert() {
+    // 和 hive 一致, 超出范围或者不能解析的值为 null
+    assertEquals((byte) 100,
+        HdfsRecordWriter.OrcRecordWriter.convert(100L, HiveColumnType.TINYINT));
+    assertEquals(null, HdfsRecordWriter.OrcRecordWriter.convert(300, HiveColumnType.TINYINT));
+    assertEquals(null, HdfsRecordWriter.OrcRecordWriter.convert(70000, HiveColumnType.SMALLINT));
+    assertEquals(null, HdfsRecordWriter.OrcRecordWriter.convert(
+        new BigDecimal("99999999999999999999"), HiveColumnType.BIGINT));
+    assertEquals(12, HdfsRecordWriter.OrcRecordWriter.convert(" 12 ", HiveColumnType.INT));
+    assertEquals(null, HdfsRecordWriter.OrcRecordWriter.convert("abc", HiveColumnType.INT));
+    assertEquals(null, HdfsRecordWriter.OrcRecordWriter.convert("abc", HiveColumnType.DOUBLE));
+    assertEquals(null, HdfsRecordWriter.OrcRecordWriter.convert("abc", HiveColumnType.DATE));
+  }
+
+  @Test
+  public void testTextTransfer() throws Exception {
+    File path = new File(dir, "text");
+
+    assertEquals(ROWS, transfer(3).transfer(writerArg(path, WriteHdfsType.TEXT, "nonConflict")));
+
+    List<String> lines = new ArrayList<>();
+    File[] files = path.listFiles((d, name) -> name.startsWith("users__") && !name.endsWith(".crc"));
+
+    assertEquals(3, files.length);
+
+    for (File file : files) {
+      lines.addAll(FileUtils.readLines(file, StandardCharsets.UTF_8));
+    }
+
+    // 每行只出现一次, null 写为空串
+    Set<String> unique = new HashSet<>(lines);
+
+    assertEquals(ROWS, unique.size());
+    assertTrue(unique.contains("7\tuser7\t3.5"));
+    assertTrue(unique.contains("10\t\t5.0"));
+
+    // 已经有文件时 nonConflict 失败, 临时文件已经清理
+    try {
+      transfer(3).transfer(writerArg(path, WriteHdfsType.TEXT, "nonConflict"));
+      fail();
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("nonConflict"));
+    }
+
+    assertFalse(Arrays.stream(path.list()).anyMatch(name -> name.startsWith("_tmp_")));
+  }
+
+  @Test
+  public void testTransferFailure() throws Exception {
+    File path = new File(dir, "failure");
+
+    // 第一个分片立即失败, 其它线程还在读取, orc 在关闭 writer 时才写出文件, 要等线程退出之后再清理临时文件
+    JdbcTransfer transfer = transfer(3);
+    transfer.setColumns(Arrays.asList("pace(id)", "name", "score"));
+
+    try {
+      transfer.transfer(writerArg(path, WriteHdfsType.ORC, "nonConflict"));
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getMessage().contains("pace failed"));
+    }
+
+    // 返回之后也不会再有线程写出文件
+    Thread.sleep(1000);
+    assertEquals(0, path.list().length);
+  }
+
+  @Test
+  public void testOrcTransfer() throws Exception {
+    File path = new File(dir, "orc");
+
+    assertEquals(ROWS, transfer(2).transfer(writerArg(path, WriteHdfsType.ORC, "truncate")));
+
+    long rows = 0;
+
+    for (File file : path.listFiles((d, name) -> name.startsWith("users__")
+        && !name.endsWith(".crc"))) {
+      Reader reader = OrcFile.createReader(HdfsClient.getInstance().getFileSystem(),
+          new Path(file.getPath()));
+      rows += reader.getNumberOfRows();
+    }
+
+    assertEquals(ROWS, rows);
+  }
+
+  /**
+   * id 为 1 时失败, 其它的每行都放慢一些
+   */
+  public static int pace(int id) throws InterruptedException {
+    if (id == 1) {
+      throw new IllegalStateException("pace failed");
+    }
+
+    Thread.sleep(2);
+
+    return id;
+  }
+
+  private static List<String> splits(String table) throws SQLException {
+    JdbcTransfer transfer = transfer(4);
+    transfer.setTables(Collections.singletonList(table));
+    transfer.setColumns(Collections.singletonList("id"));
+
+    return transfer.split();
+  }
+
+  private static int count(List<String> splits) throws SQLException {
+    int rows = 0;
+
+    try (Connection connection = DriverManager.getConnection(JDBC_URL);
+        Statement statement = connection.createStatement()) {
+      for (String sql : splits) {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+          while (rs.next()) {
+            ++rows;
+          }
+        }
+      }
+    }
+
+    return rows;
+  }
+
+  private static JdbcTransfer transfer(int channel) {
+    JdbcTransfer transfer = new JdbcTransfer(JDBC_URL, null, null, logger);
+
+    transfer.setTables(Collections.singletonList("users"));
+    transfer.setColumns(Arrays.asList("id", "name", "score"));
+    transfer.setChannel(channel);
+
+    return transfer;
+  }
+
+  private static HdfsWriterArg writerArg(File path, WriteHdfsType fileType, String writeMode) {
+    HdfsWriterArg writerArg = new HdfsWriterArg();
+
+    writerArg.setPath(path.getPath());
+    writerArg.setFileName("users");
+    writerArg.setFileType(fileType);
+    writerArg.setFieldDelimiter("\t");
+    writerArg.setWriteMode(writeMode);
+    writerArg.setColumn(Arrays.asList(column("id", HiveColumnType.INT),
+        column("name", HiveColumnType.STRING), column("score", HiveColumnType.DOUBLE)));
+
+    return writerArg;
+  }
+
+  private static HiveColumn column(String name, HiveColumnType type) {
+    HiveColumn column = new HiveColumn();
+
+    column.setName(name);
+    column.setType(type);
+
+    return column;
+  }
+}
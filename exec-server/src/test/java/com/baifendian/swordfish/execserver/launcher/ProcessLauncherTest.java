@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.launcher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.channel.epoll.Epoll;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProcessLauncherTest {
+
+  private File dir;
+
+  private ProcessLauncher launcher;
+
+  private String user = System.getProperty("user.name");
+
+  @Before
+  public void before() throws IOException {
+    Assume.assumeTrue(Epoll.isAvailable());
+
+    dir = Files.createTempDirectory("launcher").toFile();
+
+    // 高版本 jdk 上 netty 需要访问 java.nio
+    String javaOpts = System.getProperty("java.specification.version").startsWith("1.") ? "-Xmx64m"
+        : "-Xmx64m --add-opens java.base/java.nio=ALL-UNNAMED";
+
+    launcher = new ProcessLauncher(dir.getPath(), 5, javaOpts);
+  }
+
+  @After
+  public void after() throws IOException {
+    if (dir != null) {
+      FileUtils.deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  public void testStart() throws Exception {
+    RemoteProcess process = launcher.start(user, dir.getPath(),
+        Arrays.asList("sh", "-c", "echo hello; pwd; exit 3"));
+
+    assertTrue(process.getPid() > 0);
+    assertEquals("hello\n" + dir.getCanonicalPath() + "\n",
+        IOUtils.toString(process.getInputStream(), "UTF-8"));
+    assertEquals(3, process.waitFor());
+
+    // 启动器复用
+    process = launcher.start(user, dir.getPath(), Arrays.asList("sh", "-c", "exit 0"));
+    assertEquals(0, process.waitFor());
+  }
+
+  @Test
+  public void testDestroy() throws Exception {
+    RemoteProcess process = launcher.start(user, dir.getPath(), Arrays.asList("sleep", "30"));
+
+    assertTrue(process.isAlive());
+    process.destroy();
+
+    assertTrue(process.waitFor(10, TimeUnit.SECONDS));
+    assertFalse(process.isAlive());
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.runner.adhoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.baifendian.swordfish.dao.enums.SqlEngineType;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+public class AdHocResultCacheTest {
+
+  @Test
+  public void testNormalize() {
+    assertEquals("select * from t where name = 'A  B'",
+        AdHocResultCache.normalize("SELECT *\n  FROM T -- comment\n WHERE name = 'A  B'"));
+  }
+
+  @Test
+  public void testIsCacheable() {
+    assertTrue(AdHocResultCache.isCacheable("select * from t"));
+    assertTrue(AdHocResultCache.isCacheable("use db1"));
+    assertFalse(AdHocResultCache.isCacheable("select rand() from t"));
+    assertFalse(AdHocResultCache.isCacheable("insert overwrite table t select * from s"));
+  }
+
+  @Test
+  public void testParseTables() throws Exception {
+    Set<String> tables = AdHocResultCache.parseTables(Arrays.asList("use db1",
+        "select a.id from t1 a join db2.t2 b on a.id = b.id"));
+
+    assertEquals(2, tables.size());
+    assertTrue(tables.contains("db1.t1"));
+    assertTrue(tables.contains("db2.t2"));
+  }
+
+  @Test
+  public void testFingerprint() {
+    List<String> sqls = Collections.singletonList("select * from t");
+
+    String fingerprint = AdHocResultCache
+        .fingerprint(sqls, "u1", "q1", SqlEngineType.HIVE, null, 1000);
+
+    assertEquals(fingerprint,
+        AdHocResultCache.fingerprint(sqls, "u1", "q1", SqlEngineType.HIVE, null, 1000));
+    assertNotEquals(fingerprint,
+        AdHocResultCache.fingerprint(sqls, "u2", "q1", SqlEngineType.HIVE, null, 1000));
+    assertNotEquals(fingerprint,
+        AdHocResultCache.fingerprint(sqls, "u1", "q1", SqlEngineType.HIVE, null, 10));
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.runner.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class JobTypeLimiterTest {
+
+  private final ExecutorService executorService = Executors.newFixedThreadPool(10);
+
+  @After
+  public void after() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testLocalLimit() throws Exception {
+    Map<String, Integer> localLimits = new HashMap<>();
+    localLimits.put("HQL", 2);
+
+    JobTypeLimiter limiter = new JobTypeLimiter(executorService, localLimits);
+
+    CountDownLatch latch = new CountDownLatch(1);
+    List<Future<Boolean>> futures = new ArrayList<>();
+
+    for (int i = 0; i < 5; ++i) {
+      futures.add(limiter.submit("HQL", () -> latch.await(10, TimeUnit.SECONDS)));
+    }
+
+    // 没有限制的类型不会排队
+    Future<Boolean> shell = limiter.submit("SHELL", () -> true);
+    assertTrue(shell.get(10, TimeUnit.SECONDS));
+
+    assertEquals(2, limiter.getRunning("HQL"));
+    assertEquals(3, limiter.getWaiting("HQL"));
+    assertEquals(Integer.valueOf(5), limiter.getJobTypeDemands().get("HQL"));
+
+    // 排队的节点可以取消, 不会再运行
+    futures.get(4).cancel(true);
+
+    latch.countDown();
+
+    for (int i = 0; i < 4; ++i) {
+      assertTrue(futures.get(i).get(10, TimeUnit.SECONDS));
+    }
+
+    assertEquals(0, limiter.getWaiting("HQL"));
+  }
+
+  @Test
+  public void testClusterQuota() throws Exception {
+    Map<String, Integer> localLimits = new HashMap<>();
+    localLimits.put("HQL", 5);
+
+    JobTypeLimiter limiter = new JobTypeLimiter(executorService, localLimits);
+    limiter.updateClusterQuotas(Collections.singletonMap("HQL", 0));
+
+    Future<Boolean> future = limiter.submit("HQL", () -> true);
+
+    assertEquals(1, limiter.getWaiting("HQL"));
+
+    // 配额变大后, 排队的节点开始运行
+    limiter.updateClusterQuotas(Collections.singletonMap("HQL", 1));
+
+    assertTrue(future.get(10, TimeUnit.SECONDS));
+    assertEquals(0, limiter.getWaiting("HQL"));
+  }
+}
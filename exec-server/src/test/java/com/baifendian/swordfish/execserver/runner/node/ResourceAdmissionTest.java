@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.execserver.runner.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.baifendian.swordfish.dao.model.ExecutionNodeResource;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class ResourceAdmissionTest {
+
+  private final ExecutorService executorService = Executors.newFixedThreadPool(10);
+
+  @After
+  public void after() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testAdmission() throws Exception {
+    ResourceAdmission admission = new ResourceAdmission(executorService, 4, 1000);
+    JobTypeLimiter limiter = new JobTypeLimiter(executorService, Collections.emptyMap(),
+        admission);
+
+    CountDownLatch latch = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+
+    Future<Boolean> big = limiter.submit("SHELL", new ResourceRequest(3, 500),
+        () -> latch.await(10, TimeUnit.SECONDS));
+
+    // 放不下, 排队
+    Future<Boolean> queued = limiter.submit("SHELL", new ResourceRequest(2, 100), () -> true);
+
+    // 放得下, 可以越过队首先运行
+    Future<Boolean> small = limiter.submit("SHELL", new ResourceRequest(1, 400), () -> {
+      started.countDown();
+      return latch.await(10, TimeUnit.SECONDS);
+    });
+
+    // 没有申请的节点不受限制
+    Future<Boolean> none = limiter.submit("SHELL", () -> true);
+
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    assertTrue(none.get(10, TimeUnit.SECONDS));
+    assertFalse(queued.isDone());
+
+    assertEquals(1, admission.getWaiting());
+    assertEquals(-2, admission.getFreeCpu(), 0.0001);
+    assertEquals(0, admission.getFreeMemory());
+
+    latch.countDown();
+
+    assertTrue(big.get(10, TimeUnit.SECONDS));
+    assertTrue(small.get(10, TimeUnit.SECONDS));
+    assertTrue(queued.get(10, TimeUnit.SECONDS));
+    assertEquals(0, admission.getWaiting());
+  }
+
+  @Test
+  public void testCancelAndClamp() throws Exception {
+    ResourceAdmission admission = new ResourceAdmission(executorService, 2, 1000);
+    JobTypeLimiter limiter = new JobTypeLimiter(executorService, Collections.emptyMap(),
+        admission);
+
+    CountDownLatch latch = new CountDownLatch(1);
+
+    Future<Boolean> running = limiter.submit("HQL", new ResourceRequest(2, 0),
+        () -> latch.await(10, TimeUnit.SECONDS));
+    Future<Boolean> cancelled = limiter.submit("HQL", new ResourceRequest(1, 0), () -> true);
+
+    // 超过总量的申请按总量计算
+    Future<Boolean> huge = limiter.submit("HQL", new ResourceRequest(100, 0), () -> true);
+
+    assertEquals(2, admission.getWaiting());
+
+    // 排队时取消, 释放类型的许可
+    cancelled.cancel(false);
+    admission.drain();
+
+    assertEquals(1, admission.getWaiting());
+    assertEquals(2, limiter.getRunning("HQL"));
+
+    latch.countDown();
+
+    assertTrue(running.get(10, TimeUnit.SECONDS));
+    assertTrue(huge.get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testRequest() {
+    ResourceRequest defaultRequest = new ResourceRequest(0.5, 256);
+
+    ExecutionNodeResource history = new ExecutionNodeResource();
+    history.setCpuPeak(1.5);
+    history.setMemPeak(2048L * 1024 * 1024);
+
+    ResourceRequest request = ResourceRequest.of("{\"script\":\"ls\"}", null, defaultRequest);
+    assertEquals(0.5, request.getCpu(), 0.0001);
+    assertEquals(256, request.getMemory());
+
+    request = ResourceRequest.of("{\"script\":\"ls\"}", history, defaultRequest);
+    assertEquals(1.5, request.getCpu(), 0.0001);
+    assertEquals(2048, request.getMemory());
+
+    // 声明的优先
+    request = ResourceRequest.of("{\"cpuRequest\":4,\"memRequest\":8192}", history,
+        defaultRequest);
+    assertEquals(4, request.getCpu(), 0.0001);
+    assertEquals(8192, request.getMemory());
+  }
+}
@@ -19,20 +19,17 @@ import com.baifendian.swordfish.common.utils.ThriftUtil;
 import com.baifendian.swordfish.common.utils.http.HttpUtil;
 import com.baifendian.swordfish.dao.DaoFactory;
 import com.baifendian.swordfish.dao.MasterDao;
-import com.baifendian.swordfish.dao.model.MasterServer;
 import com.baifendian.swordfish.masterserver.config.MasterConfig;
 import com.baifendian.swordfish.masterserver.exception.MasterException;
+import com.baifendian.swordfish.masterserver.master.LeaderElector;
 import com.baifendian.swordfish.masterserver.master.MasterServiceImpl;
-import com.baifendian.swordfish.masterserver.quartz.QuartzManager;
 import com.baifendian.swordfish.rpc.MasterService;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.concurrent.CountDownLatch;
 import org.apache.thrift.TProcessor;
-import org.apache.thrift.protocol.TBinaryProtocol;
-import org.apache.thrift.protocol.TProtocolFactory;
 import org.apache.thrift.server.TServer;
 import org.apache.thrift.transport.TTransportException;
-import org.apache.thrift.transport.TTransportFactory;
 import org.quartz.SchedulerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,6 +53,12 @@ public class MasterThriftServer {
   // master 的接口实现
   private MasterServiceImpl masterService;
 
+  // master 选主
+  private LeaderElector leaderElector;
+
+  // 是否已经成为 leader 并启动了服务
+  private volatile boolean started = false;
+
   public MasterThriftServer() throws UnknownHostException {
     host = HttpUtil.getHostAddress();
     port = MasterConfig.masterPort;
@@ -64,89 +67,108 @@ public class MasterThriftServer {
   }
 
   /**
-   * 入口方法
+   * 入口方法, 先以 standby 的身份启动, 获得租约后才开始调度和分发
    *
    * @throws SchedulerException
    * @throws TTransportException
    * @throws MasterException
    */
   public void run() throws SchedulerException, TTransportException, MasterException {
-    try {
-      // 在数据库中注册 master
-      registerMaster();
-      init();
-
-      // 注册钩子, 进程退出前会调用
-      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-        // 清理数据库中 master 信息
-        masterDao.deleteMasterServer(host, port);
-
-        // 关闭 server
-        server.stop();
+    CountDownLatch lostLatch = new CountDownLatch(1);
 
-        if (masterService != null) {
-          masterService.stop();
+    try {
+      // standby 时就初始化好服务, 接管时只需要启动
+      masterService = new MasterServiceImpl();
+
+      leaderElector = new LeaderElector(masterDao, host, port, MasterConfig.masterLeaseTimeout,
+          MasterConfig.masterLeaseRenewInterval, new LeaderElector.LeaderListener() {
+        @Override
+        public void takeLeadership(long epoch) {
+          try {
+            startServices(epoch);
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
         }
 
-        // 关闭调度
-        try {
-          QuartzManager.shutdown();
-        } catch (SchedulerException e) {
-          logger.error("Catch an exception when shutdown quartz manager", e);
+        @Override
+        public void loseLeadership() {
+          lostLatch.countDown();
         }
-      }));
+      });
 
-      masterService.run();
+      // 注册钩子, 进程退出前会调用
+      Runtime.getRuntime().addShutdownHook(new Thread(this::stopServices));
 
-      // 启动调度
-      QuartzManager.start();
+      logger.info("master {}:{} start as standby, wait for lease", host, port);
 
-      server.serve();
+      leaderElector.start();
+
+      // 失去租约后退出, 由外部重新拉起, 重新以 standby 的身份启动
+      lostLatch.await();
+
+      logger.error("master {}:{} lose leadership, exit", host, port);
     } catch (Exception e) {
-      QuartzManager.shutdown();
       logger.error("Catch an exception", e);
     }
+
+    System.exit(1);
   }
 
   /**
-   * 初始化连接
+   * 成为 leader 后启动服务
    *
    * @throws MasterException
    * @throws TTransportException
+   * @throws SchedulerException
    */
-  private void init() throws MasterException, TTransportException {
-    masterService = new MasterServiceImpl();
-
-    TProtocolFactory protocolFactory = new TBinaryProtocol.Factory();
-    TTransportFactory tTransportFactory = new TTransportFactory();
+  private synchronized void startServices(long epoch)
+      throws MasterException, TTransportException, SchedulerException {
     TProcessor tProcessor = new MasterService.Processor(masterService);
     InetSocketAddress inetSocketAddress = new InetSocketAddress(host, port);
 
-    server = ThriftUtil.getTThreadPoolServer(protocolFactory, tProcessor, tTransportFactory, inetSocketAddress,
-        MasterConfig.masterMinThreads, MasterConfig.masterMaxThreads);
+    server = ThriftUtil.getTServer(tProcessor, inetSocketAddress, MasterConfig.masterMinThreads,
+        MasterConfig.masterMaxThreads);
+
+    started = true;
+
+    masterService.run(epoch);
 
-    logger.info("start thrift server on port: {}", port);
+    // 启动调度
+    masterService.getTriggerEngine().start();
+
+    Thread serverThread = new Thread(server::serve, "Master-ThriftServer");
+    serverThread.start();
+
+    logger.info("start thrift server on port: {}, epoch: {}", port, epoch);
   }
 
   /**
-   * 注册 jobExecManager 到 database 中
-   *
-   * @throws MasterException
+   * 停止服务, 并释放租约, 让 standby 的 master 立即接管
    */
-  public void registerMaster() throws MasterException {
-    MasterServer masterServer = masterDao.getMasterServer();
-
-    if (masterServer != null && !(masterServer.getHost().equals(host) && masterServer.getPort() == port)) {
-      String msg = String.format("can't register more then one jobExecManager, exist jobExecManager:%s:%d, " +
-              "if you change the jobExecManager deploy server please clean the table master_server and start up again",
-          masterServer.getHost(), masterServer.getPort());
-      throw new MasterException(msg);
-    } else {
-      if (masterServer == null) {
-        masterDao.registerMasterServer(host, port);
-      } else {
-        masterDao.updateMasterServer(host, port);
-      }
+  private synchronized void stopServices() {
+    if (leaderElector != null) {
+      leaderElector.stop(true);
+    }
+
+    if (!started) {
+      return;
+    }
+
+    started = false;
+
+    // 关闭 server
+    if (server != null) {
+      server.stop();
+    }
+
+    masterService.stop();
+
+    // 关闭调度
+    try {
+      masterService.getTriggerEngine().shutdown();
+    } catch (Exception e) {
+      logger.error("Catch an exception when shutdown trigger engine", e);
     }
   }
 
@@ -15,6 +15,9 @@
  */
 package com.baifendian.swordfish.masterserver.config;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
@@ -31,9 +34,29 @@ public class MasterConfig {
   public static int failRetryCount;
 
   /**
-   * execution flow 队列大小
+   * 分发线程一次从分发队列领取的 workflow 数
    */
-  public static int executionFlowQueueSize;
+  public static int dispatchBatchSize;
+
+  /**
+   * 分发队列为空时的轮询间隔, 单位毫秒
+   */
+  public static int dispatchPollInterval;
+
+  /**
+   * 领取分发队列的时长, 单位毫秒, 超过后可以被重新领取
+   */
+  public static int dispatchClaimTimeout;
+
+  /**
+   * 是否是拉取模式, 拉取模式下 executor 在心跳中按空闲的槽位领取 workflow, 否则由 master 推送
+   */
+  public static boolean dispatchPullMode;
+
+  /**
+   * 拉取模式下租约的时长, 单位毫秒, executor 在此期间没有汇报则重新投递
+   */
+  public static int dispatchLeaseTimeout;
 
   /**
    * executor 向 master 发送心跳检测的间隔
@@ -75,6 +98,100 @@ public class MasterConfig {
    */
   public static int masterExecutorMaxAllowTicketInterval;
 
+  /**
+   * master 租约的时长, 单位毫秒, 租约过期后 standby 的 master 接管
+   */
+  public static int masterLeaseTimeout;
+
+  /**
+   * master 续约以及 standby 检查租约的间隔, 单位毫秒
+   */
+  public static int masterLeaseRenewInterval;
+
+  /**
+   * 分发 workflow 后等待 executor 心跳汇报的宽限时间, 单位毫秒, 超过后仍未汇报的认为已经丢失
+   */
+  public static int masterReconcileGraceInterval;
+
+  /**
+   * 各个任务类型在整个集群的并发上限, 通过心跳分配给各个 executor, 没有配置的类型不限制
+   */
+  public static Map<String, Integer> jobTypeClusterLimits = new HashMap<>();
+
+  /**
+   * 各个项目分发时的权重, 没有配置的为 1
+   */
+  public static Map<String, Integer> projectWeights = new HashMap<>();
+
+  /**
+   * 各个项目同时运行的 workflow 上限, 没有配置的取默认值
+   */
+  public static Map<String, Integer> projectRunningLimits = new HashMap<>();
+
+  /**
+   * 项目同时运行的 workflow 的默认上限, 0 表示不限制
+   */
+  public static int projectRunningLimitDefault;
+
+  /**
+   * 完成期限的检查间隔, 单位秒
+   */
+  public static int slaCheckInterval;
+
+  /**
+   * 预计完成时间距离期限不足这个时长时告警, 单位毫秒
+   */
+  public static int slaRiskMargin;
+
+  /**
+   * 启动时加载节点历史运行时长的天数
+   */
+  public static int slaHistoryDays;
+
+  /**
+   * 分发队列中的 workflow 数超过该值时, 拒绝手动运行和补数据的提交, 0 表示不限制
+   */
+  public static int admissionQueuedHigh;
+
+  /**
+   * 平均每个 executor 正在运行的 workflow 数超过该值时拒绝, 0 表示不限制
+   */
+  public static int admissionRunningPerExecutorHigh;
+
+  /**
+   * 数据库连接池的使用率 (活跃加等待的连接数 / 最大连接数) 超过该值时拒绝, 0 表示不限制
+   */
+  public static double admissionDbPoolHigh;
+
+  /**
+   * 拒绝时建议多少秒之后重试, 补数据也按这个间隔推迟
+   */
+  public static int admissionRetryAfter;
+
+  /**
+   * 是否使用时间轮触发引擎, 否则使用 quartz
+   */
+  public static boolean triggerWheel;
+
+  /**
+   * 时间轮触发引擎执行触发的线程数
+   */
+  public static int triggerThreads;
+
+  /**
+   * 时间轮触发引擎启动时, 错过超过这个时长的触发不再补上, 单位毫秒, 小于 0 时全部补上
+   */
+  public static long scheduleMisfireThreshold;
+
+  /**
+   * 启动恢复时每页查询的 workflow 数
+   */
+  public static int recoveryPageSize;
+
+  /**
+   * 启动恢复时每秒最多重新分发的 workflow 数, 0 表示不限制
+   */
+  public static int recoveryRate;
 
   static {
     Configuration conf = null;
@@ -87,7 +204,11 @@ public class MasterConfig {
 
     failRetryCount = conf.getInt("masterToWorker.failRetry.count", 2);
 
-    executionFlowQueueSize = conf.getInt("masterToWorker.executionFlow.queueSize", 10000);
+    dispatchBatchSize = conf.getInt("master.dispatch.batch.size", 20);
+    dispatchPollInterval = conf.getInt("master.dispatch.poll.interval", 1) * 1000;
+    dispatchClaimTimeout = conf.getInt("master.dispatch.claim.timeout", 300) * 1000;
+    dispatchPullMode = "pull".equalsIgnoreCase(conf.getString("master.dispatch.mode", "push"));
+    dispatchLeaseTimeout = conf.getInt("master.dispatch.lease.timeout", 30) * 1000;
 
     heartBeatTimeoutInterval = conf.getInt("master.heartbeat.timeout.interval", 60) * 1000;
     heartBeatCheckInterval = conf.getInt("master.heartbeat.check.interval", 30);
@@ -100,5 +221,52 @@ public class MasterConfig {
     masterPort = conf.getInt("master.port", 9999);
 
     masterExecutorMaxAllowTicketInterval = conf.getInt("master.executor.maxallow.ticket.interval", 2000);
+
+    masterLeaseTimeout = conf.getInt("master.lease.timeout", 10) * 1000;
+    masterLeaseRenewInterval = conf.getInt("master.lease.renew.interval", 2) * 1000;
+
+    masterReconcileGraceInterval = conf.getInt("master.reconcile.grace.interval", 30) * 1000;
+
+    String jobTypeLimitPrefix = "master.jobtype.cluster.limit";
+
+    for (Iterator<String> iter = conf.getKeys(jobTypeLimitPrefix); iter.hasNext(); ) {
+      String key = iter.next();
+      jobTypeClusterLimits.put(key.substring(jobTypeLimitPrefix.length() + 1), conf.getInt(key));
+    }
+
+    String projectWeightPrefix = "master.project.weight";
+
+    for (Iterator<String> iter = conf.getKeys(projectWeightPrefix); iter.hasNext(); ) {
+      String key = iter.next();
+      projectWeights.put(key.substring(projectWeightPrefix.length() + 1), conf.getInt(key));
+    }
+
+    String projectRunningLimitPrefix = "master.project.running.limit";
+
+    projectRunningLimitDefault = conf.getInt(projectRunningLimitPrefix + ".default", 0);
+
+    for (Iterator<String> iter = conf.getKeys(projectRunningLimitPrefix); iter.hasNext(); ) {
+      String key = iter.next();
+      projectRunningLimits.put(key.substring(projectRunningLimitPrefix.length() + 1),
+          conf.getInt(key));
+    }
+
+    projectRunningLimits.remove("default");
+
+    slaCheckInterval = conf.getInt("master.sla.check.interval", 30);
+    slaRiskMargin = conf.getInt("master.sla.risk.margin", 600) * 1000;
+    slaHistoryDays = conf.getInt("master.sla.history.days", 30);
+
+    admissionQueuedHigh = conf.getInt("master.admission.queued.high", 1000);
+    admissionRunningPerExecutorHigh = conf.getInt("master.admission.running.per.executor.high", 0);
+    admissionDbPoolHigh = conf.getDouble("master.admission.db.pool.high", 0.9);
+    admissionRetryAfter = conf.getInt("master.admission.retry.after", 60);
+
+    triggerWheel = "wheel".equalsIgnoreCase(conf.getString("master.trigger.engine", "quartz"));
+    triggerThreads = conf.getInt("master.trigger.threads", 24);
+    scheduleMisfireThreshold = conf.getInt("master.schedule.misfire.threshold", 60) * 1000L;
+
+    recoveryPageSize = conf.getInt("master.recovery.page.size", 500);
+    recoveryRate = conf.getInt("master.recovery.rate", 50);
   }
 }
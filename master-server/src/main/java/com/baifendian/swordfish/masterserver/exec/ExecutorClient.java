@@ -17,10 +17,9 @@ package com.baifendian.swordfish.masterserver.exec;
 
 import com.baifendian.swordfish.rpc.RetInfo;
 import com.baifendian.swordfish.rpc.WorkerService;
+import com.baifendian.swordfish.rpc.config.RpcConfig;
 import org.apache.thrift.TException;
-import org.apache.thrift.protocol.TBinaryProtocol;
 import org.apache.thrift.protocol.TProtocol;
-import org.apache.thrift.transport.TSocket;
 import org.apache.thrift.transport.TTransport;
 import org.apache.thrift.transport.TTransportException;
 import org.slf4j.Logger;
@@ -55,10 +54,10 @@ public class ExecutorClient {
   }
 
   private void connect() {
-    tTransport = new TSocket(host, port, timeout);
+    tTransport = RpcConfig.getClientTransport(host, port, timeout);
 
     try {
-      TProtocol protocol = new TBinaryProtocol(tTransport);
+      TProtocol protocol = RpcConfig.getClientProtocol(tTransport);
       client = new WorkerService.Client(protocol);
       tTransport.open();
     } catch (TTransportException e) {
@@ -15,9 +15,12 @@
  */
 package com.baifendian.swordfish.masterserver.exec;
 
+import com.baifendian.swordfish.masterserver.config.MasterConfig;
 import com.baifendian.swordfish.masterserver.exception.MasterException;
+import com.baifendian.swordfish.rpc.HeartBeatData;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -69,6 +72,38 @@ public class ExecutorServerManager {
     return executorServers.put(key, executorServerInfo);
   }
 
+  /**
+   * 根据所有 executor 最近一次心跳汇报的需求, 计算某个 executor 各个任务类型的集群配额
+   *
+   * @return 配额, 没有配置集群上限时返回 null
+   */
+  public synchronized Map<String, Integer> getJobTypeQuotas(
+      ExecutorServerInfo executorServerInfo) {
+    if (MasterConfig.jobTypeClusterLimits.isEmpty()) {
+      return null;
+    }
+
+    String key = getKey(executorServerInfo);
+    Map<String, Integer> quotas = new HashMap<>();
+
+    for (Map.Entry<String, Integer> limit : MasterConfig.jobTypeClusterLimits.entrySet()) {
+      Map<String, Integer> demands = new HashMap<>();
+
+      for (Map.Entry<String, ExecutorServerInfo> entry : executorServers.entrySet()) {
+        HeartBeatData heartBeatData = entry.getValue().getHeartBeatData();
+        Integer demand = (heartBeatData == null || heartBeatData.getJobTypeDemands() == null) ? null
+            : heartBeatData.getJobTypeDemands().get(limit.getKey());
+
+        demands.put(entry.getKey(), (demand == null) ? 0 : demand);
+      }
+
+      Integer quota = JobTypeQuotaAllocator.allocate(limit.getValue(), demands).get(key);
+      quotas.put(limit.getKey(), (quota == null) ? 0 : quota);
+    }
+
+    return quotas;
+  }
+
   /**
    * executor server 是否已经存在
    */
@@ -84,34 +119,110 @@ public class ExecutorServerManager {
   }
 
   /**
-   * 获取一个可用的 executor server, 选取执行的 workflow 最少的那个 executor server
+   * 获取一个可用的 executor server, 优先在心跳汇报还有空闲 flow 槽位的 executor server 中随机选取
    */
   public synchronized ExecutorServerInfo getExecutorServer() {
     logger.debug("executor servers: {}", executorServers.toString());
 
-    ExecutorServerInfo result = null;
-
     int size = executorServers.size();
 
     if (size <= 0) {
-      return result;
+      return null;
+    }
+
+    List<ExecutorServerInfo> candidates = new ArrayList<>();
+
+    for (ExecutorServerInfo executorServerInfo : executorServers.values()) {
+      HeartBeatData heartBeatData = executorServerInfo.getHeartBeatData();
+
+      // 没有汇报槽位的 executor 也作为候选
+      if (heartBeatData == null || !heartBeatData.isSetFreeFlowSlots()
+          || heartBeatData.getFreeFlowSlots() > 0) {
+        candidates.add(executorServerInfo);
+      }
+    }
+
+    // 都满了, 就在所有的 executor 中选取, 在 executor 上排队
+    if (candidates.isEmpty()) {
+      candidates.addAll(executorServers.values());
+    }
+
+    int choose = choose(candidates);
+
+    logger.info("executor servers size: {}, candidates: {}, choose: {}", size, candidates.size(),
+        choose);
+
+    ExecutorServerInfo executorServerInfo = candidates.get(choose);
+    occupyFlowSlot(executorServerInfo);
+
+    return executorServerInfo;
+  }
+
+  /**
+   * 在候选中随机选取, 都汇报了空闲内存时按空闲内存加权, 否则等概率
+   */
+  private int choose(List<ExecutorServerInfo> candidates) {
+    Random random = new Random();
+    long total = 0;
+
+    for (ExecutorServerInfo executorServerInfo : candidates) {
+      HeartBeatData heartBeatData = executorServerInfo.getHeartBeatData();
+
+      if (heartBeatData == null || !heartBeatData.isSetFreeMemory()) {
+        return random.nextInt(candidates.size());
+      }
+
+      total += Math.max(heartBeatData.getFreeMemory(), 0);
     }
 
-    int choose = Math.abs(new Random().nextInt()) % size;
-    int index = 0;
+    if (total <= 0) {
+      return random.nextInt(candidates.size());
+    }
+
+    long point = (long) (random.nextDouble() * total);
+
+    for (int i = 0; i < candidates.size(); ++i) {
+      point -= Math.max(candidates.get(i).getHeartBeatData().getFreeMemory(), 0);
+
+      if (point < 0) {
+        return i;
+      }
+    }
+
+    return candidates.size() - 1;
+  }
 
-    logger.info("executor servers size: {}, choose: {}", size, choose);
+  /**
+   * 得到所有 executor 空闲的 flow 槽位数
+   *
+   * @return 槽位数, 有 executor 没有汇报槽位 (老版本) 时返回 -1, 表示未知
+   */
+  public synchronized int getFreeFlowSlots() {
+    int freeFlowSlots = 0;
 
     for (ExecutorServerInfo executorServerInfo : executorServers.values()) {
-      if (index == choose) {
-        result = executorServerInfo;
-        break;
+      HeartBeatData heartBeatData = executorServerInfo.getHeartBeatData();
+
+      if (heartBeatData == null || !heartBeatData.isSetFreeFlowSlots()) {
+        return -1;
       }
 
-      ++index;
+      freeFlowSlots += heartBeatData.getFreeFlowSlots();
     }
 
-    return result;
+    return freeFlowSlots;
+  }
+
+  /**
+   * 分发到 executor 后扣减其空闲的槽位, 在下一次心跳之前都按扣减后的估算
+   */
+  private void occupyFlowSlot(ExecutorServerInfo executorServerInfo) {
+    HeartBeatData heartBeatData = executorServerInfo.getHeartBeatData();
+
+    if (heartBeatData != null && heartBeatData.isSetFreeFlowSlots()
+        && heartBeatData.getFreeFlowSlots() > 0) {
+      heartBeatData.setFreeFlowSlots(heartBeatData.getFreeFlowSlots() - 1);
+    }
   }
 
   /**
@@ -130,7 +241,10 @@ public class ExecutorServerManager {
     String key = host + ":" + port;
 
     if (executorServers.containsKey(key)) {
-      return executorServers.get(key);
+      ExecutorServerInfo executorServerInfo = executorServers.get(key);
+      occupyFlowSlot(executorServerInfo);
+
+      return executorServerInfo;
     }
 
     return getExecutorServer();
@@ -175,6 +289,13 @@ public class ExecutorServerManager {
     return executorServers.remove(key);
   }
 
+  /**
+   * 得到 executor 的数目
+   */
+  public synchronized int getServerCount() {
+    return executorServers.size();
+  }
+
   /**
    * 初始化 executor server 信息
    */
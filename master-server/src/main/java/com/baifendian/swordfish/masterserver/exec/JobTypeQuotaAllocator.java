@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.exec;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 把一个任务类型的集群上限分配到各个 executor <p>
+ *
+ * 按需求从小到大做 max-min 公平分配 (water-filling), 需求小的 executor 拿到全部需求, 其余的平分剩下的额度; 分配后还有剩余时,
+ * 再轮流分给所有的 executor, 使得暂时没有需求的 executor 也能立即运行新节点, 而总和不超过集群上限.
+ */
+public class JobTypeQuotaAllocator {
+
+  /**
+   * 分配配额
+   *
+   * @param clusterLimit 集群的上限
+   * @param demands 各个 executor 的需求, key 为 executor 的 "host:port"
+   * @return 各个 executor 的配额, 总和不超过集群上限
+   */
+  public static Map<String, Integer> allocate(int clusterLimit, Map<String, Integer> demands) {
+    Map<String, Integer> quotas = new HashMap<>();
+
+    if (demands.isEmpty()) {
+      return quotas;
+    }
+
+    // 按需求从小到大, 需求相同时按 key 排序, 保证结果稳定
+    List<Map.Entry<String, Integer>> entries = new ArrayList<>(new TreeMap<>(demands).entrySet());
+    entries.sort(Comparator.comparing(Map.Entry::getValue));
+
+    int remaining = Math.max(clusterLimit, 0);
+    int left = entries.size();
+
+    for (Map.Entry<String, Integer> entry : entries) {
+      int demand = Math.max(entry.getValue(), 0);
+      int share = (remaining + left - 1) / left;
+      int quota = Math.min(demand, share);
+
+      quotas.put(entry.getKey(), quota);
+
+      remaining -= quota;
+      --left;
+    }
+
+    // 剩余的额度轮流分给所有的 executor
+    for (int i = 0; remaining > 0; i = (i + 1) % entries.size(), --remaining) {
+      String key = entries.get(entries.size() - 1 - i).getKey();
+      quotas.put(key, quotas.get(key) + 1);
+    }
+
+    return quotas;
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.master;
+
+import com.baifendian.swordfish.dao.enums.ExecType;
+import com.baifendian.swordfish.masterserver.exec.ExecutorServerManager;
+import java.util.function.DoubleSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * workflow 提交的准入控制 <p>
+ *
+ * 分发队列的积压, 平均每个 executor 正在运行的 workflow 数, 数据库连接池的使用率任意一个超过水位时, 拒绝手动运行和补数据的提交,
+ * 由调用方稍后重试; 例行调度不受限制, 积压由分发队列按优先级和公平策略消化.
+ */
+public class AdmissionController {
+
+  private static final Logger logger = LoggerFactory.getLogger(AdmissionController.class);
+
+  /**
+   * 分发队列记录数的缓存时间, 单位毫秒, 避免每次提交都查询数据库
+   */
+  private static final long QUEUE_SIZE_CACHE_MILLIS = 1000;
+
+  /**
+   * workflow 分发队列
+   */
+  private final DispatchQueue executionFlowQueue;
+
+  /**
+   * 正在运行的 workflow
+   */
+  private final RunningFlowReconciler runningFlowReconciler;
+
+  /**
+   * executor server manager
+   */
+  private final ExecutorServerManager executorServerManager;
+
+  /**
+   * 数据库连接池的使用率
+   */
+  private final DoubleSupplier dbPoolUsage;
+
+  /**
+   * 分发队列的水位, 0 表示不限制
+   */
+  private final int queuedHigh;
+
+  /**
+   * 平均每个 executor 正在运行的水位, 0 表示不限制
+   */
+  private final int runningPerExecutorHigh;
+
+  /**
+   * 数据库连接池使用率的水位, 0 表示不限制
+   */
+  private final double dbPoolHigh;
+
+  /**
+   * 建议多少秒之后重试
+   */
+  private final int retryAfter;
+
+  private int queueSize;
+
+  private long queueSizeTime;
+
+  public AdmissionController(DispatchQueue executionFlowQueue,
+      RunningFlowReconciler runningFlowReconciler, ExecutorServerManager executorServerManager,
+      DoubleSupplier dbPoolUsage, int queuedHigh, int runningPerExecutorHigh, double dbPoolHigh,
+      int retryAfter) {
+    this.executionFlowQueue = executionFlowQueue;
+    this.runningFlowReconciler = runningFlowReconciler;
+    this.executorServerManager = executorServerManager;
+    this.dbPoolUsage = dbPoolUsage;
+    this.queuedHigh = queuedHigh;
+    this.runningPerExecutorHigh = runningPerExecutorHigh;
+    this.dbPoolHigh = dbPoolHigh;
+    this.retryAfter = retryAfter;
+  }
+
+  /**
+   * 判断是否接受一次提交
+   *
+   * @param execType 提交的类型, 例行调度总是接受
+   * @return 接受时返回 null, 否则返回拒绝的原因
+   */
+  public String admit(ExecType execType) {
+    if (execType == ExecType.SCHEDULER) {
+      return null;
+    }
+
+    String reason = check();
+
+    if (reason != null) {
+      logger.warn("reject {} submission: {}", execType, reason);
+    }
+
+    return reason;
+  }
+
+  /**
+   * 建议多少秒之后重试
+   */
+  public int getRetryAfter() {
+    return retryAfter;
+  }
+
+  private String check() {
+    if (queuedHigh > 0) {
+      int queued = getQueueSize();
+
+      if (queued >= queuedHigh) {
+        return String.format("too many queued workflows: %d, high watermark: %d", queued,
+            queuedHigh);
+      }
+    }
+
+    if (runningPerExecutorHigh > 0) {
+      int servers = executorServerManager.getServerCount();
+
+      // 没有 executor 时由分发队列的水位限制
+      if (servers > 0) {
+        int running = runningFlowReconciler.getRunningCount();
+
+        if (running >= runningPerExecutorHigh * servers) {
+          return String.format("too many running workflows: %d on %d executors, high watermark: %d"
+              + " per executor", running, servers, runningPerExecutorHigh);
+        }
+      }
+    }
+
+    if (dbPoolHigh > 0) {
+      double usage = dbPoolUsage.getAsDouble();
+
+      if (usage >= dbPoolHigh) {
+        return String.format("database connection pool saturated: %.2f, high watermark: %.2f",
+            usage, dbPoolHigh);
+      }
+    }
+
+    return null;
+  }
+
+  private synchronized int getQueueSize() {
+    long now = System.currentTimeMillis();
+
+    if (now - queueSizeTime > QUEUE_SIZE_CACHE_MILLIS) {
+      queueSize = executionFlowQueue.size();
+      queueSizeTime = now;
+    }
+
+    return queueSize;
+  }
+}
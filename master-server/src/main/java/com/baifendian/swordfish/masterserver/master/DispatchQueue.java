@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.master;
+
+import com.baifendian.swordfish.dao.DispatchQueueDao;
+import com.baifendian.swordfish.dao.model.DispatchQueueItem;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * workflow 的分发队列, 持久化在数据库中 <p>
+ *
+ * 加入队列只是写一条记录, 不会因为队列满而阻塞调用方, 积压也不占用内存; master 重启或者切换后直接从表中继续分发.
+ * 同一个进程内加入队列时会唤醒等待的分发线程, 其它情况 (比如其它进程写入, 推迟的记录到期) 靠定期轮询.
+ * 领取时由 {@link FairShareScheduler} 在项目之间挑选, 项目内按优先级, 同一个优先级内按完成期限 (EDF).
+ */
+public class DispatchQueue {
+
+  private static final Logger logger = LoggerFactory.getLogger(DispatchQueue.class);
+
+  /**
+   * 数据库接口
+   */
+  private final DispatchQueueDao dispatchQueueDao;
+
+  /**
+   * 项目之间的公平挑选
+   */
+  private final FairShareScheduler fairShareScheduler;
+
+  /**
+   * 各个项目正在运行的 workflow 数
+   */
+  private final Supplier<Map<String, Integer>> runningCounter;
+
+  /**
+   * 队列为空时的轮询间隔, 单位毫秒
+   */
+  private final long pollMillis;
+
+  /**
+   * 一次领取的时长, 单位毫秒
+   */
+  private final long claimMillis;
+
+  /**
+   * 是否有新加入的记录
+   */
+  private boolean signaled = false;
+
+  public DispatchQueue(DispatchQueueDao dispatchQueueDao, FairShareScheduler fairShareScheduler,
+      Supplier<Map<String, Integer>> runningCounter, long pollMillis, long claimMillis) {
+    this.dispatchQueueDao = dispatchQueueDao;
+    this.fairShareScheduler = fairShareScheduler;
+    this.runningCounter = runningCounter;
+    this.pollMillis = pollMillis;
+    this.claimMillis = claimMillis;
+  }
+
+  /**
+   * 加入队列, 立即可以分发
+   */
+  public void add(ExecFlowInfo execFlowInfo) {
+    add(execFlowInfo, 0);
+  }
+
+  /**
+   * 加入队列, 延迟一段时间后分发
+   *
+   * @param delayMillis 延迟的时间, 单位毫秒
+   */
+  public void add(ExecFlowInfo execFlowInfo, long delayMillis) {
+    dispatchQueueDao.enqueue(execFlowInfo.getExecId(), execFlowInfo.getProjectName(),
+        execFlowInfo.getHost(),
+        (execFlowInfo.getHost() == null) ? null : execFlowInfo.getPort(),
+        execFlowInfo.getLabel(), execFlowInfo.getPriority(),
+        (execFlowInfo.getDeadline() > 0) ? new Date(execFlowInfo.getDeadline()) : null,
+        new Date(System.currentTimeMillis() + delayMillis));
+
+    if (delayMillis <= 0) {
+      signal();
+    }
+  }
+
+  /**
+   * 领取一批可以分发的 workflow, 没有时等待新的记录或者轮询间隔
+   *
+   * @param limit 最多领取的条数
+   * @throws InterruptedException
+   */
+  public List<ExecFlowInfo> take(int limit) throws InterruptedException {
+    while (true) {
+      synchronized (this) {
+        signaled = false;
+      }
+
+      List<ExecFlowInfo> execFlowInfos = poll(limit, null);
+
+      if (!execFlowInfos.isEmpty()) {
+        return execFlowInfos;
+      }
+
+      synchronized (this) {
+        if (!signaled) {
+          wait(pollMillis);
+        }
+      }
+    }
+  }
+
+  /**
+   * 分发完成, 从队列中删除
+   *
+   * @return 是否成功, 失败说明领取已经过期, 被其它的分发线程领取了
+   */
+  public boolean ack(ExecFlowInfo execFlowInfo) {
+    return dispatchQueueDao.ack(execFlowInfo.getExecId(), execFlowInfo.getClaimToken());
+  }
+
+  /**
+   * 放弃领取, 延迟一段时间后再分发
+   */
+  public boolean release(ExecFlowInfo execFlowInfo, long delayMillis) {
+    return dispatchQueueDao.release(execFlowInfo.getExecId(), execFlowInfo.getClaimToken(),
+        new Date(System.currentTimeMillis() + delayMillis));
+  }
+
+  /**
+   * 队列中的记录数
+   */
+  public int size() {
+    return dispatchQueueDao.count();
+  }
+
+  /**
+   * 领取一批可以分发的 workflow, 不等待, 用于 executor 拉取
+   *
+   * @param limit 最多领取的条数
+   * @param labels 领取者的标签, 为 null 时不按标签过滤
+   */
+  public List<ExecFlowInfo> poll(int limit, List<String> labels) {
+    List<ExecFlowInfo> execFlowInfos = new ArrayList<>();
+
+    if (limit <= 0) {
+      return execFlowInfos;
+    }
+
+    try {
+      // 每个项目最多取 limit 条候选, 足够挑选
+      List<DispatchQueueItem> selected = fairShareScheduler
+          .select(dispatchQueueDao.candidates(limit, labels), limit, runningCounter.get());
+
+      Map<Integer, DispatchQueueItem> claimed = new HashMap<>();
+
+      for (DispatchQueueItem item : dispatchQueueDao.claim(
+          selected.stream().map(DispatchQueueItem::getExecId).collect(Collectors.toList()),
+          claimMillis)) {
+        claimed.put(item.getExecId(), item);
+      }
+
+      // 按挑选的顺序返回, 被其它领取者抢走的跳过
+      for (DispatchQueueItem selectedItem : selected) {
+        DispatchQueueItem item = claimed.get(selectedItem.getExecId());
+
+        if (item == null) {
+          continue;
+        }
+
+        ExecFlowInfo execFlowInfo = new ExecFlowInfo(item.getHost(),
+            (item.getPort() == null) ? 0 : item.getPort(), item.getExecId());
+
+        execFlowInfo.setProjectName(item.getProjectName());
+        execFlowInfo.setLabel(item.getLabel());
+        execFlowInfo.setPriority(item.getPriority());
+        execFlowInfo.setDeadline((item.getDeadline() == null) ? 0 : item.getDeadline().getTime());
+        execFlowInfo.setClaimToken(item.getClaimToken());
+        execFlowInfo.setClaimExpire(item.getClaimExpire().getTime());
+
+        execFlowInfos.add(execFlowInfo);
+      }
+    } catch (Exception e) {
+      // 数据库暂时不可用时等待下次轮询
+      logger.error("claim dispatch queue exception", e);
+    }
+
+    return execFlowInfos;
+  }
+
+  private synchronized void signal() {
+    signaled = true;
+    notifyAll();
+  }
+}
@@ -15,12 +15,45 @@
  */
 package com.baifendian.swordfish.masterserver.master;
 
+import com.baifendian.swordfish.dao.enums.FlowPriority;
+import com.baifendian.swordfish.dao.model.ExecutionFlow;
+
 public class ExecFlowInfo {
 
   private String host;
   private int port;
   private int execId;
 
+  /**
+   * 项目名称, 按项目公平分发和限制并发
+   */
+  private String projectName;
+
+  /**
+   * 标签, 拉取模式下只有带有该标签的 executor 才能领取, 为空表示任意
+   */
+  private String label;
+
+  /**
+   * 优先级, 同一个项目内越大越先分发
+   */
+  private int priority;
+
+  /**
+   * 完成期限, 单位毫秒, 0 表示没有期限
+   */
+  private long deadline;
+
+  /**
+   * 从分发队列领取时的令牌
+   */
+  private String claimToken;
+
+  /**
+   * 领取的过期时间, 单位毫秒
+   */
+  private long claimExpire;
+
   public ExecFlowInfo() {
   }
 
@@ -34,6 +67,19 @@ public class ExecFlowInfo {
     this.execId = execId;
   }
 
+  /**
+   * 带上 workflow 的项目, 优先级和完成期限
+   */
+  public ExecFlowInfo(ExecutionFlow executionFlow) {
+    this.execId = executionFlow.getId();
+    this.projectName = executionFlow.getProjectName();
+
+    FlowPriority flowPriority = executionFlow.getFlowPriority();
+    this.priority = ((flowPriority == null) ? FlowPriority.MEDIUM : flowPriority).ordinal();
+
+    this.deadline = (executionFlow.getDeadline() == null) ? 0 : executionFlow.getDeadline().getTime();
+  }
+
   public String getHost() {
     return host;
   }
@@ -58,12 +104,64 @@ public class ExecFlowInfo {
     this.execId = execId;
   }
 
+  public String getProjectName() {
+    return projectName;
+  }
+
+  public void setProjectName(String projectName) {
+    this.projectName = projectName;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public void setLabel(String label) {
+    this.label = label;
+  }
+
+  public int getPriority() {
+    return priority;
+  }
+
+  public void setPriority(int priority) {
+    this.priority = priority;
+  }
+
+  public long getDeadline() {
+    return deadline;
+  }
+
+  public void setDeadline(long deadline) {
+    this.deadline = deadline;
+  }
+
+  public String getClaimToken() {
+    return claimToken;
+  }
+
+  public void setClaimToken(String claimToken) {
+    this.claimToken = claimToken;
+  }
+
+  public long getClaimExpire() {
+    return claimExpire;
+  }
+
+  public void setClaimExpire(long claimExpire) {
+    this.claimExpire = claimExpire;
+  }
+
   @Override
   public String toString() {
     return "ExecFlowInfo{" +
         "host='" + host + '\'' +
         ", port=" + port +
         ", execId=" + execId +
+        ", projectName='" + projectName + '\'' +
+        ", label='" + label + '\'' +
+        ", priority=" + priority +
+        ", deadline=" + deadline +
         '}';
   }
 }
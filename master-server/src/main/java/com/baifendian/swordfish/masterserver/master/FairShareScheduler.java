@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.master;
+
+import com.baifendian.swordfish.dao.model.DispatchQueueItem;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分发时在项目之间公平共享 executor <p>
+ *
+ * 两层的队列: 每个项目一个子队列, 子队列内严格按优先级排序, 同优先级期限早的在前 (没有期限的最后), 再按分发时间; 项目之间按加权公平挑选,
+ * 每次挑选 "正在运行的 workflow 数 / 权重" 最小的项目, 达到运行上限的项目暂时跳过. 这样一个项目积压了大量的补数据,
+ * 其它项目新到的 workflow 也只需要等待下一个空闲的槽位.
+ */
+public class FairShareScheduler {
+
+  /**
+   * 项目内的排序, 优先级高的在前, 同优先级期限早的在前, 再之后先到的在前
+   */
+  private static final Comparator<DispatchQueueItem> ITEM_ORDER = Comparator
+      .comparingInt(DispatchQueueItem::getPriority).reversed()
+      .thenComparing(DispatchQueueItem::getDeadline,
+          Comparator.nullsLast(Comparator.naturalOrder()))
+      .thenComparing(DispatchQueueItem::getNotBefore)
+      .thenComparingInt(DispatchQueueItem::getExecId);
+
+  /**
+   * 各个项目的权重, 没有配置的为 1
+   */
+  private final Map<String, Integer> weights;
+
+  /**
+   * 各个项目同时运行的上限
+   */
+  private final Map<String, Integer> runningLimits;
+
+  /**
+   * 没有配置的项目的运行上限, 0 表示不限制
+   */
+  private final int runningLimitDefault;
+
+  public FairShareScheduler(Map<String, Integer> weights, Map<String, Integer> runningLimits,
+      int runningLimitDefault) {
+    this.weights = weights;
+    this.runningLimits = runningLimits;
+    this.runningLimitDefault = runningLimitDefault;
+  }
+
+  /**
+   * 从候选记录中挑选要分发的 workflow
+   *
+   * @param candidates 候选记录, 可以包含多个项目
+   * @param limit 最多挑选的条数
+   * @param running 各个项目正在运行的 workflow 数
+   * @return 按分发顺序排列的记录
+   */
+  public List<DispatchQueueItem> select(List<DispatchQueueItem> candidates, int limit,
+      Map<String, Integer> running) {
+    Map<String, LinkedList<DispatchQueueItem>> queues = new HashMap<>();
+
+    for (DispatchQueueItem item : candidates) {
+      queues.computeIfAbsent(project(item), k -> new LinkedList<>()).add(item);
+    }
+
+    Map<String, Integer> counts = new HashMap<>();
+
+    for (Map.Entry<String, LinkedList<DispatchQueueItem>> entry : queues.entrySet()) {
+      entry.getValue().sort(ITEM_ORDER);
+      counts.put(entry.getKey(), running.getOrDefault(entry.getKey(), 0));
+    }
+
+    List<DispatchQueueItem> selected = new ArrayList<>();
+
+    while (selected.size() < limit) {
+      String best = null;
+
+      for (Map.Entry<String, LinkedList<DispatchQueueItem>> entry : queues.entrySet()) {
+        String project = entry.getKey();
+
+        if (entry.getValue().isEmpty() || isFull(project, counts.get(project))) {
+          continue;
+        }
+
+        if (best == null || compare(project, best, counts, queues) < 0) {
+          best = project;
+        }
+      }
+
+      if (best == null) {
+        break;
+      }
+
+      selected.add(queues.get(best).poll());
+      counts.put(best, counts.get(best) + 1);
+    }
+
+    return selected;
+  }
+
+  /**
+   * 项目是否已经达到运行上限
+   */
+  public boolean isFull(String project, int running) {
+    int runningLimit = runningLimits.getOrDefault(project, runningLimitDefault);
+
+    return runningLimit > 0 && running >= runningLimit;
+  }
+
+  /**
+   * 比较两个项目谁先分发, 份额小的在前, 相同时比较各自排在最前面的 workflow
+   */
+  private int compare(String a, String b, Map<String, Integer> counts,
+      Map<String, LinkedList<DispatchQueueItem>> queues) {
+    // counts[a] / weight[a] 和 counts[b] / weight[b] 交叉相乘比较, 避免浮点误差
+    int result = Long.compare((long) counts.get(a) * weight(b), (long) counts.get(b) * weight(a));
+
+    if (result != 0) {
+      return result;
+    }
+
+    return ITEM_ORDER.compare(queues.get(a).peek(), queues.get(b).peek());
+  }
+
+  private int weight(String project) {
+    return Math.max(weights.getOrDefault(project, 1), 1);
+  }
+
+  /**
+   * 没有项目信息的记录 (比如老版本写入的) 归为一组
+   */
+  private static String project(DispatchQueueItem item) {
+    return (item.getProjectName() == null) ? "" : item.getProjectName();
+  }
+}
@@ -18,6 +18,7 @@ package com.baifendian.swordfish.masterserver.master;
 import com.baifendian.swordfish.dao.FlowDao;
 import com.baifendian.swordfish.dao.enums.ExecType;
 import com.baifendian.swordfish.dao.enums.FailurePolicyType;
+import com.baifendian.swordfish.dao.enums.FlowPriority;
 import com.baifendian.swordfish.dao.enums.NotifyType;
 import com.baifendian.swordfish.dao.model.ExecutionFlow;
 import com.baifendian.swordfish.dao.model.ProjectFlow;
@@ -53,6 +54,11 @@ public class FlowExecManager {
    */
   private final FlowDao flowDao;
 
+  /**
+   * 准入控制, 过载时推迟补数据
+   */
+  private final AdmissionController admissionController;
+
   /**
    * 检测依赖的等待时间
    */
@@ -62,10 +68,13 @@ public class FlowExecManager {
   /**
    * @param masterService
    * @param flowDao
+   * @param admissionController
    */
-  public FlowExecManager(MasterServiceImpl masterService, FlowDao flowDao) {
+  public FlowExecManager(MasterServiceImpl masterService, FlowDao flowDao,
+      AdmissionController admissionController) {
     this.masterService = masterService;
     this.flowDao = flowDao;
+    this.admissionController = admissionController;
 
     ThreadFactory flowThreadFactory = new ThreadFactoryBuilder()
             .setNameFormat("Scheduler-JobExecManager-AddData").build();
@@ -84,18 +93,20 @@ public class FlowExecManager {
 
       try {
         while (scheduleDate.before(endDateTime) || scheduleDate.equals(endDateTime)) {
+          // 过载时推迟, 不再往队列中堆积
+          waitAdmission(flow);
+
           ExecutionFlow executionFlow = flowDao
                   .scheduleFlowToExecution(flow.getProjectId(), flow.getId(),
                           flow.getOwnerId(), scheduleDate, ExecType.COMPLEMENT_DATA,
                           FailurePolicyType.valueOfType(execInfo.getFailurePolicy()), 0, null, null,
                           NotifyType.valueOfType(execInfo.getNotifyType()), execInfo.getNotifyMails(),
-                          execInfo.getTimeout());
+                          execInfo.getTimeout(), FlowPriority.LOWEST, null);
 
           executionFlow.setProjectId(flow.getProjectId());
 
-          ExecFlowInfo execFlowInfo = new ExecFlowInfo();
-
-          execFlowInfo.setExecId(executionFlow.getId());
+          // 补数据的优先级最低, 不影响同一个项目的例行调度
+          ExecFlowInfo execFlowInfo = new ExecFlowInfo(executionFlow);
 
           logger.info("add data: {}", execFlowInfo);
 
@@ -117,6 +128,20 @@ public class FlowExecManager {
     });
   }
 
+  /**
+   * 等待直到准入控制接受补数据 <p>
+   */
+  private void waitAdmission(ProjectFlow flow) throws InterruptedException {
+    String reason;
+
+    while ((reason = admissionController.admit(ExecType.COMPLEMENT_DATA)) != null) {
+      logger.info("defer add data of flow id {}: {}, retry after {} s", flow.getId(), reason,
+          admissionController.getRetryAfter());
+
+      Thread.sleep(admissionController.getRetryAfter() * 1000L);
+    }
+  }
+
   /**
    * 检测 workflow 的执行状态 <p>
    *
@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.master;
+
+import com.baifendian.swordfish.common.utils.CommonUtil;
+import com.baifendian.swordfish.dao.FlowDao;
+import com.baifendian.swordfish.dao.model.ExecutionFlow;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 启动 (或者接管) 时恢复未完成的 workflow <p>
+ *
+ * 按 exec id 分页扫描, 每页只查询分发需要的字段, 有完成期限的才加载工作流数据. 第一轮立即分发还没有分配过 worker 的, 等 executor
+ * 汇报心跳之后第二轮扫描已经分配了 worker 的: 心跳确认在运行的已经被接管, 其余的重新分发. 重新分发按固定的速率进行, 避免一次性涌入分发队列.
+ * 进度通过 JMX 查看.
+ */
+public class FlowRecoverer implements Runnable, FlowRecovererMBean {
+
+  private static final Logger logger = LoggerFactory.getLogger(FlowRecoverer.class);
+
+  /**
+   * JMX 中的名称
+   */
+  private static final String OBJECT_NAME = "com.baifendian.swordfish:type=FlowRecovery";
+
+  /**
+   * 数据库接口
+   */
+  private final FlowDao flowDao;
+
+  /**
+   * workflow 分发队列
+   */
+  private final DispatchQueue executionFlowQueue;
+
+  /**
+   * 正在运行的 workflow
+   */
+  private final RunningFlowReconciler runningFlowReconciler;
+
+  /**
+   * 完成期限的监控
+   */
+  private final SlaMonitor slaMonitor;
+
+  /**
+   * 每页的条数
+   */
+  private final int pageSize;
+
+  /**
+   * 每秒最多重新分发的个数, 0 表示不限制
+   */
+  private final int rate;
+
+  /**
+   * 等待 executor 汇报心跳的时间, 单位毫秒
+   */
+  private final long heartBeatWaitMillis;
+
+  private volatile Phase phase = Phase.WAITING;
+
+  private volatile int total;
+
+  private volatile int scanned;
+
+  private volatile int reconciled;
+
+  private volatile int resubmitted;
+
+  /**
+   * 下一次可以分发的时间, 单位纳秒
+   */
+  private long nextSubmitNanos;
+
+  public FlowRecoverer(FlowDao flowDao, DispatchQueue executionFlowQueue,
+      RunningFlowReconciler runningFlowReconciler, SlaMonitor slaMonitor, int pageSize, int rate,
+      long heartBeatWaitMillis) {
+    this.flowDao = flowDao;
+    this.executionFlowQueue = executionFlowQueue;
+    this.runningFlowReconciler = runningFlowReconciler;
+    this.slaMonitor = slaMonitor;
+    this.pageSize = pageSize;
+    this.rate = rate;
+    this.heartBeatWaitMillis = heartBeatWaitMillis;
+  }
+
+  @Override
+  public void run() {
+    register();
+
+    try {
+      total = flowDao.countNoFinishFlow();
+
+      logger.info("recovery exec flows: {}", total);
+
+      // 还没有分配过 worker 的任务不会重复执行, 立即分发
+      phase = Phase.UNASSIGNED;
+      scan(false);
+
+      // 已经分配了 worker 的任务, 等待一定的时间, 让 executor 先汇报心跳, 避免在其它 executor 上重复执行
+      phase = Phase.HEARTBEAT;
+      Thread.sleep(heartBeatWaitMillis);
+
+      phase = Phase.ASSIGNED;
+      scan(true);
+
+      phase = Phase.DONE;
+
+      logger.info("recovery finished, total: {}, reconciled: {}, resubmitted: {}", total,
+          reconciled, resubmitted);
+    } catch (InterruptedException e) {
+      logger.warn("recovery interrupted");
+    } catch (Exception e) {
+      phase = Phase.FAILED;
+      logger.error("Catch an exception", e);
+    }
+  }
+
+  /**
+   * 扫描一轮
+   *
+   * @param assigned 扫描已经分配了 worker 的, 还是没有分配过的
+   */
+  private void scan(boolean assigned) throws InterruptedException {
+    int afterId = 0;
+
+    while (true) {
+      List<ExecutionFlow> page = flowDao.queryNoFinishFlowPage(afterId, pageSize);
+
+      for (ExecutionFlow executionFlow : page) {
+        afterId = executionFlow.getId();
+        scanned++;
+
+        Pair<String, Integer> worker = CommonUtil.parseWorker(executionFlow.getWorker());
+
+        if (assigned != (worker != null)) {
+          continue;
+        }
+
+        // 心跳中已经汇报在运行的, 已经被接管, 不需要重新分发
+        if (assigned && runningFlowReconciler.isTracked(executionFlow.getId())) {
+          reconciled++;
+          continue;
+        }
+
+        resubmit(executionFlow, worker);
+      }
+
+      logger.info("recovery progress, phase: {}, scanned: {}, reconciled: {}, resubmitted: {}",
+          phase, scanned, reconciled, resubmitted);
+
+      if (page.size() < pageSize) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * 重新加入分发队列, 有完成期限的查询完整的信息以跟踪
+   *
+   * @param worker 建议的 executor, 可以为空
+   */
+  private void resubmit(ExecutionFlow executionFlow, Pair<String, Integer> worker)
+      throws InterruptedException {
+    pace();
+
+    if (executionFlow.getDeadline() != null) {
+      ExecutionFlow detail = flowDao.queryExecutionFlow(executionFlow.getId());
+
+      if (detail == null || detail.getStatus().typeIsFinished()) {
+        return;
+      }
+
+      slaMonitor.track(detail);
+    }
+
+    ExecFlowInfo execFlowInfo = new ExecFlowInfo(executionFlow);
+
+    if (worker != null) {
+      execFlowInfo.setHost(worker.getLeft());
+      execFlowInfo.setPort(worker.getRight());
+    }
+
+    executionFlowQueue.add(execFlowInfo);
+
+    resubmitted++;
+  }
+
+  /**
+   * 按速率等待
+   */
+  private void pace() throws InterruptedException {
+    if (rate <= 0) {
+      return;
+    }
+
+    long now = System.nanoTime();
+
+    if (nextSubmitNanos > now) {
+      long waitNanos = nextSubmitNanos - now;
+      Thread.sleep(waitNanos / 1000000, (int) (waitNanos % 1000000));
+    }
+
+    nextSubmitNanos = Math.max(now, nextSubmitNanos) + 1000000000L / rate;
+  }
+
+  /**
+   * 注册到 JMX, 接管时替换之前的
+   */
+  private void register() {
+    try {
+      MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+      ObjectName objectName = new ObjectName(OBJECT_NAME);
+
+      if (mBeanServer.isRegistered(objectName)) {
+        mBeanServer.unregisterMBean(objectName);
+      }
+
+      mBeanServer.registerMBean(this, objectName);
+    } catch (Exception e) {
+      logger.warn("register recovery mbean failed", e);
+    }
+  }
+
+  @Override
+  public String getPhase() {
+    return phase.name();
+  }
+
+  @Override
+  public int getTotal() {
+    return total;
+  }
+
+  @Override
+  public int getScanned() {
+    return scanned;
+  }
+
+  @Override
+  public int getReconciled() {
+    return reconciled;
+  }
+
+  @Override
+  public int getResubmitted() {
+    return resubmitted;
+  }
+
+  /**
+   * 恢复的阶段
+   */
+  private enum Phase {
+    /**
+     * 还没有开始
+     */
+    WAITING,
+
+    /**
+     * 分发没有分配过 worker 的
+     */
+    UNASSIGNED,
+
+    /**
+     * 等待 executor 汇报心跳
+     */
+    HEARTBEAT,
+
+    /**
+     * 对账并分发已经分配了 worker 的
+     */
+    ASSIGNED,
+
+    DONE,
+
+    FAILED
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.master;
+
+/**
+ * 启动恢复的进度, 通过 JMX 查看
+ */
+public interface FlowRecovererMBean {
+
+  /**
+   * 当前阶段
+   */
+  String getPhase();
+
+  /**
+   * 开始恢复时未完成的 workflow 数
+   */
+  int getTotal();
+
+  /**
+   * 已经扫描过的 workflow 数 (两轮扫描的合计)
+   */
+  int getScanned();
+
+  /**
+   * executor 心跳确认在运行, 不需要重新分发的 workflow 数
+   */
+  int getReconciled();
+
+  /**
+   * 重新加入分发队列的 workflow 数
+   */
+  int getResubmitted();
+}
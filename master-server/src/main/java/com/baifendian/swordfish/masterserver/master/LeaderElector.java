@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.master;
+
+import com.baifendian.swordfish.dao.MasterDao;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 基于数据库租约的 master 选主 <p>
+ *
+ * master_server 表中只有一行租约记录, 持有者定期续约; standby 的 master 定期检查, 租约过期后抢占, 同时 epoch 加 1.
+ * epoch 作为 fencing token, 分发任务等关键的写操作都带上 epoch, 已经被取代的 master 的写操作会失败. 租约的过期时间按数据库的时钟计算,
+ * 本地判断是否是 leader 时只用单调时钟度量时长, 以续约开始的时间计算过期时间, 并预留一个续约周期, 本地的租约总是比数据库中的短,
+ * 保证在其它 master 接管之前先停止工作.
+ */
+public class LeaderElector {
+
+  private static final Logger logger = LoggerFactory.getLogger(LeaderElector.class);
+
+  /**
+   * 数据库接口
+   */
+  private final MasterDao masterDao;
+
+  /**
+   * 当前 master 的 host
+   */
+  private final String host;
+
+  /**
+   * 当前 master 的 port
+   */
+  private final int port;
+
+  /**
+   * 租约时长, 单位毫秒
+   */
+  private final long leaseMillis;
+
+  /**
+   * 续约和检查的间隔, 单位毫秒
+   */
+  private final long renewMillis;
+
+  /**
+   * 成为 leader 或者失去 leader 时的回调
+   */
+  private final LeaderListener listener;
+
+  private final ScheduledExecutorService executorService;
+
+  /**
+   * 当前的 epoch, 不是 leader 时为 -1
+   */
+  private volatile long epoch = -1;
+
+  /**
+   * 本地认为租约有效的截止时间, System.nanoTime() 的值, 不受本地时钟调整的影响
+   */
+  private volatile long localExpire = 0;
+
+  public LeaderElector(MasterDao masterDao, String host, int port, long leaseMillis,
+      long renewMillis, LeaderListener listener) {
+    if (renewMillis <= 0 || renewMillis >= leaseMillis) {
+      throw new IllegalArgumentException("renew interval must be positive and less than lease");
+    }
+
+    this.masterDao = masterDao;
+    this.host = host;
+    this.port = port;
+    this.leaseMillis = leaseMillis;
+    this.renewMillis = renewMillis;
+    this.listener = listener;
+
+    this.executorService = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("Master-LeaderElector").setDaemon(true).build());
+  }
+
+  /**
+   * 开始选主
+   */
+  public void start() {
+    executorService.scheduleWithFixedDelay(this::tick, 0, renewMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * 停止选主
+   *
+   * @param release 是否释放租约, 正常退出时释放, 让 standby 立即接管
+   */
+  public void stop(boolean release) {
+    executorService.shutdownNow();
+
+    try {
+      executorService.awaitTermination(renewMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      logger.error("wait leader elector stop interrupted", e);
+    }
+
+    long current = epoch;
+
+    if (release && current > 0) {
+      try {
+        masterDao.releaseLease(host, port, current);
+        logger.info("release master lease, epoch: {}", current);
+      } catch (Exception e) {
+        logger.error("release master lease exception", e);
+      }
+    }
+
+    epoch = -1;
+  }
+
+  /**
+   * 是否是 leader, 本地租约过期后即认为不是
+   */
+  public boolean isLeader() {
+    return epoch > 0 && localValid();
+  }
+
+  /**
+   * 得到当前的 epoch, 不是 leader 时返回 -1
+   */
+  public long getEpoch() {
+    return epoch;
+  }
+
+  /**
+   * 续约或者抢占租约
+   */
+  void tick() {
+    long start = System.nanoTime();
+
+    if (epoch > 0) {
+      boolean renewed = false;
+
+      try {
+        renewed = masterDao.renewLease(host, port, epoch, leaseMillis);
+      } catch (Exception e) {
+        // 数据库暂时不可用时, 在本地租约过期之前继续作为 leader
+        logger.error("renew master lease exception", e);
+
+        if (localValid()) {
+          return;
+        }
+      }
+
+      if (renewed) {
+        localExpire = start + TimeUnit.MILLISECONDS.toNanos(leaseMillis - renewMillis);
+      } else {
+        logger.warn("lose master lease, epoch: {}", epoch);
+        stepDown();
+      }
+
+      return;
+    }
+
+    long acquired;
+
+    try {
+      acquired = masterDao.acquireLease(host, port, leaseMillis);
+    } catch (Exception e) {
+      logger.error("acquire master lease exception", e);
+      return;
+    }
+
+    if (acquired > 0) {
+      localExpire = start + TimeUnit.MILLISECONDS.toNanos(leaseMillis - renewMillis);
+      epoch = acquired;
+
+      logger.info("become master leader {}:{}, epoch: {}", host, port, acquired);
+
+      try {
+        listener.takeLeadership(acquired);
+      } catch (Exception e) {
+        logger.error("take leadership exception", e);
+        stepDown();
+      }
+    }
+  }
+
+  /**
+   * 本地的租约是否还有效, 数据库在收到续约请求之后才计算过期时间, 本地以发出请求的时间计算, 总是更早过期
+   */
+  private boolean localValid() {
+    return System.nanoTime() - localExpire < 0;
+  }
+
+  /**
+   * 放弃 leader
+   */
+  private void stepDown() {
+    epoch = -1;
+    localExpire = 0;
+
+    try {
+      listener.loseLeadership();
+    } catch (Exception e) {
+      logger.error("lose leadership exception", e);
+    }
+  }
+
+  /**
+   * leader 变化的回调
+   */
+  public interface LeaderListener {
+
+    /**
+     * 成为 leader
+     *
+     * @param epoch 本次获得租约的 epoch
+     */
+    void takeLeadership(long epoch);
+
+    /**
+     * 失去 leader, 之后不能再分发任务
+     */
+    void loseLeadership();
+  }
+}
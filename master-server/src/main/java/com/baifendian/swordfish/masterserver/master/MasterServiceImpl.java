@@ -18,10 +18,14 @@ package com.baifendian.swordfish.masterserver.master;
 import com.baifendian.swordfish.common.utils.CommonUtil;
 import com.baifendian.swordfish.dao.AdHocDao;
 import com.baifendian.swordfish.dao.DaoFactory;
+import com.baifendian.swordfish.dao.DispatchQueueDao;
 import com.baifendian.swordfish.dao.FlowDao;
+import com.baifendian.swordfish.dao.ScheduleFireDao;
 import com.baifendian.swordfish.dao.StreamingDao;
+import com.baifendian.swordfish.dao.datasource.ConnectionFactory;
 import com.baifendian.swordfish.dao.enums.ExecType;
 import com.baifendian.swordfish.dao.enums.FailurePolicyType;
+import com.baifendian.swordfish.dao.enums.FlowPriority;
 import com.baifendian.swordfish.dao.enums.FlowStatus;
 import com.baifendian.swordfish.dao.enums.NodeDepType;
 import com.baifendian.swordfish.dao.enums.NotifyType;
@@ -37,7 +41,9 @@ import com.baifendian.swordfish.masterserver.exec.ExecutorClient;
 import com.baifendian.swordfish.masterserver.exec.ExecutorServerInfo;
 import com.baifendian.swordfish.masterserver.exec.ExecutorServerManager;
 import com.baifendian.swordfish.masterserver.quartz.FlowScheduleJob;
-import com.baifendian.swordfish.masterserver.quartz.QuartzManager;
+import com.baifendian.swordfish.masterserver.trigger.QuartzTriggerEngine;
+import com.baifendian.swordfish.masterserver.trigger.TimingWheelTriggerEngine;
+import com.baifendian.swordfish.masterserver.trigger.TriggerEngine;
 import com.baifendian.swordfish.masterserver.utils.ResultDetailHelper;
 import com.baifendian.swordfish.masterserver.utils.ResultHelper;
 import com.baifendian.swordfish.rpc.ExecInfo;
@@ -49,11 +55,8 @@ import com.baifendian.swordfish.rpc.ScheduleInfo;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.tuple.Pair;
@@ -93,9 +96,29 @@ public class MasterServiceImpl implements Iface {
   private ExecutorServerManager executorServerManager;
 
   /**
-   * 工作流执行队列
+   * 工作流分发队列
    */
-  private final BlockingQueue<ExecFlowInfo> executionFlowQueue;
+  private final DispatchQueue executionFlowQueue;
+
+  /**
+   * 根据心跳对账正在运行的 workflow
+   */
+  private final RunningFlowReconciler runningFlowReconciler;
+
+  /**
+   * 完成期限的监控
+   */
+  private final SlaMonitor slaMonitor;
+
+  /**
+   * 手动运行和补数据提交的准入控制
+   */
+  private final AdmissionController admissionController;
+
+  /**
+   * 调度的触发引擎
+   */
+  private final TriggerEngine triggerEngine;
 
   /**
    * 具备定时调度运行的 service, 当前检测的是 exec-service 服务, 也可以检测其它的服务
@@ -128,24 +151,51 @@ public class MasterServiceImpl implements Iface {
     this.streamingDao = DaoFactory.getDaoInstance(StreamingDao.class);
 
     this.executorServerManager = new ExecutorServerManager();
-    this.executionFlowQueue = new LinkedBlockingQueue<>(MasterConfig.executionFlowQueueSize);
+    this.executionFlowQueue = new DispatchQueue(DaoFactory.getDaoInstance(DispatchQueueDao.class),
+        new FairShareScheduler(MasterConfig.projectWeights, MasterConfig.projectRunningLimits,
+            MasterConfig.projectRunningLimitDefault),
+        this::getRunningCounts, MasterConfig.dispatchPollInterval,
+        MasterConfig.dispatchClaimTimeout);
+    this.slaMonitor = new SlaMonitor(flowDao, MasterConfig.slaRiskMargin);
+    this.runningFlowReconciler = new RunningFlowReconciler(flowDao, executionFlowQueue,
+        slaMonitor, MasterConfig.masterReconcileGraceInterval, MasterConfig.dispatchLeaseTimeout);
+    this.admissionController = new AdmissionController(executionFlowQueue,
+        runningFlowReconciler, executorServerManager, ConnectionFactory::getPoolUsage,
+        MasterConfig.admissionQueuedHigh, MasterConfig.admissionRunningPerExecutorHigh,
+        MasterConfig.admissionDbPoolHigh, MasterConfig.admissionRetryAfter);
+
+    if (MasterConfig.triggerWheel) {
+      this.triggerEngine = new TimingWheelTriggerEngine(flowDao,
+          DaoFactory.getDaoInstance(ScheduleFireDao.class),
+          (projectId, flowId, scheduledFireTime, preFireTime, done) -> new FlowScheduleJob()
+              .fire(projectId, flowId, scheduledFireTime, new Date(), preFireTime, done),
+          MasterConfig.triggerThreads, MasterConfig.scheduleMisfireThreshold);
+    } else {
+      this.triggerEngine = new QuartzTriggerEngine();
+    }
+
     this.checkService = Executors.newScheduledThreadPool(5);
   }
 
   /**
    * 运行 flow exec
+   *
+   * @param masterEpoch 获得 master 租约时的 epoch, 分发任务时作为 fencing token
    */
-  public void run() {
-    flowExecManager = new FlowExecManager(this, flowDao);
+  public void run(long masterEpoch) {
+    flowExecManager = new FlowExecManager(this, flowDao, admissionController);
 
     // 初始化调度作业
-    FlowScheduleJob.init(executionFlowQueue, flowDao);
+    FlowScheduleJob.init(executionFlowQueue, flowDao, slaMonitor, triggerEngine);
 
-    // 启动请求 executor server 的处理线程
+    // 启动请求 executor server 的处理线程, 拉取模式下由 executor 心跳时领取, 不需要启动
     flowSubmit2ExecutorThread = new Submit2ExecutorServerThread(executorServerManager, flowDao,
-        executionFlowQueue);
+        executionFlowQueue, runningFlowReconciler, masterEpoch);
     flowSubmit2ExecutorThread.setDaemon(true);
-    flowSubmit2ExecutorThread.start();
+
+    if (!MasterConfig.dispatchPullMode) {
+      flowSubmit2ExecutorThread.start();
+    }
 
     // 检测 executor 的线程
     executorCheckThread = new ExecutorCheckThread(executorServerManager,
@@ -163,32 +213,40 @@ public class MasterServiceImpl implements Iface {
     checkService.scheduleAtFixedRate(streamingCheckThread, 10, MasterConfig.streamingCheckInterval,
         TimeUnit.SECONDS);
 
-    // 启动的时候, 等待一定的时间, 然后重新分配未完成的任务
+    // 检查有期限的 workflow 能否按时完成
+    checkService.scheduleAtFixedRate(slaMonitor, 10, MasterConfig.slaCheckInterval,
+        TimeUnit.SECONDS);
+
+    // 启动(或者接管)的时候, 分发队列中的任务直接继续分发, 这里只补上不在队列中的未完成任务 (入队是幂等的)
     Thread t = new Thread(() -> {
       try {
-        // 这里等待一定的时间之后, 避免有心跳继续发过来
-        Thread.sleep(MasterConfig.heartBeatTimeoutInterval + 1000);
-
-        List<ExecutionFlow> executionFlowList = flowDao.queryAllNoFinishFlow();
-
-        logger.info("recovery exec flows: {}", executionFlowList.size());
-
-        for (ExecutionFlow executionFlow : executionFlowList) {
-          Pair<String, Integer> pair = CommonUtil.parseWorker(executionFlow.getWorker());
-
-          ExecFlowInfo execFlowInfo = (pair == null) ? new ExecFlowInfo(executionFlow.getId())
-              : new ExecFlowInfo(pair.getLeft(), pair.getRight(), executionFlow.getId());
-
-          executionFlowQueue.add(execFlowInfo);
-        }
+        slaMonitor.load(MasterConfig.slaHistoryDays);
       } catch (Exception e) {
-        logger.error("Catch an exception", e);
+        logger.error("load node durations exception", e);
       }
-    });
+
+      new FlowRecoverer(flowDao, executionFlowQueue, runningFlowReconciler, slaMonitor,
+          MasterConfig.recoveryPageSize, MasterConfig.recoveryRate,
+          MasterConfig.heartBeatTimeoutInterval + 1000).run();
+    }, "Master-Recovery");
 
     t.start();
   }
 
+  /**
+   * 各个项目正在运行的 workflow 数, 分发队列按项目挑选时使用
+   */
+  private Map<String, Integer> getRunningCounts() {
+    return runningFlowReconciler.getRunningCounts();
+  }
+
+  /**
+   * 调度的触发引擎
+   */
+  public TriggerEngine getTriggerEngine() {
+    return triggerEngine;
+  }
+
   /**
    * 停止 executor 的执行
    */
@@ -231,18 +289,7 @@ public class MasterServiceImpl implements Iface {
         return ResultHelper.createErrorResult("flow schedule info not exists");
       }
 
-      // 解析参数
-      Date startDate = schedule.getStartDate();
-      Date endDate = schedule.getEndDate();
-
-      String jobName = FlowScheduleJob.genJobName(flowId);
-      String jobGroupName = FlowScheduleJob.genJobGroupName(projectId);
-
-      Map<String, Object> dataMap = FlowScheduleJob.genDataMap(projectId, flowId, schedule);
-
-      QuartzManager
-          .addJobAndTrigger(jobName, jobGroupName, FlowScheduleJob.class, startDate, endDate,
-              schedule.getCrontab(), dataMap);
+      triggerEngine.schedule(projectId, flowId, schedule);
     } catch (Exception e) {
       logger.error(e.getMessage(), e);
       return ResultHelper.createErrorResult(e.getMessage());
@@ -259,10 +306,7 @@ public class MasterServiceImpl implements Iface {
     logger.info("delete schedules of project id:{}, flow id:{}", projectId, flowId);
 
     try {
-      String jobName = FlowScheduleJob.genJobName(flowId);
-      String jobGroupName = FlowScheduleJob.genJobGroupName(projectId);
-
-      QuartzManager.deleteJob(jobName, jobGroupName);
+      triggerEngine.unschedule(projectId, flowId);
     } catch (Exception e) {
       logger.error(e.getMessage(), e);
       return ResultHelper.createErrorResult(e.getMessage());
@@ -279,9 +323,7 @@ public class MasterServiceImpl implements Iface {
     logger.info("delete schedules of project id:{}", projectId);
 
     try {
-      String jobGroupName = FlowScheduleJob.genJobGroupName(projectId);
-
-      QuartzManager.deleteJobs(jobGroupName);
+      triggerEngine.unscheduleProject(projectId);
     } catch (Exception e) {
       logger.error(e.getMessage(), e);
       return ResultHelper.createErrorResult(e.getMessage());
@@ -303,6 +345,13 @@ public class MasterServiceImpl implements Iface {
 
     ExecutionFlow executionFlow;
 
+    // 过载时拒绝, 由调用方稍后重试
+    String reason = admissionController.admit(ExecType.DIRECT);
+
+    if (reason != null) {
+      return ResultDetailHelper.createBusyResult(reason, admissionController.getRetryAfter());
+    }
+
     try {
       ProjectFlow flow = flowDao.projectFlowFindById(flowId);
 
@@ -311,6 +360,11 @@ public class MasterServiceImpl implements Iface {
         return new RetResultInfo(ResultHelper.createErrorResult("flow is not exists"), null);
       }
 
+      // 直接运行的沿用调度设置的优先级
+      Schedule schedule = flowDao.querySchedule(flowId);
+      FlowPriority flowPriority = (schedule == null) ? FlowPriority.MEDIUM
+          : schedule.getFlowPriority();
+
       // 构建一个用于执行的工作流
       executionFlow = flowDao.scheduleFlowToExecution(projectId,
           flowId,
@@ -323,9 +377,11 @@ public class MasterServiceImpl implements Iface {
           NodeDepType.valueOfType(execInfo.getNodeDep()),
           NotifyType.valueOfType(execInfo.getNotifyType()),
           execInfo.getNotifyMails(),
-          execInfo.timeout);
+          execInfo.timeout,
+          flowPriority,
+          null);
 
-      ExecFlowInfo execFlowInfo = new ExecFlowInfo(executionFlow.getId());
+      ExecFlowInfo execFlowInfo = new ExecFlowInfo(executionFlow);
 
       logger.info("insert a flow to execution, exec id:{}, flow id:{}", executionFlow.getId(),
           flowId);
@@ -387,6 +443,13 @@ public class MasterServiceImpl implements Iface {
         flowId,
         scheduleInfo, execInfo);
 
+    // 过载时拒绝, 接受之后每个日期的提交之间也会在过载时推迟
+    String reason = admissionController.admit(ExecType.COMPLEMENT_DATA);
+
+    if (reason != null) {
+      return ResultDetailHelper.createBusyResult(reason, admissionController.getRetryAfter());
+    }
+
     try {
       ProjectFlow flow = flowDao.projectFlowFindById(flowId);
 
@@ -725,11 +788,30 @@ public class MasterServiceImpl implements Iface {
       executorServerInfo.setHeartBeatData(heartBeatData);
 
       executorServerManager.updateServer(executorServerInfo);
+
+      // 根据汇报的正在运行的 workflow 对账
+      runningFlowReconciler.reconcile(executorServerManager.getKey(executorServerInfo),
+          heartBeatData);
+
+      RetInfo retInfo = new RetInfo(0, "success");
+
+      // 返回该 executor 的任务类型配额
+      Map<String, Integer> quotas = executorServerManager.getJobTypeQuotas(executorServerInfo);
+
+      if (quotas != null) {
+        retInfo.setJobTypeQuotas(quotas);
+      }
+
+      // 拉取模式下按 executor 希望的数目领取 workflow, 老版本的 executor 不汇报, 不会领取
+      if (MasterConfig.dispatchPullMode && heartBeatData.isSetLeaseCapacity()) {
+        retInfo.setLeasedExecIds(flowSubmit2ExecutorThread.lease(executorServerInfo,
+            heartBeatData.getLeaseCapacity(), heartBeatData.getLabels()));
+      }
+
+      return retInfo;
     } catch (Exception e) {
       logger.warn(String.format("executor report error, [%s:%d]", host, port), e);
       return ResultHelper.createErrorResult(e.getMessage());
     }
-
-    return ResultHelper.SUCCESS;
   }
 }
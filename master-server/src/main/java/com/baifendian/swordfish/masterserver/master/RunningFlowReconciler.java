@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.master;
+
+import com.baifendian.swordfish.common.mail.EmailManager;
+import com.baifendian.swordfish.dao.FlowDao;
+import com.baifendian.swordfish.dao.enums.FlowStatus;
+import com.baifendian.swordfish.dao.model.ExecutionFlow;
+import com.baifendian.swordfish.rpc.HeartBeatData;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 根据 executor 心跳汇报的正在运行的 workflow, 和 master 分发过的 workflow 对账 <p>
+ *
+ * master 在内存中记录分发成功的 exec id, 心跳到来时只对差异部分按主键查询数据库, 不扫描表:
+ * <ul>
+ * <li>分发过但 executor 没有汇报的, 若 executor 的 epoch 变了 (重启过), 则重新分发; 否则 executor 已经丢失了该任务, 直接置为失败</li>
+ * <li>executor 汇报了但 master 没有记录的 (比如 master 切换后), 若数据库中的 worker 就是该 executor, 则接管记录</li>
+ * <li>拉取模式下 executor 领取的, 在第一次汇报之前只是租约, 租约过期 (比如心跳的返回丢失了) 或者 executor 重启后重新投递,
+ * 汇报之后按正常分发的处理</li>
+ * </ul>
+ * 分发和心跳之间存在竞争, 分发时间都以 master 的时钟记录, 只有超过宽限时间仍没有汇报的才认为丢失, 不受两边时钟偏差的影响.
+ */
+public class RunningFlowReconciler {
+
+  private static final Logger logger = LoggerFactory.getLogger(RunningFlowReconciler.class);
+
+  /**
+   * 数据库接口
+   */
+  private final FlowDao flowDao;
+
+  /**
+   * workflow 分发队列, 重新分发时放入
+   */
+  private final DispatchQueue executionFlowQueue;
+
+  /**
+   * 完成期限的监控, 分发和结束时通知
+   */
+  private final SlaMonitor slaMonitor;
+
+  /**
+   * 分发后等待心跳汇报的宽限时间, 单位毫秒
+   */
+  private final long graceMillis;
+
+  /**
+   * 拉取模式下租约的时长, 单位毫秒
+   */
+  private final long leaseMillis;
+
+  /**
+   * 分发成功的 workflow, key 为 exec id
+   */
+  private final Map<Integer, Dispatch> dispatches = new ConcurrentHashMap<>();
+
+  /**
+   * 各个 executor 最近一次汇报的 epoch, key 为 "host:port"
+   */
+  private final Map<String, Long> epochs = new ConcurrentHashMap<>();
+
+  public RunningFlowReconciler(FlowDao flowDao, DispatchQueue executionFlowQueue,
+      SlaMonitor slaMonitor, long graceMillis, long leaseMillis) {
+    this.flowDao = flowDao;
+    this.executionFlowQueue = executionFlowQueue;
+    this.slaMonitor = slaMonitor;
+    this.graceMillis = graceMillis;
+    this.leaseMillis = leaseMillis;
+  }
+
+  /**
+   * 记录分发成功的 workflow
+   *
+   * @param execId exec id
+   * @param worker executor 的 "host:port"
+   * @param projectName 项目名称, 用于统计各个项目正在运行的数目
+   */
+  public void dispatched(int execId, String worker, String projectName) {
+    dispatches.put(execId, new Dispatch(worker, projectName, System.currentTimeMillis(), 0));
+    slaMonitor.started(execId);
+  }
+
+  /**
+   * 记录 executor 拉取的 workflow, 在 executor 汇报之前只是租约
+   *
+   * @param execId exec id
+   * @param worker executor 的 "host:port"
+   * @param projectName 项目名称
+   */
+  public void leased(int execId, String worker, String projectName) {
+    long now = System.currentTimeMillis();
+
+    dispatches.put(execId, new Dispatch(worker, projectName, now, now + leaseMillis));
+    slaMonitor.started(execId);
+  }
+
+  /**
+   * 是否已经在跟踪该 workflow
+   */
+  public boolean isTracked(int execId) {
+    return dispatches.containsKey(execId);
+  }
+
+  /**
+   * 各个项目正在运行 (已经分发还没有结束) 的 workflow 数, 结束的在下一次心跳对账时去掉
+   */
+  public Map<String, Integer> getRunningCounts() {
+    Map<String, Integer> counts = new HashMap<>();
+
+    for (Dispatch dispatch : dispatches.values()) {
+      if (dispatch.project != null) {
+        counts.merge(dispatch.project, 1, Integer::sum);
+      }
+    }
+
+    return counts;
+  }
+
+  /**
+   * 正在运行 (已经分发还没有结束) 的 workflow 总数
+   */
+  public int getRunningCount() {
+    return dispatches.size();
+  }
+
+  /**
+   * 忘掉某个 executor 上的 workflow, 在 executor 下线或者超时, 其上的任务整体重新分发时调用
+   */
+  public void forget(String worker) {
+    dispatches.values().removeIf(dispatch -> dispatch.worker.equals(worker));
+    epochs.remove(worker);
+  }
+
+  /**
+   * 根据心跳对账
+   *
+   * @param worker executor 的 "host:port"
+   * @param heartBeatData 心跳, 没有汇报 exec id 的老版本 executor 不做对账
+   */
+  public void reconcile(String worker, HeartBeatData heartBeatData) {
+    if (!heartBeatData.isSetExecIds()) {
+      return;
+    }
+
+    boolean restarted = false;
+
+    if (heartBeatData.isSetEpoch()) {
+      Long last = epochs.put(worker, heartBeatData.getEpoch());
+      restarted = last != null && last != heartBeatData.getEpoch();
+
+      if (restarted) {
+        logger.warn("executor {} restarted, epoch {} -> {}", worker, last,
+            heartBeatData.getEpoch());
+      }
+    }
+
+    Set<Integer> reported = new HashSet<>(heartBeatData.getExecIds());
+    long now = System.currentTimeMillis();
+    long deadline = now - graceMillis;
+
+    // 分发过但没有汇报的
+    for (Iterator<Map.Entry<Integer, Dispatch>> it = dispatches.entrySet().iterator();
+        it.hasNext(); ) {
+      Map.Entry<Integer, Dispatch> entry = it.next();
+      Dispatch dispatch = entry.getValue();
+
+      if (!dispatch.worker.equals(worker)) {
+        continue;
+      }
+
+      // 汇报了的租约得到确认
+      if (reported.contains(entry.getKey())) {
+        dispatch.confirmed = true;
+        continue;
+      }
+
+      // 没有确认的租约, 过期后重新投递
+      if (dispatch.leaseExpire > 0 && !dispatch.confirmed) {
+        if (!restarted && now <= dispatch.leaseExpire) {
+          continue;
+        }
+
+        it.remove();
+        orphan(entry.getKey(), worker, true);
+        continue;
+      }
+
+      // 重启之前分发的一定已经丢失, 否则等待宽限时间
+      if (!restarted && dispatch.time > deadline) {
+        continue;
+      }
+
+      it.remove();
+      orphan(entry.getKey(), worker, restarted);
+    }
+
+    // 汇报了但没有记录的
+    for (Integer execId : reported) {
+      if (!dispatches.containsKey(execId)) {
+        adopt(execId, worker);
+      }
+    }
+  }
+
+  /**
+   * 处理 executor 上丢失的 workflow
+   *
+   * @param redeliver 是否重新分发, 否则置为失败
+   */
+  private void orphan(int execId, String worker, boolean redeliver) {
+    ExecutionFlow executionFlow = flowDao.queryExecutionFlow(execId);
+
+    if (executionFlow == null) {
+      return;
+    }
+
+    // 正常结束的, 顺便更新节点的预计运行时长
+    if (executionFlow.getStatus().typeIsFinished()) {
+      slaMonitor.finished(executionFlow);
+      return;
+    }
+
+    // 已经被分发到了其它的 executor
+    if (!worker.equals(executionFlow.getWorker())) {
+      return;
+    }
+
+    if (redeliver) {
+      logger.warn("exec id {} lost by executor {}, resubmit", execId, worker);
+
+      executionFlowQueue.add(new ExecFlowInfo(executionFlow));
+    } else {
+      logger.error("exec id {} not running on executor {}, set failed", execId, worker);
+
+      flowDao.updateExecutionFlowStatus(execId, FlowStatus.FAILED);
+
+      executionFlow.setStatus(FlowStatus.FAILED);
+      EmailManager.sendMessageOfExecutionFlow(executionFlow);
+    }
+  }
+
+  /**
+   * 接管 executor 汇报的 workflow
+   */
+  private void adopt(int execId, String worker) {
+    ExecutionFlow executionFlow = flowDao.queryExecutionFlow(execId);
+
+    // 已经结束, 等待 executor 清理即可
+    if (executionFlow == null || executionFlow.getStatus().typeIsFinished()) {
+      return;
+    }
+
+    if (worker.equals(executionFlow.getWorker())) {
+      logger.info("adopt exec id {} running on executor {}", execId, worker);
+
+      dispatches.putIfAbsent(execId, new Dispatch(worker, executionFlow.getProjectName(),
+          System.currentTimeMillis(), 0));
+
+      slaMonitor.track(executionFlow);
+      slaMonitor.started(execId);
+    } else {
+      logger.warn("exec id {} running on executor {}, but the worker is {}", execId, worker,
+          executionFlow.getWorker());
+    }
+  }
+
+  /**
+   * 一次分发
+   */
+  private static class Dispatch {
+
+    /**
+     * executor 的 "host:port"
+     */
+    private final String worker;
+
+    /**
+     * 项目名称
+     */
+    private final String project;
+
+    /**
+     * 分发的时间, master 的时钟
+     */
+    private final long time;
+
+    /**
+     * 拉取模式下租约的过期时间, 推送模式下为 0
+     */
+    private final long leaseExpire;
+
+    /**
+     * executor 是否已经汇报过
+     */
+    private volatile boolean confirmed;
+
+    Dispatch(String worker, String project, long time, long leaseExpire) {
+      this.worker = worker;
+      this.project = project;
+      this.time = time;
+      this.leaseExpire = leaseExpire;
+    }
+  }
+}
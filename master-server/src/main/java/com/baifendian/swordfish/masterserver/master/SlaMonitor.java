@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.master;
+
+import com.baifendian.swordfish.common.mail.EmailManager;
+import com.baifendian.swordfish.dao.FlowDao;
+import com.baifendian.swordfish.dao.enums.FlowStatus;
+import com.baifendian.swordfish.dao.model.ExecutionFlow;
+import com.baifendian.swordfish.dao.model.ExecutionNode;
+import com.baifendian.swordfish.dao.model.ExecutionNodeDuration;
+import com.baifendian.swordfish.dao.model.FlowNode;
+import com.baifendian.swordfish.dao.model.FlowNodeRelation;
+import com.baifendian.swordfish.dao.model.flow.FlowDag;
+import com.baifendian.swordfish.dao.utils.json.JsonUtil;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 工作流完成期限的监控 <p>
+ *
+ * 在内存中维护各个工作流节点的预计运行时长: 启动时按节点统计一次历史的平均时长, 之后每个工作流结束时只查询它自己的节点,
+ * 按指数加权平均更新. 有期限的工作流的预计完成时间 = 开始时间 (还在排队的为当前时间) + DAG 上关键路径的长度,
+ * 距离期限不足一定时间时提前告警, 超过期限仍没有完成的再告警一次. 检查时不访问数据库.
+ */
+public class SlaMonitor implements Runnable {
+
+  private static final Logger logger = LoggerFactory.getLogger(SlaMonitor.class);
+
+  /**
+   * 指数加权平均中新样本的权重
+   */
+  private static final double ALPHA = 0.3;
+
+  /**
+   * 数据库接口
+   */
+  private final FlowDao flowDao;
+
+  /**
+   * 预计完成时间距离期限不足这个时长时告警, 单位毫秒
+   */
+  private final long riskMarginMillis;
+
+  /**
+   * 各个工作流节点的预计运行时长, 单位毫秒, key 为 flow id, 节点名称
+   */
+  private final Map<Integer, Map<String, Long>> estimates = new ConcurrentHashMap<>();
+
+  /**
+   * 有期限并且还没有结束的工作流, key 为 exec id
+   */
+  private final Map<Integer, Tracked> trackedFlows = new ConcurrentHashMap<>();
+
+  public SlaMonitor(FlowDao flowDao, long riskMarginMillis) {
+    this.flowDao = flowDao;
+    this.riskMarginMillis = riskMarginMillis;
+  }
+
+  /**
+   * 加载节点的历史运行时长, 启动时调用一次
+   *
+   * @param historyDays 统计最近多少天的
+   */
+  public void load(int historyDays) {
+    Date since = new Date(System.currentTimeMillis() - historyDays * 24L * 3600 * 1000);
+
+    List<ExecutionNodeDuration> durations = flowDao.queryExecutionNodeDurations(since);
+
+    for (ExecutionNodeDuration duration : durations) {
+      estimates.computeIfAbsent(duration.getFlowId(), k -> new ConcurrentHashMap<>())
+          .put(duration.getName(), duration.getDuration() * 1000);
+    }
+
+    logger.info("load node durations of {} workflows", estimates.size());
+  }
+
+  /**
+   * 开始跟踪一个工作流, 没有期限的忽略
+   */
+  public void track(ExecutionFlow executionFlow) {
+    if (executionFlow.getDeadline() == null || trackedFlows.containsKey(executionFlow.getId())) {
+      return;
+    }
+
+    FlowDag flowDag = JsonUtil.parseObject(executionFlow.getWorkflowData(), FlowDag.class);
+
+    Map<String, List<String>> deps = new HashMap<>();
+
+    if (flowDag != null && flowDag.getNodes() != null) {
+      for (FlowNode flowNode : flowDag.getNodes()) {
+        deps.put(flowNode.getName(), new ArrayList<>());
+      }
+
+      if (flowDag.getEdges() != null) {
+        for (FlowNodeRelation edge : flowDag.getEdges()) {
+          deps.computeIfAbsent(edge.getEndNode(), k -> new ArrayList<>()).add(edge.getStartNode());
+        }
+      }
+    }
+
+    trackedFlows.put(executionFlow.getId(), new Tracked(executionFlow.getFlowId(),
+        executionFlow.getDeadline().getTime(), deps));
+  }
+
+  /**
+   * 工作流开始运行 (分发成功)
+   */
+  public void started(int execId) {
+    Tracked tracked = trackedFlows.get(execId);
+
+    if (tracked != null && tracked.startTime == 0) {
+      tracked.startTime = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * 工作流结束, 用它的节点更新预计的运行时长
+   */
+  public void finished(ExecutionFlow executionFlow) {
+    trackedFlows.remove(executionFlow.getId());
+
+    Map<String, Long> flowEstimates = estimates
+        .computeIfAbsent(executionFlow.getFlowId(), k -> new ConcurrentHashMap<>());
+
+    for (ExecutionNode executionNode : flowDao.queryExecutionNodes(executionFlow.getId())) {
+      if (executionNode.getStatus() != FlowStatus.SUCCESS
+          || executionNode.getStartTime() == null || executionNode.getEndTime() == null) {
+        continue;
+      }
+
+      long duration = executionNode.getEndTime().getTime() - executionNode.getStartTime().getTime();
+
+      flowEstimates.merge(executionNode.getName(), duration,
+          (old, sample) -> Math.round(old * (1 - ALPHA) + sample * ALPHA));
+    }
+  }
+
+  /**
+   * 是否在跟踪该工作流
+   */
+  public boolean isTracked(int execId) {
+    return trackedFlows.containsKey(execId);
+  }
+
+  /**
+   * 预计的完成时间, 没有跟踪的返回 0
+   *
+   * @param now 当前时间
+   */
+  public long predictFinish(int execId, long now) {
+    Tracked tracked = trackedFlows.get(execId);
+
+    return (tracked == null) ? 0 : predictFinish(tracked, now);
+  }
+
+  /**
+   * 定期检查所有有期限的工作流
+   */
+  @Override
+  public void run() {
+    long now = System.currentTimeMillis();
+
+    for (Map.Entry<Integer, Tracked> entry : trackedFlows.entrySet()) {
+      int execId = entry.getKey();
+      Tracked tracked = entry.getValue();
+
+      try {
+        // 已经超过期限, 告警后不再跟踪
+        if (now > tracked.deadline) {
+          trackedFlows.remove(execId);
+          alert(execId, now, true);
+          continue;
+        }
+
+        if (tracked.alerted) {
+          continue;
+        }
+
+        long predict = predictFinish(tracked, now);
+
+        if (predict + riskMarginMillis > tracked.deadline) {
+          tracked.alerted = true;
+          alert(execId, predict, false);
+        }
+      } catch (Exception e) {
+        logger.error("check deadline of exec id " + execId + " exception", e);
+      }
+    }
+  }
+
+  private long predictFinish(Tracked tracked, long now) {
+    long length = criticalPath(tracked.deps,
+        estimates.getOrDefault(tracked.flowId, Collections.emptyMap()));
+
+    // 还在排队的从现在开始算; 运行时间已经超过预计的, 认为马上就会完成
+    return (tracked.startTime == 0) ? now + length : Math.max(now, tracked.startTime + length);
+  }
+
+  /**
+   * DAG 上关键路径的长度, 没有历史的节点按 0 计算
+   *
+   * @param deps 各个节点依赖的节点
+   * @param durations 各个节点的预计运行时长
+   */
+  static long criticalPath(Map<String, List<String>> deps, Map<String, Long> durations) {
+    Map<String, Long> finishes = new HashMap<>();
+    Set<String> visiting = new HashSet<>();
+    long length = 0;
+
+    for (String node : deps.keySet()) {
+      length = Math.max(length, finish(node, deps, durations, finishes, visiting));
+    }
+
+    return length;
+  }
+
+  /**
+   * 节点从工作流开始算起的最早完成时间
+   */
+  private static long finish(String node, Map<String, List<String>> deps,
+      Map<String, Long> durations, Map<String, Long> finishes, Set<String> visiting) {
+    Long finish = finishes.get(node);
+
+    if (finish != null) {
+      return finish;
+    }
+
+    // 有环, 提交时已经校验过, 不应该出现
+    if (!visiting.add(node)) {
+      return 0;
+    }
+
+    long start = 0;
+
+    for (String dep : deps.getOrDefault(node, Collections.emptyList())) {
+      start = Math.max(start, finish(dep, deps, durations, finishes, visiting));
+    }
+
+    finish = start + durations.getOrDefault(node, 0L);
+    finishes.put(node, finish);
+
+    return finish;
+  }
+
+  /**
+   * 告警, 已经结束的不需要
+   */
+  private void alert(int execId, long predict, boolean missed) {
+    ExecutionFlow executionFlow = flowDao.queryExecutionFlow(execId);
+
+    if (executionFlow == null || executionFlow.getStatus().typeIsFinished()) {
+      return;
+    }
+
+    logger.warn("exec id {} {} the deadline {}, predicted finish time {}", execId,
+        missed ? "missed" : "may miss", executionFlow.getDeadline(), new Date(predict));
+
+    EmailManager.sendSlaMessageOfExecutionFlow(executionFlow, new Date(predict), missed);
+  }
+
+  /**
+   * 跟踪的工作流
+   */
+  private static class Tracked {
+
+    /**
+     * 工作流 id
+     */
+    private final int flowId;
+
+    /**
+     * 完成期限
+     */
+    private final long deadline;
+
+    /**
+     * 各个节点依赖的节点
+     */
+    private final Map<String, List<String>> deps;
+
+    /**
+     * 开始运行的时间, 还在排队的为 0
+     */
+    private volatile long startTime;
+
+    /**
+     * 是否已经告警过
+     */
+    private volatile boolean alerted;
+
+    Tracked(int flowId, long deadline, Map<String, List<String>> deps) {
+      this.flowId = flowId;
+      this.deadline = deadline;
+      this.deps = deps;
+    }
+  }
+}
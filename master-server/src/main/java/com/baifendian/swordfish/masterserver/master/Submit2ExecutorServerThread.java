@@ -24,9 +24,9 @@ import com.baifendian.swordfish.masterserver.exec.ExecutorClient;
 import com.baifendian.swordfish.masterserver.exec.ExecutorServerInfo;
 import com.baifendian.swordfish.masterserver.exec.ExecutorServerManager;
 import com.baifendian.swordfish.rpc.RetInfo;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.thrift.TException;
 import org.slf4j.Logger;
@@ -34,6 +34,8 @@ import org.slf4j.LoggerFactory;
 
 /**
  * 提交exec flow到exec-server 的线程 <p>
+ *
+ * 推送模式下由该线程从分发队列领取并调用 executor 执行; 拉取模式下不启动该线程, executor 通过心跳调用 {@link #lease} 领取
  */
 public class Submit2ExecutorServerThread extends Thread {
 
@@ -50,9 +52,24 @@ public class Submit2ExecutorServerThread extends Thread {
   private final FlowDao flowDao;
 
   /**
-   * workflow 执行队列
+   * 没有可用的 executor 或者异常时, 延迟重新分发的时间, 单位毫秒
+   */
+  private static final long RETRY_DELAY = 5000;
+
+  /**
+   * workflow 分发队列
+   */
+  private final DispatchQueue executionFlowQueue;
+
+  /**
+   * 根据心跳对账正在运行的 workflow
+   */
+  private final RunningFlowReconciler runningFlowReconciler;
+
+  /**
+   * master 租约的 epoch, 更新 worker 时作为 fencing token
    */
-  private final BlockingQueue<ExecFlowInfo> executionFlowQueue;
+  private final long masterEpoch;
 
   /**
    * 控制是否继续执行
@@ -63,12 +80,17 @@ public class Submit2ExecutorServerThread extends Thread {
    * @param executorServerManager
    * @param flowDao
    * @param executionFlowQueue
+   * @param runningFlowReconciler
+   * @param masterEpoch
    */
   public Submit2ExecutorServerThread(ExecutorServerManager executorServerManager, FlowDao flowDao,
-      BlockingQueue<ExecFlowInfo> executionFlowQueue) {
+      DispatchQueue executionFlowQueue, RunningFlowReconciler runningFlowReconciler,
+      long masterEpoch) {
     this.executorServerManager = executorServerManager;
     this.flowDao = flowDao;
     this.executionFlowQueue = executionFlowQueue;
+    this.runningFlowReconciler = runningFlowReconciler;
+    this.masterEpoch = masterEpoch;
     this.running = true;
 
     this.setName("JobExecManager-submitExecFlowToWorker");
@@ -77,134 +99,285 @@ public class Submit2ExecutorServerThread extends Thread {
   @Override
   public void run() {
     while (running) {
-      ExecFlowInfo execFlowInfo;
+      List<ExecFlowInfo> execFlowInfos;
 
+      // 从分发队列领取一批要执行的 executor flow 信息, 不超过 executor 空闲的槽位,
+      // 多出来的留在队列中, 而不是在 executor 上排队, 这样后来的 workflow 仍然可以按公平策略挑选
       try {
-        // 得到要执行的 executor flow 信息
-        try {
-          logger.info("execution flow size: {}", executionFlowQueue.size());
+        int limit = MasterConfig.dispatchBatchSize;
+        int freeFlowSlots = executorServerManager.getFreeFlowSlots();
+
+        if (freeFlowSlots >= 0) {
+          limit = Math.min(limit, freeFlowSlots);
+        }
+
+        if (limit <= 0) {
+          Thread.sleep(MasterConfig.dispatchPollInterval);
+          continue;
+        }
+
+        execFlowInfos = executionFlowQueue.take(limit);
+        logger.info("claim execution flows from queue, size: {}", execFlowInfos.size());
+      } catch (InterruptedException e) {
+        logger.error("Catch interrupt exception", e);
+        break;
+      }
 
-          execFlowInfo = executionFlowQueue.take();
-          logger.info("get execution flow from queue, exec info:{}", execFlowInfo);
-        } catch (InterruptedException e) {
-          logger.error("Catch interrupt exception", e);
+      for (ExecFlowInfo execFlowInfo : execFlowInfos) {
+        if (!running) {
           break;
         }
 
-        int execId = execFlowInfo.getExecId();
+        // 领取已经过期, 可能已经被其它的分发线程领取
+        if (System.currentTimeMillis() > execFlowInfo.getClaimExpire()) {
+          logger.warn("claim of exec id {} expired, skip", execFlowInfo.getExecId());
+          continue;
+        }
 
-        // 更新执行该任务的 worker 信息
-        ExecutionFlow executionFlow = flowDao.queryExecutionFlow(execId);
+        try {
+          if (!submit(execFlowInfo)) {
+            running = false;
+          }
+        } catch (Exception e) {
+          logger.error("thread exception", e);
+
+          // 异常时延迟再分发, 而不是等领取过期
+          executionFlowQueue.release(execFlowInfo, RETRY_DELAY);
+        }
+      }
+    }
 
-        // 判断 exec flow 是否超时
-        if (isScheduleTimeout(executionFlow.getTimeout(), executionFlow.getStartTime().getTime())) {
-          Date now = new Date();
+    logger.warn("stop execution workflow thread");
+  }
 
-          executionFlow.setEndTime(now);
-          executionFlow.setStatus(FlowStatus.KILL);
+  /**
+   * 分发一个 workflow, 完成后从分发队列中删除
+   *
+   * @return 是否继续分发, master 的 epoch 失效时返回 false
+   */
+  private boolean submit(ExecFlowInfo execFlowInfo) {
+    logger.info("get execution flow from queue, exec info:{}", execFlowInfo);
 
-          flowDao.updateExecutionFlow(executionFlow);
+    int execId = execFlowInfo.getExecId();
 
-          // 发送报警
-          EmailManager.sendMessageOfExecutionFlow(executionFlow);
+    // 更新执行该任务的 worker 信息
+    ExecutionFlow executionFlow = check(execFlowInfo);
 
-          continue;
-        }
+    if (executionFlow == null) {
+      return true;
+    }
 
-        // 获取相应的 executor server 来执行任务
-        String host = execFlowInfo.getHost();
-        int port = execFlowInfo.getPort();
+    // 获取相应的 executor server 来执行任务
+    String host = execFlowInfo.getHost();
+    int port = execFlowInfo.getPort();
 
-        ExecutorServerInfo executorServerInfo = executorServerManager.getExecutorServer(host, port);
+    ExecutorServerInfo executorServerInfo = executorServerManager.getExecutorServer(host, port);
 
-        // 如果没有 executor server 来运行该任务, 则会重新放回
-        if (executorServerInfo == null) {
-          logger.error("can't found active executor server wait 5 seconds...");
+    // 如果没有 executor server 来运行该任务, 则延迟后重新分发
+    if (executorServerInfo == null) {
+      logger.error("can't found active executor server, retry exec id {} after {} ms", execId,
+          RETRY_DELAY);
 
-          try {
-            Thread.sleep(5000);
-          } catch (InterruptedException e) {
-            logger.error("Catch interrupt exception", e);
-            break;
-          }
+      executionFlowQueue.release(execFlowInfo, RETRY_DELAY);
+      return true;
+    }
 
-          executionFlowQueue.add(execFlowInfo);
-          continue;
-        }
+    // 设置新的提交的服务器信息
+    execFlowInfo.setHost(executorServerInfo.getHost());
+    execFlowInfo.setPort(executorServerInfo.getPort());
 
-        // 设置新的提交的服务器信息
-        execFlowInfo.setHost(executorServerInfo.getHost());
-        execFlowInfo.setPort(executorServerInfo.getPort());
+    logger.info("get execution flow from queue, execId:{} submit to exec {}:{}",
+        execId, executorServerInfo.getHost(), executorServerInfo.getPort());
 
-        logger.info("get execution flow from queue, execId:{} submit to exec {}:{}",
-            execId, executorServerInfo.getHost(), executorServerInfo.getPort());
+    executionFlow.setWorker(
+        String.format("%s:%d", executorServerInfo.getHost(), executorServerInfo.getPort()));
 
-        executionFlow.setWorker(
-            String.format("%s:%d", executorServerInfo.getHost(), executorServerInfo.getPort()));
+    // 注意, 这里是不会修改起始时间等的, 起始只有 worker(实际运行的 exec-server)
+    // 带上 epoch 更新, 如果租约已经被其它 master 接管, 则不能再分发, 记录留在队列中由新的 master 分发
+    if (!flowDao.updateExecutionFlowWorker(execId, executionFlow.getWorker(), masterEpoch)) {
+      logger.error("master epoch {} is fenced, stop dispatch, exec id: {}", masterEpoch,
+          execId);
+      return false;
+    }
 
-        // 注意, 这里是不会修改起始时间等的, 起始只有 worker(实际运行的 exec-server)
-        flowDao.updateExecutionFlow(executionFlow);
+    // 已经确定了 worker, 从队列中删除, 之后的失败由下面的重新提交或者心跳对账处理
+    executionFlowQueue.ack(execFlowInfo);
 
-        boolean isSuccess = false;
-        boolean isExecutorServerError = false;
+    boolean isSuccess = false;
+    boolean isExecutorServerError = false;
+    boolean isBusy = false;
 
-        // 得到了要执行的任务, 以及要执行的 executor server, 则需要开始执行
-        for (int i = 0; i < MasterConfig.failRetryCount; ++i) {
-          isExecutorServerError = false;
+    // 得到了要执行的任务, 以及要执行的 executor server, 则需要开始执行
+    for (int i = 0; i < MasterConfig.failRetryCount; ++i) {
+      isExecutorServerError = false;
 
-          try {
-            ExecutorClient executorClient = new ExecutorClient(executorServerInfo);
+      try {
+        ExecutorClient executorClient = new ExecutorClient(executorServerInfo);
+
+        logger.info("exec id:{}, project id:{}, executor client:{}:{}, try count:{}", execId,
+            executionFlow.getProjectId(),
+            executorServerInfo.getHost(), executorServerInfo.getPort(), i);
+
+        // 可能抛出 TException 异常
+        // 这里实际上不对执行状态做判断, 失败则失败了
+        RetInfo retinfo = executorClient.execFlow(execId);
+
+        isSuccess = retinfo.getStatus() == 0;
+        isBusy = retinfo.getStatus() == 2;
+
+        break;
+      } catch (TException e) {
+        logger.error("run executor get error", e);
+        isExecutorServerError = true;
+      } catch (Exception e) { // 如果返回结果为 false, 这里会抛出 runtime 异常
+        logger.error("inner error", e);
+        break;
+      }
+    }
 
-            logger.info("exec id:{}, project id:{}, executor client:{}:{}, try count:{}", execId,
-                executionFlow.getProjectId(),
-                executorServerInfo.getHost(), executorServerInfo.getPort(), i);
+    // 记录下来, 之后根据心跳对账
+    if (isSuccess) {
+      runningFlowReconciler.dispatched(execId, executionFlow.getWorker(),
+          executionFlow.getProjectName());
+    }
 
-            // 可能抛出 TException 异常
-            // 这里实际上不对执行状态做判断, 失败则失败了
-            RetInfo retinfo = executorClient.execFlow(execId);
+    // executor 已经满了, 放回队列稍后重新分发, 不指定 executor
+    if (isBusy) {
+      logger.warn("executor {} is busy, retry exec id {} after {} ms", executionFlow.getWorker(),
+          execId, RETRY_DELAY);
 
-            isSuccess = retinfo.getStatus() == 0;
+      ExecFlowInfo retry = new ExecFlowInfo(executionFlow);
+      retry.setLabel(execFlowInfo.getLabel());
 
-            break;
-          } catch (TException e) {
-            logger.error("run executor get error", e);
-            isExecutorServerError = true;
-          } catch (Exception e) { // 如果返回结果为 false, 这里会抛出 runtime 异常
-            logger.error("inner error", e);
-            break;
-          }
+      executionFlowQueue.add(retry, RETRY_DELAY);
+      return true;
+    }
+
+    // 多次重试后仍然失败
+    if (!isSuccess) {
+      // 并且是 executor server 失败
+      if (isExecutorServerError) {
+        logger
+            .info("connect to executor server error, remove {}:{}",
+                executorServerInfo.getHost(),
+                executorServerInfo.getPort());
+
+        // 如果是 executor server 有问题, 对有问题的 executor server 进行重新提交
+        // 如果是 executor server 异常了, 可以重新对其上面的任务进行提交
+        ExecutorServerInfo removedExecutionServerInfo = executorServerManager
+            .removeServer(executorServerInfo);
+
+        // 这里是 exec-server 出现了问题, 重新调用
+        resubmitExecFlow(removedExecutionServerInfo);
+      } else {
+        // 如果是其它的异常情况, 直接更新状态即可
+        flowDao.updateExecutionFlowStatus(execId, FlowStatus.FAILED);
+
+        // 发送报警
+        EmailManager.sendMessageOfExecutionFlow(executionFlow);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * 拉取模式下, 为 executor 领取一批 workflow, 确定 worker 后从分发队列中删除, 由 executor 收到后自行执行 <p>
+   *
+   * 领取的结果随心跳返回, 返回丢失或者 executor 没有执行的, 租约过期后由心跳对账重新投递
+   *
+   * @param executorServerInfo 拉取的 executor
+   * @param capacity 最多领取的数目
+   * @param labels executor 的标签, 只领取没有标签或者标签匹配的 workflow
+   * @return 领取到的 exec id
+   */
+  public List<Integer> lease(ExecutorServerInfo executorServerInfo, int capacity,
+      List<String> labels) {
+    List<Integer> execIds = new ArrayList<>();
+
+    if (!running || capacity <= 0) {
+      return execIds;
+    }
+
+    String worker = executorServerManager.getKey(executorServerInfo);
+
+    for (ExecFlowInfo execFlowInfo : executionFlowQueue.poll(capacity, labels)) {
+      int execId = execFlowInfo.getExecId();
+
+      // 已经失去了 master 租约, 剩下的交给新的 master
+      if (!running) {
+        executionFlowQueue.release(execFlowInfo, 0);
+        continue;
+      }
+
+      try {
+        ExecutionFlow executionFlow = check(execFlowInfo);
+
+        if (executionFlow == null) {
+          continue;
         }
 
-        // 多次重试后仍然失败
-        if (!isSuccess) {
-          // 并且是 executor server 失败
-          if (isExecutorServerError) {
-            logger
-                .info("connect to executor server error, remove {}:{}",
-                    executorServerInfo.getHost(),
-                    executorServerInfo.getPort());
-
-            // 如果是 executor server 有问题, 对有问题的 executor server 进行重新提交
-            // 如果是 executor server 异常了, 可以重新对其上面的任务进行提交
-            ExecutorServerInfo removedExecutionServerInfo = executorServerManager
-                .removeServer(executorServerInfo);
-
-            // 这里是 exec-server 出现了问题, 重新调用
-            resubmitExecFlow(removedExecutionServerInfo);
-          } else {
-            // 如果是其它的异常情况, 直接更新状态即可
-            flowDao.updateExecutionFlowStatus(execId, FlowStatus.FAILED);
-
-            // 发送报警
-            EmailManager.sendMessageOfExecutionFlow(executionFlow);
-          }
+        if (!flowDao.updateExecutionFlowWorker(execId, worker, masterEpoch)) {
+          logger.error("master epoch {} is fenced, stop lease, exec id: {}", masterEpoch, execId);
+
+          running = false;
+          executionFlowQueue.release(execFlowInfo, 0);
+          continue;
         }
+
+        executionFlowQueue.ack(execFlowInfo);
+        runningFlowReconciler.leased(execId, worker, executionFlow.getProjectName());
+
+        execIds.add(execId);
       } catch (Exception e) {
-        logger.error("thread exception", e);
+        logger.error("lease exec id " + execId + " exception", e);
+
+        executionFlowQueue.release(execFlowInfo, RETRY_DELAY);
       }
     }
 
-    logger.warn("stop execution workflow thread");
+    if (!execIds.isEmpty()) {
+      logger.info("executor {} lease exec ids: {}", worker, execIds);
+    }
+
+    return execIds;
+  }
+
+  /**
+   * 检查领取到的 workflow, 不存在, 已经结束或者超时的直接从分发队列中删除
+   *
+   * @return 需要执行的 workflow, 不需要执行时返回 null
+   */
+  private ExecutionFlow check(ExecFlowInfo execFlowInfo) {
+    int execId = execFlowInfo.getExecId();
+
+    ExecutionFlow executionFlow = flowDao.queryExecutionFlow(execId);
+
+    // 不存在或者已经结束的, 比如重复入队的, 直接丢弃
+    if (executionFlow == null || executionFlow.getStatus().typeIsFinished()) {
+      logger.warn("exec id {} not exists or finished, drop it", execId);
+
+      executionFlowQueue.ack(execFlowInfo);
+      return null;
+    }
+
+    // 判断 exec flow 是否超时
+    if (isScheduleTimeout(executionFlow.getTimeout(), executionFlow.getStartTime().getTime())) {
+      Date now = new Date();
+
+      executionFlow.setEndTime(now);
+      executionFlow.setStatus(FlowStatus.KILL);
+
+      flowDao.updateExecutionFlow(executionFlow);
+
+      // 发送报警
+      EmailManager.sendMessageOfExecutionFlow(executionFlow);
+
+      executionFlowQueue.ack(execFlowInfo);
+      return null;
+    }
+
+    return executionFlow;
   }
 
   /**
@@ -231,6 +404,8 @@ public class Submit2ExecutorServerThread extends Thread {
   public void resubmitExecFlow(ExecutorServerInfo executorServerInfo) {
     logger.warn("reschedule workflow of server: {} ", executorServerInfo);
 
+    runningFlowReconciler.forget(executorServerManager.getKey(executorServerInfo));
+
     // 这里使用数据库查询到的数据保证准确性，避免内存数据出现不一致的情况
     List<ExecutionFlow> executionFlows = flowDao
         .queryNoFinishFlow(executorServerManager.getKey(executorServerInfo));
@@ -245,8 +420,10 @@ public class Submit2ExecutorServerThread extends Thread {
           if (!executionFlow.getStatus().typeIsFinished()) {
             logger.warn("reschedule exec id: {}", execId);
 
-            ExecFlowInfo execFlowInfo = new ExecFlowInfo(executorServerInfo.getHost(),
-                executorServerInfo.getPort(), executionFlow.getId());
+            ExecFlowInfo execFlowInfo = new ExecFlowInfo(executionFlow);
+
+            execFlowInfo.setHost(executorServerInfo.getHost());
+            execFlowInfo.setPort(executorServerInfo.getPort());
 
             executionFlowQueue.add(execFlowInfo);
           }
@@ -25,14 +25,16 @@ import com.baifendian.swordfish.dao.model.ProjectFlow;
 import com.baifendian.swordfish.dao.model.Schedule;
 import com.baifendian.swordfish.dao.model.flow.DepWorkflow;
 import com.baifendian.swordfish.dao.utils.json.JsonUtil;
+import com.baifendian.swordfish.masterserver.master.DispatchQueue;
 import com.baifendian.swordfish.masterserver.master.ExecFlowInfo;
+import com.baifendian.swordfish.masterserver.master.SlaMonitor;
+import com.baifendian.swordfish.masterserver.trigger.TriggerEngine;
 import com.baifendian.swordfish.masterserver.utils.crontab.CrontabUtil;
 import java.text.MessageFormat;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
 import org.apache.commons.collections.CollectionUtils;
 import org.quartz.CronExpression;
 import org.quartz.Job;
@@ -85,13 +87,23 @@ public class FlowScheduleJob implements Job {
   /**
    * worker rpc client
    */
-  private static BlockingQueue<ExecFlowInfo> executionFlowQueue;
+  private static DispatchQueue executionFlowQueue;
 
   /**
    * {@link FlowDao}
    */
   private static FlowDao flowDao;
 
+  /**
+   * 完成期限的监控
+   */
+  private static SlaMonitor slaMonitor;
+
+  /**
+   * 触发引擎, workflow 或者调度不存在时从中删除
+   */
+  private static TriggerEngine triggerEngine;
+
   /**
    * 检测依赖的等待时间
    */
@@ -100,9 +112,12 @@ public class FlowScheduleJob implements Job {
   /**
    * 初始化 Job （使用该调度 Job 前，必须先调用该函数初始化） <p>
    */
-  public static void init(BlockingQueue<ExecFlowInfo> executionFlowQueue, FlowDao flowDao) {
+  public static void init(DispatchQueue executionFlowQueue, FlowDao flowDao,
+      SlaMonitor slaMonitor, TriggerEngine triggerEngine) {
     FlowScheduleJob.executionFlowQueue = executionFlowQueue;
     FlowScheduleJob.flowDao = flowDao;
+    FlowScheduleJob.slaMonitor = slaMonitor;
+    FlowScheduleJob.triggerEngine = triggerEngine;
   }
 
   /**
@@ -124,6 +139,19 @@ public class FlowScheduleJob implements Job {
 
     Date preFireTime = context.getPreviousFireTime();
 
+    fire(projectId, flowId, scheduledFireTime, fireTime, preFireTime, null);
+  }
+
+  /**
+   * 触发一次调度, 创建执行记录, 检查依赖之后加入分发队列
+   *
+   * @param scheduledFireTime 预计触发的时间, 即调度时间
+   * @param fireTime 实际的触发时间
+   * @param preFireTime 上一次触发的时间, 第一次触发时为 null
+   * @param done 创建了执行记录, 或者不需要执行时的回调, 可以为 null
+   */
+  public void fire(int projectId, int flowId, Date scheduledFireTime, Date fireTime,
+      Date preFireTime, Runnable done) throws JobExecutionException {
     logger.info("schedule trigger at:{}, trigger at:{}, flow id:{}", scheduledFireTime, fireTime,
         flowId);
 
@@ -133,6 +161,7 @@ public class FlowScheduleJob implements Job {
       deleteJob(projectId, flowId);
       logger.warn("workflow not exist，delete scheduler task of projectId:{}, flowId:{}", projectId,
           flowId);
+      done(done);
       return;
     }
 
@@ -143,6 +172,7 @@ public class FlowScheduleJob implements Job {
       logger.warn(
           "workflow scheduler information not exist，delete scheduler task of projectId:{}, flowId:{}",
           projectId, flowId);
+      done(done);
       return;
     }
 
@@ -153,7 +183,9 @@ public class FlowScheduleJob implements Job {
       executionFlow = flowDao
           .scheduleFlowToExecution(projectId, flowId, flow.getOwnerId(), scheduledFireTime,
               ExecType.SCHEDULER, schedule.getFailurePolicy(), schedule.getMaxTryTimes(), null,
-              null, schedule.getNotifyType(), schedule.getNotifyMails(), schedule.getTimeout());
+              null, schedule.getNotifyType(), schedule.getNotifyMails(), schedule.getTimeout(),
+              schedule.getFlowPriority(), (schedule.getDeadline() == null) ? null
+                  : new Date(scheduledFireTime.getTime() + schedule.getDeadline() * 1000L));
 
       executionFlow.setProjectId(projectId);
       executionFlow.setProjectName(flow.getProjectName());
@@ -163,6 +195,11 @@ public class FlowScheduleJob implements Job {
       throw new JobExecutionException(e);
     }
 
+    done(done);
+
+    // 有期限的从现在开始跟踪, 等待依赖的时间也计算在内
+    slaMonitor.track(executionFlow);
+
     // 获取所有依赖
     List<DepWorkflow> deps = JsonUtil
         .parseObjectList(schedule.getDepWorkflowsStr(), DepWorkflow.class);
@@ -203,6 +240,12 @@ public class FlowScheduleJob implements Job {
     }
   }
 
+  private void done(Runnable done) {
+    if (done != null) {
+      done.run();
+    }
+  }
+
   /**
    * 判断自依赖是否完成
    */
@@ -432,17 +475,14 @@ public class FlowScheduleJob implements Job {
    * 删除 job <p>
    */
   private void deleteJob(int projectId, int flowId) {
-    String jobName = genJobName(flowId);
-    String jobGroupName = genJobGroupName(projectId);
-    QuartzManager.deleteJob(jobName, jobGroupName);
+    triggerEngine.unschedule(projectId, flowId);
   }
 
   /**
    * 发送执行任务到 worker <p>
    */
   private void sendToExecution(ExecutionFlow executionFlow) {
-    ExecFlowInfo execFlowInfo = new ExecFlowInfo();
-    execFlowInfo.setExecId(executionFlow.getId());
+    ExecFlowInfo execFlowInfo = new ExecFlowInfo(executionFlow);
 
     logger.info("scheduler to execution, exec id:{}, schedule time:{}", executionFlow.getId(),
         executionFlow.getScheduleTime());
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.trigger;
+
+import com.baifendian.swordfish.dao.model.Schedule;
+import com.baifendian.swordfish.masterserver.exception.QuartzException;
+import com.baifendian.swordfish.masterserver.quartz.FlowScheduleJob;
+import com.baifendian.swordfish.masterserver.quartz.QuartzManager;
+import java.util.Map;
+import org.quartz.SchedulerException;
+
+/**
+ * 基于 Quartz 的触发引擎, 调度持久化在 Quartz 的表中
+ */
+public class QuartzTriggerEngine implements TriggerEngine {
+
+  @Override
+  public void start() {
+    try {
+      QuartzManager.start();
+    } catch (SchedulerException e) {
+      throw new QuartzException("Start scheduler failed", e);
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    try {
+      QuartzManager.shutdown();
+    } catch (SchedulerException e) {
+      throw new QuartzException("Shutdown scheduler failed", e);
+    }
+  }
+
+  @Override
+  public void schedule(int projectId, int flowId, Schedule schedule) {
+    String jobName = FlowScheduleJob.genJobName(flowId);
+    String jobGroupName = FlowScheduleJob.genJobGroupName(projectId);
+
+    Map<String, Object> dataMap = FlowScheduleJob.genDataMap(projectId, flowId, schedule);
+
+    QuartzManager.addJobAndTrigger(jobName, jobGroupName, FlowScheduleJob.class,
+        schedule.getStartDate(), schedule.getEndDate(), schedule.getCrontab(), dataMap);
+  }
+
+  @Override
+  public void unschedule(int projectId, int flowId) {
+    QuartzManager.deleteJob(FlowScheduleJob.genJobName(flowId),
+        FlowScheduleJob.genJobGroupName(projectId));
+  }
+
+  @Override
+  public void unscheduleProject(int projectId) {
+    QuartzManager.deleteJobs(FlowScheduleJob.genJobGroupName(projectId));
+  }
+}
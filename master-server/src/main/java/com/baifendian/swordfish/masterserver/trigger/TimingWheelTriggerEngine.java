@@ -0,0 +1,502 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.trigger;
+
+import com.baifendian.swordfish.common.utils.TimingWheel;
+import com.baifendian.swordfish.dao.FlowDao;
+import com.baifendian.swordfish.dao.ScheduleFireDao;
+import com.baifendian.swordfish.dao.model.Schedule;
+import com.baifendian.swordfish.dao.model.ScheduleFire;
+import com.baifendian.swordfish.masterserver.utils.crontab.CrontabUtil;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.Collectors;
+import org.quartz.CronExpression;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 基于内存时间轮的触发引擎 <p>
+ *
+ * 调度以 schedules 表为准, 启动时加载所有上线的调度, 之后随设置和删除调度更新, 每个调度在时间轮中只有下一次触发的条目.
+ * 每个 tick 到期的触发先批量写入 schedule_fires 表 (预写日志), 再交给线程池执行, 创建了执行记录之后批量标记.
+ * 触发时不需要加锁, 也不需要更新触发器的表. <p>
+ *
+ * 重启 (或者 master 切换) 时, 重放日志中没有标记且还没有执行记录的触发, 并从每个工作流最近的触发时间开始补上错过的触发,
+ * 没有触发过的从当前时间开始. 错过超过阈值的触发不再补上 (同 quartz 的 misfire do nothing), 默认阈值为 1 分钟,
+ * 间隔不小于 1 分钟的调度最多补最近的一次.
+ */
+public class TimingWheelTriggerEngine implements TriggerEngine {
+
+  private static final Logger logger = LoggerFactory.getLogger(TimingWheelTriggerEngine.class);
+
+  /**
+   * 时间轮每格的时长, crontab 的精度为秒
+   */
+  private static final long TICK_MILLIS = 1000;
+
+  /**
+   * 时间轮每层的格数, 各层依次为秒, 分, 时...
+   */
+  private static final int WHEEL_SIZE = 60;
+
+  /**
+   * 清理日志的间隔, 单位毫秒
+   */
+  private static final long PRUNE_INTERVAL = 60 * 1000;
+
+  /**
+   * 数据库接口
+   */
+  private final FlowDao flowDao;
+
+  /**
+   * 触发的预写日志
+   */
+  private final ScheduleFireDao scheduleFireDao;
+
+  /**
+   * 触发的处理
+   */
+  private final FireHandler fireHandler;
+
+  /**
+   * 执行触发的线程数
+   */
+  private final int threads;
+
+  /**
+   * 错过超过这个时长的触发不再补上, 单位毫秒, 小于 0 时全部补上
+   */
+  private final long misfireThreshold;
+
+  /**
+   * 各个工作流的触发器, key 为 flow id
+   */
+  private final Map<Integer, Trigger> triggers = new HashMap<>();
+
+  /**
+   * 已经创建了执行记录, 等待标记的触发
+   */
+  private final Queue<ScheduleFire> firedQueue = new ConcurrentLinkedQueue<>();
+
+  /**
+   * 时间轮, 只在持有锁时访问
+   */
+  private TimingWheel<Trigger> wheel;
+
+  /**
+   * 到期了但还没有写入日志的触发
+   */
+  private List<Fire> backlog = new ArrayList<>();
+
+  /**
+   * 执行触发的线程池
+   */
+  private ExecutorService firePool;
+
+  /**
+   * 推进时间轮的线程
+   */
+  private Thread driver;
+
+  private volatile boolean running;
+
+  private long lastPruneTime;
+
+  public TimingWheelTriggerEngine(FlowDao flowDao, ScheduleFireDao scheduleFireDao,
+      FireHandler fireHandler, int threads, long misfireThreshold) {
+    this.flowDao = flowDao;
+    this.scheduleFireDao = scheduleFireDao;
+    this.fireHandler = fireHandler;
+    this.threads = threads;
+    this.misfireThreshold = misfireThreshold;
+  }
+
+  @Override
+  public void start() {
+    synchronized (this) {
+      long now = System.currentTimeMillis();
+
+      wheel = new TimingWheel<>(TICK_MILLIS, WHEEL_SIZE, now);
+
+      Map<Integer, Date> lastFireTimes = scheduleFireDao.queryLastFireTimes();
+
+      for (Schedule schedule : flowDao.queryOnlineSchedules()) {
+        Date lastFireTime = lastFireTimes.get(schedule.getFlowId());
+
+        add(schedule.getProjectId(), schedule.getFlowId(), schedule, lastFireTime,
+            (lastFireTime == null) ? now : lastFireTime.getTime(), now);
+      }
+
+      int catchUp = backlog.size();
+
+      // 重放没有创建执行记录的触发, 不知道上一次的触发时间, 只要不为空即会检查自依赖
+      List<ScheduleFire> done = new ArrayList<>();
+
+      for (ScheduleFire pending : scheduleFireDao.queryPending()) {
+        Trigger trigger = triggers.get(pending.getFlowId());
+
+        if (trigger == null || flowDao
+            .queryExecutionFlowByScheduleTime(pending.getFlowId(), pending.getFireTime()) != null) {
+          done.add(pending);
+          continue;
+        }
+
+        backlog.add(new Fire(trigger, pending.getFireTime(), pending.getFireTime()));
+      }
+
+      scheduleFireDao.fired(done);
+
+      logger.info("load {} schedules, catch up {} fires, replay {} fires", triggers.size(),
+          catchUp, backlog.size() - catchUp);
+    }
+
+    ThreadFactory threadFactory = new ThreadFactoryBuilder()
+        .setNameFormat("TriggerEngine-Fire-%d").build();
+    firePool = Executors.newFixedThreadPool(threads, threadFactory);
+
+    running = true;
+
+    driver = new Thread(this::drive, "TriggerEngine-TimingWheel");
+    driver.setDaemon(true);
+    driver.start();
+  }
+
+  @Override
+  public void shutdown() {
+    running = false;
+
+    if (driver != null) {
+      driver.interrupt();
+    }
+
+    if (firePool != null) {
+      firePool.shutdownNow();
+    }
+
+    flushFired();
+  }
+
+  @Override
+  public synchronized void schedule(int projectId, int flowId, Schedule schedule) {
+    if (wheel == null) {
+      logger.warn("trigger engine not started, ignore schedule of flow id {}", flowId);
+      return;
+    }
+
+    Trigger old = triggers.get(flowId);
+    long now = System.currentTimeMillis();
+
+    add(projectId, flowId, schedule, (old == null) ? null : old.lastFireTime, now, now);
+
+    logger.info("schedule flow id {}, crontab: {}, start date: {}, end date: {}", flowId,
+        schedule.getCrontab(), schedule.getStartDate(), schedule.getEndDate());
+  }
+
+  @Override
+  public synchronized void unschedule(int projectId, int flowId) {
+    Trigger trigger = triggers.remove(flowId);
+
+    if (trigger != null) {
+      trigger.cancel();
+      logger.info("unschedule flow id {}", flowId);
+    }
+  }
+
+  @Override
+  public synchronized void unscheduleProject(int projectId) {
+    for (Iterator<Trigger> it = triggers.values().iterator(); it.hasNext(); ) {
+      Trigger trigger = it.next();
+
+      if (trigger.projectId == projectId) {
+        it.remove();
+        trigger.cancel();
+      }
+    }
+
+    logger.info("unschedule project id {}", projectId);
+  }
+
+  /**
+   * 添加或者替换触发器, 从 from 之后开始, 到 now 为止的触发直接放入待写入的列表, 错过超过阈值的跳过
+   */
+  private void add(int projectId, int flowId, Schedule schedule, Date lastFireTime, long from,
+      long now) {
+    CronExpression cron;
+
+    try {
+      cron = CrontabUtil.parseCronExp(schedule.getCrontab());
+    } catch (ParseException e) {
+      logger.error("flow id " + flowId + " crontab " + schedule.getCrontab() + " parse error", e);
+      return;
+    }
+
+    Trigger old = triggers.get(flowId);
+
+    if (old != null) {
+      old.cancel();
+    }
+
+    Trigger trigger = new Trigger(projectId, flowId, cron, schedule.getStartDate(),
+        schedule.getEndDate(), lastFireTime);
+
+    triggers.put(flowId, trigger);
+
+    // 第一次触发不早于开始时间
+    if (trigger.startDate != null) {
+      from = Math.max(from, trigger.startDate.getTime() - 1000);
+    }
+
+    Date next = cron.getTimeAfter(new Date(from));
+
+    // 直接跳到阈值以内, 长时间停机后不会逐个补上错过的触发
+    if (misfireThreshold >= 0 && trigger.inRange(next) && now - next.getTime() > misfireThreshold) {
+      Date skipTo = cron.getTimeAfter(new Date(now - misfireThreshold - 1));
+
+      logger.warn("flow id {} misfired from {}, skip to {}", flowId, next, skipTo);
+      next = skipTo;
+    }
+
+    while (trigger.inRange(next) && next.getTime() <= now) {
+      backlog.add(trigger.fire(next));
+      next = cron.getTimeAfter(next);
+    }
+
+    arm(trigger, next);
+  }
+
+  /**
+   * 把触发器的下一次触发放入时间轮, 超过结束时间的不再触发
+   */
+  private void arm(Trigger trigger, Date next) {
+    trigger.entry = trigger.inRange(next) ? wheel.add(trigger, next.getTime()) : null;
+  }
+
+  /**
+   * 时间轮中到期的条目
+   */
+  private void expire(TimingWheel.Entry<Trigger> entry) {
+    Trigger trigger = entry.getValue();
+
+    // 已经被替换
+    if (trigger.entry != entry) {
+      return;
+    }
+
+    Date fireTime = new Date(entry.getExpire());
+
+    backlog.add(trigger.fire(fireTime));
+    arm(trigger, trigger.cron.getTimeAfter(fireTime));
+  }
+
+  /**
+   * 每个 tick 推进一次时间轮, 到期的触发写入日志后交给线程池执行
+   */
+  private void drive() {
+    while (running) {
+      try {
+        List<Fire> fires;
+
+        synchronized (this) {
+          wheel.advance(System.currentTimeMillis(), this::expire);
+
+          fires = backlog;
+          backlog = new ArrayList<>();
+        }
+
+        flushFired();
+
+        if (!fires.isEmpty()) {
+          submit(fires);
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (now - lastPruneTime >= PRUNE_INTERVAL) {
+          lastPruneTime = now;
+          scheduleFireDao.prune();
+        }
+      } catch (Exception e) {
+        logger.error("trigger engine drive exception", e);
+      }
+
+      try {
+        Thread.sleep(TICK_MILLIS - System.currentTimeMillis() % TICK_MILLIS);
+      } catch (InterruptedException e) {
+        break;
+      }
+    }
+
+    logger.info("trigger engine stopped");
+  }
+
+  /**
+   * 先写入日志再执行, 写入失败的留到下一个 tick 重试, 推迟而不丢失
+   */
+  private void submit(List<Fire> fires) {
+    try {
+      scheduleFireDao.log(fires.stream().map(fire -> fire.record).collect(Collectors.toList()));
+    } catch (Exception e) {
+      logger.error("log " + fires.size() + " fires exception, retry later", e);
+
+      synchronized (this) {
+        fires.addAll(backlog);
+        backlog = fires;
+      }
+
+      return;
+    }
+
+    for (Fire fire : fires) {
+      firePool.submit(() -> run(fire));
+    }
+  }
+
+  private void run(Fire fire) {
+    Trigger trigger = fire.trigger;
+
+    try {
+      fireHandler.fire(trigger.projectId, trigger.flowId, fire.record.getFireTime(),
+          fire.preFireTime, () -> firedQueue.add(fire.record));
+    } catch (Exception e) {
+      logger.error("fire flow id " + trigger.flowId + " at " + fire.record.getFireTime()
+          + " exception", e);
+    }
+  }
+
+  /**
+   * 批量标记已经创建了执行记录的触发, 失败的下次重试
+   */
+  private void flushFired() {
+    List<ScheduleFire> fired = new ArrayList<>();
+    ScheduleFire record;
+
+    while ((record = firedQueue.poll()) != null) {
+      fired.add(record);
+    }
+
+    if (fired.isEmpty()) {
+      return;
+    }
+
+    try {
+      scheduleFireDao.fired(fired);
+    } catch (Exception e) {
+      logger.error("mark " + fired.size() + " fires exception, retry later", e);
+      firedQueue.addAll(fired);
+    }
+  }
+
+  /**
+   * 触发的处理
+   */
+  public interface FireHandler {
+
+    /**
+     * 触发一次调度
+     *
+     * @param scheduledFireTime 调度时间
+     * @param preFireTime 上一次触发的时间, 第一次触发时为 null
+     * @param done 创建了执行记录, 或者不需要执行时调用
+     */
+    void fire(int projectId, int flowId, Date scheduledFireTime, Date preFireTime, Runnable done)
+        throws Exception;
+  }
+
+  /**
+   * 一个工作流的触发器
+   */
+  private static class Trigger {
+
+    private final int projectId;
+
+    private final int flowId;
+
+    private final CronExpression cron;
+
+    private final Date startDate;
+
+    private final Date endDate;
+
+    /**
+     * 上一次触发的时间
+     */
+    private Date lastFireTime;
+
+    /**
+     * 时间轮中下一次触发的条目, 没有下一次触发时为 null
+     */
+    private TimingWheel.Entry<Trigger> entry;
+
+    Trigger(int projectId, int flowId, CronExpression cron, Date startDate, Date endDate,
+        Date lastFireTime) {
+      this.projectId = projectId;
+      this.flowId = flowId;
+      this.cron = cron;
+      this.startDate = startDate;
+      this.endDate = endDate;
+      this.lastFireTime = lastFireTime;
+    }
+
+    boolean inRange(Date time) {
+      return time != null && (endDate == null || !time.after(endDate));
+    }
+
+    Fire fire(Date fireTime) {
+      Fire fire = new Fire(this, fireTime, lastFireTime);
+      lastFireTime = fireTime;
+
+      return fire;
+    }
+
+    void cancel() {
+      if (entry != null) {
+        entry.cancel();
+        entry = null;
+      }
+    }
+  }
+
+  /**
+   * 一次触发
+   */
+  private static class Fire {
+
+    private final Trigger trigger;
+
+    private final ScheduleFire record;
+
+    private final Date preFireTime;
+
+    Fire(Trigger trigger, Date fireTime, Date preFireTime) {
+      this.trigger = trigger;
+      this.record = new ScheduleFire(trigger.flowId, fireTime);
+      this.preFireTime = preFireTime;
+    }
+  }
+}
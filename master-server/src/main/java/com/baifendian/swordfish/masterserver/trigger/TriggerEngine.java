@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.trigger;
+
+import com.baifendian.swordfish.dao.model.Schedule;
+
+/**
+ * 调度的触发引擎, 按 crontab 触发 workflow 的调度 <p>
+ *
+ * 通过 master.trigger.engine 选择: quartz 为基于 Quartz JDBC JobStore 的实现, wheel 为基于内存时间轮的实现
+ */
+public interface TriggerEngine {
+
+  /**
+   * 启动, 成为 leader 之后调用
+   */
+  void start();
+
+  /**
+   * 停止, 不等待正在运行的触发
+   */
+  void shutdown();
+
+  /**
+   * 添加或者更新一个工作流的调度
+   *
+   * @param projectId 项目 id
+   * @param flowId 工作流 id
+   * @param schedule 调度信息
+   */
+  void schedule(int projectId, int flowId, Schedule schedule);
+
+  /**
+   * 删除一个工作流的调度
+   */
+  void unschedule(int projectId, int flowId);
+
+  /**
+   * 删除一个项目的所有调度
+   */
+  void unscheduleProject(int projectId);
+}
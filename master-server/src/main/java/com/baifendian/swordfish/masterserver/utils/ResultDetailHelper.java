@@ -30,6 +30,17 @@ public class ResultDetailHelper {
     return new RetResultInfo(ResultHelper.createErrorResult(msg), null);
   }
 
+  /**
+   * 创建一个过载的返回包 <p>
+   *
+   * @param msg
+   * @param retryAfter 建议多少秒之后重试
+   * @return {@link RetResultInfo}
+   */
+  public static RetResultInfo createBusyResult(String msg, int retryAfter) {
+    return new RetResultInfo(ResultHelper.createBusyResult(msg, retryAfter), null);
+  }
+
   /**
    * 创建成功的返回包 <p>
    *
@@ -35,4 +35,15 @@ public class ResultHelper {
   public static RetInfo createErrorResult(String msg) {
     return new RetInfo(1, msg);
   }
+
+  /**
+   * 创建一个过载的返回包 <p>
+   *
+   * @param msg
+   * @param retryAfter 建议多少秒之后重试
+   * @return {@link RetInfo}
+   */
+  public static RetInfo createBusyResult(String msg, int retryAfter) {
+    return new RetInfo(2, msg).setRetryAfter(retryAfter);
+  }
 }
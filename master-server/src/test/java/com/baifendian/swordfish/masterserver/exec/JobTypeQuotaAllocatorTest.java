@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.exec;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class JobTypeQuotaAllocatorTest {
+
+  @Test
+  public void testAllocate() {
+    Map<String, Integer> demands = new HashMap<>();
+    demands.put("a:1", 2);
+    demands.put("b:1", 10);
+    demands.put("c:1", 20);
+
+    // 需求小的拿到全部需求, 其余平分
+    Map<String, Integer> quotas = JobTypeQuotaAllocator.allocate(20, demands);
+
+    assertEquals(Integer.valueOf(2), quotas.get("a:1"));
+    assertEquals(Integer.valueOf(9), quotas.get("b:1"));
+    assertEquals(Integer.valueOf(9), quotas.get("c:1"));
+  }
+
+  @Test
+  public void testAllocateSpare() {
+    Map<String, Integer> demands = new HashMap<>();
+    demands.put("a:1", 0);
+    demands.put("b:1", 3);
+
+    // 剩余的额度分给所有的 executor, 总和等于上限
+    Map<String, Integer> quotas = JobTypeQuotaAllocator.allocate(10, demands);
+
+    assertEquals(10, quotas.get("a:1") + quotas.get("b:1"));
+    assertEquals(true, quotas.get("a:1") > 0);
+    assertEquals(true, quotas.get("b:1") >= 3);
+  }
+}
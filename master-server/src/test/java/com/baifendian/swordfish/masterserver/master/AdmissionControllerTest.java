@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.master;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.baifendian.swordfish.dao.enums.ExecType;
+import com.baifendian.swordfish.masterserver.exec.ExecutorServerInfo;
+import com.baifendian.swordfish.masterserver.exec.ExecutorServerManager;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 准入控制的测试, 只在内存中模拟分发队列和连接池
+ */
+public class AdmissionControllerTest {
+
+  private int queueSize;
+
+  private double poolUsage;
+
+  private RunningFlowReconciler reconciler;
+
+  private ExecutorServerManager executorServerManager;
+
+  @Before
+  public void before() {
+    reconciler = new RunningFlowReconciler(null, queue(), new SlaMonitor(null, 0), 0, 0);
+    executorServerManager = new ExecutorServerManager();
+  }
+
+  @Test
+  public void testQueued() {
+    AdmissionController controller = new AdmissionController(queue(), reconciler,
+        executorServerManager, () -> poolUsage, 10, 0, 0, 60);
+
+    queueSize = 9;
+    assertNull(controller.admit(ExecType.DIRECT));
+
+    // 队列长度有缓存, 换一个新的实例
+    queueSize = 10;
+    controller = new AdmissionController(queue(), reconciler, executorServerManager,
+        () -> poolUsage, 10, 0, 0, 60);
+
+    assertNotNull(controller.admit(ExecType.DIRECT));
+    assertNotNull(controller.admit(ExecType.COMPLEMENT_DATA));
+
+    // 例行调度总是接受
+    assertNull(controller.admit(ExecType.SCHEDULER));
+  }
+
+  @Test
+  public void testRunningPerExecutor() {
+    AdmissionController controller = new AdmissionController(queue(), reconciler,
+        executorServerManager, () -> poolUsage, 0, 2, 0, 60);
+
+    // 没有 executor 时不按这个限制
+    reconciler.dispatched(1, "127.0.0.1:10000", "project");
+    reconciler.dispatched(2, "127.0.0.1:10000", "project");
+    assertNull(controller.admit(ExecType.DIRECT));
+
+    ExecutorServerInfo executorServerInfo = new ExecutorServerInfo();
+    executorServerInfo.setHost("127.0.0.1");
+    executorServerInfo.setPort(10000);
+    executorServerManager.initServers(Collections.singletonList(executorServerInfo));
+
+    assertNotNull(controller.admit(ExecType.DIRECT));
+  }
+
+  @Test
+  public void testDbPool() {
+    AdmissionController controller = new AdmissionController(queue(), reconciler,
+        executorServerManager, () -> poolUsage, 0, 0, 0.9, 60);
+
+    poolUsage = 0.5;
+    assertNull(controller.admit(ExecType.COMPLEMENT_DATA));
+
+    poolUsage = 0.95;
+    assertNotNull(controller.admit(ExecType.COMPLEMENT_DATA));
+    assertNull(controller.admit(ExecType.SCHEDULER));
+  }
+
+  private DispatchQueue queue() {
+    return new DispatchQueue(null, null, null, 0, 0) {
+      @Override
+      public int size() {
+        return queueSize;
+      }
+    };
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.master;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.baifendian.swordfish.dao.enums.FlowPriority;
+import com.baifendian.swordfish.dao.model.DispatchQueueItem;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+/**
+ * 项目之间公平挑选的测试
+ */
+public class FairShareSchedulerTest {
+
+  private int execId;
+
+  @Test
+  public void testWeightAndLimit() {
+    Map<String, Integer> weights = new HashMap<>();
+    weights.put("a", 2);
+
+    Map<String, Integer> limits = new HashMap<>();
+    limits.put("c", 1);
+
+    FairShareScheduler scheduler = new FairShareScheduler(weights, limits, 0);
+
+    List<DispatchQueueItem> candidates = new ArrayList<>();
+
+    for (int i = 0; i < 6; ++i) {
+      candidates.add(item("a", FlowPriority.MEDIUM, i));
+      candidates.add(item("b", FlowPriority.MEDIUM, i));
+      candidates.add(item("c", FlowPriority.MEDIUM, i));
+    }
+
+    // b 已经有一个在运行, c 达到了上限
+    Map<String, Integer> running = new HashMap<>();
+    running.put("b", 1);
+    running.put("c", 1);
+
+    List<String> projects = scheduler.select(candidates, 6, running).stream()
+        .map(DispatchQueueItem::getProjectName).collect(Collectors.toList());
+
+    assertEquals(6, projects.size());
+    assertEquals(4, Collections.frequency(projects, "a"));
+    assertEquals(2, Collections.frequency(projects, "b"));
+    assertEquals(0, Collections.frequency(projects, "c"));
+  }
+
+  @Test
+  public void testPriority() {
+    FairShareScheduler scheduler = new FairShareScheduler(new HashMap<>(), new HashMap<>(), 0);
+
+    List<DispatchQueueItem> candidates = new ArrayList<>();
+    candidates.add(item("a", FlowPriority.LOWEST, 0));
+    candidates.add(item("a", FlowPriority.HIGH, 1));
+    candidates.add(item("a", FlowPriority.MEDIUM, 2));
+
+    List<DispatchQueueItem> selected = scheduler
+        .select(candidates, 3, Collections.emptyMap());
+
+    assertEquals(FlowPriority.HIGH.ordinal(), selected.get(0).getPriority());
+    assertEquals(FlowPriority.MEDIUM.ordinal(), selected.get(1).getPriority());
+    assertEquals(FlowPriority.LOWEST.ordinal(), selected.get(2).getPriority());
+  }
+
+  /**
+   * 模拟: 项目 a 一次提交 500 个补数据, 项目 b 每 10 个时间单位到来一个例行 workflow,
+   * 集群 10 个槽位, 每个 workflow 运行 20 个时间单位. 公平挑选下 b 的等待不超过一个 workflow 的运行时长,
+   * 而先进先出下 b 要等 a 的积压全部跑完
+   */
+  @Test
+  public void testBackfillNotStarveOthers() {
+    FairShareScheduler scheduler = new FairShareScheduler(new HashMap<>(), new HashMap<>(), 0);
+
+    long fair = simulate(scheduler);
+    long fifo = simulate(null);
+
+    assertTrue("fair share max wait " + fair, fair <= 20);
+    assertTrue("fifo max wait " + fifo, fifo >= 500 / 10 * 20 / 2);
+  }
+
+  /**
+   * 返回 b 的最大等待时间
+   *
+   * @param scheduler 为 null 时按先进先出
+   */
+  private long simulate(FairShareScheduler scheduler) {
+    final int slots = 10;
+    final int duration = 20;
+
+    List<DispatchQueueItem> queue = new ArrayList<>();
+    List<long[]> runs = new ArrayList<>();
+    Map<String, Integer> running = new HashMap<>();
+    long maxWait = 0;
+
+    for (int i = 0; i < 500; ++i) {
+      queue.add(item("a", FlowPriority.LOWEST, 0));
+    }
+
+    for (long tick = 0; tick < 2000; ++tick) {
+      if (tick % 10 == 0) {
+        queue.add(item("b", FlowPriority.MEDIUM, tick));
+      }
+
+      // 结束的释放槽位, runs 中为 {结束时间, 是否是 b}
+      for (Iterator<long[]> it = runs.iterator(); it.hasNext(); ) {
+        long[] run = it.next();
+
+        if (run[0] <= tick) {
+          it.remove();
+          running.merge((run[1] == 1) ? "b" : "a", -1, Integer::sum);
+        }
+      }
+
+      int free = slots - runs.size();
+
+      if (free <= 0 || queue.isEmpty()) {
+        continue;
+      }
+
+      List<DispatchQueueItem> selected = (scheduler == null)
+          ? new ArrayList<>(queue.subList(0, Math.min(free, queue.size())))
+          : scheduler.select(queue, free, running);
+
+      for (DispatchQueueItem item : selected) {
+        queue.remove(item);
+
+        boolean b = item.getProjectName().equals("b");
+
+        if (b) {
+          maxWait = Math.max(maxWait, tick - item.getNotBefore().getTime());
+        }
+
+        runs.add(new long[]{tick + duration, b ? 1 : 0});
+        running.merge(item.getProjectName(), 1, Integer::sum);
+      }
+    }
+
+    return maxWait;
+  }
+
+  private DispatchQueueItem item(String project, FlowPriority priority, long time) {
+    DispatchQueueItem item = new DispatchQueueItem();
+
+    item.setExecId(++execId);
+    item.setProjectName(project);
+    item.setPriority(priority.ordinal());
+    item.setNotBefore(new Date(time));
+
+    return item;
+  }
+}
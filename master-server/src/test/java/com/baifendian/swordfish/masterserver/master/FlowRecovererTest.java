@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.master;
+
+import static org.junit.Assert.assertEquals;
+
+import com.baifendian.swordfish.dao.FlowDao;
+import com.baifendian.swordfish.dao.enums.FlowStatus;
+import com.baifendian.swordfish.dao.model.ExecutionFlow;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+/**
+ * 启动恢复的测试, 只在内存中模拟数据库和分发队列
+ */
+public class FlowRecovererTest {
+
+  @Test
+  public void testRecover() {
+    List<ExecutionFlow> flows = new ArrayList<>();
+
+    for (int i = 1; i <= 7; ++i) {
+      ExecutionFlow executionFlow = new ExecutionFlow();
+
+      executionFlow.setId(i);
+      executionFlow.setStatus(FlowStatus.RUNNING);
+      executionFlow.setProjectName("project");
+
+      // 偶数的已经分配了 worker
+      if (i % 2 == 0) {
+        executionFlow.setWorker("127.0.0.1:10000");
+      }
+
+      flows.add(executionFlow);
+    }
+
+    List<ExecFlowInfo> queued = new ArrayList<>();
+
+    DispatchQueue queue = new DispatchQueue(null, null, null, 0, 0) {
+      @Override
+      public void add(ExecFlowInfo execFlowInfo) {
+        queued.add(execFlowInfo);
+      }
+    };
+
+    RunningFlowReconciler reconciler = new RunningFlowReconciler(null, queue,
+        new SlaMonitor(null, 0), 0, 0);
+
+    // 心跳已经汇报在运行
+    reconciler.dispatched(4, "127.0.0.1:10000", "project");
+
+    FlowRecoverer recoverer = new FlowRecoverer(new FlowDao() {
+      @Override
+      public List<ExecutionFlow> queryNoFinishFlowPage(int afterId, int limit) {
+        return flows.stream().filter(f -> f.getId() > afterId).limit(limit)
+            .collect(Collectors.toList());
+      }
+
+      @Override
+      public int countNoFinishFlow() {
+        return flows.size();
+      }
+    }, queue, reconciler, new SlaMonitor(null, 0), 2, 0, 0);
+
+    recoverer.run();
+
+    assertEquals("DONE", recoverer.getPhase());
+    assertEquals(7, recoverer.getTotal());
+    assertEquals(14, recoverer.getScanned());
+    assertEquals(1, recoverer.getReconciled());
+    assertEquals(6, recoverer.getResubmitted());
+
+    // 没有分配过 worker 的先分发, 分配过的带上原来的 worker
+    List<Integer> execIds = queued.stream().map(ExecFlowInfo::getExecId)
+        .collect(Collectors.toList());
+    assertEquals("[1, 3, 5, 7, 2, 6]", execIds.toString());
+    assertEquals("127.0.0.1", queued.get(4).getHost());
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.master;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.baifendian.swordfish.dao.DaoFactory;
+import com.baifendian.swordfish.dao.FlowDao;
+import com.baifendian.swordfish.dao.MasterDao;
+import com.baifendian.swordfish.dao.datasource.ConnectionFactory;
+import com.baifendian.swordfish.dao.model.MasterServer;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * 两个 master 基于内存数据库的租约切换测试
+ */
+public class LeaderElectorTest {
+
+  private static final String HOST = "127.0.0.1";
+
+  private static final long LEASE = 1000;
+
+  private static final long RENEW = 200;
+
+  private static final String FUNCTION = " LANGUAGE JAVA PARAMETER STYLE JAVA NO SQL EXTERNAL NAME '"
+      + LeaderElectorTest.class.getName() + ".";
+
+  private static MasterDao masterDao;
+
+  private static FlowDao flowDao;
+
+  private LeaderElector master1;
+
+  private LeaderElector master2;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    try (Connection connection = ConnectionFactory.getSqlSessionFactory().getConfiguration()
+        .getEnvironment().getDataSource().getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE master_server (id INT PRIMARY KEY, host VARCHAR(20) NOT NULL,"
+          + " port INT NOT NULL, epoch BIGINT NOT NULL DEFAULT 0, lease_expire TIMESTAMP NOT NULL,"
+          + " create_time TIMESTAMP NOT NULL, modify_time TIMESTAMP NOT NULL)");
+
+      // 租约按数据库的时钟计算, 用到的 mysql 函数在 derby 中用 java 实现
+      statement.execute("CREATE FUNCTION NOW(fsp INT) RETURNS TIMESTAMP" + FUNCTION + "now'");
+      statement.execute("CREATE FUNCTION UNIX_TIMESTAMP(t TIMESTAMP) RETURNS DOUBLE" + FUNCTION
+          + "unixTimestamp'");
+      statement.execute("CREATE FUNCTION FROM_UNIXTIME(seconds DOUBLE) RETURNS TIMESTAMP" + FUNCTION
+          + "fromUnixtime'");
+
+      statement.execute("CREATE TABLE execution_flows (id INT PRIMARY KEY, worker VARCHAR(100))");
+      statement.execute("INSERT INTO execution_flows (id) VALUES (1)");
+    }
+
+    masterDao = DaoFactory.getDaoInstance(MasterDao.class);
+    flowDao = DaoFactory.getDaoInstance(FlowDao.class);
+  }
+
+  public static Timestamp now(int fsp) {
+    return new Timestamp(System.currentTimeMillis());
+  }
+
+  public static double unixTimestamp(Timestamp t) {
+    return t.getTime() / 1000.0;
+  }
+
+  public static Timestamp fromUnixtime(double seconds) {
+    return new Timestamp(Math.round(seconds * 1000));
+  }
+
+  @After
+  public void after() {
+    if (master1 != null) {
+      master1.stop(true);
+    }
+
+    if (master2 != null) {
+      master2.stop(true);
+    }
+  }
+
+  @Test
+  public void testFailover() throws Exception {
+    BlockingQueue<Long> epochs1 = new LinkedBlockingQueue<>();
+    BlockingQueue<Long> epochs2 = new LinkedBlockingQueue<>();
+
+    master1 = newMaster(1, epochs1);
+    master1.start();
+
+    long epoch1 = epochs1.poll(5, TimeUnit.SECONDS);
+    assertTrue(master1.isLeader());
+
+    // 第二个 master 只能作为 standby
+    master2 = newMaster(2, epochs2);
+    master2.start();
+
+    Thread.sleep(LEASE);
+    assertFalse(master2.isLeader());
+    assertEquals(HOST, masterDao.getMasterServer().getHost());
+    assertEquals(1, masterDao.getMasterServer().getPort());
+
+    // 模拟第一个 master 挂掉, 不释放租约
+    long crashTime = System.currentTimeMillis();
+    master1.stop(false);
+
+    long epoch2 = epochs2.poll(5, TimeUnit.SECONDS);
+    long failoverTime = System.currentTimeMillis() - crashTime;
+
+    assertTrue(master2.isLeader());
+    assertEquals(epoch1 + 1, epoch2);
+    assertTrue("failover cost " + failoverTime, failoverTime < LEASE + 3 * RENEW + 1000);
+
+    // executor 和 web-server 从租约中得到新的 master
+    MasterServer leader = masterDao.getMasterServer();
+    assertEquals(2, leader.getPort());
+    assertEquals(epoch2, leader.getEpoch());
+
+    // 旧的 epoch 不能续约, 也不能再分发任务
+    assertFalse(masterDao.renewLease(HOST, 1, epoch1, LEASE));
+    assertFalse(flowDao.updateExecutionFlowWorker(1, HOST + ":10000", epoch1));
+    assertTrue(flowDao.updateExecutionFlowWorker(1, HOST + ":10000", epoch2));
+  }
+
+  @Test
+  public void testRelease() throws Exception {
+    BlockingQueue<Long> epochs1 = new LinkedBlockingQueue<>();
+    BlockingQueue<Long> epochs2 = new LinkedBlockingQueue<>();
+
+    master1 = newMaster(1, epochs1);
+    master1.start();
+
+    long epoch1 = epochs1.poll(5, TimeUnit.SECONDS);
+
+    master2 = newMaster(2, epochs2);
+    master2.start();
+
+    // 正常退出时释放租约, standby 不需要等租约过期
+    long stopTime = System.currentTimeMillis();
+    master1.stop(true);
+
+    long epoch2 = epochs2.poll(5, TimeUnit.SECONDS);
+
+    assertTrue(System.currentTimeMillis() - stopTime < LEASE);
+    assertEquals(epoch1 + 1, epoch2);
+  }
+
+  private LeaderElector newMaster(int port, BlockingQueue<Long> epochs) {
+    return new LeaderElector(masterDao, HOST, port, LEASE, RENEW,
+        new LeaderElector.LeaderListener() {
+          @Override
+          public void takeLeadership(long epoch) {
+            epochs.add(epoch);
+          }
+
+          @Override
+          public void loseLeadership() {
+          }
+        });
+  }
+}
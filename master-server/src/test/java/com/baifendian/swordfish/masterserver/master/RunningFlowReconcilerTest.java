@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.master;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.baifendian.swordfish.dao.FlowDao;
+import com.baifendian.swordfish.dao.enums.FlowStatus;
+import com.baifendian.swordfish.dao.enums.NotifyType;
+import com.baifendian.swordfish.dao.model.ExecutionFlow;
+import com.baifendian.swordfish.dao.model.ExecutionNode;
+import com.baifendian.swordfish.rpc.HeartBeatData;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 心跳对账的测试, 只在内存中模拟 exec flow 表
+ */
+public class RunningFlowReconcilerTest {
+
+  private static final String WORKER = "127.0.0.1:10000";
+
+  private static final String PROJECT = "project";
+
+  private static final long LEASE_MILLIS = 200;
+
+  private final Map<Integer, ExecutionFlow> flows = new HashMap<>();
+
+  private int queries;
+
+  private final List<ExecFlowInfo> queue = new ArrayList<>();
+
+  private RunningFlowReconciler reconciler;
+
+  @Before
+  public void before() {
+    FlowDao flowDao = new FlowDao() {
+      @Override
+      public ExecutionFlow queryExecutionFlow(int execId) {
+        ++queries;
+        return flows.get(execId);
+      }
+
+      @Override
+      public boolean updateExecutionFlowStatus(int execId, FlowStatus status) {
+        flows.get(execId).setStatus(status);
+        return true;
+      }
+
+      @Override
+      public List<ExecutionNode> queryExecutionNodes(int execId) {
+        return Collections.emptyList();
+      }
+    };
+
+    // 只记录加入队列的 workflow, 不访问数据库
+    DispatchQueue dispatchQueue = new DispatchQueue(null, null, null, 0, 0) {
+      @Override
+      public void add(ExecFlowInfo execFlowInfo) {
+        queue.add(execFlowInfo);
+      }
+    };
+
+    reconciler = new RunningFlowReconciler(flowDao, dispatchQueue, new SlaMonitor(flowDao, 0), 0,
+        LEASE_MILLIS);
+  }
+
+  @Test
+  public void testOrphan() {
+    addFlow(1, WORKER);
+    addFlow(2, WORKER);
+
+    reconciler.dispatched(1, WORKER, PROJECT);
+    reconciler.dispatched(2, WORKER, PROJECT);
+
+    // 都在运行, 不查询数据库
+    reconciler.reconcile(WORKER, heartBeat(100, 1, 2));
+    assertEquals(0, queries);
+    assertEquals(Integer.valueOf(2), reconciler.getRunningCounts().get(PROJECT));
+
+    // 同一个 epoch 下丢失了, 置为失败
+    reconciler.reconcile(WORKER, heartBeat(100, 1));
+    assertEquals(FlowStatus.FAILED, flows.get(2).getStatus());
+    assertFalse(reconciler.isTracked(2));
+    assertTrue(queue.isEmpty());
+
+    // executor 重启后丢失了, 重新分发
+    reconciler.reconcile(WORKER, heartBeat(200));
+    assertEquals(FlowStatus.RUNNING, flows.get(1).getStatus());
+    assertEquals(1, queue.size());
+    assertEquals(1, queue.get(0).getExecId());
+  }
+
+  @Test
+  public void testAdopt() {
+    addFlow(1, WORKER);
+    addFlow(2, "127.0.0.1:10001");
+
+    // master 切换后没有分发记录, 只接管 worker 一致的
+    reconciler.reconcile(WORKER, heartBeat(100, 1, 2));
+
+    assertTrue(reconciler.isTracked(1));
+    assertFalse(reconciler.isTracked(2));
+
+    // 下线后忘掉
+    reconciler.forget(WORKER);
+    assertFalse(reconciler.isTracked(1));
+  }
+
+  @Test
+  public void testLease() throws InterruptedException {
+    addFlow(1, WORKER);
+    addFlow(2, WORKER);
+    addFlow(3, WORKER);
+
+    reconciler.leased(1, WORKER, PROJECT);
+    reconciler.leased(2, WORKER, PROJECT);
+    reconciler.leased(3, WORKER, PROJECT);
+
+    // 租约没有过期, 没有汇报的也不处理
+    reconciler.reconcile(WORKER, heartBeat(100, 1));
+    assertTrue(reconciler.isTracked(2));
+    assertTrue(reconciler.isTracked(3));
+    assertEquals(0, queries);
+
+    Thread.sleep(LEASE_MILLIS * 2);
+
+    // 过期且一直没有汇报的重新投递, 而不是置为失败
+    reconciler.reconcile(WORKER, heartBeat(100, 1, 3));
+    assertFalse(reconciler.isTracked(2));
+    assertEquals(FlowStatus.RUNNING, flows.get(2).getStatus());
+    assertEquals(1, queue.size());
+    assertEquals(2, queue.get(0).getExecId());
+
+    // 确认过的租约按正常分发处理, 丢失后置为失败
+    reconciler.reconcile(WORKER, heartBeat(100, 3));
+    assertEquals(FlowStatus.FAILED, flows.get(1).getStatus());
+    assertEquals(1, queue.size());
+  }
+
+  private void addFlow(int execId, String worker) {
+    ExecutionFlow executionFlow = new ExecutionFlow();
+
+    executionFlow.setId(execId);
+    executionFlow.setWorker(worker);
+    executionFlow.setProjectName(PROJECT);
+    executionFlow.setStatus(FlowStatus.RUNNING);
+    executionFlow.setNotifyType(NotifyType.NONE);
+
+    flows.put(execId, executionFlow);
+  }
+
+  private HeartBeatData heartBeat(long epoch, Integer... execIds) {
+    List<Integer> ids = (execIds.length == 0) ? Collections.emptyList() : Arrays.asList(execIds);
+
+    return new HeartBeatData().setEpoch(epoch).setExecIds(ids);
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.master;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.baifendian.swordfish.dao.FlowDao;
+import com.baifendian.swordfish.dao.enums.FlowStatus;
+import com.baifendian.swordfish.dao.model.ExecutionFlow;
+import com.baifendian.swordfish.dao.model.ExecutionNode;
+import com.baifendian.swordfish.dao.model.FlowNode;
+import com.baifendian.swordfish.dao.model.FlowNodeRelation;
+import com.baifendian.swordfish.dao.model.flow.FlowDag;
+import com.baifendian.swordfish.dao.utils.json.JsonUtil;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 完成期限预测的测试, DAG 为 a -> c, b -> c
+ */
+public class SlaMonitorTest {
+
+  private static final int FLOW_ID = 1;
+
+  private final List<ExecutionNode> nodes = new ArrayList<>();
+
+  private int queries;
+
+  private SlaMonitor slaMonitor;
+
+  @Before
+  public void before() {
+    FlowDao flowDao = new FlowDao() {
+      @Override
+      public List<ExecutionNode> queryExecutionNodes(int execId) {
+        ++queries;
+        return nodes;
+      }
+    };
+
+    slaMonitor = new SlaMonitor(flowDao, 0);
+  }
+
+  @Test
+  public void testPredict() {
+    // 没有历史时按 0 计算
+    slaMonitor.track(executionFlow(1));
+    assertEquals(1000, slaMonitor.predictFinish(1, 1000));
+
+    finish(2, 10, 30, 20);
+
+    // 关键路径 b -> c
+    slaMonitor.track(executionFlow(3));
+    assertEquals(1000 + 50 * 1000, slaMonitor.predictFinish(3, 1000));
+
+    // 指数加权平均: c = 20 * 0.7 + 40 * 0.3 = 26
+    finish(4, 10, 30, 40);
+    assertEquals(1000 + 56 * 1000, slaMonitor.predictFinish(3, 1000));
+
+    // 开始运行后从开始时间算, 预测只在结束时查询数据库
+    slaMonitor.started(3);
+    long now = System.currentTimeMillis();
+    assertTrue(slaMonitor.predictFinish(3, now) <= now + 56 * 1000);
+    assertEquals(2, queries);
+  }
+
+  @Test
+  public void testNoDeadline() {
+    ExecutionFlow executionFlow = executionFlow(1);
+    executionFlow.setDeadline(null);
+
+    slaMonitor.track(executionFlow);
+    assertFalse(slaMonitor.isTracked(1));
+  }
+
+  /**
+   * 模拟一次结束的执行, 各个节点的运行时长单位为秒
+   */
+  private void finish(int execId, int a, int b, int c) {
+    nodes.clear();
+    nodes.add(node("a", a));
+    nodes.add(node("b", b));
+    nodes.add(node("c", c));
+
+    ExecutionFlow executionFlow = executionFlow(execId);
+    executionFlow.setStatus(FlowStatus.SUCCESS);
+
+    slaMonitor.finished(executionFlow);
+  }
+
+  private ExecutionNode node(String name, int seconds) {
+    ExecutionNode executionNode = new ExecutionNode();
+
+    executionNode.setName(name);
+    executionNode.setStatus(FlowStatus.SUCCESS);
+    executionNode.setStartTime(new Date(0));
+    executionNode.setEndTime(new Date(seconds * 1000L));
+
+    return executionNode;
+  }
+
+  private ExecutionFlow executionFlow(int execId) {
+    FlowDag flowDag = new FlowDag();
+    List<FlowNode> flowNodes = new ArrayList<>();
+
+    for (String name : Arrays.asList("a", "b", "c")) {
+      FlowNode flowNode = new FlowNode();
+      flowNode.setName(name);
+      flowNodes.add(flowNode);
+    }
+
+    flowDag.setNodes(flowNodes);
+    flowDag.setEdges(Arrays.asList(new FlowNodeRelation("a", "c"), new FlowNodeRelation("b", "c")));
+
+    ExecutionFlow executionFlow = new ExecutionFlow();
+
+    executionFlow.setId(execId);
+    executionFlow.setFlowId(FLOW_ID);
+    executionFlow.setStatus(FlowStatus.RUNNING);
+    executionFlow.setWorkflowData(JsonUtil.toJsonString(flowDag));
+    executionFlow.setDeadline(new Date(System.currentTimeMillis() + 3600 * 1000));
+
+    return executionFlow;
+  }
+}
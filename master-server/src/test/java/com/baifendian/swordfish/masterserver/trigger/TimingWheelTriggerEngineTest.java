@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.trigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.baifendian.swordfish.dao.FlowDao;
+import com.baifendian.swordfish.dao.ScheduleFireDao;
+import com.baifendian.swordfish.dao.model.Schedule;
+import com.baifendian.swordfish.dao.model.ScheduleFire;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class TimingWheelTriggerEngineTest {
+
+  private static final int FLOW_ID = 1;
+
+  private static final long HOUR = 3600 * 1000;
+
+  /**
+   * 写入日志的触发
+   */
+  private final List<ScheduleFire> logged = Collections.synchronizedList(new ArrayList<>());
+
+  private final CountDownLatch loggedLatch = new CountDownLatch(1);
+
+  @Test
+  public void testMisfire() throws Exception {
+    long now = System.currentTimeMillis();
+
+    // 停机 5 小时, 默认阈值下只补阈值以内的一次
+    List<ScheduleFire> fires = start(now - now % 60000 - 5 * HOUR, 60 * 1000);
+
+    assertTrue(fires.size() <= 1);
+
+    for (ScheduleFire fire : fires) {
+      assertTrue(System.currentTimeMillis() - fire.getFireTime().getTime() <= 2 * 60 * 1000);
+    }
+  }
+
+  @Test
+  public void testCatchUpAll() throws Exception {
+    long now = System.currentTimeMillis();
+
+    // 阈值小于 0 时全部补上
+    List<ScheduleFire> fires = start(now - now % 60000 - 5 * HOUR, -1);
+
+    assertTrue(fires.size() >= 5 * 60);
+    assertEquals(now - now % 60000 - 5 * HOUR + 60000, fires.get(0).getFireTime().getTime());
+  }
+
+  /**
+   * 启动一个每分钟触发的调度, 返回第一批写入日志的触发
+   */
+  private List<ScheduleFire> start(long lastFireTime, long misfireThreshold)
+      throws Exception {
+    Schedule schedule = new Schedule();
+
+    schedule.setProjectId(1);
+    schedule.setFlowId(FLOW_ID);
+    schedule.setCrontab("0 * * * * ?");
+    schedule.setStartDate(new Date(lastFireTime - HOUR));
+    schedule.setEndDate(new Date(lastFireTime + 24 * HOUR));
+
+    FlowDao flowDao = new FlowDao() {
+      @Override
+      public List<Schedule> queryOnlineSchedules() {
+        return Collections.singletonList(schedule);
+      }
+    };
+
+    ScheduleFireDao scheduleFireDao = new ScheduleFireDao() {
+      @Override
+      public void log(List<ScheduleFire> fires) {
+        logged.addAll(fires);
+        loggedLatch.countDown();
+      }
+
+      @Override
+      public void fired(List<ScheduleFire> fires) {
+      }
+
+      @Override
+      public List<ScheduleFire> queryPending() {
+        return Collections.emptyList();
+      }
+
+      @Override
+      public Map<Integer, Date> queryLastFireTimes() {
+        return Collections.singletonMap(FLOW_ID, new Date(lastFireTime));
+      }
+
+      @Override
+      public int prune() {
+        return 0;
+      }
+    };
+
+    TimingWheelTriggerEngine engine = new TimingWheelTriggerEngine(flowDao, scheduleFireDao,
+        (projectId, flowId, scheduledFireTime, preFireTime, done) -> done.run(), 1,
+        misfireThreshold);
+
+    engine.start();
+
+    try {
+      // 补上的触发在第一个 tick 写入, 阈值以内可能没有需要补的
+      loggedLatch.await(3, TimeUnit.SECONDS);
+
+      synchronized (logged) {
+        return new ArrayList<>(logged);
+      }
+    } finally {
+      engine.shutdown();
+    }
+  }
+}
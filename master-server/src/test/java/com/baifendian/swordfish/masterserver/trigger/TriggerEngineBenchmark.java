@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.masterserver.trigger;
+
+import com.baifendian.swordfish.dao.DaoFactory;
+import com.baifendian.swordfish.dao.FlowDao;
+import com.baifendian.swordfish.dao.ScheduleFireDao;
+import com.baifendian.swordfish.dao.model.ExecutionFlow;
+import com.baifendian.swordfish.dao.model.Schedule;
+import com.baifendian.swordfish.masterserver.quartz.QuartzManager;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+
+/**
+ * 触发引擎的压测 <p>
+ *
+ * 注册一批每分钟触发一次的调度 (秒数均匀分布), 整分钟开始统计若干分钟, 输出注册耗时, 每分钟触发数, 以及触发时间相对调度时间的延迟
+ * p50/p99/max. quartz 使用 quartz.properties 配置的 JDBC JobStore, wheel 使用 dao 配置的数据库写预写日志, 需要先建好两者的表.
+ * 参数: [调度数] [统计的分钟数] [quartz|wheel|all]
+ */
+public class TriggerEngineBenchmark {
+
+  /**
+   * 压测用的 flow id 从这里开始, 避免和真实的工作流混在一起
+   */
+  private static final int FLOW_ID_BASE = 1000000000;
+
+  private static final int PROJECT_ID = FLOW_ID_BASE;
+
+  private static volatile long windowStart;
+
+  private static volatile long windowEnd;
+
+  private static long[] lateness;
+
+  private static final AtomicInteger fires = new AtomicInteger();
+
+  public static void main(String[] args) throws Exception {
+    int schedules = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+    int minutes = (args.length > 1) ? Integer.parseInt(args[1]) : 2;
+    String engine = (args.length > 2) ? args[2] : "all";
+
+    System.out.println(String.format("%-8s %10s %10s %12s %8s %8s %8s", "engine", "schedules",
+        "setup(s)", "fires/min", "p50(ms)", "p99(ms)", "max(ms)"));
+
+    if (!engine.equals("wheel")) {
+      run("quartz", new BenchmarkQuartzEngine(), schedules, minutes);
+    }
+
+    if (!engine.equals("quartz")) {
+      TriggerEngine wheel = new TimingWheelTriggerEngine(new EmptyFlowDao(),
+          DaoFactory.getDaoInstance(ScheduleFireDao.class),
+          (projectId, flowId, scheduledFireTime, preFireTime, done) -> {
+            record(scheduledFireTime.getTime(), System.currentTimeMillis());
+            done.run();
+          }, 24, 60 * 1000);
+
+      run("wheel", wheel, schedules, minutes);
+    }
+
+    System.exit(0);
+  }
+
+  private static void run(String name, TriggerEngine engine, int schedules, int minutes)
+      throws Exception {
+    fires.set(0);
+    lateness = new long[schedules * (minutes + 1)];
+    windowStart = Long.MAX_VALUE;
+    windowEnd = Long.MAX_VALUE;
+
+    engine.start();
+
+    long setupStart = System.currentTimeMillis();
+
+    for (int i = 0; i < schedules; ++i) {
+      engine.schedule(PROJECT_ID, FLOW_ID_BASE + i, schedule(i, setupStart));
+    }
+
+    double setup = (System.currentTimeMillis() - setupStart) / 1000.0;
+
+    // 从下一个整分钟开始统计
+    long now = System.currentTimeMillis();
+    windowStart = now - now % 60000 + 60000;
+    windowEnd = windowStart + minutes * 60000L;
+
+    Thread.sleep(windowEnd - now + 5000);
+
+    int count = Math.min(fires.get(), lateness.length);
+    long[] sorted = Arrays.copyOf(lateness, count);
+    Arrays.sort(sorted);
+
+    System.out.println(String.format("%-8s %10d %10.1f %12.0f %8d %8d %8d", name, schedules, setup,
+        count / (double) minutes, percentile(sorted, 0.5), percentile(sorted, 0.99),
+        (count == 0) ? 0 : sorted[count - 1]));
+
+    engine.unscheduleProject(PROJECT_ID);
+    engine.shutdown();
+  }
+
+  private static Schedule schedule(int i, long now) {
+    Schedule schedule = new Schedule();
+
+    schedule.setFlowId(FLOW_ID_BASE + i);
+    schedule.setCrontab(String.format("%d * * * * ?", i % 60));
+    schedule.setStartDate(new Date(now));
+    schedule.setEndDate(new Date(now + 365 * 24 * 3600 * 1000L));
+
+    return schedule;
+  }
+
+  /**
+   * 只统计调度时间在窗口内的触发
+   */
+  private static void record(long scheduledFireTime, long fireTime) {
+    if (scheduledFireTime < windowStart || scheduledFireTime >= windowEnd) {
+      return;
+    }
+
+    int index = fires.getAndIncrement();
+
+    if (index < lateness.length) {
+      lateness[index] = fireTime - scheduledFireTime;
+    }
+  }
+
+  private static long percentile(long[] sorted, double p) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+
+    return sorted[Math.min((int) (sorted.length * p), sorted.length - 1)];
+  }
+
+  /**
+   * quartz 触发时只记录延迟
+   */
+  public static class BenchmarkJob implements Job {
+
+    @Override
+    public void execute(JobExecutionContext context) {
+      record(context.getScheduledFireTime().getTime(), context.getFireTime().getTime());
+    }
+  }
+
+  /**
+   * quartz 的触发引擎, 只是把任务换成 BenchmarkJob
+   */
+  private static class BenchmarkQuartzEngine implements TriggerEngine {
+
+    private final TriggerEngine delegate = new QuartzTriggerEngine();
+
+    @Override
+    public void start() {
+      delegate.start();
+    }
+
+    @Override
+    public void shutdown() {
+      delegate.shutdown();
+    }
+
+    @Override
+    public void schedule(int projectId, int flowId, Schedule schedule) {
+      QuartzManager.addJobAndTrigger("benchmark-" + flowId, "benchmark-" + (flowId % 100),
+          BenchmarkJob.class, schedule.getStartDate(), schedule.getEndDate(),
+          schedule.getCrontab(), new HashMap<>());
+    }
+
+    @Override
+    public void unschedule(int projectId, int flowId) {
+      QuartzManager.deleteJob("benchmark-" + flowId, "benchmark-" + (flowId % 100));
+    }
+
+    @Override
+    public void unscheduleProject(int projectId) {
+      for (int i = 0; i < 100; ++i) {
+        QuartzManager.deleteJobs("benchmark-" + i);
+      }
+    }
+  }
+
+  /**
+   * 没有上线的调度, 也没有执行记录
+   */
+  private static class EmptyFlowDao extends FlowDao {
+
+    @Override
+    public List<Schedule> queryOnlineSchedules() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public ExecutionFlow queryExecutionFlowByScheduleTime(int flowId, Date scheduleTime) {
+      return null;
+    }
+  }
+}
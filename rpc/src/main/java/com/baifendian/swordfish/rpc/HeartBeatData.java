@@ -32,6 +32,17 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
   private static final org.apache.thrift.protocol.TField CPU_USED_FIELD_DESC = new org.apache.thrift.protocol.TField("cpuUsed", org.apache.thrift.protocol.TType.DOUBLE, (short)3);
   private static final org.apache.thrift.protocol.TField MEM_USED_FIELD_DESC = new org.apache.thrift.protocol.TField("memUsed", org.apache.thrift.protocol.TType.DOUBLE, (short)4);
   private static final org.apache.thrift.protocol.TField EXEC_IDS_FIELD_DESC = new org.apache.thrift.protocol.TField("execIds", org.apache.thrift.protocol.TType.LIST, (short)5);
+  private static final org.apache.thrift.protocol.TField JOB_TYPE_DEMANDS_FIELD_DESC = new org.apache.thrift.protocol.TField("jobTypeDemands", org.apache.thrift.protocol.TType.MAP, (short)6);
+  private static final org.apache.thrift.protocol.TField FREE_FLOW_SLOTS_FIELD_DESC = new org.apache.thrift.protocol.TField("freeFlowSlots", org.apache.thrift.protocol.TType.I32, (short)7);
+  private static final org.apache.thrift.protocol.TField FREE_NODE_SLOTS_FIELD_DESC = new org.apache.thrift.protocol.TField("freeNodeSlots", org.apache.thrift.protocol.TType.I32, (short)8);
+  private static final org.apache.thrift.protocol.TField EPOCH_FIELD_DESC = new org.apache.thrift.protocol.TField("epoch", org.apache.thrift.protocol.TType.I64, (short)9);
+  private static final org.apache.thrift.protocol.TField LEASE_CAPACITY_FIELD_DESC = new org.apache.thrift.protocol.TField("leaseCapacity", org.apache.thrift.protocol.TType.I32, (short)10);
+  private static final org.apache.thrift.protocol.TField LABELS_FIELD_DESC = new org.apache.thrift.protocol.TField("labels", org.apache.thrift.protocol.TType.LIST, (short)11);
+  private static final org.apache.thrift.protocol.TField JOB_CPU_USED_FIELD_DESC = new org.apache.thrift.protocol.TField("jobCpuUsed", org.apache.thrift.protocol.TType.DOUBLE, (short)12);
+  private static final org.apache.thrift.protocol.TField JOB_MEM_USED_FIELD_DESC = new org.apache.thrift.protocol.TField("jobMemUsed", org.apache.thrift.protocol.TType.I64, (short)13);
+  private static final org.apache.thrift.protocol.TField JOB_IO_RATE_FIELD_DESC = new org.apache.thrift.protocol.TField("jobIoRate", org.apache.thrift.protocol.TType.I64, (short)14);
+  private static final org.apache.thrift.protocol.TField FREE_CPU_FIELD_DESC = new org.apache.thrift.protocol.TField("freeCpu", org.apache.thrift.protocol.TType.DOUBLE, (short)15);
+  private static final org.apache.thrift.protocol.TField FREE_MEMORY_FIELD_DESC = new org.apache.thrift.protocol.TField("freeMemory", org.apache.thrift.protocol.TType.I64, (short)16);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
   static {
@@ -59,6 +70,50 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
    * workflow execId list
    */
   public List<Integer> execIds; // required
+  /**
+   * 各个任务类型正在运行和排队的节点数
+   */
+  public Map<String,Integer> jobTypeDemands; // optional
+  /**
+   * 空闲的 flow 执行槽位数
+   */
+  public int freeFlowSlots; // optional
+  /**
+   * 空闲的 node 执行槽位数
+   */
+  public int freeNodeSlots; // optional
+  /**
+   * executor 的 epoch, 每次启动时递增, 用于识别 executor 重启
+   */
+  public long epoch; // optional
+  /**
+   * 本次心跳希望领取的 workflow 数, 拉取模式下使用
+   */
+  public int leaseCapacity; // optional
+  /**
+   * executor 的标签
+   */
+  public List<String> labels; // optional
+  /**
+   * 作业进程树占用的 cpu 核数
+   */
+  public double jobCpuUsed; // optional
+  /**
+   * 作业进程树的常驻内存, 单位字节
+   */
+  public long jobMemUsed; // optional
+  /**
+   * 作业进程树的读写速率, 单位字节每秒
+   */
+  public long jobIoRate; // optional
+  /**
+   * 按资源准入时空闲的 cpu 核数, 减去了排队节点的申请, 可能为负数
+   */
+  public double freeCpu; // optional
+  /**
+   * 按资源准入时空闲的内存, 单位 MB, 减去了排队节点的申请, 可能为负数
+   */
+  public long freeMemory; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   public enum _Fields implements org.apache.thrift.TFieldIdEnum {
@@ -81,7 +136,51 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
     /**
      * workflow execId list
      */
-    EXEC_IDS((short)5, "execIds");
+    EXEC_IDS((short)5, "execIds"),
+    /**
+     * 各个任务类型正在运行和排队的节点数
+     */
+    JOB_TYPE_DEMANDS((short)6, "jobTypeDemands"),
+    /**
+     * 空闲的 flow 执行槽位数
+     */
+    FREE_FLOW_SLOTS((short)7, "freeFlowSlots"),
+    /**
+     * 空闲的 node 执行槽位数
+     */
+    FREE_NODE_SLOTS((short)8, "freeNodeSlots"),
+    /**
+     * executor 的 epoch, 每次启动时递增, 用于识别 executor 重启
+     */
+    EPOCH((short)9, "epoch"),
+    /**
+     * 本次心跳希望领取的 workflow 数, 拉取模式下使用
+     */
+    LEASE_CAPACITY((short)10, "leaseCapacity"),
+    /**
+     * executor 的标签
+     */
+    LABELS((short)11, "labels"),
+    /**
+     * 作业进程树占用的 cpu 核数
+     */
+    JOB_CPU_USED((short)12, "jobCpuUsed"),
+    /**
+     * 作业进程树的常驻内存, 单位字节
+     */
+    JOB_MEM_USED((short)13, "jobMemUsed"),
+    /**
+     * 作业进程树的读写速率, 单位字节每秒
+     */
+    JOB_IO_RATE((short)14, "jobIoRate"),
+    /**
+     * 按资源准入时空闲的 cpu 核数, 减去了排队节点的申请, 可能为负数
+     */
+    FREE_CPU((short)15, "freeCpu"),
+    /**
+     * 按资源准入时空闲的内存, 单位 MB, 减去了排队节点的申请, 可能为负数
+     */
+    FREE_MEMORY((short)16, "freeMemory");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -106,6 +205,28 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
           return MEM_USED;
         case 5: // EXEC_IDS
           return EXEC_IDS;
+        case 6: // JOB_TYPE_DEMANDS
+          return JOB_TYPE_DEMANDS;
+        case 7: // FREE_FLOW_SLOTS
+          return FREE_FLOW_SLOTS;
+        case 8: // FREE_NODE_SLOTS
+          return FREE_NODE_SLOTS;
+        case 9: // EPOCH
+          return EPOCH;
+        case 10: // LEASE_CAPACITY
+          return LEASE_CAPACITY;
+        case 11: // LABELS
+          return LABELS;
+        case 12: // JOB_CPU_USED
+          return JOB_CPU_USED;
+        case 13: // JOB_MEM_USED
+          return JOB_MEM_USED;
+        case 14: // JOB_IO_RATE
+          return JOB_IO_RATE;
+        case 15: // FREE_CPU
+          return FREE_CPU;
+        case 16: // FREE_MEMORY
+          return FREE_MEMORY;
         default:
           return null;
       }
@@ -150,7 +271,17 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
   private static final int __RECEIVEDATE_ISSET_ID = 1;
   private static final int __CPUUSED_ISSET_ID = 2;
   private static final int __MEMUSED_ISSET_ID = 3;
-  private byte __isset_bitfield = 0;
+  private static final int __FREEFLOWSLOTS_ISSET_ID = 4;
+  private static final int __FREENODESLOTS_ISSET_ID = 5;
+  private static final int __EPOCH_ISSET_ID = 6;
+  private static final int __LEASECAPACITY_ISSET_ID = 7;
+  private static final int __JOBCPUUSED_ISSET_ID = 8;
+  private static final int __JOBMEMUSED_ISSET_ID = 9;
+  private static final int __JOBIORATE_ISSET_ID = 10;
+  private static final int __FREECPU_ISSET_ID = 11;
+  private static final int __FREEMEMORY_ISSET_ID = 12;
+  private short __isset_bitfield = 0;
+  private _Fields optionals[] = {_Fields.JOB_TYPE_DEMANDS,_Fields.FREE_FLOW_SLOTS,_Fields.FREE_NODE_SLOTS,_Fields.EPOCH,_Fields.LEASE_CAPACITY,_Fields.LABELS,_Fields.JOB_CPU_USED,_Fields.JOB_MEM_USED,_Fields.JOB_IO_RATE,_Fields.FREE_CPU,_Fields.FREE_MEMORY};
   public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -165,6 +296,31 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
     tmpMap.put(_Fields.EXEC_IDS, new org.apache.thrift.meta_data.FieldMetaData("execIds", org.apache.thrift.TFieldRequirementType.DEFAULT, 
         new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
             new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32))));
+    tmpMap.put(_Fields.JOB_TYPE_DEMANDS, new org.apache.thrift.meta_data.FieldMetaData("jobTypeDemands", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.MapMetaData(org.apache.thrift.protocol.TType.MAP, 
+            new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING), 
+            new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32))));
+    tmpMap.put(_Fields.FREE_FLOW_SLOTS, new org.apache.thrift.meta_data.FieldMetaData("freeFlowSlots", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
+    tmpMap.put(_Fields.FREE_NODE_SLOTS, new org.apache.thrift.meta_data.FieldMetaData("freeNodeSlots", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
+    tmpMap.put(_Fields.EPOCH, new org.apache.thrift.meta_data.FieldMetaData("epoch", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
+    tmpMap.put(_Fields.LEASE_CAPACITY, new org.apache.thrift.meta_data.FieldMetaData("leaseCapacity", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
+    tmpMap.put(_Fields.LABELS, new org.apache.thrift.meta_data.FieldMetaData("labels", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+            new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING))));
+    tmpMap.put(_Fields.JOB_CPU_USED, new org.apache.thrift.meta_data.FieldMetaData("jobCpuUsed", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.DOUBLE)));
+    tmpMap.put(_Fields.JOB_MEM_USED, new org.apache.thrift.meta_data.FieldMetaData("jobMemUsed", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
+    tmpMap.put(_Fields.JOB_IO_RATE, new org.apache.thrift.meta_data.FieldMetaData("jobIoRate", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
+    tmpMap.put(_Fields.FREE_CPU, new org.apache.thrift.meta_data.FieldMetaData("freeCpu", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.DOUBLE)));
+    tmpMap.put(_Fields.FREE_MEMORY, new org.apache.thrift.meta_data.FieldMetaData("freeMemory", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(HeartBeatData.class, metaDataMap);
   }
@@ -207,6 +363,37 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
       }
       this.execIds = __this__execIds;
     }
+    if (other.isSetJobTypeDemands()) {
+      Map<String,Integer> __this__jobTypeDemands = new HashMap<String,Integer>();
+      for (Map.Entry<String, Integer> other_element : other.jobTypeDemands.entrySet()) {
+
+        String other_element_key = other_element.getKey();
+        Integer other_element_value = other_element.getValue();
+
+        String __this__jobTypeDemands_copy_key = other_element_key;
+
+        Integer __this__jobTypeDemands_copy_value = other_element_value;
+
+        __this__jobTypeDemands.put(__this__jobTypeDemands_copy_key, __this__jobTypeDemands_copy_value);
+      }
+      this.jobTypeDemands = __this__jobTypeDemands;
+    }
+    this.freeFlowSlots = other.freeFlowSlots;
+    this.freeNodeSlots = other.freeNodeSlots;
+    this.epoch = other.epoch;
+    this.leaseCapacity = other.leaseCapacity;
+    if (other.isSetLabels()) {
+      List<String> __this__labels = new ArrayList<String>();
+      for (String other_element : other.labels) {
+        __this__labels.add(other_element);
+      }
+      this.labels = __this__labels;
+    }
+    this.jobCpuUsed = other.jobCpuUsed;
+    this.jobMemUsed = other.jobMemUsed;
+    this.jobIoRate = other.jobIoRate;
+    this.freeCpu = other.freeCpu;
+    this.freeMemory = other.freeMemory;
   }
 
   public HeartBeatData deepCopy() {
@@ -224,6 +411,26 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
     setMemUsedIsSet(false);
     this.memUsed = 0.0;
     this.execIds = null;
+    this.jobTypeDemands = null;
+    setFreeFlowSlotsIsSet(false);
+    this.freeFlowSlots = 0;
+    setFreeNodeSlotsIsSet(false);
+    this.freeNodeSlots = 0;
+    setEpochIsSet(false);
+    this.epoch = 0;
+    setLeaseCapacityIsSet(false);
+    this.leaseCapacity = 0;
+    this.labels = null;
+    setJobCpuUsedIsSet(false);
+    this.jobCpuUsed = 0.0;
+    setJobMemUsedIsSet(false);
+    this.jobMemUsed = 0;
+    setJobIoRateIsSet(false);
+    this.jobIoRate = 0;
+    setFreeCpuIsSet(false);
+    this.freeCpu = 0.0;
+    setFreeMemoryIsSet(false);
+    this.freeMemory = 0;
   }
 
   /**
@@ -387,6 +594,353 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
     }
   }
 
+  public int getJobTypeDemandsSize() {
+    return (this.jobTypeDemands == null) ? 0 : this.jobTypeDemands.size();
+  }
+
+  public void putToJobTypeDemands(String key, int val) {
+    if (this.jobTypeDemands == null) {
+      this.jobTypeDemands = new HashMap<String,Integer>();
+    }
+    this.jobTypeDemands.put(key, val);
+  }
+
+  /**
+   * 各个任务类型正在运行和排队的节点数
+   */
+  public Map<String,Integer> getJobTypeDemands() {
+    return this.jobTypeDemands;
+  }
+
+  /**
+   * 各个任务类型正在运行和排队的节点数
+   */
+  public HeartBeatData setJobTypeDemands(Map<String,Integer> jobTypeDemands) {
+    this.jobTypeDemands = jobTypeDemands;
+    return this;
+  }
+
+  public void unsetJobTypeDemands() {
+    this.jobTypeDemands = null;
+  }
+
+  /** Returns true if field jobTypeDemands is set (has been assigned a value) and false otherwise */
+  public boolean isSetJobTypeDemands() {
+    return this.jobTypeDemands != null;
+  }
+
+  public void setJobTypeDemandsIsSet(boolean value) {
+    if (!value) {
+      this.jobTypeDemands = null;
+    }
+  }
+
+  /**
+   * 空闲的 flow 执行槽位数
+   */
+  public int getFreeFlowSlots() {
+    return this.freeFlowSlots;
+  }
+
+  /**
+   * 空闲的 flow 执行槽位数
+   */
+  public HeartBeatData setFreeFlowSlots(int freeFlowSlots) {
+    this.freeFlowSlots = freeFlowSlots;
+    setFreeFlowSlotsIsSet(true);
+    return this;
+  }
+
+  public void unsetFreeFlowSlots() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __FREEFLOWSLOTS_ISSET_ID);
+  }
+
+  /** Returns true if field freeFlowSlots is set (has been assigned a value) and false otherwise */
+  public boolean isSetFreeFlowSlots() {
+    return EncodingUtils.testBit(__isset_bitfield, __FREEFLOWSLOTS_ISSET_ID);
+  }
+
+  public void setFreeFlowSlotsIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __FREEFLOWSLOTS_ISSET_ID, value);
+  }
+
+  /**
+   * 空闲的 node 执行槽位数
+   */
+  public int getFreeNodeSlots() {
+    return this.freeNodeSlots;
+  }
+
+  /**
+   * 空闲的 node 执行槽位数
+   */
+  public HeartBeatData setFreeNodeSlots(int freeNodeSlots) {
+    this.freeNodeSlots = freeNodeSlots;
+    setFreeNodeSlotsIsSet(true);
+    return this;
+  }
+
+  public void unsetFreeNodeSlots() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __FREENODESLOTS_ISSET_ID);
+  }
+
+  /** Returns true if field freeNodeSlots is set (has been assigned a value) and false otherwise */
+  public boolean isSetFreeNodeSlots() {
+    return EncodingUtils.testBit(__isset_bitfield, __FREENODESLOTS_ISSET_ID);
+  }
+
+  public void setFreeNodeSlotsIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __FREENODESLOTS_ISSET_ID, value);
+  }
+
+  /**
+   * executor 的 epoch, 每次启动时递增, 用于识别 executor 重启
+   */
+  public long getEpoch() {
+    return this.epoch;
+  }
+
+  /**
+   * executor 的 epoch, 每次启动时递增, 用于识别 executor 重启
+   */
+  public HeartBeatData setEpoch(long epoch) {
+    this.epoch = epoch;
+    setEpochIsSet(true);
+    return this;
+  }
+
+  public void unsetEpoch() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __EPOCH_ISSET_ID);
+  }
+
+  /** Returns true if field epoch is set (has been assigned a value) and false otherwise */
+  public boolean isSetEpoch() {
+    return EncodingUtils.testBit(__isset_bitfield, __EPOCH_ISSET_ID);
+  }
+
+  public void setEpochIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __EPOCH_ISSET_ID, value);
+  }
+
+  /**
+   * 本次心跳希望领取的 workflow 数, 拉取模式下使用
+   */
+  public int getLeaseCapacity() {
+    return this.leaseCapacity;
+  }
+
+  /**
+   * 本次心跳希望领取的 workflow 数, 拉取模式下使用
+   */
+  public HeartBeatData setLeaseCapacity(int leaseCapacity) {
+    this.leaseCapacity = leaseCapacity;
+    setLeaseCapacityIsSet(true);
+    return this;
+  }
+
+  public void unsetLeaseCapacity() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __LEASECAPACITY_ISSET_ID);
+  }
+
+  /** Returns true if field leaseCapacity is set (has been assigned a value) and false otherwise */
+  public boolean isSetLeaseCapacity() {
+    return EncodingUtils.testBit(__isset_bitfield, __LEASECAPACITY_ISSET_ID);
+  }
+
+  public void setLeaseCapacityIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __LEASECAPACITY_ISSET_ID, value);
+  }
+
+  public int getLabelsSize() {
+    return (this.labels == null) ? 0 : this.labels.size();
+  }
+
+  public java.util.Iterator<String> getLabelsIterator() {
+    return (this.labels == null) ? null : this.labels.iterator();
+  }
+
+  public void addToLabels(String elem) {
+    if (this.labels == null) {
+      this.labels = new ArrayList<String>();
+    }
+    this.labels.add(elem);
+  }
+
+  /**
+   * executor 的标签
+   */
+  public List<String> getLabels() {
+    return this.labels;
+  }
+
+  /**
+   * executor 的标签
+   */
+  public HeartBeatData setLabels(List<String> labels) {
+    this.labels = labels;
+    return this;
+  }
+
+  public void unsetLabels() {
+    this.labels = null;
+  }
+
+  /** Returns true if field labels is set (has been assigned a value) and false otherwise */
+  public boolean isSetLabels() {
+    return this.labels != null;
+  }
+
+  public void setLabelsIsSet(boolean value) {
+    if (!value) {
+      this.labels = null;
+    }
+  }
+
+  /**
+   * 作业进程树占用的 cpu 核数
+   */
+  public double getJobCpuUsed() {
+    return this.jobCpuUsed;
+  }
+
+  /**
+   * 作业进程树占用的 cpu 核数
+   */
+  public HeartBeatData setJobCpuUsed(double jobCpuUsed) {
+    this.jobCpuUsed = jobCpuUsed;
+    setJobCpuUsedIsSet(true);
+    return this;
+  }
+
+  public void unsetJobCpuUsed() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __JOBCPUUSED_ISSET_ID);
+  }
+
+  /** Returns true if field jobCpuUsed is set (has been assigned a value) and false otherwise */
+  public boolean isSetJobCpuUsed() {
+    return EncodingUtils.testBit(__isset_bitfield, __JOBCPUUSED_ISSET_ID);
+  }
+
+  public void setJobCpuUsedIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __JOBCPUUSED_ISSET_ID, value);
+  }
+
+  /**
+   * 作业进程树的常驻内存, 单位字节
+   */
+  public long getJobMemUsed() {
+    return this.jobMemUsed;
+  }
+
+  /**
+   * 作业进程树的常驻内存, 单位字节
+   */
+  public HeartBeatData setJobMemUsed(long jobMemUsed) {
+    this.jobMemUsed = jobMemUsed;
+    setJobMemUsedIsSet(true);
+    return this;
+  }
+
+  public void unsetJobMemUsed() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __JOBMEMUSED_ISSET_ID);
+  }
+
+  /** Returns true if field jobMemUsed is set (has been assigned a value) and false otherwise */
+  public boolean isSetJobMemUsed() {
+    return EncodingUtils.testBit(__isset_bitfield, __JOBMEMUSED_ISSET_ID);
+  }
+
+  public void setJobMemUsedIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __JOBMEMUSED_ISSET_ID, value);
+  }
+
+  /**
+   * 作业进程树的读写速率, 单位字节每秒
+   */
+  public long getJobIoRate() {
+    return this.jobIoRate;
+  }
+
+  /**
+   * 作业进程树的读写速率, 单位字节每秒
+   */
+  public HeartBeatData setJobIoRate(long jobIoRate) {
+    this.jobIoRate = jobIoRate;
+    setJobIoRateIsSet(true);
+    return this;
+  }
+
+  public void unsetJobIoRate() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __JOBIORATE_ISSET_ID);
+  }
+
+  /** Returns true if field jobIoRate is set (has been assigned a value) and false otherwise */
+  public boolean isSetJobIoRate() {
+    return EncodingUtils.testBit(__isset_bitfield, __JOBIORATE_ISSET_ID);
+  }
+
+  public void setJobIoRateIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __JOBIORATE_ISSET_ID, value);
+  }
+
+  /**
+   * 按资源准入时空闲的 cpu 核数, 减去了排队节点的申请, 可能为负数
+   */
+  public double getFreeCpu() {
+    return this.freeCpu;
+  }
+
+  /**
+   * 按资源准入时空闲的 cpu 核数, 减去了排队节点的申请, 可能为负数
+   */
+  public HeartBeatData setFreeCpu(double freeCpu) {
+    this.freeCpu = freeCpu;
+    setFreeCpuIsSet(true);
+    return this;
+  }
+
+  public void unsetFreeCpu() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __FREECPU_ISSET_ID);
+  }
+
+  /** Returns true if field freeCpu is set (has been assigned a value) and false otherwise */
+  public boolean isSetFreeCpu() {
+    return EncodingUtils.testBit(__isset_bitfield, __FREECPU_ISSET_ID);
+  }
+
+  public void setFreeCpuIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __FREECPU_ISSET_ID, value);
+  }
+
+  /**
+   * 按资源准入时空闲的内存, 单位 MB, 减去了排队节点的申请, 可能为负数
+   */
+  public long getFreeMemory() {
+    return this.freeMemory;
+  }
+
+  /**
+   * 按资源准入时空闲的内存, 单位 MB, 减去了排队节点的申请, 可能为负数
+   */
+  public HeartBeatData setFreeMemory(long freeMemory) {
+    this.freeMemory = freeMemory;
+    setFreeMemoryIsSet(true);
+    return this;
+  }
+
+  public void unsetFreeMemory() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __FREEMEMORY_ISSET_ID);
+  }
+
+  /** Returns true if field freeMemory is set (has been assigned a value) and false otherwise */
+  public boolean isSetFreeMemory() {
+    return EncodingUtils.testBit(__isset_bitfield, __FREEMEMORY_ISSET_ID);
+  }
+
+  public void setFreeMemoryIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __FREEMEMORY_ISSET_ID, value);
+  }
+
   public void setFieldValue(_Fields field, Object value) {
     switch (field) {
     case REPORT_DATE:
@@ -429,15 +983,103 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
       }
       break;
 
-    }
-  }
+    case JOB_TYPE_DEMANDS:
+      if (value == null) {
+        unsetJobTypeDemands();
+      } else {
+        setJobTypeDemands((Map<String,Integer>)value);
+      }
+      break;
 
-  public Object getFieldValue(_Fields field) {
-    switch (field) {
-    case REPORT_DATE:
-      return Long.valueOf(getReportDate());
+    case FREE_FLOW_SLOTS:
+      if (value == null) {
+        unsetFreeFlowSlots();
+      } else {
+        setFreeFlowSlots((Integer)value);
+      }
+      break;
 
-    case RECEIVE_DATE:
+    case FREE_NODE_SLOTS:
+      if (value == null) {
+        unsetFreeNodeSlots();
+      } else {
+        setFreeNodeSlots((Integer)value);
+      }
+      break;
+
+    case EPOCH:
+      if (value == null) {
+        unsetEpoch();
+      } else {
+        setEpoch((Long)value);
+      }
+      break;
+
+    case LEASE_CAPACITY:
+      if (value == null) {
+        unsetLeaseCapacity();
+      } else {
+        setLeaseCapacity((Integer)value);
+      }
+      break;
+
+    case LABELS:
+      if (value == null) {
+        unsetLabels();
+      } else {
+        setLabels((List<String>)value);
+      }
+      break;
+
+    case JOB_CPU_USED:
+      if (value == null) {
+        unsetJobCpuUsed();
+      } else {
+        setJobCpuUsed((Double)value);
+      }
+      break;
+
+    case JOB_MEM_USED:
+      if (value == null) {
+        unsetJobMemUsed();
+      } else {
+        setJobMemUsed((Long)value);
+      }
+      break;
+
+    case JOB_IO_RATE:
+      if (value == null) {
+        unsetJobIoRate();
+      } else {
+        setJobIoRate((Long)value);
+      }
+      break;
+
+    case FREE_CPU:
+      if (value == null) {
+        unsetFreeCpu();
+      } else {
+        setFreeCpu((Double)value);
+      }
+      break;
+
+    case FREE_MEMORY:
+      if (value == null) {
+        unsetFreeMemory();
+      } else {
+        setFreeMemory((Long)value);
+      }
+      break;
+
+    }
+  }
+
+  public Object getFieldValue(_Fields field) {
+    switch (field) {
+    case REPORT_DATE:
+      return Long.valueOf(getReportDate());
+
+    case RECEIVE_DATE:
       return Long.valueOf(getReceiveDate());
 
     case CPU_USED:
@@ -449,6 +1091,39 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
     case EXEC_IDS:
       return getExecIds();
 
+    case JOB_TYPE_DEMANDS:
+      return getJobTypeDemands();
+
+    case FREE_FLOW_SLOTS:
+      return Integer.valueOf(getFreeFlowSlots());
+
+    case FREE_NODE_SLOTS:
+      return Integer.valueOf(getFreeNodeSlots());
+
+    case EPOCH:
+      return Long.valueOf(getEpoch());
+
+    case LEASE_CAPACITY:
+      return Integer.valueOf(getLeaseCapacity());
+
+    case LABELS:
+      return getLabels();
+
+    case JOB_CPU_USED:
+      return Double.valueOf(getJobCpuUsed());
+
+    case JOB_MEM_USED:
+      return Long.valueOf(getJobMemUsed());
+
+    case JOB_IO_RATE:
+      return Long.valueOf(getJobIoRate());
+
+    case FREE_CPU:
+      return Double.valueOf(getFreeCpu());
+
+    case FREE_MEMORY:
+      return Long.valueOf(getFreeMemory());
+
     }
     throw new IllegalStateException();
   }
@@ -470,6 +1145,28 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
       return isSetMemUsed();
     case EXEC_IDS:
       return isSetExecIds();
+    case JOB_TYPE_DEMANDS:
+      return isSetJobTypeDemands();
+    case FREE_FLOW_SLOTS:
+      return isSetFreeFlowSlots();
+    case FREE_NODE_SLOTS:
+      return isSetFreeNodeSlots();
+    case EPOCH:
+      return isSetEpoch();
+    case LEASE_CAPACITY:
+      return isSetLeaseCapacity();
+    case LABELS:
+      return isSetLabels();
+    case JOB_CPU_USED:
+      return isSetJobCpuUsed();
+    case JOB_MEM_USED:
+      return isSetJobMemUsed();
+    case JOB_IO_RATE:
+      return isSetJobIoRate();
+    case FREE_CPU:
+      return isSetFreeCpu();
+    case FREE_MEMORY:
+      return isSetFreeMemory();
     }
     throw new IllegalStateException();
   }
@@ -532,6 +1229,105 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
         return false;
     }
 
+    boolean this_present_jobTypeDemands = true && this.isSetJobTypeDemands();
+    boolean that_present_jobTypeDemands = true && that.isSetJobTypeDemands();
+    if (this_present_jobTypeDemands || that_present_jobTypeDemands) {
+      if (!(this_present_jobTypeDemands && that_present_jobTypeDemands))
+        return false;
+      if (!this.jobTypeDemands.equals(that.jobTypeDemands))
+        return false;
+    }
+
+    boolean this_present_freeFlowSlots = true && this.isSetFreeFlowSlots();
+    boolean that_present_freeFlowSlots = true && that.isSetFreeFlowSlots();
+    if (this_present_freeFlowSlots || that_present_freeFlowSlots) {
+      if (!(this_present_freeFlowSlots && that_present_freeFlowSlots))
+        return false;
+      if (this.freeFlowSlots != that.freeFlowSlots)
+        return false;
+    }
+
+    boolean this_present_freeNodeSlots = true && this.isSetFreeNodeSlots();
+    boolean that_present_freeNodeSlots = true && that.isSetFreeNodeSlots();
+    if (this_present_freeNodeSlots || that_present_freeNodeSlots) {
+      if (!(this_present_freeNodeSlots && that_present_freeNodeSlots))
+        return false;
+      if (this.freeNodeSlots != that.freeNodeSlots)
+        return false;
+    }
+
+    boolean this_present_epoch = true && this.isSetEpoch();
+    boolean that_present_epoch = true && that.isSetEpoch();
+    if (this_present_epoch || that_present_epoch) {
+      if (!(this_present_epoch && that_present_epoch))
+        return false;
+      if (this.epoch != that.epoch)
+        return false;
+    }
+
+    boolean this_present_leaseCapacity = true && this.isSetLeaseCapacity();
+    boolean that_present_leaseCapacity = true && that.isSetLeaseCapacity();
+    if (this_present_leaseCapacity || that_present_leaseCapacity) {
+      if (!(this_present_leaseCapacity && that_present_leaseCapacity))
+        return false;
+      if (this.leaseCapacity != that.leaseCapacity)
+        return false;
+    }
+
+    boolean this_present_labels = true && this.isSetLabels();
+    boolean that_present_labels = true && that.isSetLabels();
+    if (this_present_labels || that_present_labels) {
+      if (!(this_present_labels && that_present_labels))
+        return false;
+      if (!this.labels.equals(that.labels))
+        return false;
+    }
+
+    boolean this_present_jobCpuUsed = true && this.isSetJobCpuUsed();
+    boolean that_present_jobCpuUsed = true && that.isSetJobCpuUsed();
+    if (this_present_jobCpuUsed || that_present_jobCpuUsed) {
+      if (!(this_present_jobCpuUsed && that_present_jobCpuUsed))
+        return false;
+      if (this.jobCpuUsed != that.jobCpuUsed)
+        return false;
+    }
+
+    boolean this_present_jobMemUsed = true && this.isSetJobMemUsed();
+    boolean that_present_jobMemUsed = true && that.isSetJobMemUsed();
+    if (this_present_jobMemUsed || that_present_jobMemUsed) {
+      if (!(this_present_jobMemUsed && that_present_jobMemUsed))
+        return false;
+      if (this.jobMemUsed != that.jobMemUsed)
+        return false;
+    }
+
+    boolean this_present_jobIoRate = true && this.isSetJobIoRate();
+    boolean that_present_jobIoRate = true && that.isSetJobIoRate();
+    if (this_present_jobIoRate || that_present_jobIoRate) {
+      if (!(this_present_jobIoRate && that_present_jobIoRate))
+        return false;
+      if (this.jobIoRate != that.jobIoRate)
+        return false;
+    }
+
+    boolean this_present_freeCpu = true && this.isSetFreeCpu();
+    boolean that_present_freeCpu = true && that.isSetFreeCpu();
+    if (this_present_freeCpu || that_present_freeCpu) {
+      if (!(this_present_freeCpu && that_present_freeCpu))
+        return false;
+      if (this.freeCpu != that.freeCpu)
+        return false;
+    }
+
+    boolean this_present_freeMemory = true && this.isSetFreeMemory();
+    boolean that_present_freeMemory = true && that.isSetFreeMemory();
+    if (this_present_freeMemory || that_present_freeMemory) {
+      if (!(this_present_freeMemory && that_present_freeMemory))
+        return false;
+      if (this.freeMemory != that.freeMemory)
+        return false;
+    }
+
     return true;
   }
 
@@ -598,6 +1394,116 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetJobTypeDemands()).compareTo(typedOther.isSetJobTypeDemands());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetJobTypeDemands()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.jobTypeDemands, typedOther.jobTypeDemands);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetFreeFlowSlots()).compareTo(typedOther.isSetFreeFlowSlots());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetFreeFlowSlots()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.freeFlowSlots, typedOther.freeFlowSlots);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetFreeNodeSlots()).compareTo(typedOther.isSetFreeNodeSlots());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetFreeNodeSlots()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.freeNodeSlots, typedOther.freeNodeSlots);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetEpoch()).compareTo(typedOther.isSetEpoch());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetEpoch()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.epoch, typedOther.epoch);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetLeaseCapacity()).compareTo(typedOther.isSetLeaseCapacity());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetLeaseCapacity()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.leaseCapacity, typedOther.leaseCapacity);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetLabels()).compareTo(typedOther.isSetLabels());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetLabels()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.labels, typedOther.labels);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetJobCpuUsed()).compareTo(typedOther.isSetJobCpuUsed());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetJobCpuUsed()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.jobCpuUsed, typedOther.jobCpuUsed);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetJobMemUsed()).compareTo(typedOther.isSetJobMemUsed());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetJobMemUsed()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.jobMemUsed, typedOther.jobMemUsed);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetJobIoRate()).compareTo(typedOther.isSetJobIoRate());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetJobIoRate()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.jobIoRate, typedOther.jobIoRate);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetFreeCpu()).compareTo(typedOther.isSetFreeCpu());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetFreeCpu()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.freeCpu, typedOther.freeCpu);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetFreeMemory()).compareTo(typedOther.isSetFreeMemory());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetFreeMemory()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.freeMemory, typedOther.freeMemory);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -641,6 +1547,80 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
       sb.append(this.execIds);
     }
     first = false;
+    if (isSetJobTypeDemands()) {
+      if (!first) sb.append(", ");
+      sb.append("jobTypeDemands:");
+      if (this.jobTypeDemands == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.jobTypeDemands);
+      }
+      first = false;
+    }
+    if (isSetFreeFlowSlots()) {
+      if (!first) sb.append(", ");
+      sb.append("freeFlowSlots:");
+      sb.append(this.freeFlowSlots);
+      first = false;
+    }
+    if (isSetFreeNodeSlots()) {
+      if (!first) sb.append(", ");
+      sb.append("freeNodeSlots:");
+      sb.append(this.freeNodeSlots);
+      first = false;
+    }
+    if (isSetEpoch()) {
+      if (!first) sb.append(", ");
+      sb.append("epoch:");
+      sb.append(this.epoch);
+      first = false;
+    }
+    if (isSetLeaseCapacity()) {
+      if (!first) sb.append(", ");
+      sb.append("leaseCapacity:");
+      sb.append(this.leaseCapacity);
+      first = false;
+    }
+    if (isSetLabels()) {
+      if (!first) sb.append(", ");
+      sb.append("labels:");
+      if (this.labels == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.labels);
+      }
+      first = false;
+    }
+    if (isSetJobCpuUsed()) {
+      if (!first) sb.append(", ");
+      sb.append("jobCpuUsed:");
+      sb.append(this.jobCpuUsed);
+      first = false;
+    }
+    if (isSetJobMemUsed()) {
+      if (!first) sb.append(", ");
+      sb.append("jobMemUsed:");
+      sb.append(this.jobMemUsed);
+      first = false;
+    }
+    if (isSetJobIoRate()) {
+      if (!first) sb.append(", ");
+      sb.append("jobIoRate:");
+      sb.append(this.jobIoRate);
+      first = false;
+    }
+    if (isSetFreeCpu()) {
+      if (!first) sb.append(", ");
+      sb.append("freeCpu:");
+      sb.append(this.freeCpu);
+      first = false;
+    }
+    if (isSetFreeMemory()) {
+      if (!first) sb.append(", ");
+      sb.append("freeMemory:");
+      sb.append(this.freeMemory);
+      first = false;
+    }
     sb.append(")");
     return sb.toString();
   }
@@ -736,6 +1716,116 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 6: // JOB_TYPE_DEMANDS
+            if (schemeField.type == org.apache.thrift.protocol.TType.MAP) {
+              {
+                org.apache.thrift.protocol.TMap _map_jobTypeDemands = iprot.readMapBegin();
+                struct.jobTypeDemands = new HashMap<String,Integer>(2*_map_jobTypeDemands.size);
+                for (int _i_jobTypeDemands = 0; _i_jobTypeDemands < _map_jobTypeDemands.size; ++_i_jobTypeDemands)
+                {
+                  String _key_jobTypeDemands; // required
+                  int _val_jobTypeDemands; // required
+                  _key_jobTypeDemands = iprot.readString();
+                  _val_jobTypeDemands = iprot.readI32();
+                  struct.jobTypeDemands.put(_key_jobTypeDemands, _val_jobTypeDemands);
+                }
+                iprot.readMapEnd();
+              }
+              struct.setJobTypeDemandsIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 7: // FREE_FLOW_SLOTS
+            if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+              struct.freeFlowSlots = iprot.readI32();
+              struct.setFreeFlowSlotsIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 8: // FREE_NODE_SLOTS
+            if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+              struct.freeNodeSlots = iprot.readI32();
+              struct.setFreeNodeSlotsIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 9: // EPOCH
+            if (schemeField.type == org.apache.thrift.protocol.TType.I64) {
+              struct.epoch = iprot.readI64();
+              struct.setEpochIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 10: // LEASE_CAPACITY
+            if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+              struct.leaseCapacity = iprot.readI32();
+              struct.setLeaseCapacityIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 11: // LABELS
+            if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list_labels = iprot.readListBegin();
+                struct.labels = new ArrayList<String>(_list_labels.size);
+                for (int _i_labels = 0; _i_labels < _list_labels.size; ++_i_labels)
+                {
+                  String _elem_labels; // required
+                  _elem_labels = iprot.readString();
+                  struct.labels.add(_elem_labels);
+                }
+                iprot.readListEnd();
+              }
+              struct.setLabelsIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 12: // JOB_CPU_USED
+            if (schemeField.type == org.apache.thrift.protocol.TType.DOUBLE) {
+              struct.jobCpuUsed = iprot.readDouble();
+              struct.setJobCpuUsedIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 13: // JOB_MEM_USED
+            if (schemeField.type == org.apache.thrift.protocol.TType.I64) {
+              struct.jobMemUsed = iprot.readI64();
+              struct.setJobMemUsedIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 14: // JOB_IO_RATE
+            if (schemeField.type == org.apache.thrift.protocol.TType.I64) {
+              struct.jobIoRate = iprot.readI64();
+              struct.setJobIoRateIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 15: // FREE_CPU
+            if (schemeField.type == org.apache.thrift.protocol.TType.DOUBLE) {
+              struct.freeCpu = iprot.readDouble();
+              struct.setFreeCpuIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 16: // FREE_MEMORY
+            if (schemeField.type == org.apache.thrift.protocol.TType.I64) {
+              struct.freeMemory = iprot.readI64();
+              struct.setFreeMemoryIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -775,6 +1865,80 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
         }
         oprot.writeFieldEnd();
       }
+      if (struct.jobTypeDemands != null) {
+        if (struct.isSetJobTypeDemands()) {
+          oprot.writeFieldBegin(JOB_TYPE_DEMANDS_FIELD_DESC);
+          {
+            oprot.writeMapBegin(new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.STRING, org.apache.thrift.protocol.TType.I32, struct.jobTypeDemands.size()));
+            for (Map.Entry<String, Integer> _iter_jobTypeDemands : struct.jobTypeDemands.entrySet())
+            {
+              oprot.writeString(_iter_jobTypeDemands.getKey());
+              oprot.writeI32(_iter_jobTypeDemands.getValue());
+            }
+            oprot.writeMapEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+      }
+      if (struct.isSetFreeFlowSlots()) {
+        oprot.writeFieldBegin(FREE_FLOW_SLOTS_FIELD_DESC);
+        oprot.writeI32(struct.freeFlowSlots);
+        oprot.writeFieldEnd();
+      }
+      if (struct.isSetFreeNodeSlots()) {
+        oprot.writeFieldBegin(FREE_NODE_SLOTS_FIELD_DESC);
+        oprot.writeI32(struct.freeNodeSlots);
+        oprot.writeFieldEnd();
+      }
+      if (struct.isSetEpoch()) {
+        oprot.writeFieldBegin(EPOCH_FIELD_DESC);
+        oprot.writeI64(struct.epoch);
+        oprot.writeFieldEnd();
+      }
+      if (struct.isSetLeaseCapacity()) {
+        oprot.writeFieldBegin(LEASE_CAPACITY_FIELD_DESC);
+        oprot.writeI32(struct.leaseCapacity);
+        oprot.writeFieldEnd();
+      }
+      if (struct.labels != null) {
+        if (struct.isSetLabels()) {
+          oprot.writeFieldBegin(LABELS_FIELD_DESC);
+          {
+            oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, struct.labels.size()));
+            for (String _iter_labels : struct.labels)
+            {
+              oprot.writeString(_iter_labels);
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+      }
+      if (struct.isSetJobCpuUsed()) {
+        oprot.writeFieldBegin(JOB_CPU_USED_FIELD_DESC);
+        oprot.writeDouble(struct.jobCpuUsed);
+        oprot.writeFieldEnd();
+      }
+      if (struct.isSetJobMemUsed()) {
+        oprot.writeFieldBegin(JOB_MEM_USED_FIELD_DESC);
+        oprot.writeI64(struct.jobMemUsed);
+        oprot.writeFieldEnd();
+      }
+      if (struct.isSetJobIoRate()) {
+        oprot.writeFieldBegin(JOB_IO_RATE_FIELD_DESC);
+        oprot.writeI64(struct.jobIoRate);
+        oprot.writeFieldEnd();
+      }
+      if (struct.isSetFreeCpu()) {
+        oprot.writeFieldBegin(FREE_CPU_FIELD_DESC);
+        oprot.writeDouble(struct.freeCpu);
+        oprot.writeFieldEnd();
+      }
+      if (struct.isSetFreeMemory()) {
+        oprot.writeFieldBegin(FREE_MEMORY_FIELD_DESC);
+        oprot.writeI64(struct.freeMemory);
+        oprot.writeFieldEnd();
+      }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
     }
@@ -808,7 +1972,40 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
       if (struct.isSetExecIds()) {
         optionals.set(4);
       }
-      oprot.writeBitSet(optionals, 5);
+      if (struct.isSetJobTypeDemands()) {
+        optionals.set(5);
+      }
+      if (struct.isSetFreeFlowSlots()) {
+        optionals.set(6);
+      }
+      if (struct.isSetFreeNodeSlots()) {
+        optionals.set(7);
+      }
+      if (struct.isSetEpoch()) {
+        optionals.set(8);
+      }
+      if (struct.isSetLeaseCapacity()) {
+        optionals.set(9);
+      }
+      if (struct.isSetLabels()) {
+        optionals.set(10);
+      }
+      if (struct.isSetJobCpuUsed()) {
+        optionals.set(11);
+      }
+      if (struct.isSetJobMemUsed()) {
+        optionals.set(12);
+      }
+      if (struct.isSetJobIoRate()) {
+        optionals.set(13);
+      }
+      if (struct.isSetFreeCpu()) {
+        optionals.set(14);
+      }
+      if (struct.isSetFreeMemory()) {
+        optionals.set(15);
+      }
+      oprot.writeBitSet(optionals, 16);
       if (struct.isSetReportDate()) {
         oprot.writeI64(struct.reportDate);
       }
@@ -830,12 +2027,58 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
           }
         }
       }
+      if (struct.isSetJobTypeDemands()) {
+        {
+          oprot.writeI32(struct.jobTypeDemands.size());
+          for (Map.Entry<String, Integer> _iter_jobTypeDemands : struct.jobTypeDemands.entrySet())
+          {
+            oprot.writeString(_iter_jobTypeDemands.getKey());
+            oprot.writeI32(_iter_jobTypeDemands.getValue());
+          }
+        }
+      }
+      if (struct.isSetFreeFlowSlots()) {
+        oprot.writeI32(struct.freeFlowSlots);
+      }
+      if (struct.isSetFreeNodeSlots()) {
+        oprot.writeI32(struct.freeNodeSlots);
+      }
+      if (struct.isSetEpoch()) {
+        oprot.writeI64(struct.epoch);
+      }
+      if (struct.isSetLeaseCapacity()) {
+        oprot.writeI32(struct.leaseCapacity);
+      }
+      if (struct.isSetLabels()) {
+        {
+          oprot.writeI32(struct.labels.size());
+          for (String _iter_labels : struct.labels)
+          {
+            oprot.writeString(_iter_labels);
+          }
+        }
+      }
+      if (struct.isSetJobCpuUsed()) {
+        oprot.writeDouble(struct.jobCpuUsed);
+      }
+      if (struct.isSetJobMemUsed()) {
+        oprot.writeI64(struct.jobMemUsed);
+      }
+      if (struct.isSetJobIoRate()) {
+        oprot.writeI64(struct.jobIoRate);
+      }
+      if (struct.isSetFreeCpu()) {
+        oprot.writeDouble(struct.freeCpu);
+      }
+      if (struct.isSetFreeMemory()) {
+        oprot.writeI64(struct.freeMemory);
+      }
     }
 
     @Override
     public void read(org.apache.thrift.protocol.TProtocol prot, HeartBeatData struct) throws org.apache.thrift.TException {
       TTupleProtocol iprot = (TTupleProtocol) prot;
-      BitSet incoming = iprot.readBitSet(5);
+      BitSet incoming = iprot.readBitSet(16);
       if (incoming.get(0)) {
         struct.reportDate = iprot.readI64();
         struct.setReportDateIsSet(true);
@@ -865,6 +2108,70 @@ public class HeartBeatData implements org.apache.thrift.TBase<HeartBeatData, Hea
         }
         struct.setExecIdsIsSet(true);
       }
+      if (incoming.get(5)) {
+        {
+          org.apache.thrift.protocol.TMap _map_jobTypeDemands = new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.STRING, org.apache.thrift.protocol.TType.I32, iprot.readI32());
+          struct.jobTypeDemands = new HashMap<String,Integer>(2*_map_jobTypeDemands.size);
+          for (int _i_jobTypeDemands = 0; _i_jobTypeDemands < _map_jobTypeDemands.size; ++_i_jobTypeDemands)
+          {
+            String _key_jobTypeDemands; // required
+            int _val_jobTypeDemands; // required
+            _key_jobTypeDemands = iprot.readString();
+            _val_jobTypeDemands = iprot.readI32();
+            struct.jobTypeDemands.put(_key_jobTypeDemands, _val_jobTypeDemands);
+          }
+        }
+        struct.setJobTypeDemandsIsSet(true);
+      }
+      if (incoming.get(6)) {
+        struct.freeFlowSlots = iprot.readI32();
+        struct.setFreeFlowSlotsIsSet(true);
+      }
+      if (incoming.get(7)) {
+        struct.freeNodeSlots = iprot.readI32();
+        struct.setFreeNodeSlotsIsSet(true);
+      }
+      if (incoming.get(8)) {
+        struct.epoch = iprot.readI64();
+        struct.setEpochIsSet(true);
+      }
+      if (incoming.get(9)) {
+        struct.leaseCapacity = iprot.readI32();
+        struct.setLeaseCapacityIsSet(true);
+      }
+      if (incoming.get(10)) {
+        {
+          org.apache.thrift.protocol.TList _list_labels = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
+          struct.labels = new ArrayList<String>(_list_labels.size);
+          for (int _i_labels = 0; _i_labels < _list_labels.size; ++_i_labels)
+          {
+            String _elem_labels; // required
+            _elem_labels = iprot.readString();
+            struct.labels.add(_elem_labels);
+          }
+        }
+        struct.setLabelsIsSet(true);
+      }
+      if (incoming.get(11)) {
+        struct.jobCpuUsed = iprot.readDouble();
+        struct.setJobCpuUsedIsSet(true);
+      }
+      if (incoming.get(12)) {
+        struct.jobMemUsed = iprot.readI64();
+        struct.setJobMemUsedIsSet(true);
+      }
+      if (incoming.get(13)) {
+        struct.jobIoRate = iprot.readI64();
+        struct.setJobIoRateIsSet(true);
+      }
+      if (incoming.get(14)) {
+        struct.freeCpu = iprot.readDouble();
+        struct.setFreeCpuIsSet(true);
+      }
+      if (incoming.get(15)) {
+        struct.freeMemory = iprot.readI64();
+        struct.setFreeMemoryIsSet(true);
+      }
     }
   }
 
@@ -6,11 +6,13 @@
  */
 package com.baifendian.swordfish.rpc;
 
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.apache.thrift.EncodingUtils;
 import org.apache.thrift.protocol.TTupleProtocol;
@@ -27,6 +29,9 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
 
   private static final org.apache.thrift.protocol.TField STATUS_FIELD_DESC = new org.apache.thrift.protocol.TField("status", org.apache.thrift.protocol.TType.I32, (short)1);
   private static final org.apache.thrift.protocol.TField MSG_FIELD_DESC = new org.apache.thrift.protocol.TField("msg", org.apache.thrift.protocol.TType.STRING, (short)2);
+  private static final org.apache.thrift.protocol.TField JOB_TYPE_QUOTAS_FIELD_DESC = new org.apache.thrift.protocol.TField("jobTypeQuotas", org.apache.thrift.protocol.TType.MAP, (short)3);
+  private static final org.apache.thrift.protocol.TField LEASED_EXEC_IDS_FIELD_DESC = new org.apache.thrift.protocol.TField("leasedExecIds", org.apache.thrift.protocol.TType.LIST, (short)4);
+  private static final org.apache.thrift.protocol.TField RETRY_AFTER_FIELD_DESC = new org.apache.thrift.protocol.TField("retryAfter", org.apache.thrift.protocol.TType.I32, (short)5);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
   static {
@@ -35,24 +40,48 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
   }
 
   /**
-   * 返回状态码（0-成功，1-失败）
+   * 返回状态码（0-成功，1-失败，2-过载, 稍后重试）
    */
   public int status; // required
   /**
    * 错误信息，当有错误的情况下返回
    */
   public String msg; // required
+  /**
+   * 心跳的返回, 该 executor 各个任务类型分到的集群配额
+   */
+  public Map<String,Integer> jobTypeQuotas; // optional
+  /**
+   * 拉取模式下本次领取到的 exec id
+   */
+  public List<Integer> leasedExecIds; // optional
+  /**
+   * 过载时的返回, 建议多少秒之后重试
+   */
+  public int retryAfter; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   public enum _Fields implements org.apache.thrift.TFieldIdEnum {
     /**
-     * 返回状态码（0-成功，1-失败）
+     * 返回状态码（0-成功，1-失败，2-过载, 稍后重试）
      */
     STATUS((short)1, "status"),
     /**
      * 错误信息，当有错误的情况下返回
      */
-    MSG((short)2, "msg");
+    MSG((short)2, "msg"),
+    /**
+     * 心跳的返回, 该 executor 各个任务类型分到的集群配额
+     */
+    JOB_TYPE_QUOTAS((short)3, "jobTypeQuotas"),
+    /**
+     * 拉取模式下本次领取到的 exec id
+     */
+    LEASED_EXEC_IDS((short)4, "leasedExecIds"),
+    /**
+     * 过载时的返回, 建议多少秒之后重试
+     */
+    RETRY_AFTER((short)5, "retryAfter");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -71,6 +100,12 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
           return STATUS;
         case 2: // MSG
           return MSG;
+        case 3: // JOB_TYPE_QUOTAS
+          return JOB_TYPE_QUOTAS;
+        case 4: // LEASED_EXEC_IDS
+          return LEASED_EXEC_IDS;
+        case 5: // RETRY_AFTER
+          return RETRY_AFTER;
         default:
           return null;
       }
@@ -112,7 +147,9 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
 
   // isset id assignments
   private static final int __STATUS_ISSET_ID = 0;
+  private static final int __RETRYAFTER_ISSET_ID = 1;
   private byte __isset_bitfield = 0;
+  private _Fields optionals[] = {_Fields.JOB_TYPE_QUOTAS,_Fields.LEASED_EXEC_IDS,_Fields.RETRY_AFTER};
   public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -120,6 +157,15 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
     tmpMap.put(_Fields.MSG, new org.apache.thrift.meta_data.FieldMetaData("msg", org.apache.thrift.TFieldRequirementType.DEFAULT, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+    tmpMap.put(_Fields.JOB_TYPE_QUOTAS, new org.apache.thrift.meta_data.FieldMetaData("jobTypeQuotas", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.MapMetaData(org.apache.thrift.protocol.TType.MAP, 
+            new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING), 
+            new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32))));
+    tmpMap.put(_Fields.LEASED_EXEC_IDS, new org.apache.thrift.meta_data.FieldMetaData("leasedExecIds", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+            new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32))));
+    tmpMap.put(_Fields.RETRY_AFTER, new org.apache.thrift.meta_data.FieldMetaData("retryAfter", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(RetInfo.class, metaDataMap);
   }
@@ -146,6 +192,29 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
     if (other.isSetMsg()) {
       this.msg = other.msg;
     }
+    if (other.isSetJobTypeQuotas()) {
+      Map<String,Integer> __this__jobTypeQuotas = new HashMap<String,Integer>();
+      for (Map.Entry<String, Integer> other_element : other.jobTypeQuotas.entrySet()) {
+
+        String other_element_key = other_element.getKey();
+        Integer other_element_value = other_element.getValue();
+
+        String __this__jobTypeQuotas_copy_key = other_element_key;
+
+        Integer __this__jobTypeQuotas_copy_value = other_element_value;
+
+        __this__jobTypeQuotas.put(__this__jobTypeQuotas_copy_key, __this__jobTypeQuotas_copy_value);
+      }
+      this.jobTypeQuotas = __this__jobTypeQuotas;
+    }
+    if (other.isSetLeasedExecIds()) {
+      List<Integer> __this__leasedExecIds = new ArrayList<Integer>();
+      for (Integer other_element : other.leasedExecIds) {
+        __this__leasedExecIds.add(other_element);
+      }
+      this.leasedExecIds = __this__leasedExecIds;
+    }
+    this.retryAfter = other.retryAfter;
   }
 
   public RetInfo deepCopy() {
@@ -157,17 +226,21 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
     setStatusIsSet(false);
     this.status = 0;
     this.msg = null;
+    this.jobTypeQuotas = null;
+    this.leasedExecIds = null;
+    setRetryAfterIsSet(false);
+    this.retryAfter = 0;
   }
 
   /**
-   * 返回状态码（0-成功，1-失败）
+   * 返回状态码（0-成功，1-失败，2-过载, 稍后重试）
    */
   public int getStatus() {
     return this.status;
   }
 
   /**
-   * 返回状态码（0-成功，1-失败）
+   * 返回状态码（0-成功，1-失败，2-过载, 稍后重试）
    */
   public RetInfo setStatus(int status) {
     this.status = status;
@@ -218,6 +291,121 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
     }
   }
 
+  public int getJobTypeQuotasSize() {
+    return (this.jobTypeQuotas == null) ? 0 : this.jobTypeQuotas.size();
+  }
+
+  public void putToJobTypeQuotas(String key, int val) {
+    if (this.jobTypeQuotas == null) {
+      this.jobTypeQuotas = new HashMap<String,Integer>();
+    }
+    this.jobTypeQuotas.put(key, val);
+  }
+
+  /**
+   * 心跳的返回, 该 executor 各个任务类型分到的集群配额
+   */
+  public Map<String,Integer> getJobTypeQuotas() {
+    return this.jobTypeQuotas;
+  }
+
+  /**
+   * 心跳的返回, 该 executor 各个任务类型分到的集群配额
+   */
+  public RetInfo setJobTypeQuotas(Map<String,Integer> jobTypeQuotas) {
+    this.jobTypeQuotas = jobTypeQuotas;
+    return this;
+  }
+
+  public void unsetJobTypeQuotas() {
+    this.jobTypeQuotas = null;
+  }
+
+  /** Returns true if field jobTypeQuotas is set (has been assigned a value) and false otherwise */
+  public boolean isSetJobTypeQuotas() {
+    return this.jobTypeQuotas != null;
+  }
+
+  public void setJobTypeQuotasIsSet(boolean value) {
+    if (!value) {
+      this.jobTypeQuotas = null;
+    }
+  }
+
+  public int getLeasedExecIdsSize() {
+    return (this.leasedExecIds == null) ? 0 : this.leasedExecIds.size();
+  }
+
+  public java.util.Iterator<Integer> getLeasedExecIdsIterator() {
+    return (this.leasedExecIds == null) ? null : this.leasedExecIds.iterator();
+  }
+
+  public void addToLeasedExecIds(int elem) {
+    if (this.leasedExecIds == null) {
+      this.leasedExecIds = new ArrayList<Integer>();
+    }
+    this.leasedExecIds.add(elem);
+  }
+
+  /**
+   * 拉取模式下本次领取到的 exec id
+   */
+  public List<Integer> getLeasedExecIds() {
+    return this.leasedExecIds;
+  }
+
+  /**
+   * 拉取模式下本次领取到的 exec id
+   */
+  public RetInfo setLeasedExecIds(List<Integer> leasedExecIds) {
+    this.leasedExecIds = leasedExecIds;
+    return this;
+  }
+
+  public void unsetLeasedExecIds() {
+    this.leasedExecIds = null;
+  }
+
+  /** Returns true if field leasedExecIds is set (has been assigned a value) and false otherwise */
+  public boolean isSetLeasedExecIds() {
+    return this.leasedExecIds != null;
+  }
+
+  public void setLeasedExecIdsIsSet(boolean value) {
+    if (!value) {
+      this.leasedExecIds = null;
+    }
+  }
+
+  /**
+   * 过载时的返回, 建议多少秒之后重试
+   */
+  public int getRetryAfter() {
+    return this.retryAfter;
+  }
+
+  /**
+   * 过载时的返回, 建议多少秒之后重试
+   */
+  public RetInfo setRetryAfter(int retryAfter) {
+    this.retryAfter = retryAfter;
+    setRetryAfterIsSet(true);
+    return this;
+  }
+
+  public void unsetRetryAfter() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __RETRYAFTER_ISSET_ID);
+  }
+
+  /** Returns true if field retryAfter is set (has been assigned a value) and false otherwise */
+  public boolean isSetRetryAfter() {
+    return EncodingUtils.testBit(__isset_bitfield, __RETRYAFTER_ISSET_ID);
+  }
+
+  public void setRetryAfterIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __RETRYAFTER_ISSET_ID, value);
+  }
+
   public void setFieldValue(_Fields field, Object value) {
     switch (field) {
     case STATUS:
@@ -236,6 +424,30 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
       }
       break;
 
+    case JOB_TYPE_QUOTAS:
+      if (value == null) {
+        unsetJobTypeQuotas();
+      } else {
+        setJobTypeQuotas((Map<String,Integer>)value);
+      }
+      break;
+
+    case LEASED_EXEC_IDS:
+      if (value == null) {
+        unsetLeasedExecIds();
+      } else {
+        setLeasedExecIds((List<Integer>)value);
+      }
+      break;
+
+    case RETRY_AFTER:
+      if (value == null) {
+        unsetRetryAfter();
+      } else {
+        setRetryAfter((Integer)value);
+      }
+      break;
+
     }
   }
 
@@ -247,6 +459,15 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
     case MSG:
       return getMsg();
 
+    case JOB_TYPE_QUOTAS:
+      return getJobTypeQuotas();
+
+    case LEASED_EXEC_IDS:
+      return getLeasedExecIds();
+
+    case RETRY_AFTER:
+      return Integer.valueOf(getRetryAfter());
+
     }
     throw new IllegalStateException();
   }
@@ -262,6 +483,12 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
       return isSetStatus();
     case MSG:
       return isSetMsg();
+    case JOB_TYPE_QUOTAS:
+      return isSetJobTypeQuotas();
+    case LEASED_EXEC_IDS:
+      return isSetLeasedExecIds();
+    case RETRY_AFTER:
+      return isSetRetryAfter();
     }
     throw new IllegalStateException();
   }
@@ -297,6 +524,33 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
         return false;
     }
 
+    boolean this_present_jobTypeQuotas = true && this.isSetJobTypeQuotas();
+    boolean that_present_jobTypeQuotas = true && that.isSetJobTypeQuotas();
+    if (this_present_jobTypeQuotas || that_present_jobTypeQuotas) {
+      if (!(this_present_jobTypeQuotas && that_present_jobTypeQuotas))
+        return false;
+      if (!this.jobTypeQuotas.equals(that.jobTypeQuotas))
+        return false;
+    }
+
+    boolean this_present_leasedExecIds = true && this.isSetLeasedExecIds();
+    boolean that_present_leasedExecIds = true && that.isSetLeasedExecIds();
+    if (this_present_leasedExecIds || that_present_leasedExecIds) {
+      if (!(this_present_leasedExecIds && that_present_leasedExecIds))
+        return false;
+      if (!this.leasedExecIds.equals(that.leasedExecIds))
+        return false;
+    }
+
+    boolean this_present_retryAfter = true && this.isSetRetryAfter();
+    boolean that_present_retryAfter = true && that.isSetRetryAfter();
+    if (this_present_retryAfter || that_present_retryAfter) {
+      if (!(this_present_retryAfter && that_present_retryAfter))
+        return false;
+      if (this.retryAfter != that.retryAfter)
+        return false;
+    }
+
     return true;
   }
 
@@ -333,6 +587,36 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetJobTypeQuotas()).compareTo(typedOther.isSetJobTypeQuotas());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetJobTypeQuotas()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.jobTypeQuotas, typedOther.jobTypeQuotas);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetLeasedExecIds()).compareTo(typedOther.isSetLeasedExecIds());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetLeasedExecIds()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.leasedExecIds, typedOther.leasedExecIds);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetRetryAfter()).compareTo(typedOther.isSetRetryAfter());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetRetryAfter()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.retryAfter, typedOther.retryAfter);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -364,6 +648,32 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
       sb.append(this.msg);
     }
     first = false;
+    if (isSetJobTypeQuotas()) {
+      if (!first) sb.append(", ");
+      sb.append("jobTypeQuotas:");
+      if (this.jobTypeQuotas == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.jobTypeQuotas);
+      }
+      first = false;
+    }
+    if (isSetLeasedExecIds()) {
+      if (!first) sb.append(", ");
+      sb.append("leasedExecIds:");
+      if (this.leasedExecIds == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.leasedExecIds);
+      }
+      first = false;
+    }
+    if (isSetRetryAfter()) {
+      if (!first) sb.append(", ");
+      sb.append("retryAfter:");
+      sb.append(this.retryAfter);
+      first = false;
+    }
     sb.append(")");
     return sb.toString();
   }
@@ -425,6 +735,52 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 3: // JOB_TYPE_QUOTAS
+            if (schemeField.type == org.apache.thrift.protocol.TType.MAP) {
+              {
+                org.apache.thrift.protocol.TMap _map_jobTypeQuotas = iprot.readMapBegin();
+                struct.jobTypeQuotas = new HashMap<String,Integer>(2*_map_jobTypeQuotas.size);
+                for (int _i_jobTypeQuotas = 0; _i_jobTypeQuotas < _map_jobTypeQuotas.size; ++_i_jobTypeQuotas)
+                {
+                  String _key_jobTypeQuotas; // required
+                  int _val_jobTypeQuotas; // required
+                  _key_jobTypeQuotas = iprot.readString();
+                  _val_jobTypeQuotas = iprot.readI32();
+                  struct.jobTypeQuotas.put(_key_jobTypeQuotas, _val_jobTypeQuotas);
+                }
+                iprot.readMapEnd();
+              }
+              struct.setJobTypeQuotasIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 4: // LEASED_EXEC_IDS
+            if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list_leasedExecIds = iprot.readListBegin();
+                struct.leasedExecIds = new ArrayList<Integer>(_list_leasedExecIds.size);
+                for (int _i_leasedExecIds = 0; _i_leasedExecIds < _list_leasedExecIds.size; ++_i_leasedExecIds)
+                {
+                  int _elem_leasedExecIds; // required
+                  _elem_leasedExecIds = iprot.readI32();
+                  struct.leasedExecIds.add(_elem_leasedExecIds);
+                }
+                iprot.readListEnd();
+              }
+              struct.setLeasedExecIdsIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 5: // RETRY_AFTER
+            if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+              struct.retryAfter = iprot.readI32();
+              struct.setRetryAfterIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -448,6 +804,40 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
         oprot.writeString(struct.msg);
         oprot.writeFieldEnd();
       }
+      if (struct.jobTypeQuotas != null) {
+        if (struct.isSetJobTypeQuotas()) {
+          oprot.writeFieldBegin(JOB_TYPE_QUOTAS_FIELD_DESC);
+          {
+            oprot.writeMapBegin(new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.STRING, org.apache.thrift.protocol.TType.I32, struct.jobTypeQuotas.size()));
+            for (Map.Entry<String, Integer> _iter_jobTypeQuotas : struct.jobTypeQuotas.entrySet())
+            {
+              oprot.writeString(_iter_jobTypeQuotas.getKey());
+              oprot.writeI32(_iter_jobTypeQuotas.getValue());
+            }
+            oprot.writeMapEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+      }
+      if (struct.leasedExecIds != null) {
+        if (struct.isSetLeasedExecIds()) {
+          oprot.writeFieldBegin(LEASED_EXEC_IDS_FIELD_DESC);
+          {
+            oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.I32, struct.leasedExecIds.size()));
+            for (int _iter_leasedExecIds : struct.leasedExecIds)
+            {
+              oprot.writeI32(_iter_leasedExecIds);
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+      }
+      if (struct.isSetRetryAfter()) {
+        oprot.writeFieldBegin(RETRY_AFTER_FIELD_DESC);
+        oprot.writeI32(struct.retryAfter);
+        oprot.writeFieldEnd();
+      }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
     }
@@ -472,19 +862,50 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
       if (struct.isSetMsg()) {
         optionals.set(1);
       }
-      oprot.writeBitSet(optionals, 2);
+      if (struct.isSetJobTypeQuotas()) {
+        optionals.set(2);
+      }
+      if (struct.isSetLeasedExecIds()) {
+        optionals.set(3);
+      }
+      if (struct.isSetRetryAfter()) {
+        optionals.set(4);
+      }
+      oprot.writeBitSet(optionals, 5);
       if (struct.isSetStatus()) {
         oprot.writeI32(struct.status);
       }
       if (struct.isSetMsg()) {
         oprot.writeString(struct.msg);
       }
+      if (struct.isSetJobTypeQuotas()) {
+        {
+          oprot.writeI32(struct.jobTypeQuotas.size());
+          for (Map.Entry<String, Integer> _iter_jobTypeQuotas : struct.jobTypeQuotas.entrySet())
+          {
+            oprot.writeString(_iter_jobTypeQuotas.getKey());
+            oprot.writeI32(_iter_jobTypeQuotas.getValue());
+          }
+        }
+      }
+      if (struct.isSetLeasedExecIds()) {
+        {
+          oprot.writeI32(struct.leasedExecIds.size());
+          for (int _iter_leasedExecIds : struct.leasedExecIds)
+          {
+            oprot.writeI32(_iter_leasedExecIds);
+          }
+        }
+      }
+      if (struct.isSetRetryAfter()) {
+        oprot.writeI32(struct.retryAfter);
+      }
     }
 
     @Override
     public void read(org.apache.thrift.protocol.TProtocol prot, RetInfo struct) throws org.apache.thrift.TException {
       TTupleProtocol iprot = (TTupleProtocol) prot;
-      BitSet incoming = iprot.readBitSet(2);
+      BitSet incoming = iprot.readBitSet(5);
       if (incoming.get(0)) {
         struct.status = iprot.readI32();
         struct.setStatusIsSet(true);
@@ -493,6 +914,38 @@ public class RetInfo implements org.apache.thrift.TBase<RetInfo, RetInfo._Fields
         struct.msg = iprot.readString();
         struct.setMsgIsSet(true);
       }
+      if (incoming.get(2)) {
+        {
+          org.apache.thrift.protocol.TMap _map_jobTypeQuotas = new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.STRING, org.apache.thrift.protocol.TType.I32, iprot.readI32());
+          struct.jobTypeQuotas = new HashMap<String,Integer>(2*_map_jobTypeQuotas.size);
+          for (int _i_jobTypeQuotas = 0; _i_jobTypeQuotas < _map_jobTypeQuotas.size; ++_i_jobTypeQuotas)
+          {
+            String _key_jobTypeQuotas; // required
+            int _val_jobTypeQuotas; // required
+            _key_jobTypeQuotas = iprot.readString();
+            _val_jobTypeQuotas = iprot.readI32();
+            struct.jobTypeQuotas.put(_key_jobTypeQuotas, _val_jobTypeQuotas);
+          }
+        }
+        struct.setJobTypeQuotasIsSet(true);
+      }
+      if (incoming.get(3)) {
+        {
+          org.apache.thrift.protocol.TList _list_leasedExecIds = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.I32, iprot.readI32());
+          struct.leasedExecIds = new ArrayList<Integer>(_list_leasedExecIds.size);
+          for (int _i_leasedExecIds = 0; _i_leasedExecIds < _list_leasedExecIds.size; ++_i_leasedExecIds)
+          {
+            int _elem_leasedExecIds; // required
+            _elem_leasedExecIds = iprot.readI32();
+            struct.leasedExecIds.add(_elem_leasedExecIds);
+          }
+        }
+        struct.setLeasedExecIdsIsSet(true);
+      }
+      if (incoming.get(4)) {
+        struct.retryAfter = iprot.readI32();
+        struct.setRetryAfterIsSet(true);
+      }
     }
   }
 
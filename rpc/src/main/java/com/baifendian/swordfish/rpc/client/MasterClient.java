@@ -21,10 +21,9 @@ import com.baifendian.swordfish.rpc.MasterService;
 import com.baifendian.swordfish.rpc.RetInfo;
 import com.baifendian.swordfish.rpc.RetResultInfo;
 import com.baifendian.swordfish.rpc.ScheduleInfo;
+import com.baifendian.swordfish.rpc.config.RpcConfig;
 import org.apache.thrift.TException;
-import org.apache.thrift.protocol.TBinaryProtocol;
 import org.apache.thrift.protocol.TProtocol;
-import org.apache.thrift.transport.TSocket;
 import org.apache.thrift.transport.TTransport;
 import org.apache.thrift.transport.TTransportException;
 import org.slf4j.Logger;
@@ -95,10 +94,10 @@ public class MasterClient {
    * @return 成功返回 true, 否则返回 false
    */
   private boolean connect() {
-    tTransport = new TSocket(host, port, CONNECTION_TIMEOUT);
+    tTransport = RpcConfig.getClientTransport(host, port, CONNECTION_TIMEOUT);
 
     try {
-      TProtocol protocol = new TBinaryProtocol(tTransport);
+      TProtocol protocol = RpcConfig.getClientProtocol(tTransport);
 
       client = new MasterService.Client(protocol);
       tTransport.open();
@@ -120,14 +119,16 @@ public class MasterClient {
   }
 
   /**
-   * 报告状态, 用于 exec-server
+   * 报告状态, 用于 exec-server, 失败会重试
+   *
+   * @return master 的返回, 失败时返回 null
    */
-  public boolean executorReport(String clientHost, int clientPort, HeartBeatData heartBeatData) {
-    boolean result = false;
+  public RetInfo executorReport(String clientHost, int clientPort, HeartBeatData heartBeatData) {
+    RetInfo result = null;
 
     for (int i = 0; i < retries; i++) {
       result = executorReportOne(clientHost, clientPort, heartBeatData);
-      if (result) {
+      if (result != null) {
         break;
       }
 
@@ -135,7 +136,7 @@ public class MasterClient {
         Thread.sleep(HEARTBEAT_INTERVAL);
       } catch (InterruptedException e) {
         logger.error("report info error", e);
-        return false;
+        return null;
       }
     }
 
@@ -144,30 +145,31 @@ public class MasterClient {
 
   /**
    * 报告状态, 用于 exec-server
+   *
+   * @return master 的返回, 包含分配给该 executor 的任务类型配额, 失败时返回 null
    */
-  public boolean executorReportOne(String clientHost, int clientPort, HeartBeatData heartBeatData) {
+  public RetInfo executorReportOne(String clientHost, int clientPort, HeartBeatData heartBeatData) {
     if (!connect()) {
       close();
-      return false;
+      return null;
     }
 
     try {
       RetInfo retInfo = client.executorReport(clientHost, clientPort, heartBeatData);
       if (retInfo.getStatus() != 0) {
         logger.error("executor report return information {}", retInfo.getMsg());
-        return false;
+        return null;
       }
+
+      return retInfo;
     } catch (TException e) {
       logger.error("report info error", e);
-      return false;
+      return null;
     } finally {
       close();
     }
-
-    return true;
   }
 
-
   /**
    * 下线一个 executor, 用于 exec-server
    */
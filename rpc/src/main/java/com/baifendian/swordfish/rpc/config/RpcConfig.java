@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.rpc.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * thrift 服务端模式以及协议的配置 <p>
+ *
+ * master, executor 和 web-server 共用同一份配置 (common/rpc.properties), 客户端和服务端的传输层和协议必须一致:
+ * 非阻塞的服务端只支持 {@link TFramedTransport}, 此时客户端也要使用 framed 的传输层.
+ */
+public class RpcConfig {
+
+  private static final Logger logger = LoggerFactory.getLogger(RpcConfig.class);
+
+  /**
+   * 服务端模式
+   */
+  public enum ServerMode {
+    /**
+     * 每个连接占用一个线程, 阻塞 IO
+     */
+    THREAD_POOL,
+
+    /**
+     * 一个 selector 线程处理 IO, 请求交给工作线程池
+     */
+    HSHA,
+
+    /**
+     * 一个 accept 线程和多个 selector 线程处理 IO, 请求交给工作线程池
+     */
+    THREADED_SELECTOR;
+
+    /**
+     * 是否使用 framed 的传输层
+     */
+    public boolean isFramed() {
+      return this != THREAD_POOL;
+    }
+  }
+
+  /**
+   * 协议
+   */
+  public enum Protocol {
+    BINARY, COMPACT
+  }
+
+  /**
+   * 服务端模式
+   */
+  private static ServerMode serverMode = ServerMode.THREAD_POOL;
+
+  /**
+   * 协议
+   */
+  private static Protocol protocol = Protocol.BINARY;
+
+  /**
+   * THREADED_SELECTOR 模式下 selector 线程数
+   */
+  private static int selectorThreads = 2;
+
+  /**
+   * framed 传输层单个帧的最大字节数
+   */
+  private static int maxFrameSize = 16 * 1024 * 1024;
+
+  static {
+    Properties properties = new Properties();
+
+    try (InputStream is = RpcConfig.class.getClassLoader()
+        .getResourceAsStream("common/rpc.properties")) {
+      if (is != null) {
+        properties.load(is);
+      }
+    } catch (IOException e) {
+      logger.error("load rpc config exception", e);
+    }
+
+    serverMode = ServerMode.valueOf(properties
+        .getProperty("rpc.server.mode", serverMode.name()).trim().toUpperCase());
+    protocol = Protocol.valueOf(properties
+        .getProperty("rpc.protocol", protocol.name()).trim().toUpperCase());
+    selectorThreads = Integer.parseInt(properties
+        .getProperty("rpc.selector.threads", String.valueOf(selectorThreads)).trim());
+    maxFrameSize = Integer.parseInt(properties
+        .getProperty("rpc.max.frame.size", String.valueOf(maxFrameSize)).trim());
+
+    logger.info("rpc server mode: {}, protocol: {}", serverMode, protocol);
+  }
+
+  public static ServerMode getServerMode() {
+    return serverMode;
+  }
+
+  public static Protocol getProtocol() {
+    return protocol;
+  }
+
+  public static int getSelectorThreads() {
+    return selectorThreads;
+  }
+
+  public static int getMaxFrameSize() {
+    return maxFrameSize;
+  }
+
+  /**
+   * 得到服务端的协议工厂
+   */
+  public static TProtocolFactory getProtocolFactory(Protocol protocol) {
+    switch (protocol) {
+      case COMPACT:
+        return new TCompactProtocol.Factory();
+      case BINARY:
+      default:
+        return new TBinaryProtocol.Factory();
+    }
+  }
+
+  /**
+   * 得到服务端的传输层工厂
+   */
+  public static TTransportFactory getTransportFactory(ServerMode serverMode) {
+    return serverMode.isFramed() ? new TFramedTransport.Factory(maxFrameSize)
+        : new TTransportFactory();
+  }
+
+  /**
+   * 按照配置创建客户端的传输层
+   *
+   * @param host 服务端地址
+   * @param port 服务端端口
+   * @param timeout 超时时间, 单位毫秒
+   */
+  public static TTransport getClientTransport(String host, int port, int timeout) {
+    return getClientTransport(host, port, timeout, serverMode);
+  }
+
+  /**
+   * 创建客户端的传输层, 和服务端模式对应
+   */
+  public static TTransport getClientTransport(String host, int port, int timeout,
+      ServerMode serverMode) {
+    TSocket socket = new TSocket(host, port, timeout);
+
+    return serverMode.isFramed() ? new TFramedTransport(socket, maxFrameSize) : socket;
+  }
+
+  /**
+   * 按照配置创建客户端的协议
+   */
+  public static TProtocol getClientProtocol(TTransport transport) {
+    return getClientProtocol(transport, protocol);
+  }
+
+  /**
+   * 创建客户端的协议
+   */
+  public static TProtocol getClientProtocol(TTransport transport, Protocol protocol) {
+    return getProtocolFactory(protocol).getProtocol(transport);
+  }
+}
@@ -5,14 +5,29 @@ namespace java com.baifendian.swordfish.rpc
  */
 struct RetInfo {
   /**
-   * 返回状态码（0-成功，1-失败）
+   * 返回状态码（0-成功，1-失败，2-过载, 稍后重试）
    */
   1: i32 status,
 
   /**
    * 错误信息，当有错误的情况下返回
    */
-  2: string msg
+  2: string msg,
+
+  /**
+   * 心跳的返回, 该 executor 各个任务类型分到的集群配额
+   */
+  3: optional map<string,i32> jobTypeQuotas,
+
+  /**
+   * 心跳的返回, 拉取模式下该 executor 本次领取到的 workflow exec id
+   */
+  4: optional list<i32> leasedExecIds,
+
+  /**
+   * 过载时的返回, 建议多少秒之后重试
+   */
+  5: optional i32 retryAfter
 }
 
 /**
@@ -106,9 +121,64 @@ struct HeartBeatData {
   4: double memUsed,
 
   /**
-   * workflow execId list
+   * 正在运行的 workflow exec id
+   */
+  5: list<i32> execIds,
+
+  /**
+   * 各个任务类型正在运行和排队的节点数
+   */
+  6: optional map<string,i32> jobTypeDemands,
+
+  /**
+   * 空闲的 flow 执行槽位数
+   */
+  7: optional i32 freeFlowSlots,
+
+  /**
+   * 空闲的 node 执行槽位数
+   */
+  8: optional i32 freeNodeSlots,
+
+  /**
+   * executor 的 epoch, 每次启动时递增, 用于识别 executor 重启
+   */
+  9: optional i64 epoch,
+
+  /**
+   * 拉取模式下本次希望领取的 workflow 数, 为 0 表示不再接收新的 workflow
+   */
+  10: optional i32 leaseCapacity,
+
+  /**
+   * executor 的标签, 拉取模式下只领取没有标签或者标签匹配的 workflow
+   */
+  11: optional list<string> labels,
+
+  /**
+   * 作业进程树占用的 cpu 核数
+   */
+  12: optional double jobCpuUsed,
+
+  /**
+   * 作业进程树的常驻内存, 单位字节
+   */
+  13: optional i64 jobMemUsed,
+
+  /**
+   * 作业进程树的读写速率, 单位字节每秒
+   */
+  14: optional i64 jobIoRate,
+
+  /**
+   * 按资源准入时空闲的 cpu 核数, 减去了排队节点的申请, 可能为负数
+   */
+  15: optional double freeCpu,
+
+  /**
+   * 按资源准入时空闲的内存, 单位 MB, 减去了排队节点的申请, 可能为负数
    */
-  5: list<i32> execIds
+  16: optional i64 freeMemory
 }
 
 /**
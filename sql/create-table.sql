@@ -147,6 +147,8 @@ CREATE TABLE `schedules` (
   `notify_type` tinyint(4) NOT NULL COMMENT 'notify type',
   `notify_mails` text DEFAULT NULL COMMENT 'notify emails',
   `timeout` int(11) NOT NULL COMMENT 'timeout, unit: seconds',
+  `flow_priority` tinyint(4) NOT NULL DEFAULT 2 COMMENT 'flow priority, 0-lowest 1-low 2-medium 3-high 4-highest',
+  `deadline` int(11) DEFAULT NULL COMMENT 'deadline, seconds after the schedule time, null means no deadline',
   `create_time` datetime NOT NULL COMMENT 'create time of this records',
   `modify_time` datetime NOT NULL COMMENT 'modify time of this records',
   `owner` int(11) NOT NULL COMMENT 'owner id of the schedule',
@@ -178,6 +180,8 @@ CREATE TABLE `execution_flows` (
   `notify_type` tinyint(4) DEFAULT NULL COMMENT 'notify type',
   `notify_mails` text DEFAULT NULL COMMENT 'notify emails',
   `timeout` int(11) NOT NULL COMMENT 'timeout, unit: seconds',
+  `flow_priority` tinyint(4) NOT NULL DEFAULT 2 COMMENT 'flow priority, 0-lowest 1-low 2-medium 3-high 4-highest',
+  `deadline` datetime DEFAULT NULL COMMENT 'time the exec should be finished before, null means no deadline',
   `status` tinyint(4) NOT NULL COMMENT 'exec status',
   `extras` text DEFAULT NULL COMMENT 'extra information of the flows',
   PRIMARY KEY (`id`),
@@ -198,6 +202,12 @@ CREATE TABLE `execution_nodes` (
   `job_links` text DEFAULT NULL COMMENT 'job links, is a json array, element is a string, used for track the job',
   `job_id` varchar(64) NOT NULL COMMENT 'job id',
   `status` tinyint(4) NOT NULL COMMENT 'status',
+  `cpu_peak` double DEFAULT NULL COMMENT 'peak cpu cores used by the process tree of the node',
+  `cpu_avg` double DEFAULT NULL COMMENT 'average cpu cores used by the process tree of the node',
+  `mem_peak` bigint(20) DEFAULT NULL COMMENT 'peak rss of the process tree of the node, unit: bytes',
+  `mem_avg` bigint(20) DEFAULT NULL COMMENT 'average rss of the process tree of the node, unit: bytes',
+  `io_read` bigint(20) DEFAULT NULL COMMENT 'bytes read from storage by the process tree of the node',
+  `io_write` bigint(20) DEFAULT NULL COMMENT 'bytes written to storage by the process tree of the node',
   PRIMARY KEY (`exec_id`, `name`),
   FOREIGN KEY (`exec_id`) REFERENCES `execution_flows`(`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
@@ -219,7 +229,10 @@ CREATE TABLE `ad_hocs` (
   `create_time` datetime NOT NULL COMMENT 'create time of the ad hoc query',
   `start_time` datetime DEFAULT NULL COMMENT 'start time of this exec',
   `end_time` datetime DEFAULT NULL COMMENT 'end time of this exec',
+  `fingerprint` varchar(64) DEFAULT NULL COMMENT 'fingerprint of the normalized query, user, queue and udfs, null if not cacheable',
+  `cache_source` int(11) DEFAULT NULL COMMENT 'exec id which the result is copied from, null if not a cache hit',
   PRIMARY KEY (`id`),
+  KEY `fingerprint_end_time` (`fingerprint`, `end_time`),
   FOREIGN KEY (`project_id`) REFERENCES `project`(`id`) ON DELETE CASCADE,
   FOREIGN KEY (`owner`) REFERENCES `user`(`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
@@ -230,7 +243,11 @@ CREATE TABLE `ad_hoc_results` (
   `exec_id` int(11) NOT NULL COMMENT 'exec id of ad hoc query',
   `index` int(11) NOT NULL COMMENT 'index of the stm',
   `stm` LONGTEXT NOT NULL COMMENT 'sql clause',
-  `result` LONGTEXT CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci DEFAULT NULL COMMENT 'result of this exec',
+  `result` LONGTEXT CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci DEFAULT NULL COMMENT 'result of this exec, only the first page if result is spilled to segments',
+  `row_count` bigint(20) NOT NULL DEFAULT 0 COMMENT 'total rows of the result',
+  `result_path` varchar(256) DEFAULT NULL COMMENT 'hdfs dir of the result segments, null if the result has only one page',
+  `segment_count` int(11) NOT NULL DEFAULT 0 COMMENT 'count of the result segments',
+  `segment_rows` int(11) NOT NULL DEFAULT 0 COMMENT 'rows of each result segment',
   `status` tinyint(4) NOT NULL COMMENT 'status of this exec',
   `create_time` datetime NOT NULL COMMENT 'create time of the records',
   `start_time` datetime DEFAULT NULL COMMENT 'start time of this exec',
@@ -242,13 +259,43 @@ CREATE TABLE `ad_hoc_results` (
 -- `master_server` table
 DROP TABLE If Exists `master_server`;
 CREATE TABLE `master_server` (
-  `id` int(11) NOT NULL AUTO_INCREMENT COMMENT 'jobExecManager id',
-  `host` varchar(20) NOT NULL COMMENT 'ip address of the jobExecManager',
-  `port` int(11) NOT NULL COMMENT 'port of the jobExecManager',
+  `id` int(11) NOT NULL COMMENT 'lease id, only one row with id 1',
+  `host` varchar(20) NOT NULL COMMENT 'ip address of the active master',
+  `port` int(11) NOT NULL COMMENT 'port of the active master',
+  `epoch` bigint(20) NOT NULL DEFAULT 0 COMMENT 'fencing token, increase when a master acquire the lease',
+  `lease_expire` datetime(3) NOT NULL COMMENT 'expire time of the lease, by the clock of the database',
   `create_time` datetime NOT NULL COMMENT 'create time of the records',
   `modify_time` datetime NOT NULL COMMENT 'last modify time of the records',
-  PRIMARY KEY (`id`),
-  UNIQUE KEY `host_port` (`host`, `port`)
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+-- `dispatch_queue` table, needs MySQL 8.0+ for the descending index
+DROP TABLE If Exists `dispatch_queue`;
+CREATE TABLE `dispatch_queue` (
+  `exec_id` int(11) NOT NULL COMMENT 'exec id of the workflow waiting for dispatch',
+  `project_name` varchar(64) DEFAULT NULL COMMENT 'project of the workflow, fair share and running quota are per project',
+  `host` varchar(20) DEFAULT NULL COMMENT 'suggested executor host, null means any',
+  `port` int(11) DEFAULT NULL COMMENT 'suggested executor port',
+  `label` varchar(64) DEFAULT NULL COMMENT 'only executors with this label can lease it in pull mode, null means any',
+  `priority` int(11) NOT NULL DEFAULT 0 COMMENT 'higher priority is dispatched first in the same project',
+  `deadline` datetime DEFAULT NULL COMMENT 'earlier deadline is dispatched first in the same priority, null is the last',
+  `not_before` datetime NOT NULL COMMENT 'not dispatched before this time',
+  `claim_token` varchar(64) DEFAULT NULL COMMENT 'token of the current claimer',
+  `claim_expire` datetime DEFAULT NULL COMMENT 'claim expire time, can be claimed again after it',
+  `create_time` datetime NOT NULL COMMENT 'create time of the records',
+  PRIMARY KEY (`exec_id`),
+  KEY `idx_not_before` (`not_before`),
+  KEY `idx_project_priority` (`project_name`, `priority` DESC, `deadline`, `not_before`, `exec_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+-- `schedule_fires` table, write-ahead log of the timing wheel trigger engine
+DROP TABLE If Exists `schedule_fires`;
+CREATE TABLE `schedule_fires` (
+  `flow_id` int(11) NOT NULL COMMENT 'workflow id',
+  `fire_time` datetime NOT NULL COMMENT 'scheduled fire time',
+  `fired` tinyint(1) NOT NULL DEFAULT 0 COMMENT 'whether the execution of this fire has been created',
+  PRIMARY KEY (`flow_id`, `fire_time`),
+  KEY `idx_fired` (`fired`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
 
 -- `streaming job` table
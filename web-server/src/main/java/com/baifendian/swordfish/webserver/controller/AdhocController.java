@@ -30,7 +30,9 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -40,6 +42,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * 即席查询的服务入口
@@ -74,9 +77,12 @@ public class AdhocController {
             + "proxyUser: {}, queue: {}, type: {}, udfs: {}, timeout: {}",
         operator.getName(), projectName, name, stms, limit, proxyUser, queue, type, udfs, timeout);
 
-    // limit 的限制
-    if (limit <= 0 || limit > 5000) {
-      throw new BadRequestException("Argument is not valid, limit must be between (0, 5000]");
+    // limit 的限制, 超过第一页的结果会写入分片文件, phoenix 的结果仍然全部保存在内存中
+    int maxLimit = (type == SqlEngineType.PHOENIX) ? 5000 : Constants.ADHOC_MAX_LIMIT;
+
+    if (limit <= 0 || limit > maxLimit) {
+      throw new BadRequestException(String
+          .format("Argument is not valid, limit must be between (0, %d]", maxLimit));
     }
 
     if (timeout == null) {
@@ -139,13 +145,42 @@ public class AdhocController {
   }
 
   /**
-   * 获取即席查询的结果
+   * 获取即席查询的结果, 支持分页
    */
   @GetMapping(value = "/adHoc/{execId}/result")
   public AdHocResultDto queryResult(@RequestAttribute(value = "session.user") User operator,
+      @PathVariable int execId,
+      @RequestParam(value = "index") int index,
+      @RequestParam(value = "from", required = false, defaultValue = "0") int from,
+      @RequestParam(value = "size", required = false, defaultValue = "1000") int size) {
+    logger.info("Operator user {}, get adhoc result, exec id: {}, index: {}, from: {}, size: {}",
+        operator.getName(), execId, index, from, size);
+
+    // index & from 的限制
+    if (index < 0 || from < 0) {
+      throw new BadRequestException(
+          "Argument is not valid, index & from must be equal or more than zero");
+    }
+
+    // size 的限制
+    if (size <= 0 || size > Constants.ADHOC_RESULT_FIRST_PAGE_ROWS * 10) {
+      throw new BadRequestException(String
+          .format("Argument is not valid, size must be between (0, %d]",
+              Constants.ADHOC_RESULT_FIRST_PAGE_ROWS * 10));
+    }
+
+    return adhocService.queryResult(operator, execId, index, from, size);
+  }
+
+  /**
+   * 下载即席查询的全部结果, csv 格式
+   */
+  @GetMapping(value = "/adHoc/{execId}/result/file")
+  public ResponseEntity<StreamingResponseBody> downloadResult(
+      @RequestAttribute(value = "session.user") User operator,
       @PathVariable int execId,
       @RequestParam(value = "index") int index) {
-    logger.info("Operator user {}, get adhoc result, exec id: {}, index: {}",
+    logger.info("Operator user {}, download adhoc result, exec id: {}, index: {}",
         operator.getName(), execId, index);
 
     // index 的限制
@@ -153,7 +188,13 @@ public class AdhocController {
       throw new BadRequestException("Argument is not valid, index must be equal or more than zero");
     }
 
-    return adhocService.queryResult(operator, execId, index);
+    StreamingResponseBody body = adhocService.downloadResult(operator, execId, index);
+
+    return ResponseEntity
+        .ok()
+        .header(HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"adhoc_" + execId + "_" + index + ".csv\"")
+        .body(body);
   }
 
   /**
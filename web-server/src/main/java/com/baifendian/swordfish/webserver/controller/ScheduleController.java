@@ -18,6 +18,7 @@ package com.baifendian.swordfish.webserver.controller;
 import com.baifendian.swordfish.common.consts.Constants;
 import com.baifendian.swordfish.dao.enums.DepPolicyType;
 import com.baifendian.swordfish.dao.enums.FailurePolicyType;
+import com.baifendian.swordfish.dao.enums.FlowPriority;
 import com.baifendian.swordfish.dao.enums.NotifyType;
 import com.baifendian.swordfish.dao.enums.ScheduleStatus;
 import com.baifendian.swordfish.dao.model.Schedule;
@@ -67,6 +68,8 @@ public class ScheduleController {
    * @param depWorkflows
    * @param depPolicyType
    * @param timeout
+   * @param flowPriority
+   * @param deadline
    * @return
    */
   @PostMapping("/{workflowName}/schedules")
@@ -81,10 +84,12 @@ public class ScheduleController {
                                     @RequestParam(value = "failurePolicy", required = false, defaultValue = "END") FailurePolicyType failurePolicy,
                                     @RequestParam(value = "depWorkflows", required = false) String depWorkflows,
                                     @RequestParam(value = "depPolicy", required = false, defaultValue = "NO_DEP_PRE") DepPolicyType depPolicyType,
-                                    @RequestParam(value = "timeout", required = false) Integer timeout) {
+                                    @RequestParam(value = "timeout", required = false) Integer timeout,
+                                    @RequestParam(value = "flowPriority", required = false, defaultValue = "MEDIUM") FlowPriority flowPriority,
+                                    @RequestParam(value = "deadline", required = false) Integer deadline) {
     logger.info("Operator user {}, exec workflow, project name: {}, workflow name: {}, schedule: {}, notify type: {}, notify mails: {}, max try times: {}," +
-                    "failure policy: {}, dep workflows: {}, dep policy: {}, timeout: {}",
-            operator.getName(), projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout);
+                    "failure policy: {}, dep workflows: {}, dep policy: {}, timeout: {}, flow priority: {}, deadline: {}",
+            operator.getName(), projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout, flowPriority, deadline);
 
     if (timeout == null) {
       timeout = Constants.TASK_MAX_TIMEOUT;
@@ -102,7 +107,12 @@ public class ScheduleController {
       throw new BadRequestException("Argument is not valid, max try times must be between [0, 2]");
     }
 
-    return new ScheduleDto(scheduleService.createSchedule(operator, projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout));
+    // deadline 是相对调度时间的秒数
+    if (deadline != null && deadline <= 0) {
+      throw new BadRequestException("Argument is not valid, deadline must be greater than 0");
+    }
+
+    return new ScheduleDto(scheduleService.createSchedule(operator, projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout, flowPriority, deadline));
   }
 
   /**
@@ -118,6 +128,8 @@ public class ScheduleController {
    * @param depWorkflows
    * @param depPolicyType
    * @param timeout
+   * @param flowPriority
+   * @param deadline
    * @return
    */
   @PutMapping("/{workflowName}/schedules")
@@ -131,10 +143,12 @@ public class ScheduleController {
                                              @RequestParam(value = "failurePolicy", required = false, defaultValue = "END") FailurePolicyType failurePolicy,
                                              @RequestParam(value = "depWorkflows", required = false) String depWorkflows,
                                              @RequestParam(value = "depPolicy", required = false, defaultValue = "NO_DEP_PRE") DepPolicyType depPolicyType,
-                                             @RequestParam(value = "timeout", required = false) Integer timeout) {
+                                             @RequestParam(value = "timeout", required = false) Integer timeout,
+                                             @RequestParam(value = "flowPriority", required = false) FlowPriority flowPriority,
+                                             @RequestParam(value = "deadline", required = false) Integer deadline) {
     logger.info("Operator user {}, exec workflow, project name: {}, workflow name: {}, schedule: {}, notify type: {}, notify mails: {}, max try times: {}," +
-                    "failure policy: {}, dep workflows: {}, dep policy: {}, timeout: {}",
-            operator.getName(), projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout);
+                    "failure policy: {}, dep workflows: {}, dep policy: {}, timeout: {}, flow priority: {}, deadline: {}",
+            operator.getName(), projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout, flowPriority, deadline);
 
     if (timeout == null) {
       timeout = Constants.TASK_MAX_TIMEOUT;
@@ -152,7 +166,12 @@ public class ScheduleController {
       throw new BadRequestException("Argument is not valid, max try times must be between [0, 2]");
     }
 
-    return new ScheduleDto(scheduleService.putSchedule(operator, projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout));
+    // deadline 是相对调度时间的秒数
+    if (deadline != null && deadline <= 0) {
+      throw new BadRequestException("Argument is not valid, deadline must be greater than 0");
+    }
+
+    return new ScheduleDto(scheduleService.putSchedule(operator, projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout, flowPriority, deadline));
   }
 
   /**
@@ -168,6 +187,8 @@ public class ScheduleController {
    * @param depWorkflows
    * @param depPolicyType
    * @param timeout
+   * @param flowPriority
+   * @param deadline
    * @return
    */
   @PatchMapping("/{workflowName}/schedules")
@@ -181,10 +202,12 @@ public class ScheduleController {
                                    @RequestParam(value = "failurePolicy", required = false, defaultValue = "END") FailurePolicyType failurePolicy,
                                    @RequestParam(value = "depWorkflows", required = false) String depWorkflows,
                                    @RequestParam(value = "depPolicy", required = false, defaultValue = "NO_DEP_PRE") DepPolicyType depPolicyType,
-                                   @RequestParam(value = "timeout", required = false) Integer timeout) {
+                                   @RequestParam(value = "timeout", required = false) Integer timeout,
+                                   @RequestParam(value = "flowPriority", required = false) FlowPriority flowPriority,
+                                   @RequestParam(value = "deadline", required = false) Integer deadline) {
     logger.info("Operator user {}, exec workflow, project name: {}, workflow name: {}, schedule: {}, notify type: {}, notify mails: {}, max try times: {}," +
-                    "failure policy: {}, dep workflows: {}, dep policy: {}, timeout: {}",
-            operator.getName(), projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout);
+                    "failure policy: {}, dep workflows: {}, dep policy: {}, timeout: {}, flow priority: {}, deadline: {}",
+            operator.getName(), projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout, flowPriority, deadline);
 
     if (timeout == null) {
       timeout = Constants.TASK_MAX_TIMEOUT;
@@ -202,7 +225,12 @@ public class ScheduleController {
       throw new BadRequestException("Argument is not valid, max try times must be between [0, 2]");
     }
 
-    return new ScheduleDto(scheduleService.patchSchedule(operator, projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout, null));
+    // deadline 是相对调度时间的秒数
+    if (deadline != null && deadline <= 0) {
+      throw new BadRequestException("Argument is not valid, deadline must be greater than 0");
+    }
+
+    return new ScheduleDto(scheduleService.patchSchedule(operator, projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout, flowPriority, deadline, null));
   }
 
   /**
@@ -40,6 +40,16 @@ public class AdHocResultDto {
    */
   private String stm;
 
+  /**
+   * 结果的总行数
+   */
+  private long rowCount;
+
+  /**
+   * 是否复用了缓存的结果
+   */
+  private boolean cacheHit;
+
   /**
    * 结果
    */
@@ -77,6 +87,22 @@ public class AdHocResultDto {
     this.results = results;
   }
 
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  public void setRowCount(long rowCount) {
+    this.rowCount = rowCount;
+  }
+
+  public boolean isCacheHit() {
+    return cacheHit;
+  }
+
+  public void setCacheHit(boolean cacheHit) {
+    this.cacheHit = cacheHit;
+  }
+
   public String getName() {
     return name;
   }
@@ -18,6 +18,7 @@ package com.baifendian.swordfish.webserver.dto;
 import com.baifendian.swordfish.common.json.JsonOrdinalSerializer;
 import com.baifendian.swordfish.dao.enums.DepPolicyType;
 import com.baifendian.swordfish.dao.enums.FailurePolicyType;
+import com.baifendian.swordfish.dao.enums.FlowPriority;
 import com.baifendian.swordfish.dao.enums.NotifyType;
 import com.baifendian.swordfish.dao.enums.ScheduleStatus;
 import com.baifendian.swordfish.dao.model.Schedule;
@@ -39,6 +40,8 @@ public class ScheduleDto {
   private List<Schedule.DepWorkflow> depWorkflows;
   private DepPolicyType depPolicyType;
   private int timeout;
+  private FlowPriority flowPriority;
+  private Integer deadline;
   private Date createTime;
   private Date modifyTime;
   private String owner;
@@ -62,6 +65,8 @@ public class ScheduleDto {
       this.depWorkflows = schedule.getDepWorkflows();
       this.depPolicyType = schedule.getDepPolicy();
       this.timeout = schedule.getTimeout();
+      this.flowPriority = schedule.getFlowPriority();
+      this.deadline = schedule.getDeadline();
       this.createTime = schedule.getCreateTime();
       this.modifyTime = schedule.getModifyTime();
       this.owner = schedule.getOwner();
@@ -150,6 +155,22 @@ public class ScheduleDto {
     this.timeout = timeout;
   }
 
+  public FlowPriority getFlowPriority() {
+    return flowPriority;
+  }
+
+  public void setFlowPriority(FlowPriority flowPriority) {
+    this.flowPriority = flowPriority;
+  }
+
+  public Integer getDeadline() {
+    return deadline;
+  }
+
+  public void setDeadline(Integer deadline) {
+    this.deadline = deadline;
+  }
+
   public Date getCreateTime() {
     return createTime;
   }
@@ -19,6 +19,7 @@ import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 import static org.springframework.http.HttpStatus.PRECONDITION_FAILED;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 import static org.springframework.http.HttpStatus.UNAUTHORIZED;
 import static org.springframework.http.HttpStatus.valueOf;
 
@@ -99,6 +100,22 @@ public class ControllerExceptionAdvice extends ResponseEntityExceptionHandler {
     return new ResponseEntity<Object>(new CustomErrorType(NOT_FOUND, ex.getMessage()), NOT_FOUND);
   }
 
+  /**
+   * 处理过载异常, 通过 Retry-After 告知多少秒之后重试
+   */
+  @ExceptionHandler(ServiceUnavailableException.class)
+  @ResponseBody
+  ResponseEntity<?> handleControllerServiceUnavailableException(HttpServletRequest request,
+      ServiceUnavailableException ex) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter()));
+
+    String msg = String.format("%s, retry after %d seconds", ex.getMessage(), ex.getRetryAfter());
+
+    return new ResponseEntity<Object>(new CustomErrorType(SERVICE_UNAVAILABLE, msg), headers,
+        SERVICE_UNAVAILABLE);
+  }
+
   /**
    * 处理 controller 异常
    */
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.webserver.exception;
+
+/**
+ * 服务过载异常, 稍后重试
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+  /**
+   * 建议多少秒之后重试
+   */
+  private final int retryAfter;
+
+  public ServiceUnavailableException(String msg, int retryAfter) {
+    super(msg);
+    this.retryAfter = retryAfter;
+  }
+
+  public int getRetryAfter() {
+    return retryAfter;
+  }
+}
@@ -17,6 +17,9 @@ package com.baifendian.swordfish.webserver.service;
 
 import static com.baifendian.swordfish.webserver.utils.ParamVerify.verifyProxyUser;
 
+import com.baifendian.swordfish.common.adhoc.AdHocResultReader;
+import com.baifendian.swordfish.common.config.BaseConfig;
+import com.baifendian.swordfish.common.hadoop.HdfsClient;
 import com.baifendian.swordfish.common.job.struct.node.adhoc.AdHocParam;
 import com.baifendian.swordfish.common.job.struct.node.common.UdfsInfo;
 import com.baifendian.swordfish.dao.enums.FlowStatus;
@@ -43,13 +46,16 @@ import com.baifendian.swordfish.webserver.exception.PermissionException;
 import com.baifendian.swordfish.webserver.exception.ServerErrorException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Service
 public class AdhocService {
@@ -237,7 +243,92 @@ public class AdhocService {
   /**
    * 查询结果
    */
-  public AdHocResultDto queryResult(User operator, int execId, int index) {
+  public AdHocResultDto queryResult(User operator, int execId, int index, int from, int size) {
+    AdHocResult adHocResult = queryResultWithPerm(operator, execId, index);
+
+    AdHocResultDto adHocResultDto = new AdHocResultDto();
+
+    adHocResultDto.setName(adHocResult.getName());
+    adHocResultDto.setStartTime(adHocResult.getStartTime());
+    adHocResultDto.setEndTime(adHocResult.getEndTime());
+    adHocResultDto.setStm(adHocResult.getStm());
+    adHocResultDto.setRowCount(adHocResult.getRowCount());
+    adHocResultDto.setCacheHit(adHocResult.getCacheSource() != null);
+
+    adHocResultDto.setResults(page(adHocResult, from, size));
+
+    return adHocResultDto;
+  }
+
+  /**
+   * 取结果的一页, 第一页从数据库中读取, 超过第一页的部分从结果分片中读取
+   */
+  AdHocJsonObject page(AdHocResult adHocResult, int from, int size) {
+    AdHocJsonObject results = JsonUtil.parseObject(adHocResult.getResult(), AdHocJsonObject.class);
+
+    // 非查询语句或者执行失败的语句没有结果行, 原样返回
+    if (results == null || results.getValues() == null) {
+      return results;
+    }
+
+    List<List<String>> firstPage = results.getValues();
+
+    // 按 long 计算, 避免 from + size 溢出
+    long to = (long) from + size;
+
+    if (to <= firstPage.size() || StringUtils.isEmpty(adHocResult.getResultPath())) {
+      // 只需要第一页的数据
+      int fromIndex = Math.min(from, firstPage.size());
+      int toIndex = (int) Math.min(to, firstPage.size());
+
+      results.setValues(new ArrayList<>(firstPage.subList(fromIndex, toIndex)));
+    } else {
+      AdHocResultReader reader = new AdHocResultReader(adHocResult.getResultPath(),
+          adHocResult.getSegmentRows(), adHocResult.getSegmentCount());
+
+      try {
+        results.setValues(reader.read(from, size));
+      } catch (Exception e) {
+        logger.error(String.format("Read ad hoc result segments of exec id: %d, index: %d error",
+            adHocResult.getExecId(), adHocResult.getIndex()), e);
+        throw new ServerErrorException("Read result of exec id \"{0}\" index \"{1}\" error",
+            String.valueOf(adHocResult.getExecId()), String.valueOf(adHocResult.getIndex()));
+      }
+    }
+
+    return results;
+  }
+
+  /**
+   * 下载结果, 以 csv 的格式流式的输出所有的结果
+   */
+  public StreamingResponseBody downloadResult(User operator, int execId, int index) {
+    AdHocResult adHocResult = queryResultWithPerm(operator, execId, index);
+
+    AdHocJsonObject results = JsonUtil.parseObject(adHocResult.getResult(), AdHocJsonObject.class);
+
+    if (results == null) {
+      logger.error("execId: {} index: {} has no result!", String.valueOf(execId),
+          String.valueOf(index));
+      throw new NotFoundException("execId: {0} index: {1} has no result!",
+          String.valueOf(execId), String.valueOf(index));
+    }
+
+    // 没有分片的, 结果都在数据库中
+    if (StringUtils.isEmpty(adHocResult.getResultPath())) {
+      return out -> AdHocResultReader.transferTo(results.getTitles(), results.getValues(), out);
+    }
+
+    AdHocResultReader reader = new AdHocResultReader(adHocResult.getResultPath(),
+        adHocResult.getSegmentRows(), adHocResult.getSegmentCount());
+
+    return out -> reader.transferTo(results.getTitles(), out);
+  }
+
+  /**
+   * 校验权限, 并查询某条语句的结果
+   */
+  private AdHocResult queryResultWithPerm(User operator, int execId, int index) {
 
     // 查看用户对项目是否具备相应权限
     Project project = adHocMapper.queryProjectByExecId(execId);
@@ -265,15 +356,7 @@ public class AdhocService {
           String.valueOf(execId), String.valueOf(index));
     }
 
-    AdHocResultDto adHocResultDto = new AdHocResultDto();
-
-    adHocResultDto.setName(adHocResult.getName());
-    adHocResultDto.setStartTime(adHocResult.getStartTime());
-    adHocResultDto.setEndTime(adHocResult.getEndTime());
-    adHocResultDto.setStm(adHocResult.getStm());
-    adHocResultDto.setResults(JsonUtil.parseObject(adHocResult.getResult(), AdHocJsonObject.class));
-
-    return adHocResultDto;
+    return adHocResult;
   }
 
   /**
@@ -362,6 +445,36 @@ public class AdhocService {
           operator.getName(), project.getName());
     }
 
+    List<AdHoc> adHocList = adHocMapper.selectAdhocByName(project.getId(), name);
+
     adHocMapper.deleteAdHocByName(project.getId(), name);
+
+    // 结果分片可能属于删除的执行, 也可能属于它们复用的执行
+    Set<Integer> execIds = new LinkedHashSet<>();
+
+    for (AdHoc adHoc : adHocList) {
+      execIds.add(adHoc.getId());
+
+      if (adHoc.getCacheSource() != null) {
+        execIds.add(adHoc.getCacheSource());
+      }
+    }
+
+    // 执行已经删除, 并且没有其它执行复用时, 才删除结果分片
+    for (int execId : execIds) {
+      if (adHocMapper.selectById(execId) != null || adHocMapper.countByCacheSource(execId) > 0) {
+        continue;
+      }
+
+      String resultDir = BaseConfig.getHdfsAdHocResultDir(execId);
+
+      try {
+        if (HdfsClient.getInstance().exists(resultDir)) {
+          HdfsClient.getInstance().delete(resultDir, true);
+        }
+      } catch (Exception e) {
+        logger.error(String.format("Delete ad hoc result dir: %s error", resultDir), e);
+      }
+    }
   }
 }
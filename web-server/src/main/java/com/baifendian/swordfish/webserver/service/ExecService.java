@@ -47,6 +47,7 @@ import com.baifendian.swordfish.webserver.exception.ParameterException;
 import com.baifendian.swordfish.webserver.exception.PermissionException;
 import com.baifendian.swordfish.webserver.exception.PreFailedException;
 import com.baifendian.swordfish.webserver.exception.ServerErrorException;
+import com.baifendian.swordfish.webserver.exception.ServiceUnavailableException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -164,6 +165,8 @@ public class ExecService {
           RetResultInfo retInfo = masterClient
               .execFlow(project.getId(), projectFlow.getId(), now, execInfo);
 
+          checkBusy(retInfo);
+
           if (retInfo == null || retInfo.getRetInfo().getStatus() != 0) {
             logger.error(
                 "Call master client exec workflow false , project id: {}, flow id: {},host: {}, port: {}",
@@ -192,6 +195,8 @@ public class ExecService {
           RetResultInfo retInfo = masterClient
               .appendWorkFlow(project.getId(), projectFlow.getId(), scheduleInfo, execInfo);
 
+          checkBusy(retInfo);
+
           if (retInfo == null || retInfo.getRetInfo().getStatus() != 0) {
             logger.error(
                 "Call master client append workflow data false , project id: {}, flow id: {},host: {}, port: {}",
@@ -217,6 +222,17 @@ public class ExecService {
     }
   }
 
+  /**
+   * master 过载拒绝了提交, 返回 503 让调用方稍后重试
+   */
+  private void checkBusy(RetResultInfo retInfo) {
+    if (retInfo != null && retInfo.getRetInfo().getStatus() == 2) {
+      logger.warn("master server is busy: {}", retInfo.getRetInfo().getMsg());
+      throw new ServiceUnavailableException(retInfo.getRetInfo().getMsg(),
+          retInfo.getRetInfo().getRetryAfter());
+    }
+  }
+
   /**
    * 直接执行一个工作流
    */
@@ -20,6 +20,7 @@ import static com.baifendian.swordfish.dao.enums.ScheduleStatus.OFFLINE;
 import com.baifendian.swordfish.dao.FlowDao;
 import com.baifendian.swordfish.dao.enums.DepPolicyType;
 import com.baifendian.swordfish.dao.enums.FailurePolicyType;
+import com.baifendian.swordfish.dao.enums.FlowPriority;
 import com.baifendian.swordfish.dao.enums.NotifyType;
 import com.baifendian.swordfish.dao.enums.ScheduleStatus;
 import com.baifendian.swordfish.dao.mapper.MasterServerMapper;
@@ -83,10 +84,12 @@ public class ScheduleService {
    * @param depWorkflows
    * @param depPolicyType
    * @param timeout
+   * @param flowPriority
+   * @param deadline 完成期限, 相对调度时间的秒数
    * @return
    */
   @Transactional(value = "TransactionManager", rollbackFor = Exception.class)
-  public Schedule createSchedule(User operator, String projectName, String workflowName, String schedule, NotifyType notifyType, String notifyMails, int maxTryTimes, FailurePolicyType failurePolicy, String depWorkflows, DepPolicyType depPolicyType, int timeout) {
+  public Schedule createSchedule(User operator, String projectName, String workflowName, String schedule, NotifyType notifyType, String notifyMails, int maxTryTimes, FailurePolicyType failurePolicy, String depWorkflows, DepPolicyType depPolicyType, int timeout, FlowPriority flowPriority, Integer deadline) {
 
     Project project = projectMapper.queryByName(projectName);
 
@@ -127,6 +130,8 @@ public class ScheduleService {
       scheduleObj.setDepWorkflowsStr(depWorkflows);
       scheduleObj.setDepPolicy(depPolicyType);
       scheduleObj.setTimeout(timeout);
+      scheduleObj.setFlowPriority((flowPriority == null) ? FlowPriority.MEDIUM : flowPriority);
+      scheduleObj.setDeadline(deadline);
       scheduleObj.setCreateTime(now);
       scheduleObj.setModifyTime(now);
       scheduleObj.setOwnerId(operator.getId());
@@ -161,11 +166,13 @@ public class ScheduleService {
    * @param depWorkflows
    * @param depPolicyType
    * @param timeout
+   * @param flowPriority
+   * @param deadline 完成期限, 相对调度时间的秒数
    * @param scheduleStatus
    * @return
    */
   @Transactional(value = "TransactionManager", rollbackFor = Exception.class)
-  public Schedule patchSchedule(User operator, String projectName, String workflowName, String schedule, NotifyType notifyType, String notifyMails, Integer maxTryTimes, FailurePolicyType failurePolicy, String depWorkflows, DepPolicyType depPolicyType, Integer timeout, ScheduleStatus scheduleStatus) {
+  public Schedule patchSchedule(User operator, String projectName, String workflowName, String schedule, NotifyType notifyType, String notifyMails, Integer maxTryTimes, FailurePolicyType failurePolicy, String depWorkflows, DepPolicyType depPolicyType, Integer timeout, FlowPriority flowPriority, Integer deadline, ScheduleStatus scheduleStatus) {
     Project project = projectMapper.queryByName(projectName);
 
     if (project == null) {
@@ -239,6 +246,14 @@ public class ScheduleService {
         scheduleObj.setTimeout(timeout);
       }
 
+      if (flowPriority != null) {
+        scheduleObj.setFlowPriority(flowPriority);
+      }
+
+      if (deadline != null) {
+        scheduleObj.setDeadline(deadline);
+      }
+
       if (scheduleStatus != null) {
         scheduleObj.setScheduleStatus(scheduleStatus);
       }
@@ -268,16 +283,18 @@ public class ScheduleService {
    * @param depWorkflows
    * @param depPolicyType
    * @param timeout
+   * @param flowPriority
+   * @param deadline 完成期限, 相对调度时间的秒数
    * @return
    */
-  public Schedule putSchedule(User operator, String projectName, String workflowName, String schedule, NotifyType notifyType, String notifyMails, Integer maxTryTimes, FailurePolicyType failurePolicy, String depWorkflows, DepPolicyType depPolicyType, Integer timeout) {
+  public Schedule putSchedule(User operator, String projectName, String workflowName, String schedule, NotifyType notifyType, String notifyMails, Integer maxTryTimes, FailurePolicyType failurePolicy, String depWorkflows, DepPolicyType depPolicyType, Integer timeout, FlowPriority flowPriority, Integer deadline) {
     Schedule scheduleObj = scheduleMapper.selectByFlowName(projectName, workflowName);
 
     if (scheduleObj == null) {
-      return createSchedule(operator, projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout);
+      return createSchedule(operator, projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout, flowPriority, deadline);
     }
 
-    return patchSchedule(operator, projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout, null);
+    return patchSchedule(operator, projectName, workflowName, schedule, notifyType, notifyMails, maxTryTimes, failurePolicy, depWorkflows, depPolicyType, timeout, flowPriority, deadline, null);
   }
 
 
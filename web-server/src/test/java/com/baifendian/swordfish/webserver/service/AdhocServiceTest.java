@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2017 Baifendian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baifendian.swordfish.webserver.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.baifendian.swordfish.dao.model.AdHocJsonObject;
+import com.baifendian.swordfish.dao.model.AdHocResult;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class AdhocServiceTest {
+
+  private final AdhocService adhocService = new AdhocService();
+
+  @Test
+  public void testPage() {
+    AdHocResult adHocResult = new AdHocResult();
+    adHocResult.setResult("{\"titles\":[\"id\"],\"values\":[[\"1\"],[\"2\"],[\"3\"]]}");
+
+    assertEquals(Arrays.asList(Arrays.asList("2"), Arrays.asList("3")),
+        adhocService.page(adHocResult, 1, 10).getValues());
+    assertEquals(0, adhocService.page(adHocResult, Integer.MAX_VALUE, 10).getValues().size());
+  }
+
+  @Test
+  public void testPageWithoutValues() {
+    // 非查询语句或者执行失败的语句没有结果行
+    AdHocResult adHocResult = new AdHocResult();
+    adHocResult.setResult("{\"titles\":null,\"values\":null}");
+
+    AdHocJsonObject results = adhocService.page(adHocResult, 0, 10);
+
+    assertNull(results.getTitles());
+    assertNull(results.getValues());
+
+    adHocResult.setResult(null);
+
+    assertNull(adhocService.page(adHocResult, 0, 10));
+  }
+}